@@ -0,0 +1,87 @@
+package com.hevelian.olastic.core;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+
+/**
+ * OData request that allows processors to complete response asynchronously.
+ * Instead of waiting for Elasticsearch response, processor defers the
+ * response, and caller writes it when future is completed. Response returned
+ * by the handler contains only headers set by the OData library, all other
+ * headers, status and content are taken from deferred response. Request could
+ * be cancelled, e.g. when client disconnected, so its processing is stopped.
+ *
+ * @author rdidyk
+ */
+public class AsyncODataRequest extends ODataRequest {
+
+    private final CompletableFuture<Void> cancellation = new CompletableFuture<>();
+    private volatile CompletableFuture<ODataResponse> deferredResponse;
+    private String session;
+
+    /**
+     * Defers response of the request.
+     *
+     * @param response
+     *            future of response, completed exceptionally only if error
+     *            response can't be created
+     */
+    public void defer(CompletableFuture<ODataResponse> response) {
+        this.deferredResponse = response;
+    }
+
+    /**
+     * @return future of deferred response, or null if response was written
+     *         synchronously
+     */
+    public CompletableFuture<ODataResponse> getDeferredResponse() {
+        return deferredResponse;
+    }
+
+    /**
+     * @return identifier of user or session which sent request, or null if
+     *         it's unknown
+     */
+    public String getSession() {
+        return session;
+    }
+
+    /**
+     * Sets identifier of user or session which sent request, so its searches
+     * are executed on the same shard copies.
+     *
+     * @param session
+     *            identifier of user or session
+     */
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    /**
+     * Cancels request. All cancellation listeners are notified only once.
+     */
+    public void cancel() {
+        cancellation.complete(null);
+    }
+
+    /**
+     * @return true if request was cancelled
+     */
+    public boolean isCancelled() {
+        return cancellation.isDone();
+    }
+
+    /**
+     * Registers listener which is notified when request is cancelled. If
+     * request is already cancelled, listener is notified immediately.
+     *
+     * @param listener
+     *            cancellation listener
+     */
+    public void onCancel(Runnable listener) {
+        cancellation.thenRun(listener);
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.hevelian.olastic.core;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.edm.EdmEntityContainer;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainer;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.server.api.ODataHttpHandler;
+
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEdmProvider;
+import com.hevelian.olastic.core.edm.ElasticEdmProvider;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Immutable snapshot of the service EDM. The snapshot is built once and shared
+ * between all requests, so mappings are retrieved from Elasticsearch and
+ * converted to CSDL only when the snapshot is created. To apply new mappings a
+ * new snapshot has to be created and published instead of the old one.
+ * <p>
+ * {@link ODataHttpHandler} keeps state of the request being processed, so it is
+ * not shared and should be created for each request with
+ * {@link #createHandler()}.
+ * </p>
+ *
+ * @author rdidyk
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ElasticEdmSnapshot {
+
+    ElasticOData odata;
+    ElasticServiceMetadata serviceMetadata;
+
+    /**
+     * Creates snapshot from already initialized OData and service metadata.
+     *
+     * @param odata
+     *            OData instance
+     * @param serviceMetadata
+     *            service metadata
+     */
+    public ElasticEdmSnapshot(ElasticOData odata, ElasticServiceMetadata serviceMetadata) {
+        this.odata = odata;
+        this.serviceMetadata = serviceMetadata;
+    }
+
+    /**
+     * Creates snapshot with new {@link ElasticOData} instance and service
+     * metadata created from CSDL provider. All entity sets with their entity
+     * and complex types are loaded and metadata document is rendered before
+     * snapshot is returned. If provider is lazy, types are loaded and metadata
+     * document is rendered on first access instead.
+     *
+     * @param provider
+     *            CSDL provider
+     * @param references
+     *            EDMX references
+     * @return created snapshot
+     * @throws ODataException
+     *             if any error occurred during loading of EDM
+     */
+    public static ElasticEdmSnapshot create(ElasticCsdlEdmProvider provider,
+            List<EdmxReference> references) throws ODataException {
+        ElasticOData odata = ElasticOData.newInstance();
+        return create(odata, odata.createServiceMetadata(provider, references));
+    }
+
+    /**
+     * Creates snapshot from OData instance and service metadata created by
+     * it. All entity sets with their entity and complex types are loaded and
+     * metadata document is rendered before snapshot is returned, unless CSDL
+     * provider of metadata is lazy.
+     *
+     * @param odata
+     *            OData instance
+     * @param serviceMetadata
+     *            service metadata
+     * @return created snapshot
+     * @throws ODataException
+     *             if any error occurred during loading of EDM
+     */
+    public static ElasticEdmSnapshot create(ElasticOData odata,
+            ElasticServiceMetadata serviceMetadata) throws ODataException {
+        ElasticEdmSnapshot snapshot = new ElasticEdmSnapshot(odata, serviceMetadata);
+        if (!snapshot.getEdm().getCsdlProvider().isLazy()) {
+            snapshot.load();
+            snapshot.getServiceMetadata().getDocuments().getMetadataETag();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads entity sets and their types to EDM cache. Entity sets are resolved
+     * by name one by one, because loading all of them at once from container
+     * creates default Olingo implementations instead of Elastic ones.
+     *
+     * @throws ODataException
+     *             if any error occurred
+     */
+    private void load() throws ODataException {
+        ElasticEdmProvider edm = getEdm();
+        CsdlEntityContainer csdlContainer = edm.getCsdlProvider().getEntityContainer();
+        EdmEntityContainer container = edm.getEntityContainer();
+        if (csdlContainer == null || container == null) {
+            return;
+        }
+        Set<FullQualifiedName> loaded = new HashSet<>();
+        for (CsdlEntitySet csdlEntitySet : csdlContainer.getEntitySets()) {
+            EdmEntitySet entitySet = container.getEntitySet(csdlEntitySet.getName());
+            if (entitySet != null) {
+                loadStructuredType(entitySet.getEntityType(), loaded);
+            }
+        }
+    }
+
+    /**
+     * Loads structured type and types of all its complex properties.
+     *
+     * @param type
+     *            structured type
+     * @param loaded
+     *            names of already loaded types
+     */
+    private static void loadStructuredType(EdmStructuredType type, Set<FullQualifiedName> loaded) {
+        if (type == null || !loaded.add(type.getFullQualifiedName())) {
+            return;
+        }
+        for (String name : type.getPropertyNames()) {
+            EdmType propertyType = type.getStructuralProperty(name).getType();
+            if (propertyType instanceof EdmStructuredType) {
+                loadStructuredType((EdmStructuredType) propertyType, loaded);
+            }
+        }
+    }
+
+    /**
+     * @return EDM of the snapshot
+     */
+    public ElasticEdmProvider getEdm() {
+        return serviceMetadata.getEdm();
+    }
+
+    /**
+     * Creates new handler for the snapshot's metadata. Processors have to be
+     * registered by the caller.
+     *
+     * @return new handler instance
+     */
+    public ODataHttpHandler createHandler() {
+        return odata.createHandler(serviceMetadata);
+    }
+}
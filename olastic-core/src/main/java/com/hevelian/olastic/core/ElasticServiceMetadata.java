@@ -13,7 +13,9 @@ import com.hevelian.olastic.core.edm.ElasticEdmProvider;
 
 /**
  * Custom implementation of {@link ServiceMetadata} to provide own
- * implementation of Edm.
+ * implementation of Edm. Rendered metadata and service documents are cached
+ * in {@link MetadataDocumentCache}, which also provides ETags if no other
+ * {@link ServiceMetadataETagSupport} is given and provider is not lazy.
  * 
  * @author rdidyk
  */
@@ -22,12 +24,20 @@ public class ElasticServiceMetadata implements ServiceMetadata {
     private ElasticEdmProvider edm;
     private final List<EdmxReference> references;
     private final ServiceMetadataETagSupport serviceMetadataETagSupport;
+    private final MetadataDocumentCache documents;
 
     public ElasticServiceMetadata(ElasticCsdlEdmProvider edmProvider,
             List<EdmxReference> references, ServiceMetadataETagSupport serviceMetadataETagSupport) {
         this.edm = new ElasticEdmProvider(edmProvider);
         this.references = references;
-        this.serviceMetadataETagSupport = serviceMetadataETagSupport;
+        this.documents = new MetadataDocumentCache(this);
+        // Lazy provider doesn't build all schemas, so metadata ETag isn't
+        // written to every response
+        if (serviceMetadataETagSupport == null && !edmProvider.isLazy()) {
+            this.serviceMetadataETagSupport = documents;
+        } else {
+            this.serviceMetadataETagSupport = serviceMetadataETagSupport;
+        }
     }
 
     @Override
@@ -49,4 +59,11 @@ public class ElasticServiceMetadata implements ServiceMetadata {
     public ServiceMetadataETagSupport getServiceMetadataETagSupport() {
         return serviceMetadataETagSupport;
     }
+
+    /**
+     * @return cache of rendered metadata and service documents
+     */
+    public MetadataDocumentCache getDocuments() {
+        return documents;
+    }
 }
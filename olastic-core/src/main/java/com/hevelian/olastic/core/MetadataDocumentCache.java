@@ -0,0 +1,195 @@
+package com.hevelian.olastic.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.serializer.SerializerResult;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Cache of rendered metadata and service documents of a single
+ * {@link ServiceMetadata}. Each document is serialized only once for every
+ * format, and then served from memory together with its gzipped version.
+ * Every representation has its own strong ETag: a hash of the document
+ * content, with suffix for gzipped content. Metadata ETag of the service is
+ * ETag of the XML metadata document, so it changes only when EDM built from
+ * mappings changes. Service document refers to service root taken from
+ * request, so only limited amount of service roots is cached.
+ *
+ * @author rdidyk
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class MetadataDocumentCache implements ServiceMetadataETagSupport {
+
+    private static final String METADATA_KEY = "$metadata";
+    private static final String SERVICE_DOCUMENT_KEY = "$service";
+    private static final char KEY_SEPARATOR = ' ';
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+    /** Maximum amount of cached service documents. */
+    public static final int MAX_SERVICE_DOCUMENTS = 100;
+
+    final ServiceMetadata serviceMetadata;
+    final ConcurrentMap<String, Document> documents = new ConcurrentHashMap<>();
+    final Cache<String, Document> serviceDocuments = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SERVICE_DOCUMENTS).build();
+    volatile String eTag;
+
+    /**
+     * Creates cache for service metadata.
+     *
+     * @param serviceMetadata
+     *            service metadata
+     */
+    public MetadataDocumentCache(ServiceMetadata serviceMetadata) {
+        this.serviceMetadata = serviceMetadata;
+    }
+
+    /**
+     * Get's rendered metadata document.
+     *
+     * @param format
+     *            document format
+     * @return metadata document
+     * @throws SerializerException
+     *             if format is not supported or document can't be serialized
+     */
+    public Document getMetadataDocument(ContentType format) throws SerializerException {
+        String key = METADATA_KEY + KEY_SEPARATOR + format.toContentTypeString();
+        Document document = documents.get(key);
+        if (document == null) {
+            document = cache(documents, key, render(ElasticOData.newInstance()
+                    .createSerializer(format).metadataDocument(serviceMetadata)));
+        }
+        return document;
+    }
+
+    /**
+     * Get's rendered service document. Service document refers to service root
+     * URI, so it's cached for each service root separately.
+     *
+     * @param format
+     *            document format
+     * @param serviceRoot
+     *            service root URI
+     * @return service document
+     * @throws SerializerException
+     *             if format is not supported or document can't be serialized
+     */
+    public Document getServiceDocument(ContentType format, String serviceRoot)
+            throws SerializerException {
+        String key = SERVICE_DOCUMENT_KEY + KEY_SEPARATOR + format.toContentTypeString()
+                + KEY_SEPARATOR + serviceRoot;
+        Document document = serviceDocuments.getIfPresent(key);
+        if (document == null) {
+            document = cache(serviceDocuments.asMap(), key,
+                    render(ElasticOData.newInstance().createSerializer(format)
+                            .serviceDocument(serviceMetadata, serviceRoot)));
+        }
+        return document;
+    }
+
+    @Override
+    public String getMetadataETag() {
+        if (eTag == null) {
+            try {
+                eTag = getMetadataDocument(ContentType.APPLICATION_XML).getETag();
+            } catch (SerializerException e) {
+                throw new ODataRuntimeException("Unable to render metadata document.", e);
+            }
+        }
+        return eTag;
+    }
+
+    /**
+     * Service document ETag depends on service root and format, see
+     * {@link Document#getETag()}.
+     *
+     * @return null
+     */
+    @Override
+    public String getServiceDocumentETag() {
+        return null;
+    }
+
+    /**
+     * Puts document to cache. Documents are rendered outside of the map
+     * operations, because rendering of one document can require another one
+     * (JSON serializer writes metadata ETag).
+     *
+     * @param documents
+     *            cached documents
+     * @param key
+     *            document key
+     * @param document
+     *            rendered document
+     * @return cached document
+     */
+    private static Document cache(ConcurrentMap<String, Document> documents, String key,
+            Document document) {
+        Document existing = documents.putIfAbsent(key, document);
+        return existing != null ? existing : document;
+    }
+
+    private static Document render(SerializerResult result) {
+        try (InputStream content = result.getContent()) {
+            return new Document(ByteStreams.toByteArray(content));
+        } catch (IOException e) {
+            throw new ODataRuntimeException("Unable to read serialized document.", e);
+        }
+    }
+
+    /**
+     * Rendered document with its gzipped content and strong ETags of both.
+     */
+    @Getter
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Document {
+
+        byte[] content;
+        byte[] gzippedContent;
+        String eTag;
+        String gzippedETag;
+
+        /**
+         * Creates document, compresses its content and computes ETags.
+         *
+         * @param content
+         *            document content
+         */
+        public Document(byte[] content) {
+            this.content = content;
+            this.gzippedContent = gzip(content);
+            String hash = Hashing.sha256().hashBytes(content).toString();
+            this.eTag = "\"" + hash + "\"";
+            this.gzippedETag = "\"" + hash + GZIP_ETAG_SUFFIX + "\"";
+        }
+
+        private static byte[] gzip(byte[] content) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(content);
+            } catch (IOException e) {
+                throw new ODataRuntimeException("Unable to compress document.", e);
+            }
+            return out.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.hevelian.olastic.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainer;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+
+import com.google.common.io.ByteStreams;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Warms up {@link ElasticEdmSnapshot} before it starts serving requests.
+ * Synthetic queries are run against every entity set through the full
+ * processor pipeline, so URI parser, expression visitor, serializers and
+ * Elasticsearch connections are initialized before the first client request.
+ * Default queries retrieve at most one document, so both searches with
+ * serialization of entities and counts without hits are warmed up. Warm-up
+ * could be limited to the most used entity sets, and requests to different
+ * entity sets could be executed in parallel. If EDM provider caches schemas
+ * lazily, warm-up of all entity sets builds schemas of all of them.
+ *
+ * @author rdidyk
+ */
+@Log4j2
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SnapshotWarmer {
+
+    /** Default queries, that retrieve at most one document from entity sets. */
+    public static final List<String> DEFAULT_QUERIES = Collections.unmodifiableList(
+            Arrays.asList("$top=1", "$top=0&$count=true",
+                    "$top=0&$filter=_id%20eq%20'warmup'"));
+
+    private static final String BASE_URI = "http://localhost/warmup";
+
+    List<String> queries;
+    int rounds;
+    Set<String> entitySets;
+    int parallelism;
+    Function<ElasticEdmSnapshot, ? extends ODataHandler> handlerFactory;
+
+    /**
+     * Creates warmer which runs default queries once.
+     *
+     * @param handlerFactory
+     *            factory of handlers with registered processors
+     */
+    public SnapshotWarmer(Function<ElasticEdmSnapshot, ? extends ODataHandler> handlerFactory) {
+        this(DEFAULT_QUERIES, 1, handlerFactory);
+    }
+
+    /**
+     * Creates warmer with custom queries.
+     *
+     * @param queries
+     *            query options to run against each entity set, e.g.
+     *            '$top=0&amp;$count=true'
+     * @param rounds
+     *            how many times each query is run
+     * @param handlerFactory
+     *            factory of handlers with registered processors, new handler
+     *            is created for each request
+     */
+    public SnapshotWarmer(List<String> queries, int rounds,
+            Function<ElasticEdmSnapshot, ? extends ODataHandler> handlerFactory) {
+        this(queries, rounds, null, 1, handlerFactory);
+    }
+
+    /**
+     * Creates warmer with custom queries for some of entity sets.
+     *
+     * @param queries
+     *            query options to run against each entity set, e.g.
+     *            '$top=0&amp;$count=true'
+     * @param rounds
+     *            how many times each query is run
+     * @param entitySets
+     *            names of entity sets to warm up, or null to warm up all of
+     *            them
+     * @param parallelism
+     *            amount of entity sets queried in parallel
+     * @param handlerFactory
+     *            factory of handlers with registered processors, new handler
+     *            is created for each request
+     */
+    public SnapshotWarmer(List<String> queries, int rounds, Collection<String> entitySets,
+            int parallelism, Function<ElasticEdmSnapshot, ? extends ODataHandler> handlerFactory) {
+        this.queries = queries;
+        this.rounds = rounds;
+        this.entitySets = entitySets != null ? new HashSet<>(entitySets) : null;
+        this.parallelism = parallelism;
+        this.handlerFactory = handlerFactory;
+    }
+
+    /**
+     * Runs all queries against every warmed up entity set of snapshot.
+     * Failed requests are logged and don't stop warm-up.
+     *
+     * @param snapshot
+     *            snapshot to warm up
+     * @return time in milliseconds spent on each query for all entity sets
+     * @throws ODataException
+     *             if entity container can't be retrieved or warm-up was
+     *             interrupted
+     */
+    public Map<String, Long> warmUp(ElasticEdmSnapshot snapshot) throws ODataException {
+        List<String> names = new ArrayList<>();
+        CsdlEntityContainer container = snapshot.getEdm().getCsdlProvider().getEntityContainer();
+        if (container != null) {
+            for (CsdlEntitySet entitySet : container.getEntitySets()) {
+                if (entitySets == null || entitySets.contains(entitySet.getName())) {
+                    names.add(entitySet.getName());
+                }
+            }
+        }
+        Map<String, Long> timings = new LinkedHashMap<>();
+        long started = System.nanoTime();
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            for (int round = 0; round < rounds; round++) {
+                for (String query : queries) {
+                    long queryStarted = System.nanoTime();
+                    if (pool != null) {
+                        pool.submit(() -> names.parallelStream()
+                                .forEach(name -> execute(snapshot, name, query))).get();
+                    } else {
+                        names.forEach(name -> execute(snapshot, name, query));
+                    }
+                    timings.merge(query, TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                            - queryStarted), Long::sum);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ODataException("Warm-up was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new ODataException("Unable to warm up snapshot.", e.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        log.info(String.format("Warm-up of %d entity sets finished in %d ms: %s", names.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), timings));
+        return timings;
+    }
+
+    /**
+     * Executes single query with new handler and reads the response content.
+     *
+     * @param snapshot
+     *            snapshot to create handler from
+     * @param entitySet
+     *            entity set name
+     * @param query
+     *            query options
+     */
+    private void execute(ElasticEdmSnapshot snapshot, String entitySet, String query) {
+        ODataRequest request = new ODataRequest();
+        request.setMethod(HttpMethod.GET);
+        request.setProtocol("HTTP/1.1");
+        request.setRawBaseUri(BASE_URI);
+        request.setRawODataPath("/" + entitySet);
+        request.setRawQueryPath(query);
+        request.setRawRequestUri(BASE_URI + "/" + entitySet + "?" + query);
+        request.setHeader(HttpHeader.ACCEPT, ContentType.JSON.toContentTypeString());
+        try {
+            ODataResponse response = handlerFactory.apply(snapshot).process(request);
+            try (InputStream content = response.getContent()) {
+                if (content != null) {
+                    ByteStreams.exhaust(content);
+                } else if (response.getODataContent() != null) {
+                    response.getODataContent().write(ByteStreams.nullOutputStream());
+                }
+            }
+            if (response.getStatusCode() >= HttpStatusCode.BAD_REQUEST.getStatusCode()) {
+                log.warn(String.format("Warm-up request %s failed with status %d.",
+                        request.getRawRequestUri(), response.getStatusCode()));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("Warm-up request %s failed.", request.getRawRequestUri()),
+                    e);
+        }
+    }
+
+}
@@ -15,6 +15,7 @@ public class ElasticCsdlComplexProperty extends CsdlProperty
     private String eIndex;
     private String eType;
     private String eNestedType;
+    private String eKeywordField;
 
     @Override
     public String getEIndex() {
@@ -30,6 +31,16 @@ public class ElasticCsdlComplexProperty extends CsdlProperty
         return eNestedType;
     }
 
+    /**
+     * Get's name of keyword sub-field from field mapping.
+     * 
+     * @return keyword sub-field name, or null if field doesn't have it
+     */
+    public String getEKeywordField() {
+        return eKeywordField;
+    }
+
+
     @Override
     public ElasticCsdlComplexProperty setEIndex(String eIndex) {
         this.eIndex = eIndex;
@@ -47,6 +58,11 @@ public class ElasticCsdlComplexProperty extends CsdlProperty
         return this;
     }
 
+    public ElasticCsdlComplexProperty setEKeywordField(String eKeywordField) {
+        this.eKeywordField = eKeywordField;
+        return this;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(eIndex, eNestedType, getName());
@@ -1,30 +1,37 @@
 package com.hevelian.olastic.core.api.edm.provider;
 
-import com.carrotsearch.hppc.cursors.ObjectCursor;
-import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
 import com.hevelian.olastic.core.api.edm.annotations.AnnotationProvider;
 import com.hevelian.olastic.core.common.NestedPerIndexMapper;
 import com.hevelian.olastic.core.common.NestedTypeMapper;
-import com.hevelian.olastic.core.common.ParsedMapWrapper;
 import com.hevelian.olastic.core.common.PrimitiveTypeMapper;
 import com.hevelian.olastic.core.elastic.ElasticConstants;
+import com.hevelian.olastic.core.elastic.TimeIndexPattern;
 import com.hevelian.olastic.core.elastic.mappings.DefaultElasticToCsdlMapper;
 import com.hevelian.olastic.core.elastic.mappings.ElasticToCsdlMapper;
+import com.hevelian.olastic.core.elastic.mappings.FieldMapping;
+import com.hevelian.olastic.core.elastic.mappings.IndexMapping;
 import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.elastic.mappings.TypeMapping;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.provider.*;
 import org.apache.olingo.commons.api.ex.ODataException;
-import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
-import org.elasticsearch.cluster.metadata.MappingMetaData;
-import org.elasticsearch.common.collect.ImmutableOpenMap;
-import org.elasticsearch.index.mapper.ObjectMapper;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.elasticsearch.index.mapper.TextFieldMapper;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * {@link CsdlEdmProvider} implementation that generates the service/metadata
@@ -45,6 +52,14 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
 
     private FullQualifiedName containerName;
 
+    private int schemaCacheSize;
+    private volatile Map<String, SchemaIndex> schemaIndices = new ConcurrentHashMap<>();
+    private volatile CsdlEntityContainer entityContainer;
+    private volatile Map<String, ElasticCsdlEntitySet> entitySets;
+    private final Map<String, String> routingFields = new ConcurrentHashMap<>();
+    private final Map<String, TimeIndexPattern> timeIndexPatterns = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Initializes mapping metadata provider with default
      * {@link ElasticToCsdlMapper} implementation.
@@ -112,12 +127,8 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
         // If there is no index mapping for provided namespace - return null, no
         // entity type is found.
         if (eIndex != null) {
-            List<ElasticCsdlEntityType> entityTypes = getEntityTypes(eIndex);
-            for (ElasticCsdlEntityType entityType : entityTypes) {
-                if (entityType.getEType().equals(entityTypeName.getName())) {
-                    return entityType;
-                }
-            }
+            return getSchemaIndex(entityTypeName.getNamespace())
+                    .getEntityType(entityTypeName.getName());
         }
         return null;
     }
@@ -134,8 +145,8 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
      * @throws ODataException odata exception
      */
     public ElasticCsdlEntityType createEntityType(String index, String type) throws ODataException {
-        MappingMetaData typeMappings = mappingMetaDataProvider.getMappingForType(index, type);
-        if (typeMappings == null) {
+        TypeMapping typeMapping = getIndexMapping(index).getType(type);
+        if (typeMapping == null) {
             throw new ODataException(String.format("No mappings found for type '%s'", type));
         }
         ElasticCsdlEntityType entityType = new ElasticCsdlEntityType();
@@ -144,7 +155,7 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
         FullQualifiedName entityTypeName = csdlMapper.eTypeToEntityType(index, type);
         entityType.setName(entityTypeName.getName());
         // Retrieve type fields from Elasticsearch
-        entityType.setProperties(getProperties(index, type, typeMappings));
+        entityType.setProperties(getProperties(index, type, typeMapping));
 
         // Add _id property
         CsdlProperty idProperty = new ElasticCsdlProperty().setName(ElasticConstants.ID_FIELD_NAME)
@@ -166,42 +177,38 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
      *
      * @param index ES index.
      * @param type ES type.
-     * @param metaData ES mapping metadata object.
+     * @param typeMapping parsed ES type mapping.
      * @return list of properties
-     * @throws ODataException odata exception
      */
-    protected List<CsdlProperty> getProperties(String index, String type, MappingMetaData metaData)
-            throws ODataException {
-        try {
-            ParsedMapWrapper eTypeProperties = new ParsedMapWrapper(metaData.sourceAsMap())
-                    .mapValue(ElasticConstants.PROPERTIES_PROPERTY);
-            List<CsdlProperty> properties = new ArrayList<>();
-            for (String eFieldName : eTypeProperties.map.keySet()) {
-                String name = csdlMapper.eFieldToCsdlProperty(index, type, eFieldName);
-                ParsedMapWrapper fieldMap = eTypeProperties.mapValue(eFieldName);
-                String eFieldType = fieldMap.stringValue(ElasticConstants.FIELD_DATATYPE_PROPERTY);
-                FullQualifiedName typeFQN;
-                if (ObjectMapper.NESTED_CONTENT_TYPE.equals(eFieldType)) {
-                    typeFQN = getNestedTypeMapper().getComplexType(index, type, name);
-                } else {
-                    typeFQN = primitiveTypeMapper.map(eFieldType).getFullQualifiedName();
-                }
-                List<CsdlAnnotation> annotations = TextFieldMapper.CONTENT_TYPE.equals(eFieldType)
-                        ? Arrays.asList(getAnnotationProvider().getAnnotation(AnnotationProvider.ANALYZED_TERM_NAME))
-                        : new ArrayList<>();
-                properties.add(new ElasticCsdlProperty().setEIndex(index).setEType(type)
-                        .setEField(eFieldName).setName(name).setType(typeFQN)
-                        .setAnnotations(annotations)
-                        .setCollection(csdlMapper.eFieldIsCollection(index, type, eFieldName)));
+    protected List<CsdlProperty> getProperties(String index, String type,
+            TypeMapping typeMapping) {
+        List<CsdlProperty> properties = new ArrayList<>();
+        for (FieldMapping field : typeMapping.getFields().values()) {
+            String eFieldName = field.getName();
+            String name = csdlMapper.eFieldToCsdlProperty(index, type, eFieldName);
+            String eFieldType = field.getDatatype();
+            FullQualifiedName typeFQN;
+            if (field.isNested()) {
+                typeFQN = getNestedTypeMapper().getComplexType(index, type, name);
+            } else {
+                typeFQN = primitiveTypeMapper.map(eFieldType).getFullQualifiedName();
             }
-            return properties;
-        } catch (IOException e) {
-            throw new ODataException("Unable to parse the mapping response from Elasticsearch.", e);
+            List<CsdlAnnotation> annotations = TextFieldMapper.CONTENT_TYPE.equals(eFieldType)
+                    ? Arrays.asList(getAnnotationProvider().getAnnotation(AnnotationProvider.ANALYZED_TERM_NAME))
+                    : new ArrayList<>();
+            properties.add(new ElasticCsdlProperty().setEIndex(index).setEType(type)
+                    .setEField(eFieldName).setEKeywordField(field.getKeywordField())
+                    .setName(name).setType(typeFQN)
+                    .setAnnotations(annotations)
+                    .setCollection(csdlMapper.eFieldIsCollection(index, type, eFieldName)));
         }
+        return properties;
     }
 
     /**
-     * Retrieve navigation properties for the entity type.
+     * Retrieve navigation properties for the entity type. Relations are taken
+     * from parsed index mapping, so no additional mappings requests are
+     * executed.
      *
      * @param index ES index.
      * @param type ES type.
@@ -210,44 +217,48 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
     protected List<ElasticCsdlNavigationProperty> getNavigationProperties(String index,
             String type) {
         List<ElasticCsdlNavigationProperty> navigationProperties = new ArrayList<>();
-        ImmutableOpenMap<String, FieldMappingMetaData> eFieldMappings = mappingMetaDataProvider
-                .getMappingsForField(index, ElasticConstants.PARENT_PROPERTY);
-        for (ObjectObjectCursor<String, FieldMappingMetaData> e : eFieldMappings) {
-            ParsedMapWrapper eParent = new ParsedMapWrapper(e.value.sourceAsMap())
-                    .mapValue(ElasticConstants.PARENT_PROPERTY);
-            if (eParent.map == null) {
-                continue;
-            }
-            String eParentType = eParent.stringValue(ElasticConstants.FIELD_DATATYPE_PROPERTY);
-            // Create Child Relations
-            if (type.equals(eParentType)) {
-                ElasticCsdlNavigationProperty navProp = new ElasticCsdlNavigationProperty()
-                        .setEIndex(index).setEType(e.key);
-                navProp.setName(csdlMapper.eChildRelationToNavPropName(index, e.key, type))
-                        .setType(csdlMapper.eTypeToEntityType(index, e.key)).setCollection(true)
-                        .setPartner(csdlMapper.eParentRelationToNavPropName(index, type, e.key));
-                navigationProperties.add(navProp);
-            }
-            // Create Parent Relation
-            if (type.equals(e.key)) {
-                ElasticCsdlNavigationProperty navProp = new ElasticCsdlNavigationProperty()
-                        .setEIndex(index).setEType(eParentType);
-                navProp.setName(csdlMapper.eParentRelationToNavPropName(index, eParentType, type))
-                        .setType(csdlMapper.eTypeToEntityType(index, eParentType))
-                        .setNullable(false).setPartner(
-                                csdlMapper.eChildRelationToNavPropName(index, e.key, eParentType));
-                navigationProperties.add(navProp);
-            }
+        IndexMapping indexMapping = getIndexMapping(index);
+        // Create Child Relations
+        for (String eChildType : indexMapping.getChildTypes(type)) {
+            ElasticCsdlNavigationProperty navProp = new ElasticCsdlNavigationProperty()
+                    .setEIndex(index).setEType(eChildType);
+            navProp.setName(csdlMapper.eChildRelationToNavPropName(index, eChildType, type))
+                    .setType(csdlMapper.eTypeToEntityType(index, eChildType)).setCollection(true)
+                    .setPartner(csdlMapper.eParentRelationToNavPropName(index, type, eChildType));
+            navigationProperties.add(navProp);
+        }
+        // Create Parent Relation
+        TypeMapping typeMapping = indexMapping.getType(type);
+        String eParentType = typeMapping == null ? null : typeMapping.getParent();
+        if (eParentType != null) {
+            ElasticCsdlNavigationProperty navProp = new ElasticCsdlNavigationProperty()
+                    .setEIndex(index).setEType(eParentType);
+            navProp.setName(csdlMapper.eParentRelationToNavPropName(index, eParentType, type))
+                    .setType(csdlMapper.eTypeToEntityType(index, eParentType))
+                    .setNullable(false).setPartner(
+                            csdlMapper.eChildRelationToNavPropName(index, type, eParentType));
+            navigationProperties.add(navProp);
         }
         return navigationProperties;
     }
 
+    /**
+     * Get's parsed mappings of Elasticsearch index.
+     *
+     * @param index
+     *            index name
+     * @return index mapping
+     */
+    protected IndexMapping getIndexMapping(String index) {
+        return mappingMetaDataProvider.getIndexMapping(index);
+    }
+
     @Override
     public ElasticCsdlEntitySet getEntitySet(FullQualifiedName entityContainer,
             String entitySetName) throws ODataException {
         // Check whether root entity container is used
         if (getContainerName().getNamespace().equals(entityContainer.getNamespace())) {
-            return (ElasticCsdlEntitySet) getEntityContainer().getEntitySet(entitySetName);
+            return getEntitySets().get(entitySetName);
         } else {
             throw new ODataException("No entity container found for schema.");
         }
@@ -267,11 +278,92 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
     public List<CsdlSchema> getSchemas() throws ODataException {
         List<CsdlSchema> schemas = new ArrayList<>();
         for (String namespace : getSchemaNamespaces()) {
-            schemas.add(createSchema(namespace));
+            schemas.add(getSchemaIndex(namespace).getSchema());
         }
         return schemas;
     }
 
+    /**
+     * Get's index of schema items for namespace. Schema is created only once,
+     * all next calls return already created index.
+     *
+     * @param namespace
+     *            schema namespace
+     * @return schema index
+     * @throws ODataException
+     *             if any error occurred during schema creation
+     */
+    protected SchemaIndex getSchemaIndex(String namespace) throws ODataException {
+        SchemaIndex schemaIndex = schemaIndices.get(namespace);
+        if (schemaIndex == null) {
+            schemaIndex = new SchemaIndex(createSchema(namespace));
+            SchemaIndex existing = schemaIndices.putIfAbsent(namespace, schemaIndex);
+            if (existing != null) {
+                schemaIndex = existing;
+            }
+        }
+        return schemaIndex;
+    }
+
+    /**
+     * Builds schemas of all namespaces in parallel. Schemas are built on a
+     * separate pool, so amount of threads used to retrieve and parse mappings
+     * is bounded by parallelism level.
+     *
+     * @param parallelism
+     *            parallelism level
+     * @throws ODataException
+     *             if any error occurred during schema creation
+     */
+    public void loadSchemas(int parallelism) throws ODataException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> getSchemaNamespaces().parallelStream().forEach(namespace -> {
+                try {
+                    getSchemaIndex(namespace);
+                } catch (ODataException e) {
+                    throw new ODataRuntimeException(e);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ODataException("Schemas loading was interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ODataRuntimeException
+                    && cause.getCause() instanceof ODataException) {
+                throw (ODataException) cause.getCause();
+            }
+            throw new ODataException("Unable to load schemas.", cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Reuses already built schemas of previous provider. Schemas of namespaces
+     * which indices are in changed indices set, or which are not exposed by
+     * this provider, are not reused and will be built from actual mappings.
+     * Should be called before provider is used.
+     *
+     * @param previous
+     *            provider with already built schemas
+     * @param changedIndices
+     *            indices which mappings were created, changed or deleted
+     */
+    public void reuseSchemas(ElasticCsdlEdmProvider previous, Set<String> changedIndices) {
+        for (String namespace : getSchemaNamespaces()) {
+            String index = namespaceToIndex(namespace);
+            if (!changedIndices.contains(index)
+                    && index.equals(previous.namespaceToIndex(namespace))) {
+                SchemaIndex schemaIndex = previous.schemaIndices.get(namespace);
+                if (schemaIndex != null) {
+                    schemaIndices.putIfAbsent(namespace, schemaIndex);
+                }
+            }
+        }
+    }
+
     @Override
     public CsdlTerm getTerm(final FullQualifiedName termFqn) throws ODataException {
         return getAnnotationProvider().getTerm(termFqn.getName());
@@ -312,8 +404,8 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
      */
     protected List<ElasticCsdlEntityType> getEntityTypes(String index) throws ODataException {
         List<ElasticCsdlEntityType> entityTypes = new ArrayList<>();
-        for (ObjectCursor<String> key : mappingMetaDataProvider.getAllMappings(index).keys()) {
-            entityTypes.add(createEntityType(index, key.value));
+        for (String type : getIndexMapping(index).getTypes().keySet()) {
+            entityTypes.add(createEntityType(index, type));
         }
         return entityTypes;
     }
@@ -342,8 +434,8 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
      */
     protected List<ElasticCsdlEntitySet> getEntitySets(String index) {
         List<ElasticCsdlEntitySet> entitySets = new ArrayList<>();
-        for (ObjectCursor<String> key : mappingMetaDataProvider.getAllMappings(index).keys()) {
-            entitySets.add(createEntitySet(index, key.value));
+        for (String type : getIndexMapping(index).getTypes().keySet()) {
+            entitySets.add(createEntitySet(index, type));
         }
         return entitySets;
     }
@@ -361,11 +453,32 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
         ElasticCsdlEntitySet entitySet = new ElasticCsdlEntitySet();
         entitySet.setEIndex(index);
         entitySet.setEType(type);
+        entitySet.setERoutingField(getRoutingField(index, type));
+        TimeIndexPattern timeIndexPattern = getTimeIndexPattern(index);
+        if (timeIndexPattern != null) {
+            entitySet.setETimeIndexPattern(timeIndexPattern
+                    .withIndices(mappingMetaDataProvider.getConcreteIndices(index)));
+        }
         entitySet.setName(csdlMapper.eTypeToEntitySet(index, type));
         FullQualifiedName entityType = csdlMapper.eTypeToEntityType(index, type);
         entitySet.setType(entityType);
+        entitySet.setNavigationPropertyBindingsLoader(
+                () -> getNavigationPropertyBindings(index, type));
+        return entitySet;
+    }
 
-        // define navigation property bindings
+    /**
+     * Create's navigation property bindings of entity set. Bindings are taken
+     * from index mapping, so they are created on the first access to them.
+     *
+     * @param index
+     *            index name
+     * @param type
+     *            type name
+     * @return navigation property bindings
+     */
+    protected List<CsdlNavigationPropertyBinding> getNavigationPropertyBindings(String index,
+            String type) {
         List<CsdlNavigationPropertyBinding> navigationBindings = new ArrayList<>();
         for (ElasticCsdlNavigationProperty property : getNavigationProperties(index, type)) {
             CsdlNavigationPropertyBinding navPropBinding = new CsdlNavigationPropertyBinding();
@@ -374,34 +487,81 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
             navPropBinding.setPath(property.getName());
             navigationBindings.add(navPropBinding);
         }
-        entitySet.setNavigationPropertyBindings(navigationBindings);
-        return entitySet;
+        return navigationBindings;
     }
 
     @Override
     public CsdlEntityContainer getEntityContainer() throws ODataException {
-        // create EntityContainer
-        CsdlEntityContainer entityContainer = new CsdlEntityContainer();
-        entityContainer.setName(getContainerName().getName());
-
-        List<CsdlSchema> schemas = getSchemas();
-        for (CsdlSchema schema : schemas) {
-            for (CsdlEntitySet entitySet : schema.getEntityContainer().getEntitySets()) {
-                if (entitySet.isIncludeInServiceDocument()) {
-                    entityContainer.getEntitySets().add(entitySet);
+        if (entityContainer == null) {
+            // create EntityContainer
+            CsdlEntityContainer container = new CsdlEntityContainer();
+            container.setName(getContainerName().getName());
+
+            for (CsdlEntityContainer schemaContainer : getSchemaContainers()) {
+                for (CsdlEntitySet entitySet : schemaContainer.getEntitySets()) {
+                    if (entitySet.isIncludeInServiceDocument()) {
+                        container.getEntitySets().add(entitySet);
+                    }
                 }
             }
+            entityContainer = container;
         }
         return entityContainer;
     }
 
+    /**
+     * Get's entity containers of all schemas. In lazy mode containers are
+     * created from index and type names only, so neither schemas nor index
+     * mappings are loaded.
+     *
+     * @return schema containers
+     * @throws ODataException
+     *             if any error occurred
+     */
+    private List<CsdlEntityContainer> getSchemaContainers() throws ODataException {
+        List<CsdlEntityContainer> containers = new ArrayList<>();
+        if (isLazy()) {
+            for (String namespace : getSchemaNamespaces()) {
+                String index = namespaceToIndex(namespace);
+                CsdlEntityContainer container = new CsdlEntityContainer();
+                container.setName(getContainerName().getName());
+                for (String type : mappingMetaDataProvider.getTypes(index)) {
+                    container.getEntitySets().add(createEntitySet(index, type));
+                }
+                containers.add(container);
+            }
+        } else {
+            for (CsdlSchema schema : getSchemas()) {
+                containers.add(schema.getEntityContainer());
+            }
+        }
+        return containers;
+    }
+
+    /**
+     * Get's entity sets of root entity container by names.
+     *
+     * @return entity sets map
+     * @throws ODataException
+     *             if any error occurred
+     */
+    private Map<String, ElasticCsdlEntitySet> getEntitySets() throws ODataException {
+        if (entitySets == null) {
+            Map<String, ElasticCsdlEntitySet> entitySetsMap = new HashMap<>();
+            for (CsdlEntitySet entitySet : getEntityContainer().getEntitySets()) {
+                entitySetsMap.putIfAbsent(entitySet.getName(), (ElasticCsdlEntitySet) entitySet);
+            }
+            entitySets = entitySetsMap;
+        }
+        return entitySets;
+    }
+
     @Override
     public ElasticCsdlComplexType getComplexType(FullQualifiedName complexTypeName)
             throws ODataException {
-        for (CsdlSchema schema : getSchemas()) {
-            if (schema.getNamespace().equals(complexTypeName.getNamespace())) {
-                return (ElasticCsdlComplexType) schema.getComplexType(complexTypeName.getName());
-            }
+        if (namespaceToIndex(complexTypeName.getNamespace()) != null) {
+            return getSchemaIndex(complexTypeName.getNamespace())
+                    .getComplexType(complexTypeName.getName());
         }
         return null;
     }
@@ -454,4 +614,138 @@ public abstract class ElasticCsdlEdmProvider extends CsdlAbstractEdmProvider {
     public void setAnnotationProvider(AnnotationProvider annotationProvider) {
         this.annotationProvider = annotationProvider;
     }
+
+    public int getSchemaCacheSize() {
+        return schemaCacheSize;
+    }
+
+    /**
+     * Sets maximum amount of cached schemas. If size is positive, provider
+     * works in lazy mode: schema of namespace is built on first access, and
+     * least recently used schemas are evicted from cache when size is
+     * exceeded. Otherwise all built schemas are cached. Lazy mode bounds
+     * memory, not work: metadata document and warm-up of all entity sets of
+     * {@link #getEntityContainer()} still build schemas of all namespaces,
+     * one by one.
+     *
+     * @param schemaCacheSize
+     *            maximum amount of cached schemas, or 0 to cache all of them
+     */
+    public void setSchemaCacheSize(int schemaCacheSize) {
+        this.schemaCacheSize = schemaCacheSize;
+        this.schemaIndices = schemaCacheSize > 0
+                ? Collections.synchronizedMap(new SchemaCache(schemaCacheSize))
+                : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds listener which is called with namespace of schema evicted from
+     * cache in lazy mode, so caches of types built from the schema can be
+     * evicted together with it.
+     *
+     * @param listener
+     *            listener of evicted namespaces
+     */
+    public void addSchemaEvictionListener(Consumer<String> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Returns field which value is used as routing of documents of type.
+     *
+     * @param index
+     *            index name
+     * @param type
+     *            type name
+     * @return routing field name, or null if routing of documents is unknown
+     */
+    public String getRoutingField(String index, String type) {
+        return routingFields.get(index + '/' + type);
+    }
+
+    /**
+     * Sets field which value is used as routing of documents of type, so
+     * searches with known value of this field are sent only to its shard.
+     * Should be called before schemas are built.
+     *
+     * @param index
+     *            index name
+     * @param type
+     *            type name
+     * @param field
+     *            routing field name, {@link ElasticConstants#ID_FIELD_NAME}
+     *            for default routing, or
+     *            {@link ElasticConstants#PARENT_PROPERTY} for routing by
+     *            parent, or null if routing of documents is unknown
+     */
+    public void setRoutingField(String index, String type, String field) {
+        if (field != null) {
+            routingFields.put(index + '/' + type, field);
+        } else {
+            routingFields.remove(index + '/' + type);
+        }
+    }
+
+    /**
+     * Returns naming scheme of time-based indices behind alias or index
+     * pattern.
+     *
+     * @param index
+     *            alias or index pattern
+     * @return naming scheme, or null if index isn't time-based
+     */
+    public TimeIndexPattern getTimeIndexPattern(String index) {
+        return timeIndexPatterns.get(index);
+    }
+
+    /**
+     * Sets naming scheme of time-based indices behind alias or index pattern,
+     * so searches restricted by time field are sent only to matching concrete
+     * indices. Should be called before schemas are built, scheme is bound to
+     * the concrete indices alias has when its schema is built.
+     *
+     * @param index
+     *            alias or index pattern
+     * @param pattern
+     *            naming scheme, or null if index isn't time-based
+     */
+    public void setTimeIndexPattern(String index, TimeIndexPattern pattern) {
+        if (pattern != null) {
+            timeIndexPatterns.put(index, pattern);
+        } else {
+            timeIndexPatterns.remove(index);
+        }
+    }
+
+    /**
+     * @return true if schemas are built lazily with limited cache, false
+     *         otherwise
+     */
+    public boolean isLazy() {
+        return schemaCacheSize > 0;
+    }
+
+    /**
+     * Schemas cache with least recently used eviction. Eviction listeners are
+     * notified about evicted namespaces.
+     */
+    private class SchemaCache extends LinkedHashMap<String, SchemaIndex> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        SchemaCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SchemaIndex> eldest) {
+            if (size() <= maxSize) {
+                return false;
+            }
+            evictionListeners.forEach(listener -> listener.accept(eldest.getKey()));
+            return true;
+        }
+    }
 }
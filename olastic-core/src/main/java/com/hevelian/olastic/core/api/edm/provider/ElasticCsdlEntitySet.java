@@ -1,6 +1,12 @@
 package com.hevelian.olastic.core.api.edm.provider;
 
+import com.hevelian.olastic.core.elastic.ElasticConstants;
+import com.hevelian.olastic.core.elastic.TimeIndexPattern;
 import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.edm.provider.CsdlNavigationPropertyBinding;
+
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Elasticsearch Entity Set implementation.
@@ -12,6 +18,9 @@ public class ElasticCsdlEntitySet extends CsdlEntitySet
 
     private String eIndex;
     private String eType;
+    private String eRoutingField;
+    private TimeIndexPattern eTimeIndexPattern;
+    private volatile Supplier<List<CsdlNavigationPropertyBinding>> navigationBindingsLoader;
 
     @Override
     public String getEType() {
@@ -35,6 +44,88 @@ public class ElasticCsdlEntitySet extends CsdlEntitySet
         return this;
     }
 
+    /**
+     * Get's field which value is used as routing of documents in
+     * Elasticsearch.
+     * 
+     * @return routing field name, or null if routing of documents is unknown
+     */
+    public String getERoutingField() {
+        return eRoutingField;
+    }
+
+    /**
+     * Sets field which value is used as routing of documents in
+     * Elasticsearch.
+     * 
+     * @param eRoutingField
+     *            routing field name, {@link ElasticConstants#ID_FIELD_NAME}
+     *            for default routing, or
+     *            {@link ElasticConstants#PARENT_PROPERTY} for routing by
+     *            parent
+     * @return entity set instance
+     */
+    public ElasticCsdlEntitySet setERoutingField(String eRoutingField) {
+        this.eRoutingField = eRoutingField;
+        return this;
+    }
+
+    /**
+     * Get's naming scheme of time-based indices behind index of entity set.
+     * 
+     * @return naming scheme, or null if index isn't time-based
+     */
+    public TimeIndexPattern getETimeIndexPattern() {
+        return eTimeIndexPattern;
+    }
+
+    /**
+     * Sets naming scheme of time-based indices behind index of entity set.
+     * 
+     * @param eTimeIndexPattern
+     *            naming scheme, or null if index isn't time-based
+     * @return entity set instance
+     */
+    public ElasticCsdlEntitySet setETimeIndexPattern(TimeIndexPattern eTimeIndexPattern) {
+        this.eTimeIndexPattern = eTimeIndexPattern;
+        return this;
+    }
+
+    /**
+     * Sets loader of navigation property bindings. Bindings are loaded on the
+     * first access, so entity set can be created without index mappings.
+     * 
+     * @param loader
+     *            navigation property bindings loader
+     * @return entity set instance
+     */
+    public ElasticCsdlEntitySet setNavigationPropertyBindingsLoader(
+            Supplier<List<CsdlNavigationPropertyBinding>> loader) {
+        this.navigationBindingsLoader = loader;
+        return this;
+    }
+
+    @Override
+    public List<CsdlNavigationPropertyBinding> getNavigationPropertyBindings() {
+        if (navigationBindingsLoader != null) {
+            synchronized (this) {
+                Supplier<List<CsdlNavigationPropertyBinding>> loader = navigationBindingsLoader;
+                if (loader != null) {
+                    super.setNavigationPropertyBindings(loader.get());
+                    navigationBindingsLoader = null;
+                }
+            }
+        }
+        return super.getNavigationPropertyBindings();
+    }
+
+    @Override
+    public CsdlEntitySet setNavigationPropertyBindings(
+            List<CsdlNavigationPropertyBinding> navigationPropertyBindings) {
+        navigationBindingsLoader = null;
+        return super.setNavigationPropertyBindings(navigationPropertyBindings);
+    }
+
     @Override
     public CsdlEntitySet setName(String name) {
         if (eType == null) {
@@ -14,6 +14,7 @@ public class ElasticCsdlProperty extends CsdlProperty implements ElasticCsdlEdmI
 	private String eIndex;
 	private String eType;
 	private String eField;
+	private String eKeywordField;
 
 	public String getEField() {
 		return eField;
@@ -24,6 +25,20 @@ public class ElasticCsdlProperty extends CsdlProperty implements ElasticCsdlEdmI
 		return this;
 	}
 
+	/**
+	 * Get's name of keyword sub-field from field mapping.
+	 * 
+	 * @return keyword sub-field name, or null if field doesn't have it
+	 */
+	public String getEKeywordField() {
+		return eKeywordField;
+	}
+
+	public ElasticCsdlProperty setEKeywordField(String eKeywordField) {
+		this.eKeywordField = eKeywordField;
+		return this;
+	}
+
 	@Override
 	public String getEType() {
 		return eType;
@@ -0,0 +1,100 @@
+package com.hevelian.olastic.core.api.edm.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.edm.provider.CsdlComplexType;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
+import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Lookup tables for items of a single CSDL schema. Index is built once from
+ * created schema, so every lookup by name doesn't need to scan or rebuild
+ * schema items.
+ *
+ * @author rdidyk
+ */
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class SchemaIndex {
+
+    @Getter
+    CsdlSchema schema;
+    Map<String, ElasticCsdlEntityType> entityTypes;
+    Map<String, ElasticCsdlComplexType> complexTypes;
+    Map<String, ElasticCsdlEntitySet> entitySets;
+
+    /**
+     * Creates index for schema items.
+     *
+     * @param schema
+     *            CSDL schema
+     */
+    public SchemaIndex(CsdlSchema schema) {
+        this.schema = schema;
+        Map<String, ElasticCsdlEntityType> entityTypesMap = new HashMap<>();
+        for (CsdlEntityType entityType : schema.getEntityTypes()) {
+            if (entityType instanceof ElasticCsdlEntityType) {
+                ElasticCsdlEntityType elasticEntityType = (ElasticCsdlEntityType) entityType;
+                entityTypesMap.putIfAbsent(elasticEntityType.getEType(), elasticEntityType);
+            }
+        }
+        Map<String, ElasticCsdlComplexType> complexTypesMap = new HashMap<>();
+        for (CsdlComplexType complexType : schema.getComplexTypes()) {
+            if (complexType instanceof ElasticCsdlComplexType) {
+                complexTypesMap.putIfAbsent(complexType.getName(),
+                        (ElasticCsdlComplexType) complexType);
+            }
+        }
+        Map<String, ElasticCsdlEntitySet> entitySetsMap = new HashMap<>();
+        if (schema.getEntityContainer() != null) {
+            for (CsdlEntitySet entitySet : schema.getEntityContainer().getEntitySets()) {
+                if (entitySet instanceof ElasticCsdlEntitySet) {
+                    entitySetsMap.putIfAbsent(entitySet.getName(),
+                            (ElasticCsdlEntitySet) entitySet);
+                }
+            }
+        }
+        this.entityTypes = Collections.unmodifiableMap(entityTypesMap);
+        this.complexTypes = Collections.unmodifiableMap(complexTypesMap);
+        this.entitySets = Collections.unmodifiableMap(entitySetsMap);
+    }
+
+    /**
+     * Get's entity type by Elasticsearch type name.
+     *
+     * @param eType
+     *            Elasticsearch type name
+     * @return entity type or null if there is no such type in schema
+     */
+    public ElasticCsdlEntityType getEntityType(String eType) {
+        return entityTypes.get(eType);
+    }
+
+    /**
+     * Get's complex type by name.
+     *
+     * @param name
+     *            complex type name
+     * @return complex type or null if there is no such type in schema
+     */
+    public ElasticCsdlComplexType getComplexType(String name) {
+        return complexTypes.get(name);
+    }
+
+    /**
+     * Get's entity set with navigation property bindings by name.
+     *
+     * @param name
+     *            entity set name
+     * @return entity set or null if there is no such entity set in schema
+     */
+    public ElasticCsdlEntitySet getEntitySet(String name) {
+        return entitySets.get(name);
+    }
+}
@@ -1,11 +1,13 @@
 package com.hevelian.olastic.core.api.uri.queryoption.expression.member;
 
 import com.hevelian.olastic.core.api.uri.queryoption.expression.member.impl.*;
+import com.hevelian.olastic.core.edm.ElasticEdmComplexType;
 import com.hevelian.olastic.core.edm.ElasticEdmEntityType;
 import com.hevelian.olastic.core.edm.ElasticEdmProperty;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.olingo.commons.api.edm.EdmAnnotation;
 import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.uri.*;
@@ -154,9 +156,10 @@ public class MemberHandler {
         // filter by parent's property
         // Books?$filter=Author/Name eq 'Dawkins'
         if (firstPart instanceof UriResourceNavigation) {
-            EdmProperty lastProperty = ((UriResourceProperty) lastPart).getProperty();
-            return new ParentMember(collectNavigationTypes(),
-                    ((ElasticEdmProperty) lastProperty).getEField(), lastProperty.getAnnotations());
+            ElasticEdmProperty lastProperty = (ElasticEdmProperty) ((UriResourceProperty) lastPart)
+                    .getProperty();
+            return new ParentMember(collectNavigationTypes(), lastProperty.getEField(),
+                    lastProperty.getAnnotations(), lastProperty.getEQueryField());
         }
         // filtering by complex type collection
         // Books?$filter=nested/any(n:n/state eq true)
@@ -166,6 +169,13 @@ public class MemberHandler {
             String parentPathPrefix = pathToMember != null ? pathToMember + NESTED_PATH_SEPARATOR
                     : "";
             String nestedPath = parentPathPrefix + lastProperty.getName();
+            EdmType complexType = ((UriResourcePartTyped) resourceParts
+                    .get(resourceParts.size() - 2)).getType();
+            if (complexType instanceof ElasticEdmComplexType) {
+                return new PrimitiveMember(nestedPath, lastProperty.getAnnotations(),
+                        parentPathPrefix + ((ElasticEdmComplexType) complexType)
+                                .getEQueryField(lastProperty.getName()));
+            }
             return new PrimitiveMember(nestedPath, lastProperty.getAnnotations());
         }
         // filtering by primitive type collection
@@ -181,9 +191,10 @@ public class MemberHandler {
         // simple primitive expression or expression inside lambda for
         // retrieving children
         else {
-            EdmProperty lastProperty = ((UriResourceProperty) lastPart).getProperty();
-            return new PrimitiveMember(((ElasticEdmProperty) lastProperty).getEField(),
-                    lastProperty.getAnnotations());
+            ElasticEdmProperty lastProperty = (ElasticEdmProperty) ((UriResourceProperty) lastPart)
+                    .getProperty();
+            return new PrimitiveMember(lastProperty.getEField(), lastProperty.getAnnotations(),
+                    lastProperty.getEQueryField());
         }
     }
 
@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.experimental.FieldDefaults;
 import org.apache.olingo.commons.api.edm.EdmAnnotation;
 
+import com.hevelian.olastic.core.elastic.utils.ElasticUtils;
+
 import java.util.List;
 
 /**
@@ -20,5 +22,19 @@ public abstract class AnnotatedMember extends BaseMember {
 
     String field;
     List<EdmAnnotation> annotations;
+    /** Field for term queries, already resolved to keyword sub-field if needed. */
+    String queryField;
+
+    /**
+     * Creates member and resolves query field from annotations.
+     *
+     * @param field
+     *            field name
+     * @param annotations
+     *            field annotations
+     */
+    public AnnotatedMember(String field, List<EdmAnnotation> annotations) {
+        this(field, annotations, ElasticUtils.addKeywordIfNeeded(field, annotations));
+    }
 
 }
@@ -3,7 +3,6 @@ package com.hevelian.olastic.core.api.uri.queryoption.expression.member.impl;
 import com.hevelian.olastic.core.api.uri.queryoption.expression.member.ExpressionMember;
 import com.hevelian.olastic.core.elastic.ElasticConstants;
 
-import static com.hevelian.olastic.core.elastic.utils.ElasticUtils.addKeywordIfNeeded;
 import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
 import static org.elasticsearch.index.query.QueryBuilders.wildcardQuery;
 
@@ -20,7 +19,7 @@ public class MethodMember extends BaseMember {
         PrimitiveMember primitive = (PrimitiveMember) left;
         LiteralMember literal = (LiteralMember) right;
         return new ExpressionResult(
-                wildcardQuery(addKeywordIfNeeded(primitive.getField(), primitive.getAnnotations()),
+                wildcardQuery(primitive.getQueryField(),
                         ElasticConstants.WILDCARD_CHAR + literal.getValue()
                                 + ElasticConstants.WILDCARD_CHAR));
     }
@@ -30,7 +29,7 @@ public class MethodMember extends BaseMember {
         PrimitiveMember primitive = (PrimitiveMember) left;
         LiteralMember literal = (LiteralMember) right;
         return new ExpressionResult(
-                prefixQuery(addKeywordIfNeeded(primitive.getField(), primitive.getAnnotations()),
+                prefixQuery(primitive.getQueryField(),
                         (String) literal.getValue()));
     }
 
@@ -39,7 +38,7 @@ public class MethodMember extends BaseMember {
         PrimitiveMember primitive = (PrimitiveMember) left;
         LiteralMember literal = (LiteralMember) right;
         return new ExpressionResult(
-                wildcardQuery(addKeywordIfNeeded(primitive.getField(), primitive.getAnnotations()),
+                wildcardQuery(primitive.getQueryField(),
                         ElasticConstants.WILDCARD_CHAR + literal.getValue()));
     }
 
@@ -8,7 +8,6 @@ import org.elasticsearch.index.query.QueryBuilder;
 import java.util.List;
 import java.util.ListIterator;
 
-import static com.hevelian.olastic.core.elastic.utils.ElasticUtils.addKeywordIfNeeded;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -25,9 +24,15 @@ public class ParentMember extends AnnotatedMember {
         this.parentTypes = parentTypes;
     }
 
+    public ParentMember(List<String> parentTypes, String field, List<EdmAnnotation> annotations,
+            String queryField) {
+        super(field, annotations, queryField);
+        this.parentTypes = parentTypes;
+    }
+
     @Override
     public ExpressionResult eq(ExpressionMember expressionMember) throws ODataApplicationException {
-        QueryBuilder query = termQuery(addKeywordIfNeeded(getField(), getAnnotations()),
+        QueryBuilder query = termQuery(getQueryField(),
                 ((LiteralMember) expressionMember).getValue());
         return buildParentQuery(query);
     }
@@ -35,7 +40,7 @@ public class ParentMember extends AnnotatedMember {
     @Override
     public ExpressionResult ne(ExpressionMember expressionMember) throws ODataApplicationException {
         QueryBuilder query = boolQuery()
-                .mustNot(termQuery(addKeywordIfNeeded(getField(), getAnnotations()),
+                .mustNot(termQuery(getQueryField(),
                         ((LiteralMember) expressionMember).getValue()));
         return buildParentQuery(query);
     }
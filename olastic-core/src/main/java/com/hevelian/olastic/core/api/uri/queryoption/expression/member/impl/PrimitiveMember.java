@@ -10,7 +10,6 @@ import java.util.List;
 import java.util.Locale;
 
 import static com.hevelian.olastic.core.elastic.ElasticConstants.ID_FIELD_NAME;
-import static com.hevelian.olastic.core.elastic.utils.ElasticUtils.addKeywordIfNeeded;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
@@ -24,6 +23,10 @@ public class PrimitiveMember extends AnnotatedMember {
         super(field, annotations);
     }
 
+    public PrimitiveMember(String field, List<EdmAnnotation> annotations, String queryField) {
+        super(field, annotations, queryField);
+    }
+
     @Override
     public ExpressionResult eq(ExpressionMember expressionMember) throws ODataApplicationException {
         return new ExpressionResult(getEqQuery(expressionMember));
@@ -74,7 +77,7 @@ public class PrimitiveMember extends AnnotatedMember {
             }
             return idsQuery().addIds(value.toString());
         } else {
-            String fieldName = addKeywordIfNeeded(getField(), getAnnotations());
+            String fieldName = getQueryField();
             if (value == null) {
                 return boolQuery().mustNot(existsQuery(fieldName));
             } else {
@@ -1,22 +1,20 @@
 package com.hevelian.olastic.core.common;
 
-import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.hevelian.olastic.core.api.edm.annotations.AnnotationProvider;
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlComplexProperty;
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlComplexType;
 import com.hevelian.olastic.core.elastic.mappings.ElasticToCsdlMapper;
+import com.hevelian.olastic.core.elastic.mappings.FieldMapping;
 import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.elastic.mappings.TypeMapping;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.api.ex.ODataException;
-import org.elasticsearch.index.mapper.ObjectMapper;
+import org.elasticsearch.index.mapper.TextFieldMapper;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 
-import static com.hevelian.olastic.core.elastic.ElasticConstants.FIELD_DATATYPE_PROPERTY;
-import static com.hevelian.olastic.core.elastic.ElasticConstants.PROPERTIES_PROPERTY;
-
 /**
  * Class for mapping Elasticsearch nested types to Edm complex types.
  * 
@@ -27,6 +25,7 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
     private MappingMetaDataProvider mappingMetaDataProvider;
     private ElasticToCsdlMapper csdlMapper;
     private PrimitiveTypeMapper primitiveTypeMapper;
+    private AnnotationProvider annotationProvider;
 
     /**
      * Constructor to initialize values.
@@ -41,6 +40,7 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
         this.mappingMetaDataProvider = mappingMetaDataProvider;
         this.csdlMapper = csdlMapper;
         this.primitiveTypeMapper = new PrimitiveTypeMapper();
+        this.annotationProvider = new AnnotationProvider();
     }
 
     /**
@@ -54,14 +54,13 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
      */
     public List<ElasticCsdlComplexType> getComplexTypes(String index) throws ODataException {
         Map<ElasticCsdlComplexType, Set<CsdlProperty>> complexMappings = new HashMap<>();
-        for (ObjectCursor<String> key : mappingMetaDataProvider.getAllMappings(index).keys()) {
-            String type = key.value;
-            ParsedMapWrapper eTypeProperties = getTypeProperties(index, type);
-            for (String field : eTypeProperties.map.keySet()) {
-                ParsedMapWrapper fieldMap = eTypeProperties.mapValue(field);
-                if (isNested(fieldMap.stringValue(FIELD_DATATYPE_PROPERTY))) {
-                    ParsedMapWrapper properties = fieldMap.mapValue(PROPERTIES_PROPERTY);
-                    createComplexTypes(index, type, field, properties).entrySet().stream()
+        for (TypeMapping typeMapping : mappingMetaDataProvider.getIndexMapping(index).getTypes()
+                .values()) {
+            String type = typeMapping.getName();
+            for (FieldMapping field : typeMapping.getFields().values()) {
+                if (field.isNested()) {
+                    createComplexTypes(index, type, field.getName(), field.getProperties())
+                            .entrySet().stream()
                             .forEach(e -> getAndPut(complexMappings, e.getKey(), e.getValue()));
                 }
             }
@@ -89,7 +88,7 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
      * @return all complex types
      */
     private Map<ElasticCsdlComplexType, Set<CsdlProperty>> createComplexTypes(String index,
-            String type, String nested, ParsedMapWrapper properties) {
+            String type, String nested, Map<String, FieldMapping> properties) {
         Map<ElasticCsdlComplexType, Set<CsdlProperty>> complexMappings = new HashMap<>();
         ElasticCsdlComplexType complexType = new ElasticCsdlComplexType().setEIndex(index)
                 .setEType(type).setENestedType(nested);
@@ -97,22 +96,26 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
                 getComplexTypeName(type, csdlMapper.eFieldToCsdlProperty(index, type, nested)));
 
         Set<CsdlProperty> complexTypeProperties = new HashSet<>();
-        for (String nestedFieldName : properties.map.keySet()) {
-            ParsedMapWrapper nestedFieldMap = properties.mapValue(nestedFieldName);
-            String nestedFieldType = nestedFieldMap.stringValue(FIELD_DATATYPE_PROPERTY);
+        for (FieldMapping nestedField : properties.values()) {
+            String nestedFieldName = nestedField.getName();
             String mappedNestedName = csdlMapper.eFieldToCsdlProperty(index, type, nestedFieldName);
             ElasticCsdlComplexProperty complexProperty = new ElasticCsdlComplexProperty()
                     .setEIndex(index).setEType(type);
-            if (isNested(nestedFieldType)) {
+            if (nestedField.isNested()) {
                 complexProperty.setENestedType(nestedFieldName)
                         .setType(getComplexType(index, type, mappedNestedName));
-                createComplexTypes(index, type, nestedFieldName,
-                        nestedFieldMap.mapValue(PROPERTIES_PROPERTY)).entrySet().stream()
-                                .forEach(entry -> getAndPut(complexMappings, entry.getKey(),
-                                        entry.getValue()));
+                createComplexTypes(index, type, nestedFieldName, nestedField.getProperties())
+                        .entrySet().stream().forEach(entry -> getAndPut(complexMappings,
+                                entry.getKey(), entry.getValue()));
             } else {
                 complexProperty.setENestedType(nested)
-                        .setType(primitiveTypeMapper.map(nestedFieldType).getFullQualifiedName());
+                        .setEKeywordField(nestedField.getKeywordField())
+                        .setType(primitiveTypeMapper.map(nestedField.getDatatype())
+                                .getFullQualifiedName());
+                if (TextFieldMapper.CONTENT_TYPE.equals(nestedField.getDatatype())) {
+                    complexProperty.setAnnotations(Arrays.asList(annotationProvider
+                            .getAnnotation(AnnotationProvider.ANALYZED_TERM_NAME)));
+                }
             }
             complexTypeProperties.add(complexProperty.setName(mappedNestedName)
                     .setCollection(csdlMapper.eFieldIsCollection(index, type, nestedFieldName)));
@@ -121,16 +124,6 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
         return complexMappings;
     }
 
-    private ParsedMapWrapper getTypeProperties(String index, String type) throws ODataException {
-        try {
-            return new ParsedMapWrapper(
-                    mappingMetaDataProvider.getMappingForType(index, type).sourceAsMap())
-                            .mapValue(PROPERTIES_PROPERTY);
-        } catch (IOException e) {
-            throw new ODataException("Unable to parse the mapping response from Elastcsearch.", e);
-        }
-    }
-
     @Override
     public FullQualifiedName getComplexType(String index, String type, String field) {
         return new FullQualifiedName(csdlMapper.eIndexToCsdlNamespace(index),
@@ -154,8 +147,4 @@ public abstract class AbstractNestedTypeMapper implements NestedTypeMapper {
         map.put(key, oldValues);
     }
 
-    private static boolean isNested(String type) {
-        return ObjectMapper.NESTED_CONTENT_TYPE.equals(type);
-    }
-
 }
@@ -1,5 +1,7 @@
 package com.hevelian.olastic.core.edm;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.olingo.commons.api.edm.Edm;
@@ -8,9 +10,13 @@ import org.apache.olingo.commons.api.edm.EdmElement;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.core.edm.EdmComplexTypeImpl;
 
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlComplexProperty;
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlComplexType;
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlProperty;
+import com.hevelian.olastic.core.elastic.utils.ElasticUtils;
 
 /**
  * Custom implementation of {@link EdmComplexType}.
@@ -20,6 +26,7 @@ import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlComplexType;
 public class ElasticEdmComplexType extends EdmComplexTypeImpl {
 
     private ElasticCsdlComplexType csdlComplexType;
+    private Map<String, String> queryFields;
 
     /**
      * Constructor to initialize entity type.
@@ -35,6 +42,18 @@ public class ElasticEdmComplexType extends EdmComplexTypeImpl {
             ElasticCsdlComplexType complexType) {
         super(edm, name, complexType);
         this.csdlComplexType = complexType;
+        Map<String, String> localQueryFields = new HashMap<>();
+        for (CsdlProperty property : complexType.getProperties()) {
+            String keywordField = null;
+            if (property instanceof ElasticCsdlComplexProperty) {
+                keywordField = ((ElasticCsdlComplexProperty) property).getEKeywordField();
+            } else if (property instanceof ElasticCsdlProperty) {
+                keywordField = ((ElasticCsdlProperty) property).getEKeywordField();
+            }
+            localQueryFields.put(property.getName(), ElasticUtils
+                    .getQueryField(property.getName(), keywordField, property.getAnnotations()));
+        }
+        this.queryFields = localQueryFields;
     }
 
     /**
@@ -64,6 +83,18 @@ public class ElasticEdmComplexType extends EdmComplexTypeImpl {
         return csdlComplexType.geteNestedType();
     }
 
+    /**
+     * Get's name of the field that should be used in term queries, sorting and
+     * aggregations for property, relative to nested object.
+     * 
+     * @param propertyName
+     *            property name
+     * @return query field name, or property name if there is no such property
+     */
+    public String getEQueryField(String propertyName) {
+        return queryFields.getOrDefault(propertyName, propertyName);
+    }
+
     /**
      * Get's property by nested property name.
      * 
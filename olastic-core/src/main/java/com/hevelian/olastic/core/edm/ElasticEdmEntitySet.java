@@ -1,6 +1,7 @@
 package com.hevelian.olastic.core.edm;
 
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEntitySet;
+import com.hevelian.olastic.core.elastic.TimeIndexPattern;
 import org.apache.olingo.commons.api.edm.*;
 import org.apache.olingo.commons.core.edm.EdmEntitySetImpl;
 import org.apache.olingo.commons.core.edm.Target;
@@ -42,6 +43,25 @@ public class ElasticEdmEntitySet extends EdmEntitySetImpl {
         return csdlEntitySet.getEType();
     }
 
+    /**
+     * Get's field which value is used as routing of documents in
+     * Elasticsearch.
+     * 
+     * @return routing field name, or null if routing of documents is unknown
+     */
+    public String getERoutingField() {
+        return csdlEntitySet.getERoutingField();
+    }
+
+    /**
+     * Get's naming scheme of time-based indices behind index of entity set.
+     * 
+     * @return naming scheme, or null if index isn't time-based
+     */
+    public TimeIndexPattern getETimeIndexPattern() {
+        return csdlEntitySet.getETimeIndexPattern();
+    }
+
     @Override
     public ElasticEdmEntityType getEntityType() {
         EdmEntityType entityType = provider.getEntityType(new FullQualifiedName(
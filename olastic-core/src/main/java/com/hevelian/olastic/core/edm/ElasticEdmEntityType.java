@@ -3,9 +3,7 @@ package com.hevelian.olastic.core.edm;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -27,9 +25,12 @@ import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlProperty;
  */
 public class ElasticEdmEntityType extends EdmEntityTypeImpl {
 
-    private ElasticCsdlEntityType csdlEntityType;
-    private Map<String, ElasticEdmProperty> propertiesCash;
-    private Map<String, ElasticEdmNavigationProperty> navigationPropertiesCash;
+    private final ElasticCsdlEntityType csdlEntityType;
+    private final Map<String, ElasticEdmProperty> eProperties;
+    private final Map<String, EdmProperty> properties;
+    private final Map<String, ElasticEdmProperty> propertiesByEField;
+    private final Map<String, ElasticEdmNavigationProperty> eNavigationProperties;
+    private final Map<String, EdmNavigationProperty> navigationProperties;
 
     /**
      * Constructor to initialize entity type.
@@ -44,6 +45,30 @@ public class ElasticEdmEntityType extends EdmEntityTypeImpl {
     public ElasticEdmEntityType(Edm edm, FullQualifiedName name, ElasticCsdlEntityType entityType) {
         super(edm, name, entityType);
         this.csdlEntityType = entityType;
+        Map<String, ElasticEdmProperty> localProperties = new LinkedHashMap<>();
+        Map<String, ElasticEdmProperty> localPropertiesByEField = new HashMap<>();
+        for (CsdlProperty property : entityType.getProperties()) {
+            if (property instanceof ElasticCsdlProperty) {
+                ElasticEdmProperty edmProperty = new ElasticEdmProperty(edm,
+                        (ElasticCsdlProperty) property);
+                localProperties.put(property.getName(), edmProperty);
+                // first property wins, as it was with sequential search
+                localPropertiesByEField.putIfAbsent(edmProperty.getEField(), edmProperty);
+            }
+        }
+        this.eProperties = Collections.unmodifiableMap(localProperties);
+        this.properties = Collections.unmodifiableMap(localProperties);
+        this.propertiesByEField = localPropertiesByEField;
+
+        Map<String, ElasticEdmNavigationProperty> localNavigationProperties = new LinkedHashMap<>();
+        for (CsdlNavigationProperty property : entityType.getNavigationProperties()) {
+            if (property instanceof ElasticCsdlNavigationProperty) {
+                localNavigationProperties.put(property.getName(), new ElasticEdmNavigationProperty(
+                        edm, (ElasticCsdlNavigationProperty) property));
+            }
+        }
+        this.eNavigationProperties = Collections.unmodifiableMap(localNavigationProperties);
+        this.navigationProperties = Collections.unmodifiableMap(localNavigationProperties);
     }
 
     /**
@@ -72,63 +97,24 @@ public class ElasticEdmEntityType extends EdmEntityTypeImpl {
      * @return found property
      */
     public ElasticEdmProperty findPropertyByEField(String eFieldName) {
-        for (Entry<String, ElasticEdmProperty> entry : getEProperties().entrySet()) {
-            ElasticEdmProperty property = entry.getValue();
-            if (property.getEField().equals(eFieldName)) {
-                return property;
-            }
-        }
-        return null;
+        return propertiesByEField.get(eFieldName);
     }
 
     public Map<String, ElasticEdmProperty> getEProperties() {
-        if (propertiesCash == null) {
-            Map<String, ElasticEdmProperty> localPorperties = new LinkedHashMap<>();
-            List<CsdlProperty> typeProperties = csdlEntityType.getProperties();
-            for (CsdlProperty property : typeProperties) {
-                if (property instanceof ElasticCsdlProperty) {
-                    localPorperties.put(property.getName(),
-                            new ElasticEdmProperty(edm, (ElasticCsdlProperty) property));
-                }
-            }
-            propertiesCash = Collections.unmodifiableMap(localPorperties);
-        }
-        return propertiesCash;
+        return eProperties;
     }
 
     @Override
     public Map<String, EdmProperty> getProperties() {
-        Map<String, EdmProperty> properties = new HashMap<>();
-        for (Entry<String, ElasticEdmProperty> entry : getEProperties().entrySet()) {
-            properties.put(entry.getKey(), entry.getValue());
-        }
         return properties;
     }
 
     public Map<String, ElasticEdmNavigationProperty> getENavigationProperties() {
-        if (navigationPropertiesCash == null) {
-            Map<String, ElasticEdmNavigationProperty> localNavigationProperties = new LinkedHashMap<>();
-            List<CsdlNavigationProperty> structuredTypeNavigationProperties = csdlEntityType
-                    .getNavigationProperties();
-            for (CsdlNavigationProperty property : structuredTypeNavigationProperties) {
-                if (property instanceof ElasticCsdlNavigationProperty) {
-                    localNavigationProperties.put(property.getName(),
-                            new ElasticEdmNavigationProperty(edm,
-                                    (ElasticCsdlNavigationProperty) property));
-                }
-            }
-            navigationPropertiesCash = Collections.unmodifiableMap(localNavigationProperties);
-        }
-        return navigationPropertiesCash;
+        return eNavigationProperties;
     }
 
     @Override
     public Map<String, EdmNavigationProperty> getNavigationProperties() {
-        Map<String, EdmNavigationProperty> navigationProperties = new HashMap<>();
-        for (Entry<String, ElasticEdmNavigationProperty> entry : getENavigationProperties()
-                .entrySet()) {
-            navigationProperties.put(entry.getKey(), entry.getValue());
-        }
         return navigationProperties;
     }
 
@@ -5,6 +5,7 @@ import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.core.edm.EdmPropertyImpl;
 
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlProperty;
+import com.hevelian.olastic.core.elastic.utils.ElasticUtils;
 
 /**
  * Custom implementation of {@link EdmProperty} to provide behavior from
@@ -15,6 +16,7 @@ import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlProperty;
 public class ElasticEdmProperty extends EdmPropertyImpl {
 
     private ElasticCsdlProperty csdlProperty;
+    private String eQueryField;
 
     /**
      * Constructor to initialize property.
@@ -27,6 +29,8 @@ public class ElasticEdmProperty extends EdmPropertyImpl {
     public ElasticEdmProperty(Edm edm, ElasticCsdlProperty property) {
         super(edm, property);
         this.csdlProperty = property;
+        this.eQueryField = ElasticUtils.getQueryField(property.getEField(),
+                property.getEKeywordField(), property.getAnnotations());
     }
 
     /**
@@ -37,4 +41,14 @@ public class ElasticEdmProperty extends EdmPropertyImpl {
     public String getEField() {
         return csdlProperty.getEField();
     }
+
+    /**
+     * Get's name of the field that should be used in term queries, sorting and
+     * aggregations. For analyzed fields it's the keyword sub-field.
+     * 
+     * @return query field name
+     */
+    public String getEQueryField() {
+        return eQueryField;
+    }
 }
@@ -1,8 +1,14 @@
 package com.hevelian.olastic.core.edm;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntityContainer;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmException;
+import org.apache.olingo.commons.api.edm.EdmSchema;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainerInfo;
 import org.apache.olingo.commons.api.ex.ODataException;
@@ -13,12 +19,18 @@ import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEdmProvider;
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEntityType;
 
 /**
- * Custom implementation of EDM provider.
+ * Custom implementation of EDM provider. If CSDL provider is lazy, entity and
+ * complex types are cached by namespace and evicted together with schema they
+ * were built from, and schemas loaded for metadata document aren't retained.
  * 
  * @author rdidyk
  */
 public class ElasticEdmProvider extends EdmProviderImpl {
 
+    private final Map<String, Map<FullQualifiedName, EdmEntityType>> lazyEntityTypes =
+            new ConcurrentHashMap<>();
+    private final Map<String, Map<FullQualifiedName, EdmComplexType>> lazyComplexTypes =
+            new ConcurrentHashMap<>();
     private ElasticCsdlEdmProvider csdlProvider;
 
     /**
@@ -30,6 +42,61 @@ public class ElasticEdmProvider extends EdmProviderImpl {
     public ElasticEdmProvider(ElasticCsdlEdmProvider provider) {
         super(provider);
         this.csdlProvider = provider;
+        if (provider.isLazy()) {
+            provider.addSchemaEvictionListener(namespace -> {
+                lazyEntityTypes.remove(namespace);
+                lazyComplexTypes.remove(namespace);
+            });
+        }
+    }
+
+    @Override
+    public EdmEntityType getEntityType(FullQualifiedName entityTypeName) {
+        if (!csdlProvider.isLazy()) {
+            return super.getEntityType(entityTypeName);
+        }
+        Map<FullQualifiedName, EdmEntityType> types = lazyEntityTypes
+                .computeIfAbsent(entityTypeName.getNamespace(), ns -> new ConcurrentHashMap<>());
+        EdmEntityType entityType = types.get(entityTypeName);
+        if (entityType == null) {
+            entityType = createEntityType(entityTypeName);
+            if (entityType != null) {
+                types.put(entityTypeName, entityType);
+            }
+        }
+        return entityType;
+    }
+
+    @Override
+    public EdmComplexType getComplexType(FullQualifiedName complexTypeName) {
+        if (!csdlProvider.isLazy()) {
+            return super.getComplexType(complexTypeName);
+        }
+        Map<FullQualifiedName, EdmComplexType> types = lazyComplexTypes
+                .computeIfAbsent(complexTypeName.getNamespace(), ns -> new ConcurrentHashMap<>());
+        EdmComplexType complexType = types.get(complexTypeName);
+        if (complexType == null) {
+            complexType = createComplexType(complexTypeName);
+            if (complexType != null) {
+                types.put(complexTypeName, complexType);
+            }
+        }
+        return complexType;
+    }
+
+    /**
+     * Gets schemas of all namespaces. In lazy mode schemas are built for
+     * metadata document only, so they aren't retained after they are
+     * returned.
+     */
+    @Override
+    public List<EdmSchema> getSchemas() {
+        List<EdmSchema> edmSchemas = super.getSchemas();
+        if (csdlProvider.isLazy()) {
+            schemas = null;
+            schemaList = null;
+        }
+        return edmSchemas;
     }
 
     @Override
@@ -70,6 +137,35 @@ public class ElasticEdmProvider extends EdmProviderImpl {
         }
     }
 
+    /*
+     * Schemas loaded for metadata document create and cache default Olingo
+     * implementations of types and containers. They must not replace Elastic
+     * implementations in caches shared with data requests, so only Elastic
+     * ones are cached, others are created again on demand.
+     */
+
+    @Override
+    public void cacheEntityType(FullQualifiedName typeName, EdmEntityType type) {
+        if (type instanceof ElasticEdmEntityType && !csdlProvider.isLazy()) {
+            super.cacheEntityType(typeName, type);
+        }
+    }
+
+    @Override
+    public void cacheComplexType(FullQualifiedName typeName, EdmComplexType type) {
+        if (type instanceof ElasticEdmComplexType && !csdlProvider.isLazy()) {
+            super.cacheComplexType(typeName, type);
+        }
+    }
+
+    @Override
+    public void cacheEntityContainer(FullQualifiedName containerName,
+            EdmEntityContainer container) {
+        if (container instanceof ElasticEdmEntityContainer) {
+            super.cacheEntityContainer(containerName, container);
+        }
+    }
+
     public ElasticCsdlEdmProvider getCsdlProvider() {
         return csdlProvider;
     }
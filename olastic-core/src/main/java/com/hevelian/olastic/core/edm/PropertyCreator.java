@@ -12,6 +12,7 @@ import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmElement;
 import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmBoolean;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmDate;
@@ -43,28 +44,41 @@ public class PropertyCreator {
             return createComplexProperty(name, (Map<String, Object>) value,
                     entityType.getProperty(name));
         } else if (property != null) {
-            Object modifiedValue = value;
-            if (property.getType() instanceof EdmDate
-                    || property.getType() instanceof EdmDateTimeOffset) {
-                if (value != null) {
-                    if (value instanceof Long) {
-                        modifiedValue = new Date((Long) value);
-                    } else {
-                        modifiedValue = DatatypeConverter.parseDateTime(value.toString()).getTime();
-                    }
-                }
-            } else if (property.getType() instanceof EdmBoolean && value instanceof Long) {
-                // When Elasticsearch aggregates data it return's boolean as
-                // number value (1,0), but when it searches then normal boolean
-                // value will be retrieved
-                modifiedValue = (Long) value != 0;
-            }
-            return createPrimitiveProperty(name, modifiedValue);
+            return createPrimitiveProperty(name, convertPrimitiveValue(property.getType(), value));
         } else {
             return createPrimitiveProperty(name, value);
         }
     }
 
+    /**
+     * Converts primitive value retrieved from Elasticsearch to value of EDM
+     * type.
+     * 
+     * @param type
+     *            property type
+     * @param value
+     *            value from Elasticsearch
+     * @return converted value
+     */
+    public static Object convertPrimitiveValue(EdmType type, Object value) {
+        Object modifiedValue = value;
+        if (type instanceof EdmDate || type instanceof EdmDateTimeOffset) {
+            if (value != null) {
+                if (value instanceof Long) {
+                    modifiedValue = new Date((Long) value);
+                } else {
+                    modifiedValue = DatatypeConverter.parseDateTime(value.toString()).getTime();
+                }
+            }
+        } else if (type instanceof EdmBoolean && value instanceof Long) {
+            // When Elasticsearch aggregates data it return's boolean as
+            // number value (1,0), but when it searches then normal boolean
+            // value will be retrieved
+            modifiedValue = (Long) value != 0;
+        }
+        return modifiedValue;
+    }
+
     private Property createPrimitiveProperty(String name, Object value) {
         return new Property(null, name, ValueType.PRIMITIVE, value);
     }
@@ -0,0 +1,296 @@
+package com.hevelian.olastic.core.elastic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import com.hevelian.olastic.core.exceptions.CircuitOpenException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Circuit breaker of requests to Elasticsearch. Cluster and every entity set,
+ * i.e. index and types, have their own circuit. Circuit of cluster counts only
+ * failures to reach the cluster, circuits of entity sets count failed, timed
+ * out, rejected and slow requests. Each circuit keeps outcomes of the latest
+ * requests, and opens when their failure rate reaches the threshold. Requests
+ * to open circuit fail immediately with {@link CircuitOpenException}. After
+ * open duration circuit becomes half-open and lets a single probe request
+ * through: circuit closes if it succeeds, and opens again if it fails.
+ *
+ * @author rdidyk
+ */
+@Log4j2
+public class CircuitBreaker {
+
+    /** Key of cluster circuit, index names can't start with underscore. */
+    public static final String CLUSTER = "_cluster";
+
+    /**
+     * State of circuit.
+     */
+    public enum State {
+        /** Requests are executed and their outcomes are counted. */
+        CLOSED,
+        /** Requests fail immediately. */
+        OPEN,
+        /** Single probe request is executed to check if failures are over. */
+        HALF_OPEN
+    }
+
+    /**
+     * Outcome of request.
+     */
+    public enum Outcome {
+        /** Request succeeded. */
+        SUCCESS,
+        /** Request failed, timed out or was rejected. */
+        FAILURE,
+        /** Cluster couldn't be reached. */
+        UNREACHABLE,
+        /** Request was cancelled or failed because of invalid request. */
+        IGNORED
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier ticker;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Creates circuit breaker.
+     *
+     * @param windowSize
+     *            amount of the latest requests which outcomes are counted
+     * @param minimumCalls
+     *            minimal amount of counted requests to open circuit
+     * @param failureRateThreshold
+     *            failure rate to open circuit, from 0 exclusive to 1
+     * @param slowCallThreshold
+     *            latency of request counted as failure, or null if slow
+     *            requests aren't failures
+     * @param openDuration
+     *            time circuit stays open before probe request
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+            TimeValue slowCallThreshold, TimeValue openDuration) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallThreshold, openDuration,
+                System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+            TimeValue slowCallThreshold, TimeValue openDuration, LongSupplier ticker) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid circuit window: size %d, minimum calls %d.", windowSize,
+                    minimumCalls));
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException(
+                    "Invalid failure rate threshold: " + failureRateThreshold);
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallThreshold != null ? slowCallThreshold.nanos() : 0;
+        this.openNanos = openDuration.nanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Checks circuits of cluster and requested entity sets before request is
+     * executed.
+     *
+     * @param indices
+     *            keys of requested entity sets, e.g. index and types
+     * @return call which has to be completed with outcome of request
+     * @throws CircuitOpenException
+     *             if any of circuits is open
+     */
+    public Call acquire(String... indices) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(CLUSTER);
+        Collections.addAll(keys, indices);
+        long now = ticker.getAsLong();
+        List<Circuit> acquired = new ArrayList<>();
+        Set<Circuit> probes = new HashSet<>();
+        for (String key : keys) {
+            Circuit circuit = circuits.computeIfAbsent(key, Circuit::new);
+            State state = circuit.tryAcquire(now);
+            if (state == null) {
+                probes.forEach(probe -> probe.record(null, true, now));
+                throw new CircuitOpenException(
+                        String.format("Circuit of %s is open.",
+                                CLUSTER.equals(key) ? "cluster" : key),
+                        circuit.getRetryAfter(now));
+            }
+            acquired.add(circuit);
+            if (state == State.HALF_OPEN) {
+                probes.add(circuit);
+            }
+        }
+        return new Call(acquired, probes);
+    }
+
+    /**
+     * @param key
+     *            key of entity set, or {@link #CLUSTER}
+     * @return current state of circuit
+     */
+    public State getState(String key) {
+        Circuit circuit = circuits.get(key);
+        return circuit != null ? circuit.getState() : State.CLOSED;
+    }
+
+    /**
+     * Request allowed by circuit breaker.
+     */
+    public final class Call {
+
+        private final List<Circuit> acquired;
+        private final Set<Circuit> probes;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Call(List<Circuit> acquired, Set<Circuit> probes) {
+            this.acquired = acquired;
+            this.probes = probes;
+        }
+
+        /**
+         * Records outcome of request in circuits. Only the first outcome is
+         * recorded.
+         *
+         * @param outcome
+         *            outcome of request
+         * @param latency
+         *            latency of request in nanoseconds
+         */
+        public void complete(Outcome outcome, long latency) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            long now = ticker.getAsLong();
+            for (Circuit circuit : acquired) {
+                circuit.record(isFailure(circuit, outcome, latency), probes.contains(circuit),
+                        now);
+            }
+        }
+
+        /**
+         * @return true if failure has to be counted, false if success has to
+         *         be counted, or null if outcome isn't counted by circuit
+         */
+        private Boolean isFailure(Circuit circuit, Outcome outcome, long latency) {
+            if (outcome == Outcome.IGNORED) {
+                return null;
+            } else if (CLUSTER.equals(circuit.key)) {
+                return outcome == Outcome.UNREACHABLE;
+            } else if (outcome == Outcome.UNREACHABLE) {
+                return null;
+            }
+            return outcome == Outcome.FAILURE || slowCallNanos > 0 && latency > slowCallNanos;
+        }
+    }
+
+    /**
+     * Circuit of cluster or index.
+     */
+    private class Circuit {
+
+        private final String key;
+        private final boolean[] window = new boolean[windowSize];
+        private State state = State.CLOSED;
+        private int calls;
+        private int failures;
+        private int position;
+        private long openedAt;
+        private boolean probing;
+
+        Circuit(String key) {
+            this.key = key;
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        /**
+         * @param now
+         *            current time in nanoseconds
+         * @return {@link State#CLOSED} if request is allowed,
+         *         {@link State#HALF_OPEN} if request is a probe, or null if
+         *         request isn't allowed
+         */
+        synchronized State tryAcquire(long now) {
+            if (state == State.OPEN && now - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                log.info(String.format("Circuit of %s is half-open.", key));
+            }
+            if (state == State.CLOSED) {
+                return State.CLOSED;
+            } else if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                return State.HALF_OPEN;
+            }
+            return null;
+        }
+
+        synchronized void record(Boolean failure, boolean probe, long now) {
+            if (probe) {
+                probing = false;
+                if (failure == null) {
+                    return;
+                } else if (failure) {
+                    open(now);
+                } else {
+                    state = State.CLOSED;
+                    log.info(String.format("Circuit of %s is closed.", key));
+                }
+                return;
+            }
+            if (failure == null || state != State.CLOSED) {
+                return;
+            }
+            if (calls == windowSize) {
+                failures -= window[position] ? 1 : 0;
+            } else {
+                calls++;
+            }
+            window[position] = failure;
+            failures += failure ? 1 : 0;
+            position = (position + 1) % windowSize;
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open(now);
+            }
+        }
+
+        synchronized long getRetryAfter(long now) {
+            long remaining = Math.max(0, openNanos - (now - openedAt));
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
+
+        private void open(long now) {
+            log.warn(String.format("Circuit of %s is open.", key));
+            state = State.OPEN;
+            openedAt = now;
+            calls = 0;
+            failures = 0;
+            position = 0;
+        }
+    }
+
+}
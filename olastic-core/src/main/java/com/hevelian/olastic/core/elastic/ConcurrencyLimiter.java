@@ -0,0 +1,303 @@
+package com.hevelian.olastic.core.elastic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Admission control of search requests. Every entity set has its own limit of
+ * concurrent requests, so expensive requests to one entity set can't take
+ * all search threads of cluster. Limit adapts to observed latency: it grows
+ * additively while average latency of recent requests stays close to long
+ * term average latency, and decreases multiplicatively when recent latency
+ * grows or Elasticsearch rejects requests, at most once per recent latency
+ * window, so completions of one burst of requests admitted before decrease
+ * don't decrease it again. Comparing averages rather than
+ * single requests with the fastest one keeps the limit stable when cheap
+ * counts and expensive searches of entity set are mixed.
+ * Requests over the limit wait in bounded queue, and are rejected if they
+ * aren't admitted in time.
+ *
+ * @author rdidyk
+ */
+@Log4j2
+public class ConcurrencyLimiter implements AutoCloseable {
+
+    /**
+     * Ratio of recent latency to long term latency which is considered as
+     * overload.
+     */
+    public static final double LATENCY_TOLERANCE = 2;
+    /** Ratio of limit decrease on overload. */
+    public static final double BACKOFF_RATIO = 0.9;
+    /** Amount of requests recent latency is averaged over. */
+    private static final int SHORT_WINDOW = 5;
+    /** Amount of requests long term latency is averaged over. */
+    private static final int LONG_WINDOW = 500;
+    /** Ratio long term latency decays with while recent latency is much lower. */
+    private static final double LONG_LATENCY_DECAY = 0.95;
+
+    private final int initialLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final TimeValue maxWait;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * Creates limiter.
+     *
+     * @param initialLimit
+     *            initial limit of concurrent requests per entity set
+     * @param maxLimit
+     *            maximum limit of concurrent requests per entity set
+     * @param maxQueueSize
+     *            maximum amount of waiting requests per entity set
+     * @param maxWait
+     *            maximum time to wait for admission
+     */
+    public ConcurrencyLimiter(int initialLimit, int maxLimit, int maxQueueSize,
+            TimeValue maxWait) {
+        this(initialLimit, maxLimit, maxQueueSize, maxWait,
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "olastic-admission-timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                }), true);
+    }
+
+    ConcurrencyLimiter(int initialLimit, int maxLimit, int maxQueueSize, TimeValue maxWait,
+            ScheduledExecutorService scheduler) {
+        this(initialLimit, maxLimit, maxQueueSize, maxWait, scheduler, false);
+    }
+
+    private ConcurrencyLimiter(int initialLimit, int maxLimit, int maxQueueSize,
+            TimeValue maxWait, ScheduledExecutorService scheduler, boolean ownScheduler) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid concurrency limits: initial %d, maximum %d.", initialLimit,
+                    maxLimit));
+        }
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWait = maxWait;
+        this.scheduler = scheduler;
+        this.ownScheduler = ownScheduler;
+    }
+
+    /**
+     * Acquires permit to execute request. Returned future is completed when
+     * request is admitted, or completed exceptionally with
+     * {@link SearchRejectedException} if queue is full or request isn't
+     * admitted in time. Cancelling of returned future removes request from
+     * queue.
+     *
+     * @param key
+     *            key of entity set
+     * @return future of permit, which has to be released when request is
+     *         completed
+     */
+    public CompletableFuture<Permit> acquire(String key) {
+        return limits.computeIfAbsent(key, Limit::new).acquire();
+    }
+
+    /**
+     * @param key
+     *            key of entity set
+     * @return current limit of concurrent requests of entity set
+     */
+    public int getLimit(String key) {
+        Limit limit = limits.get(key);
+        return limit != null ? limit.getLimit() : initialLimit;
+    }
+
+    /**
+     * @return time in seconds after which rejected request could be retried
+     */
+    public long getRetryAfter() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWait.millis() + 999));
+    }
+
+    @Override
+    public void close() {
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Permit to execute request.
+     */
+    public static final class Permit {
+
+        private final Limit limit;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Limit limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Releases permit when request is completed. Latency of request is
+         * measured from the moment of admission.
+         *
+         * @param overloaded
+         *            true if request was rejected or partially rejected by
+         *            Elasticsearch because of overload
+         */
+        public void release(boolean overloaded) {
+            release(System.nanoTime() - start, overloaded);
+        }
+
+        void release(long latency, boolean overloaded) {
+            if (released.compareAndSet(false, true)) {
+                limit.release(latency, overloaded);
+            }
+        }
+
+        /**
+         * Releases permit of request which wasn't executed, so its latency
+         * doesn't affect the limit.
+         */
+        void cancel() {
+            if (released.compareAndSet(false, true)) {
+                limit.release(-1, false);
+            }
+        }
+    }
+
+    /**
+     * Limit of concurrent requests of entity set.
+     */
+    private class Limit {
+
+        private final String key;
+        private final Deque<CompletableFuture<Permit>> queue = new ArrayDeque<>();
+        private double limit = initialLimit;
+        private int inFlight;
+        private long samples;
+        private long samplesSinceDecrease = SHORT_WINDOW;
+        private double shortLatency;
+        private double longLatency;
+
+        Limit(String key) {
+            this.key = key;
+        }
+
+        synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        CompletableFuture<Permit> acquire() {
+            CompletableFuture<Permit> waiter = new CompletableFuture<>();
+            synchronized (this) {
+                if (queue.isEmpty() && inFlight < (int) limit) {
+                    inFlight++;
+                    waiter.complete(new Permit(this));
+                    return waiter;
+                } else if (queue.size() >= maxQueueSize) {
+                    waiter.completeExceptionally(reject());
+                    return waiter;
+                }
+                queue.add(waiter);
+            }
+            ScheduledFuture<?> expiration = scheduler.schedule(() -> {
+                if (remove(waiter)) {
+                    waiter.completeExceptionally(reject());
+                }
+            }, maxWait.millis(), TimeUnit.MILLISECONDS);
+            waiter.whenComplete((permit, error) -> {
+                expiration.cancel(false);
+                if (waiter.isCancelled()) {
+                    remove(waiter);
+                }
+            });
+            return waiter;
+        }
+
+        /**
+         * Releases permit, updates limit and admits waiting requests.
+         *
+         * @param latency
+         *            latency of request in nanoseconds, or negative value if
+         *            request wasn't executed
+         * @param overloaded
+         *            true if request was rejected because of overload
+         */
+        void release(long latency, boolean overloaded) {
+            List<CompletableFuture<Permit>> admitted = new ArrayList<>();
+            synchronized (this) {
+                if (latency >= 0) {
+                    updateLimit(latency, overloaded);
+                }
+                inFlight--;
+                while (!queue.isEmpty() && inFlight < (int) limit) {
+                    inFlight++;
+                    admitted.add(queue.poll());
+                }
+            }
+            for (CompletableFuture<Permit> waiter : admitted) {
+                Permit permit = new Permit(this);
+                if (!waiter.complete(permit)) {
+                    permit.cancel();
+                }
+            }
+        }
+
+        /**
+         * Updates recent and long term latency, which are exponential moving
+         * averages, or plain averages while there are fewer requests than
+         * window. Long term latency decays after overload, so it doesn't
+         * stay high once cluster recovered. Limit is decreased again only
+         * after recent latency is averaged over requests completed since
+         * previous decrease.
+         */
+        private void updateLimit(long latency, boolean overloaded) {
+            samples++;
+            samplesSinceDecrease++;
+            shortLatency += (latency - shortLatency) / Math.min(samples, SHORT_WINDOW);
+            longLatency += (latency - longLatency) / Math.min(samples, LONG_WINDOW);
+            if (longLatency > LATENCY_TOLERANCE * shortLatency) {
+                longLatency *= LONG_LATENCY_DECAY;
+            }
+            if (overloaded || shortLatency > LATENCY_TOLERANCE * longLatency) {
+                if (samplesSinceDecrease >= SHORT_WINDOW) {
+                    samplesSinceDecrease = 0;
+                    limit = Math.max(1, limit * BACKOFF_RATIO);
+                    log.debug(String.format("Concurrency limit of %s decreased to %.1f.", key,
+                            limit));
+                }
+            } else if (inFlight >= limit / 2) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+
+        private synchronized boolean remove(CompletableFuture<Permit> waiter) {
+            return queue.remove(waiter);
+        }
+
+        private SearchRejectedException reject() {
+            return new SearchRejectedException(
+                    String.format("Too many concurrent requests to %s.", key), getRetryAfter());
+        }
+    }
+
+}
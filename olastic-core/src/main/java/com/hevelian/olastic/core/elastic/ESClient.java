@@ -3,34 +3,114 @@ package com.hevelian.olastic.core.elastic;
 import com.hevelian.olastic.core.elastic.pagination.Pagination;
 import com.hevelian.olastic.core.elastic.pagination.Sort;
 import com.hevelian.olastic.core.elastic.queries.AggregateQuery;
+import com.hevelian.olastic.core.elastic.queries.Query;
 import com.hevelian.olastic.core.elastic.queries.SearchQuery;
+import com.hevelian.olastic.core.exceptions.CircuitOpenException;
+import com.hevelian.olastic.core.exceptions.ClusterUnavailableException;
 import com.hevelian.olastic.core.exceptions.SearchException;
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+import com.hevelian.olastic.core.exceptions.SearchTimeoutException;
 import lombok.extern.log4j.Log4j2;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestBuilder;
 import org.elasticsearch.action.search.*;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.NodeClosedException;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.transport.ConnectTransportException;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
- * Central point to retrieve the data from Elasticsearch.
+ * Central point to retrieve the data from Elasticsearch. Concurrent identical
+ * search requests are coalesced, so only one of them is sent to Elasticsearch
+ * and all callers share its response. Optionally responses are cached in
+ * {@link ResultCache}.
+ * <p>
+ * Search timeout is passed to Elasticsearch, which returns partial results
+ * when it's expired. If Elasticsearch doesn't respond within
+ * {@link #DEADLINE_GRACE} after timeout, request fails on the client side and
+ * its search task is cancelled. Search task is also cancelled when all callers
+ * of asynchronous request cancelled their futures. Only search task tagged by
+ * this client is cancelled, request which can't be tagged is bounded by its
+ * search timeout.
+ * <p>
+ * Optionally requests executed against Elasticsearch are limited by
+ * {@link ConcurrencyLimiter} per entity set, i.e. index and types of query. Requests rejected by the
+ * limiter or by Elasticsearch fail with {@link SearchRejectedException}.
+ * <p>
+ * Optionally requests pass through {@link CircuitBreaker}, which fails them
+ * immediately while cluster or entity set is failing. If request fails because
+ * of unavailability or overload, and result cache still retains response of
+ * identical request, it's returned unchanged and query is marked as
+ * {@link Query#isStale() stale}.
  * 
  * @author rdidyk
  */
 @Log4j2
 public class ESClient {
 
+    /** Time to keep scroll context alive between batches. */
+    public static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+    /** Time given to Elasticsearch to return partial results after timeout. */
+    public static final TimeValue DEADLINE_GRACE = TimeValue.timeValueSeconds(1);
+    /** Time in seconds to retry request rejected by Elasticsearch. */
+    static final long REJECTED_RETRY_AFTER = 1;
+    /** Prefix of wildcard expression which tags search task of request. */
+    static final String TASK_TAG_PREFIX = "olastic-task-";
     private static ESClient INSTANCE;
 
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
     private Client client;
+    private Executor callbackExecutor;
+    private ScheduledExecutorService deadlineScheduler;
+    private volatile boolean singleFlight = true;
+    private volatile ResultCache resultCache;
+    private volatile TimeValue defaultTimeout;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile PreferenceStrategy preferenceStrategy = PreferenceStrategy.NONE;
 
-    private ESClient(Client client) {
+    ESClient(Client client, Executor callbackExecutor) {
+        this(client, callbackExecutor, DeadlineSchedulerHolder.SCHEDULER);
+    }
+
+    ESClient(Client client, Executor callbackExecutor,
+            ScheduledExecutorService deadlineScheduler) {
         this.client = client;
+        this.callbackExecutor = callbackExecutor;
+        this.deadlineScheduler = deadlineScheduler;
     }
 
     /**
@@ -48,17 +128,36 @@ public class ESClient {
 
     /**
      * Method that initializes current client. It initializes new instance with
-     * Elasticsearch Client. This method can be called only once, in other case
-     * the illegal state exception will be thrown.
+     * Elasticsearch Client. Asynchronous requests are completed by dedicated
+     * pool with thread per processor and bounded queue, if queue is full
+     * request is completed by the thread which received response. This method
+     * can be called only once, in other case the illegal state exception will
+     * be thrown.
      * 
      * @param client
      *            Elasticsearch client instance
      */
     public static void init(Client client) {
+        init(client, CallbackExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * Method that initializes current client with custom executor for
+     * asynchronous requests. Responses are passed to the executor, so parsing
+     * and serialization of response never run on Elasticsearch transport
+     * threads. This method can be called only once, in other case the illegal
+     * state exception will be thrown.
+     * 
+     * @param client
+     *            Elasticsearch client instance
+     * @param callbackExecutor
+     *            executor to complete asynchronous requests
+     */
+    public static void init(Client client, Executor callbackExecutor) {
         if (INSTANCE == null) {
             synchronized (ESClient.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = new ESClient(client);
+                    INSTANCE = new ESClient(client, callbackExecutor);
                 } else {
                     throw new IllegalStateException(
                             "Elastic to CSDL mapper is already initialized.");
@@ -75,12 +174,35 @@ public class ESClient {
      * @return ES search response
      */
     public SearchResponse executeRequest(AggregateQuery query) {
-        SearchRequestBuilder requestBuilder = client.prepareSearch(query.getIndex())
+        return execute(prepareRequest(query), getTarget(query), query);
+    }
+
+    /**
+     * Execute aggregate query request asynchronously.
+     * 
+     * @param query
+     *            aggregate query
+     * @return future of ES search response
+     */
+    public CompletableFuture<SearchResponse> executeRequestAsync(AggregateQuery query) {
+        return executeAsync(prepareRequest(query), getTarget(query), query);
+    }
+
+    /**
+     * Prepares aggregate query request. No documents are retrieved, only
+     * aggregations, so response is served from shard request cache.
+     * 
+     * @param query
+     *            aggregate query
+     * @return request builder
+     */
+    protected SearchRequestBuilder prepareRequest(AggregateQuery query) {
+        SearchRequestBuilder requestBuilder = client.prepareSearch(getIndices(query))
                 .setTypes(query.getTypes()).setQuery(query.getQueryBuilder());
         query.getAggregations().forEach(requestBuilder::addAggregation);
         query.getPipelineAggregations().forEach(requestBuilder::addAggregation);
-        requestBuilder.setSize(0);
-        return executeRequest(requestBuilder);
+        requestBuilder.setSize(0).setRequestCache(true);
+        return applyOptions(requestBuilder, query);
     }
 
     /**
@@ -91,23 +213,7 @@ public class ESClient {
     public MultiSearchResponse executeRequest(List<SearchQuery> queries) {
         MultiSearchRequestBuilder multiSearchRequestBuilder = client.prepareMultiSearch();
         for (SearchQuery query : queries) {
-            Pagination pagination = query.getPagination();
-            SearchRequestBuilder requestBuilder = client.prepareSearch(query.getIndex())
-                    .setTypes(query.getTypes()).setQuery(query.getQueryBuilder());
-            if (pagination != null) {
-                List<Sort> orderBy = pagination.getOrderBy();
-                for (Sort sort : orderBy) {
-                    FieldSortBuilder sortQuery = SortBuilders.fieldSort(sort.getProperty())
-                            .order(SortOrder.valueOf(sort.getDirection().toString()));
-                    requestBuilder.addSort(sortQuery);
-                }
-                requestBuilder.setSize(pagination.getTop()).setFrom(pagination.getSkip());
-            }
-            Set<String> fields = query.getFields();
-            if (fields != null && !fields.isEmpty()) {
-                requestBuilder.setFetchSource(fields.toArray(new String[fields.size()]), null);
-            }
-            multiSearchRequestBuilder.add(requestBuilder);
+            multiSearchRequestBuilder.add(prepareRequest(query));
         }
         return executeRequest(multiSearchRequestBuilder);
     }
@@ -118,8 +224,98 @@ public class ESClient {
      * @return ES search response
      */
     public SearchResponse executeRequest(SearchQuery query) {
+        return execute(prepareRequest(query), getTarget(query), query);
+    }
+
+    /**
+     * Execute query request with filter and aggregations asynchronously.
+     * @param query search query
+     * @return future of ES search response
+     */
+    public CompletableFuture<SearchResponse> executeRequestAsync(SearchQuery query) {
+        return executeAsync(prepareRequest(query), getTarget(query), query);
+    }
+
+    /**
+     * Counts documents matched by query.
+     * @param query query to count documents
+     * @return ES search response without hits, total hits is the count
+     */
+    public SearchResponse count(Query query) {
+        return execute(prepareCountRequest(query), getTarget(query), query);
+    }
+
+    /**
+     * Counts documents matched by query asynchronously.
+     * @param query query to count documents
+     * @return future of ES search response without hits, total hits is the
+     *         count
+     */
+    public CompletableFuture<SearchResponse> countAsync(Query query) {
+        return executeAsync(prepareCountRequest(query), getTarget(query), query);
+    }
+
+    /**
+     * Prepares request to count documents: no hits are retrieved, scored or
+     * sorted, so only matching documents are counted, and response is served
+     * from shard request cache.
+     * @param query query to count documents
+     * @return request builder
+     */
+    protected SearchRequestBuilder prepareCountRequest(Query query) {
+        return applyOptions(client.prepareSearch(getIndices(query)).setTypes(query.getTypes())
+                .setQuery(query.getQueryBuilder()).setSize(0).setRequestCache(true), query);
+    }
+
+    /**
+     * Opens scroll over all hits of search query. Size of query pagination is
+     * used as batch size. If query has no sorting, hits are returned in index
+     * order, which is the cheapest way to scroll. The first batch is retrieved
+     * before method returns, so failure of search is thrown here and not while
+     * response is written.
+     * @param query search query
+     * @return iterator over all hits, it has to be closed if it isn't consumed
+     */
+    public ScrollHits scroll(SearchQuery query) {
+        SearchRequestBuilder request = prepareRequest(query);
+        Pagination pagination = query.getPagination();
+        if (pagination == null || pagination.getOrderBy().isEmpty()) {
+            request.addSort(SortBuilders.fieldSort(FieldSortBuilder.DOC_FIELD_NAME));
+        }
+        return new ScrollHits(this, request, getTarget(query), SCROLL_KEEP_ALIVE,
+                getDeadline(request));
+    }
+
+    /**
+     * Executes search or scroll request of scroll within concurrency limit
+     * and through circuit breaker of its target, with the same deadline as
+     * other requests. Scroll requests aren't shared or cached.
+     *
+     * @param request
+     *            search or scroll request
+     * @param target
+     *            index and types of entity set request targets
+     * @param deadline
+     *            time to wait for response, or null to wait without limit
+     * @return request response
+     */
+    SearchResponse executeScroll(ActionRequestBuilder<?, SearchResponse, ?> request,
+            String target, TimeValue deadline) {
+        requests.increment();
+        return doExecuteRequest(request, target, deadline);
+    }
+
+    /**
+     * Prepares search query request with pagination and fields to retrieve.
+     * Server-driven pagination sorts hits by unique tiebreaker, so the page
+     * following the last hit is retrieved with search after instead of from,
+     * and costs the same as the first one.
+     * @param query search query
+     * @return request builder
+     */
+    protected SearchRequestBuilder prepareRequest(SearchQuery query) {
         Pagination pagination = query.getPagination();
-        SearchRequestBuilder requestBuilder = client.prepareSearch(query.getIndex())
+        SearchRequestBuilder requestBuilder = client.prepareSearch(getIndices(query))
                 .setTypes(query.getTypes()).setQuery(query.getQueryBuilder());
         if (pagination != null) {
             List<Sort> orderBy = pagination.getOrderBy();
@@ -128,13 +324,76 @@ public class ESClient {
                         .order(SortOrder.valueOf(sort.getDirection().toString()));
                 requestBuilder.addSort(sortQuery);
             }
+            if (pagination.isServerDriven()) {
+                if (orderBy.isEmpty()) {
+                    requestBuilder.addSort(SortBuilders.scoreSort());
+                }
+                requestBuilder.addSort(SortBuilders.fieldSort(ElasticConstants.UID_FIELD_NAME));
+            }
+            if (pagination.getSearchAfter() != null) {
+                requestBuilder.searchAfter(pagination.getSearchAfter());
+            }
             requestBuilder.setSize(pagination.getTop()).setFrom(pagination.getSkip());
         }
         Set<String> fields = query.getFields();
         if (fields != null && !fields.isEmpty()) {
             requestBuilder.setFetchSource(fields.toArray(new String[fields.size()]), null);
         }
-        return executeRequest(requestBuilder);
+        return applyOptions(requestBuilder, query);
+    }
+
+    /**
+     * Gets indices to search.
+     * @param query query to execute
+     * @return concrete indices of query, or its index
+     */
+    private static String[] getIndices(Query query) {
+        return query.getIndices() != null ? query.getIndices()
+                : new String[] { query.getIndex() };
+    }
+
+    /**
+     * Applies search timeout of query, or default one, routing and preference
+     * to request. Missing concrete indices of query are ignored.
+     * @param request request builder
+     * @param query query with timeout, routing and session
+     * @return the same request builder
+     */
+    private SearchRequestBuilder applyOptions(SearchRequestBuilder request, Query query) {
+        TimeValue timeout = query.getTimeout() != null ? query.getTimeout() : defaultTimeout;
+        if (timeout != null) {
+            request.setTimeout(timeout);
+        }
+        if (query.getRouting() != null) {
+            request.setRouting(query.getRouting());
+        }
+        if (query.getIndices() != null) {
+            request.setIndicesOptions(IndicesOptions.lenientExpandOpen());
+        }
+        String preference = getPreference(query);
+        if (preference != null) {
+            request.setPreference(preference);
+        }
+        return request;
+    }
+
+    /**
+     * Gets search preference of query according to preference strategy.
+     * @param query query to execute
+     * @return preference, or null if there is no preference
+     */
+    private String getPreference(Query query) {
+        PreferenceStrategy strategy = preferenceStrategy;
+        String key;
+        if (strategy == PreferenceStrategy.SESSION && query.getSession() != null) {
+            key = query.getSession();
+        } else if (strategy != PreferenceStrategy.NONE) {
+            key = query.getIndex() + '/' + String.join(",", query.getTypes()) + '\n'
+                    + query.getQueryBuilder();
+        } else {
+            return null;
+        }
+        return Integer.toHexString(key.hashCode());
     }
 
     /**
@@ -145,14 +404,211 @@ public class ESClient {
      * @return request response
      */
     protected SearchResponse executeRequest(SearchRequestBuilder request) {
+        return executeRequest(request, getTarget(request));
+    }
+
+    /**
+     * Executes request which targets given entity set. Concurrency limit and
+     * circuit of request are chosen by its target, so requests to concrete
+     * indices of time-based index share limit and circuit of their alias.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return request response
+     */
+    protected SearchResponse executeRequest(SearchRequestBuilder request, String target) {
+        return execute(request, target).response;
+    }
+
+    /**
+     * Executes request of query and marks query as stale if retained
+     * response is returned.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @param query
+     *            query of request
+     * @return request response
+     */
+    private SearchResponse execute(SearchRequestBuilder request, String target, Query query) {
+        Result result = execute(request, target);
+        query.setStale(result.stale);
+        return result.response;
+    }
+
+    /**
+     * Executes request.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return result of request
+     * @see #executeRequest(SearchRequestBuilder, String)
+     */
+    private Result execute(SearchRequestBuilder request, String target) {
+        requests.increment();
+        ResultCache cache = resultCache;
+        if (!singleFlight && cache == null) {
+            return new Result(doExecuteRequest(request, target, getDeadline(request)), false);
+        }
+        String key = getFlightKey(request);
+        SearchResponse cached = cache != null ? cache.get(key) : null;
+        if (cached != null) {
+            return new Result(cached, false);
+        }
+        if (!singleFlight) {
+            return executeCached(cache, key, request, target);
+        }
+        Flight flight = new Flight();
+        CompletableFuture<Result> shared = joinFlight(key, flight);
+        if (shared != null) {
+            try {
+                return shared.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                        : e;
+            }
+        }
+        try {
+            Result result = executeCached(cache, key, request, target);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Executes request and caches its response. If request fails because of
+     * unavailability or overload, stale response is returned, if any.
+     *
+     * @param cache
+     *            result cache, or null if it's disabled
+     * @param key
+     *            request key
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return result of request
+     */
+    private Result executeCached(ResultCache cache, String key, SearchRequestBuilder request,
+            String target) {
+        Map<String, Long> versions = getVersions(cache, request);
+        try {
+            return new Result(cache(cache, key, request, versions,
+                    doExecuteRequest(request, target, getDeadline(request))), false);
+        } catch (RuntimeException e) {
+            SearchResponse stale = getStale(cache, key, e);
+            if (stale == null) {
+                throw e;
+            }
+            return new Result(stale, true);
+        }
+    }
+
+    /**
+     * Executes request within concurrency limit, if it's enabled. Requests
+     * rejected by the limiter never reach circuit breaker, and time spent
+     * waiting for admission isn't counted as latency of request.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @param deadline
+     *            time to wait for response, or null to wait without limit
+     * @return request response
+     */
+    private SearchResponse doExecuteRequest(ActionRequestBuilder<?, SearchResponse, ?> request,
+            String target, TimeValue deadline) {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null) {
+            return admitRequest(request, target, deadline);
+        }
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter.acquire(target).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        SearchResponse response = null;
+        RuntimeException error = null;
+        try {
+            response = admitRequest(request, target, deadline);
+            return response;
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            release(permit, response, error);
+        }
+    }
+
+    /**
+     * Executes admitted request through circuit breaker, if it's enabled.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @param deadline
+     *            time to wait for response, or null to wait without limit
+     * @return request response
+     */
+    private SearchResponse admitRequest(ActionRequestBuilder<?, SearchResponse, ?> request,
+            String target, TimeValue deadline) {
+        CircuitBreaker breaker = circuitBreaker;
+        if (breaker == null) {
+            return sendRequest(request, deadline);
+        }
+        CircuitBreaker.Call call = breaker.acquire(target);
+        long start = System.nanoTime();
+        SearchResponse response = null;
+        RuntimeException error = null;
+        try {
+            response = sendRequest(request, deadline);
+            return response;
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            call.complete(getOutcome(response, error), System.nanoTime() - start);
+        }
+    }
+
+    private SearchResponse sendRequest(ActionRequestBuilder<?, SearchResponse, ?> request,
+            TimeValue deadline) {
+        SearchRequest searchRequest = request.request() instanceof SearchRequest
+                ? (SearchRequest) request.request() : null;
+        String[] indices = searchRequest != null ? tag(searchRequest) : null;
         SearchResponse response = null;
         ElasticsearchException searchError = null;
         try {
-            response = request.execute().actionGet();
-        } catch (SearchPhaseExecutionException | NoNodeAvailableException exception) {
+            response = deadline != null ? request.execute().actionGet(deadline)
+                    : request.execute().actionGet();
+        } catch (ElasticsearchTimeoutException exception) {
             searchError = exception;
-            throw new SearchException(searchError.getDetailedMessage());
+            if (searchRequest != null) {
+                cancel(searchRequest);
+            }
+            throw new SearchTimeoutException(getTimeoutMessage(deadline));
+        } catch (ElasticsearchException exception) {
+            searchError = exception;
+            Exception error = translate(exception);
+            throw error instanceof RuntimeException ? (RuntimeException) error : exception;
         } finally {
+            if (indices != null) {
+                searchRequest.indices(indices);
+            }
             log.debug(String.format("Executing query request:%n%s", request.request()));
             if (response != null) {
                 log.debug(String.format("Query execution took: %s", response.getTook()));
@@ -187,8 +643,856 @@ public class ESClient {
         return response;
     }
 
+    /**
+     * Method has to be used to execute any asynchronous request. It has the
+     * same logging logic as synchronous execution. Future is completed by
+     * callback executor, not by Elasticsearch transport thread. Concurrent
+     * identical requests share a single in-flight request, unless single
+     * flight is disabled. Cancelling returned future cancels search task, if
+     * the request isn't shared with other callers.
+     *
+     * @param request
+     *            request to execute
+     * @return future of request response
+     */
+    protected CompletableFuture<SearchResponse> executeRequestAsync(
+            SearchRequestBuilder request) {
+        return executeRequestAsync(request, getTarget(request));
+    }
+
+    /**
+     * Executes request which targets given entity set asynchronously.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return future of request response
+     * @see #executeRequest(SearchRequestBuilder, String)
+     */
+    protected CompletableFuture<SearchResponse> executeRequestAsync(
+            SearchRequestBuilder request, String target) {
+        return map(executeAsync(request, target), result -> result.response);
+    }
+
+    /**
+     * Executes request of query asynchronously and marks query as stale if
+     * retained response is returned.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @param query
+     *            query of request
+     * @return future of request response
+     */
+    private CompletableFuture<SearchResponse> executeAsync(SearchRequestBuilder request,
+            String target, Query query) {
+        return map(executeAsync(request, target), result -> {
+            query.setStale(result.stale);
+            return result.response;
+        });
+    }
+
+    /**
+     * Executes request asynchronously.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return future of request result
+     * @see #executeRequestAsync(SearchRequestBuilder, String)
+     */
+    private CompletableFuture<Result> executeAsync(SearchRequestBuilder request,
+            String target) {
+        requests.increment();
+        ResultCache cache = resultCache;
+        if (!singleFlight && cache == null) {
+            return map(doExecuteRequestAsync(request, target),
+                    response -> new Result(response, false));
+        }
+        String key = getFlightKey(request);
+        SearchResponse cached = cache != null ? cache.get(key) : null;
+        if (cached != null) {
+            return CompletableFuture.completedFuture(new Result(cached, false));
+        }
+        if (!singleFlight) {
+            return executeCachedAsync(cache, key, request, target);
+        }
+        Flight flight = new Flight();
+        CompletableFuture<Result> shared = joinFlight(key, flight);
+        if (shared != null) {
+            return shared;
+        }
+        CompletableFuture<Result> execution = executeCachedAsync(cache, key, request, target);
+        execution.whenComplete((result, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(result);
+            }
+        });
+        flight.whenComplete((response, error) -> {
+            if (flight.isCancelled()) {
+                execution.cancel(false);
+            }
+        });
+        return flight.newCaller();
+    }
+
+    /**
+     * Joins identical request which is already in flight, or registers new
+     * flight if there is no such request.
+     *
+     * @param key
+     *            request key
+     * @param flight
+     *            new flight to register
+     * @return future of shared response, or null if new flight was registered
+     *         and request has to be executed
+     */
+    private CompletableFuture<Result> joinFlight(String key, Flight flight) {
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, flight)) != null) {
+            CompletableFuture<Result> shared = existing.share();
+            if (shared != null) {
+                collapsed.increment();
+                return shared;
+            }
+            inFlight.remove(key, existing);
+        }
+        return null;
+    }
+
+    /**
+     * Executes request asynchronously and caches its response. If request
+     * fails because of unavailability or overload, stale response is
+     * returned, if any. Cancelling returned future cancels request.
+     *
+     * @param cache
+     *            result cache, or null if it's disabled
+     * @param key
+     *            request key
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return future of request result
+     */
+    private CompletableFuture<Result> executeCachedAsync(ResultCache cache, String key,
+            SearchRequestBuilder request, String target) {
+        Map<String, Long> versions = getVersions(cache, request);
+        CompletableFuture<SearchResponse> execution = doExecuteRequestAsync(request, target);
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        execution.whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(
+                        new Result(cache(cache, key, request, versions, response), false));
+                return;
+            }
+            SearchResponse stale = getStale(cache, key, error);
+            if (stale != null) {
+                result.complete(new Result(stale, true));
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                execution.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Executes request asynchronously within concurrency limit, if it's
+     * enabled. Cancelling returned future removes request from queue of
+     * limiter, or cancels already sent request.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return future of request response
+     * @see #doExecuteRequest(SearchRequestBuilder, String)
+     */
+    private CompletableFuture<SearchResponse> doExecuteRequestAsync(
+            SearchRequestBuilder request, String target) {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null) {
+            return admitRequestAsync(request, target);
+        }
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        CompletableFuture<ConcurrencyLimiter.Permit> admission = limiter.acquire(target);
+        admission.whenComplete((permit, admissionError) -> {
+            if (admissionError != null) {
+                future.completeExceptionally(admissionError instanceof CompletionException
+                        ? admissionError.getCause() : admissionError);
+                return;
+            }
+            if (future.isDone()) {
+                permit.cancel();
+                return;
+            }
+            CompletableFuture<SearchResponse> execution = admitRequestAsync(request, target);
+            execution.whenComplete((response, error) -> {
+                release(permit, response, error);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(response);
+                }
+            });
+            future.whenComplete((response, error) -> {
+                if (future.isCancelled()) {
+                    execution.cancel(false);
+                }
+            });
+        });
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                admission.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Executes admitted request asynchronously through circuit breaker, if
+     * it's enabled.
+     *
+     * @param request
+     *            request to execute
+     * @param target
+     *            index and types of entity set request targets
+     * @return future of request response
+     */
+    private CompletableFuture<SearchResponse> admitRequestAsync(SearchRequestBuilder request,
+            String target) {
+        CircuitBreaker breaker = circuitBreaker;
+        if (breaker == null) {
+            return sendRequestAsync(request);
+        }
+        CircuitBreaker.Call call;
+        try {
+            call = breaker.acquire(target);
+        } catch (SearchRejectedException e) {
+            CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<SearchResponse> execution = sendRequestAsync(request);
+        execution.whenComplete((response, error) -> call
+                .complete(getOutcome(response, error), System.nanoTime() - start));
+        return execution;
+    }
+
+    /**
+     * Releases permit of concurrency limit. Request failed because of open
+     * circuit wasn't sent, so its latency doesn't affect the limit.
+     *
+     * @param permit
+     *            permit of request
+     * @param response
+     *            request response, or null if request failed
+     * @param error
+     *            failure of request, or null if it succeeded
+     */
+    private static void release(ConcurrencyLimiter.Permit permit, SearchResponse response,
+            Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof CircuitOpenException) {
+            permit.cancel();
+        } else {
+            permit.release(isOverloaded(response, error));
+        }
+    }
+
+    private CompletableFuture<SearchResponse> sendRequestAsync(SearchRequestBuilder request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        log.debug(String.format("Executing query request:%n%s", request.request()));
+        String[] indices = tag(request.request());
+        ActionListener<SearchResponse> listener = new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                untag(request.request(), indices);
+                log.debug(String.format("Query execution took: %s", response.getTook()));
+                callbackExecutor.execute(() -> future.complete(response));
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                untag(request.request(), indices);
+                log.error("Failed to execute query: ", exception);
+                Exception error = translate(exception);
+                callbackExecutor.execute(() -> future.completeExceptionally(error));
+            }
+        };
+        try {
+            request.execute(listener);
+        } catch (RuntimeException e) {
+            listener.onFailure(e);
+        }
+        TimeValue deadline = getDeadline(request);
+        if (deadline != null && !future.isDone()) {
+            ScheduledFuture<?> expiration = deadlineScheduler.schedule(() -> {
+                if (future.completeExceptionally(
+                        new SearchTimeoutException(getTimeoutMessage(deadline)))) {
+                    log.warn(String.format("Query request exceeded deadline of %s.", deadline));
+                }
+            }, deadline.millis(), TimeUnit.MILLISECONDS);
+            future.whenComplete((response, error) -> expiration.cancel(false));
+        }
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled() || error instanceof SearchTimeoutException) {
+                cancel(request.request());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Translates failure of request: rejections because of overload become
+     * {@link SearchRejectedException}, connection failures become
+     * {@link ClusterUnavailableException}, search failures become
+     * {@link SearchException}.
+     *
+     * @param exception
+     *            failure of request
+     * @return translated exception
+     */
+    private static Exception translate(Exception exception) {
+        if (ExceptionsHelper.status(exception) == RestStatus.TOO_MANY_REQUESTS) {
+            return new SearchRejectedException(
+                    "Elasticsearch rejected request: " + exception.getMessage(),
+                    REJECTED_RETRY_AFTER);
+        }
+        if (exception instanceof NoNodeAvailableException
+                || exception instanceof ConnectTransportException
+                || exception instanceof NodeClosedException) {
+            return new ClusterUnavailableException(
+                    ((ElasticsearchException) exception).getDetailedMessage());
+        }
+        if (exception instanceof SearchPhaseExecutionException) {
+            return new SearchException(((ElasticsearchException) exception).getDetailedMessage());
+        }
+        return exception;
+    }
+
+    /**
+     * Checks whether request completed in a way that shows overload of
+     * cluster: it was rejected or timed out, or some shards rejected it.
+     *
+     * @param response
+     *            request response, or null if request failed
+     * @param error
+     *            failure of request, or null if it succeeded
+     * @return true if cluster is overloaded
+     */
+    private static boolean isOverloaded(SearchResponse response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            return cause instanceof SearchRejectedException
+                    || cause instanceof SearchTimeoutException;
+        }
+        if (response.isTimedOut()) {
+            return true;
+        }
+        ShardSearchFailure[] failures = response.getShardFailures();
+        if (failures != null) {
+            for (ShardSearchFailure failure : failures) {
+                if (failure.status() == RestStatus.TOO_MANY_REQUESTS) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets outcome of request counted by circuit breaker. Timed out requests
+     * and requests rejected by Elasticsearch are failures, as well as server
+     * side errors. Requests rejected by concurrency limiter never reach
+     * circuit breaker.
+     *
+     * @param response
+     *            request response, or null if request failed
+     * @param error
+     *            failure of request, or null if it succeeded
+     * @return outcome of request
+     */
+    private static CircuitBreaker.Outcome getOutcome(SearchResponse response, Throwable error) {
+        if (error == null) {
+            return response.isTimedOut() ? CircuitBreaker.Outcome.FAILURE
+                    : CircuitBreaker.Outcome.SUCCESS;
+        }
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof ClusterUnavailableException) {
+            return CircuitBreaker.Outcome.UNREACHABLE;
+        } else if (cause instanceof SearchException || cause instanceof ElasticsearchException
+                && ExceptionsHelper.status(cause).getStatus() >= 500) {
+            return CircuitBreaker.Outcome.FAILURE;
+        }
+        return CircuitBreaker.Outcome.IGNORED;
+    }
+
+    /**
+     * Gets retained response of request which failed because cluster is
+     * unavailable or overloaded.
+     *
+     * @param cache
+     *            result cache, or null if it's disabled
+     * @param key
+     *            request key
+     * @param error
+     *            failure of request
+     * @return stale response, or null if there is no retained response or
+     *         failure isn't caused by unavailability
+     */
+    private static SearchResponse getStale(ResultCache cache, String key, Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cache == null || !(cause instanceof SearchRejectedException
+                || cause instanceof SearchTimeoutException
+                || cause instanceof ClusterUnavailableException)) {
+            return null;
+        }
+        SearchResponse stale = cache.getStale(key);
+        if (stale == null) {
+            return null;
+        }
+        log.warn(String.format("Serving stale response, request failed: %s",
+                cause.getMessage()));
+        return stale;
+    }
+
+    /**
+     * Maps value of future. Cancelling returned future cancels source future.
+     *
+     * @param source
+     *            source future
+     * @param mapper
+     *            function to map value
+     * @return future of mapped value
+     */
+    private static <T, R> CompletableFuture<R> map(CompletableFuture<T> source,
+            Function<T, R> mapper) {
+        CompletableFuture<R> mapped = new CompletableFuture<>();
+        source.whenComplete((value, error) -> {
+            if (error != null) {
+                mapped.completeExceptionally(error);
+            } else {
+                mapped.complete(mapper.apply(value));
+            }
+        });
+        mapped.whenComplete((value, error) -> {
+            if (mapped.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+        return mapped;
+    }
+
+    /**
+     * Gets target of query: its index and types. Concrete indices the query is
+     * narrowed to aren't part of target.
+     *
+     * @param query
+     *            query to execute
+     * @return index and types of entity set
+     */
+    private static String getTarget(Query query) {
+        return query.getIndex() + '/' + String.join(",", query.getTypes());
+    }
+
+    /**
+     * Gets target of request built outside of client: its indices and types.
+     *
+     * @param request
+     *            request to execute
+     * @return indices and types of request
+     */
+    private static String getTarget(SearchRequestBuilder request) {
+        SearchRequest searchRequest = request.request();
+        return String.join(",", searchRequest.indices()) + '/'
+                + String.join(",", searchRequest.types());
+    }
+
+    /**
+     * Tags request which is about to be sent, so its search task can be found
+     * later. Tag is unique wildcard expression which matches no index, it's
+     * added to indices of request and is a part of task description. Request
+     * which targets all indices, or whose indices options don't allow
+     * wildcards matching no index, isn't tagged, neither is request which is
+     * already in flight.
+     *
+     * @param request
+     *            request to tag
+     * @return indices of request before it was tagged, or null if request
+     *         wasn't tagged
+     */
+    static String[] tag(SearchRequest request) {
+        String[] indices = request.indices();
+        IndicesOptions options = request.indicesOptions();
+        if (getTag(request) != null || indices.length == 0
+                || Arrays.asList(indices).contains(MetaData.ALL)
+                || !options.allowNoIndices() || !options.expandWildcardsOpen()) {
+            return null;
+        }
+        String[] tagged = Arrays.copyOf(indices, indices.length + 1);
+        tagged[indices.length] = TASK_TAG_PREFIX + UUID.randomUUID() + '*';
+        request.indices(tagged);
+        return indices;
+    }
+
+    private static void untag(SearchRequest request, String[] indices) {
+        if (indices != null) {
+            request.indices(indices);
+        }
+    }
+
+    /**
+     * Gets tag of request which is in flight.
+     *
+     * @param request
+     *            sent request
+     * @return tag of request, or null if request isn't tagged
+     */
+    private static String getTag(SearchRequest request) {
+        String[] indices = request.indices();
+        String last = indices.length > 0 ? indices[indices.length - 1] : null;
+        return last != null && last.startsWith(TASK_TAG_PREFIX) ? last : null;
+    }
+
+    /**
+     * Cancels search task of request through tasks API. Task is found by
+     * search action and tag of request in its description, and cancelling it
+     * cancels its shard tasks. Search task of identical request sent by
+     * another client doesn't have the tag, so it's never cancelled. Untagged
+     * request isn't cancelled, it's bounded by its search timeout.
+     *
+     * @param request
+     *            request to cancel
+     */
+    protected void cancel(SearchRequest request) {
+        String tag = getTag(request);
+        if (tag == null) {
+            log.debug(String.format("Search task of request can't be identified, "
+                    + "it's not cancelled:%n%s", request));
+            return;
+        }
+        log.debug(String.format("Cancelling search task of request:%n%s", request));
+        try {
+            client.admin().cluster().prepareListTasks().setActions(SearchAction.NAME)
+                    .setDetailed(true).execute(ActionListener.wrap(response -> response
+                            .getTasks().stream()
+                            .filter(task -> !task.getParentTaskId().isSet()
+                                    && task.getDescription() != null
+                                    && task.getDescription().contains(tag))
+                            .forEach(task -> cancel(task.getTaskId())),
+                            exception -> log.warn("Unable to list search tasks.", exception)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to list search tasks.", e);
+        }
+    }
+
+    private void cancel(TaskId task) {
+        try {
+            client.admin().cluster().prepareCancelTasks().setTaskId(task)
+                    .execute(ActionListener.wrap(response -> {
+                    }, exception -> log.warn("Unable to cancel search task.", exception)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to cancel search task.", e);
+        }
+    }
+
+    /**
+     * Gets time to wait for response of request: search timeout with grace
+     * period to return partial results.
+     *
+     * @param request
+     *            request to execute
+     * @return deadline, or null if request has no timeout
+     */
+    private static TimeValue getDeadline(SearchRequestBuilder request) {
+        SearchSourceBuilder source = request.request().source();
+        TimeValue timeout = source != null ? source.timeout() : null;
+        return timeout != null
+                ? TimeValue.timeValueMillis(timeout.millis() + DEADLINE_GRACE.millis()) : null;
+    }
+
+    private static String getTimeoutMessage(TimeValue deadline) {
+        return String.format("Elasticsearch didn't respond within %s.", deadline);
+    }
+
+    /**
+     * Gets refresh versions of indices of request before it's sent.
+     *
+     * @param cache
+     *            result cache, or null if it's disabled
+     * @param request
+     *            request to execute
+     * @return versions of indices, or null if cache is disabled
+     */
+    private static Map<String, Long> getVersions(ResultCache cache,
+            SearchRequestBuilder request) {
+        return cache != null ? cache.getVersions(request.request().indices()) : null;
+    }
+
+    /**
+     * Puts response to result cache, if it's enabled. Partial results of
+     * timed out request aren't cached, and response isn't cached if indices
+     * were refreshed while request was executed.
+     *
+     * @param cache
+     *            result cache, or null if it's disabled
+     * @param key
+     *            request key
+     * @param request
+     *            executed request
+     * @param versions
+     *            refresh versions of indices taken before request was sent
+     * @param response
+     *            request response
+     * @return the same response
+     */
+    private static SearchResponse cache(ResultCache cache, String key,
+            SearchRequestBuilder request, Map<String, Long> versions, SearchResponse response) {
+        if (cache != null && !response.isTimedOut()) {
+            SearchRequest searchRequest = request.request();
+            cache.put(key, searchRequest.indices(), searchRequest.types(), response, versions);
+        }
+        return response;
+    }
+
+    /**
+     * Creates canonical key of request, which identifies in-flight requests
+     * and cached responses. Requests with the same indices,
+     * types, routing, preference and search source (query, aggregations,
+     * sort, from/size and source filter) have the same key.
+     *
+     * @param request
+     *            request to execute
+     * @return canonical request key
+     */
+    protected String getFlightKey(SearchRequestBuilder request) {
+        SearchRequest searchRequest = request.request();
+        return String.join(",", searchRequest.indices()) + '/'
+                + String.join(",", searchRequest.types()) + '?' + searchRequest.routing() + '&'
+                + searchRequest.preference() + '&' + searchRequest.requestCache() + '\n'
+                + searchRequest.source();
+    }
+
     public Client getClient() {
         return client;
     }
 
+    /**
+     * @return true if concurrent identical search requests share a single
+     *         in-flight request
+     */
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Enables or disables sharing of in-flight requests between concurrent
+     * identical search requests. Enabled by default.
+     * 
+     * @param singleFlight
+     *            true to enable single flight
+     */
+    public void setSingleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets cache of search responses. Responses of search and aggregate
+     * queries are cached with the same key as in-flight requests.
+     * 
+     * @param resultCache
+     *            result cache, or null to disable caching
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public TimeValue getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Sets default search timeout of requests, which is used if query has no
+     * timeout.
+     * 
+     * @param defaultTimeout
+     *            default timeout, or null to wait for response without limit
+     */
+    public void setDefaultTimeout(TimeValue defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Sets limiter of concurrent requests to Elasticsearch. Only requests
+     * actually sent to Elasticsearch are limited, requests served by cache
+     * or by in-flight request aren't.
+     * 
+     * @param concurrencyLimiter
+     *            concurrency limiter, or null to disable limiting
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets circuit breaker of requests to Elasticsearch. Like concurrency
+     * limiter, it applies only to requests actually sent to Elasticsearch.
+     * 
+     * @param circuitBreaker
+     *            circuit breaker, or null to disable it
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public PreferenceStrategy getPreferenceStrategy() {
+        return preferenceStrategy;
+    }
+
+    /**
+     * Sets strategy to choose search preference of requests. No preference
+     * is used by default.
+     * 
+     * @param preferenceStrategy
+     *            preference strategy
+     */
+    public void setPreferenceStrategy(PreferenceStrategy preferenceStrategy) {
+        this.preferenceStrategy = preferenceStrategy;
+    }
+
+    /**
+     * @return number of search requests received
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return number of search requests served by already in-flight request
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    /**
+     * Response of request and whether it's stale response retained by result
+     * cache.
+     */
+    private static class Result {
+        private final SearchResponse response;
+        private final boolean stale;
+
+        Result(SearchResponse response, boolean stale) {
+            this.response = response;
+            this.stale = stale;
+        }
+    }
+
+    /**
+     * Request in flight shared by concurrent identical requests. Each caller
+     * gets its own future, and request is cancelled only when all callers
+     * cancelled their futures.
+     */
+    private static class Flight extends CompletableFuture<Result> {
+
+        /** Amount of callers, or -1 if flight was cancelled. */
+        private final AtomicInteger callers = new AtomicInteger(1);
+
+        /**
+         * Joins the flight.
+         *
+         * @return future of caller, or null if flight is already cancelled
+         */
+        CompletableFuture<Result> share() {
+            int count;
+            do {
+                count = callers.get();
+                if (count < 0) {
+                    return null;
+                }
+            } while (!callers.compareAndSet(count, count + 1));
+            return newCaller();
+        }
+
+        /**
+         * Creates future of caller which already joined the flight.
+         *
+         * @return future of caller
+         */
+        CompletableFuture<Result> newCaller() {
+            CompletableFuture<Result> caller = new CompletableFuture<>();
+            whenComplete((result, error) -> {
+                if (error != null) {
+                    caller.completeExceptionally(error);
+                } else {
+                    caller.complete(result);
+                }
+            });
+            caller.whenComplete((result, error) -> {
+                if (caller.isCancelled() && callers.decrementAndGet() == 0
+                        && callers.compareAndSet(0, -1)) {
+                    cancel(false);
+                }
+            });
+            return caller;
+        }
+    }
+
+    /**
+     * Holder of executor shared by clients, which completes futures of
+     * asynchronous requests, so callbacks don't run on transport threads.
+     * Bounded queue overflow runs callbacks on the completing thread.
+     */
+    private static class CallbackExecutorHolder {
+        private static final int QUEUE_SIZE = 1000;
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        private static final Executor EXECUTOR = new ThreadPoolExecutor(
+                Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "olastic-request-callback-" + THREADS.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Holder of scheduler of request deadlines shared by clients.
+     */
+    private static class DeadlineSchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER = Executors
+                .newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "olastic-request-deadline");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
 }
@@ -17,6 +17,8 @@ public final class ElasticConstants {
     public static final String PARENT_PROPERTY = "_parent";
     /** ID field name. */
     public static final String ID_FIELD_NAME = "_id";
+    /** UID field name, unique per index and used as sort tiebreaker. */
+    public static final String UID_FIELD_NAME = "_uid";
     /** Suffix for keyword (not-analyzed) field. */
     public static final String KEYWORD_SUFFIX = "keyword";
     /** Field suffix delimiter. */
@@ -0,0 +1,285 @@
+package com.hevelian.olastic.core.elastic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.FilterClient;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.node.NodeClosedException;
+import org.elasticsearch.transport.ConnectTransportException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Client which sends each request to the node with the lowest expected
+ * latency. Nodes are discovered by transport client (all data nodes of
+ * cluster, if sniffing is enabled), and every node has its own client
+ * connected only to it. Clients are created and closed in background when
+ * nodes list is refreshed, never while request is sent, and at most
+ * {@link #MAX_NODES} nodes get their clients. Expected latency of node is exponentially weighted
+ * moving average of its response times multiplied by amount of its in-flight
+ * requests, so slow or busy node gets fewer requests. Average decays while
+ * node isn't used, so node that was slow once gets requests again.
+ *
+ * @author rdidyk
+ */
+@Log4j2
+public class LatencyAwareClient extends FilterClient {
+
+    /** Weight of the latest response time in average latency. */
+    static final double ALPHA = 0.3;
+    /** Time in which average latency of unused node decays by e times. */
+    static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /** Response time recorded for node that couldn't be reached. */
+    static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(5);
+    /** Interval between refreshes of nodes list. */
+    static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** Maximum amount of nodes requests are balanced between. */
+    public static final int MAX_NODES = 10;
+
+    private final Supplier<List<DiscoveryNode>> discovery;
+    private final Function<DiscoveryNode, Client> clientFactory;
+    private final LongSupplier ticker;
+    private final ScheduledExecutorService scheduler;
+    private final Map<TransportAddress, Node> nodes = new ConcurrentHashMap<>();
+    private volatile List<Node> available = Collections.emptyList();
+
+    /**
+     * Creates client.
+     *
+     * @param discoveryClient
+     *            transport client which discovers nodes, it's used to execute
+     *            requests only if there are no connected nodes
+     * @param clientFactory
+     *            factory of clients connected only to given node
+     */
+    public LatencyAwareClient(TransportClient discoveryClient,
+            Function<DiscoveryNode, Client> clientFactory) {
+        this(discoveryClient, discoveryClient::connectedNodes, clientFactory, System::nanoTime,
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "olastic-nodes-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * Creates client which nodes list is refreshed only by
+     * {@link #refreshNodes()} calls.
+     */
+    LatencyAwareClient(Client discoveryClient, Supplier<List<DiscoveryNode>> discovery,
+            Function<DiscoveryNode, Client> clientFactory, LongSupplier ticker) {
+        this(discoveryClient, discovery, clientFactory, ticker, null);
+    }
+
+    private LatencyAwareClient(Client discoveryClient, Supplier<List<DiscoveryNode>> discovery,
+            Function<DiscoveryNode, Client> clientFactory, LongSupplier ticker,
+            ScheduledExecutorService scheduler) {
+        super(discoveryClient);
+        this.discovery = discovery;
+        this.clientFactory = clientFactory;
+        this.ticker = ticker;
+        this.scheduler = scheduler;
+        refreshNodes();
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    refreshNodes();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to refresh nodes.", e);
+                }
+            }, REFRESH_INTERVAL_NANOS, REFRESH_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    protected <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+            void doExecute(Action<Request, Response, RequestBuilder> action, Request request,
+                    ActionListener<Response> listener) {
+        Node node = select();
+        if (node == null) {
+            super.doExecute(action, request, listener);
+            return;
+        }
+        node.inFlight.incrementAndGet();
+        long start = ticker.getAsLong();
+        ActionListener<Response> measuringListener = new ActionListener<Response>() {
+            @Override
+            public void onResponse(Response response) {
+                node.complete(ticker.getAsLong() - start, ticker.getAsLong());
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                long elapsed = ticker.getAsLong() - start;
+                node.complete(isConnectionFailure(exception)
+                        ? Math.max(elapsed, FAILURE_PENALTY_NANOS) : elapsed, ticker.getAsLong());
+                listener.onFailure(exception);
+            }
+        };
+        try {
+            node.client.execute(action, request, measuringListener);
+        } catch (RuntimeException e) {
+            measuringListener.onFailure(e);
+        }
+    }
+
+    /**
+     * Selects node with the lowest expected latency. Nodes are checked from
+     * random position, so nodes with the same latency get equal share of
+     * requests.
+     *
+     * @return selected node, or null if there are no connected nodes
+     */
+    private Node select() {
+        List<Node> current = available;
+        if (current.isEmpty()) {
+            return null;
+        }
+        long now = ticker.getAsLong();
+        int offset = ThreadLocalRandom.current().nextInt(current.size());
+        Node selected = null;
+        double selectedScore = Double.MAX_VALUE;
+        for (int i = 0; i < current.size(); i++) {
+            Node node = current.get((offset + i) % current.size());
+            double score = node.score(now);
+            if (score < selectedScore) {
+                selected = node;
+                selectedScore = score;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Updates list of available nodes with nodes connected by discovery
+     * client. Nodes which already have clients are kept, new nodes get their
+     * clients until there are {@link #MAX_NODES} of them. Clients of nodes
+     * which aren't connected anymore are closed.
+     */
+    synchronized void refreshNodes() {
+        Map<TransportAddress, DiscoveryNode> discovered = new LinkedHashMap<>();
+        for (DiscoveryNode node : discovery.get()) {
+            discovered.putIfAbsent(node.getAddress(), node);
+        }
+        nodes.entrySet().removeIf(entry -> {
+            if (discovered.containsKey(entry.getKey())) {
+                return false;
+            }
+            log.debug(String.format("Node %s isn't connected anymore.", entry.getKey()));
+            entry.getValue().client.close();
+            return true;
+        });
+        for (DiscoveryNode node : discovered.values()) {
+            if (nodes.size() >= MAX_NODES) {
+                break;
+            }
+            nodes.computeIfAbsent(node.getAddress(),
+                    address -> new Node(clientFactory.apply(node)));
+        }
+        available = Collections.unmodifiableList(new ArrayList<>(nodes.values()));
+    }
+
+    private static boolean isConnectionFailure(Exception exception) {
+        Throwable cause = ExceptionsHelper.unwrapCause(exception);
+        return cause instanceof ConnectTransportException
+                || cause instanceof NoNodeAvailableException
+                || cause instanceof NodeClosedException;
+    }
+
+    /**
+     * Gets expected latencies of nodes, mostly for monitoring.
+     *
+     * @return expected latency in milliseconds by node address
+     */
+    public Map<TransportAddress, Double> getExpectedLatencies() {
+        long now = ticker.getAsLong();
+        Map<TransportAddress, Double> latencies = new HashMap<>();
+        nodes.forEach((address, node) -> latencies.put(address,
+                node.score(now) / TimeUnit.MILLISECONDS.toNanos(1)));
+        return latencies;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        synchronized (this) {
+            nodes.values().forEach(node -> node.client.close());
+            nodes.clear();
+            available = Collections.emptyList();
+        }
+        super.close();
+    }
+
+    /**
+     * Node with its client and latency statistics.
+     */
+    private static class Node {
+
+        private final Client client;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double latency;
+        private long updatedAt;
+        private boolean sampled;
+
+        Node(Client client) {
+            this.client = client;
+        }
+
+        /**
+         * Records response time of completed request.
+         *
+         * @param elapsed
+         *            response time in nanoseconds
+         * @param now
+         *            current time in nanoseconds
+         */
+        synchronized void complete(long elapsed, long now) {
+            inFlight.decrementAndGet();
+            latency = sampled ? ALPHA * elapsed + (1 - ALPHA) * decayedLatency(now) : elapsed;
+            updatedAt = now;
+            sampled = true;
+        }
+
+        /**
+         * @param now
+         *            current time in nanoseconds
+         * @return expected latency of the next request
+         */
+        synchronized double score(long now) {
+            return decayedLatency(now) * (inFlight.get() + 1);
+        }
+
+        private double decayedLatency(long now) {
+            return latency * Math.exp(-(double) (now - updatedAt) / DECAY_NANOS);
+        }
+    }
+
+}
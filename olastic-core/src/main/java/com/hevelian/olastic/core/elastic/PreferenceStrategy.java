@@ -0,0 +1,21 @@
+package com.hevelian.olastic.core.elastic;
+
+/**
+ * Strategy to choose search preference, which selects shard copies request is
+ * executed on. Requests with the same preference are executed on the same
+ * shard copies, so repeated requests are served from their shard request
+ * cache instead of missing it on random replicas.
+ *
+ * @author rdidyk
+ */
+public enum PreferenceStrategy {
+    /** No preference, shard copies are selected by Elasticsearch. */
+    NONE,
+    /** Hash of requested indices, types and query. */
+    QUERY,
+    /**
+     * Hash of user session, so user gets consistent results across pages.
+     * Hash of query is used for requests without session.
+     */
+    SESSION
+}
@@ -0,0 +1,457 @@
+package com.hevelian.olastic.core.elastic;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.admin.indices.stats.IndexStats;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasOrIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.regex.Regex;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Cache of search responses, bounded by estimated size of responses in bytes.
+ * Least recently used entries are evicted when size is exceeded. Each entry
+ * expires after time to live of its entity set, or default one. Background
+ * task periodically polls refresh statistics of indices with cached entries
+ * and drops all entries of indices that have been refreshed since, so cached
+ * responses never outlive visible index changes longer than poll interval.
+ * Aliases and index patterns are resolved to concrete indices, which are
+ * polled instead, and entries of alias are also dropped when its concrete
+ * indices change.
+ * <p>
+ * Optionally expired and invalidated entries are retained for stale period,
+ * so the last known response could be served when cluster is unavailable.
+ *
+ * @author rdidyk
+ */
+@Log4j2
+public class ResultCache implements AutoCloseable {
+    /** Default interval in milliseconds to check indices changes. */
+    public static final long DEFAULT_POLL_INTERVAL = 5000;
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final Cache<String, Entry> cache;
+    private final long defaultTtl;
+    private final long staleTtl;
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+    private final Map<String, Long> refreshVersions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> concreteIndices = new ConcurrentHashMap<>();
+    private final Client client;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates cache with default poll interval.
+     *
+     * @param client
+     *            Elasticsearch client to poll indices statistics
+     * @param maxBytes
+     *            maximum estimated size of cached responses
+     * @param defaultTtl
+     *            default time to live of entry in milliseconds
+     */
+    public ResultCache(Client client, long maxBytes, long defaultTtl) {
+        this(client, maxBytes, defaultTtl, DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * Creates cache with custom poll interval.
+     *
+     * @param client
+     *            Elasticsearch client to poll indices statistics
+     * @param maxBytes
+     *            maximum estimated size of cached responses
+     * @param defaultTtl
+     *            default time to live of entry in milliseconds
+     * @param pollInterval
+     *            interval in milliseconds to check indices changes, if it's
+     *            not positive entries are dropped only when they expire
+     */
+    public ResultCache(Client client, long maxBytes, long defaultTtl, long pollInterval) {
+        this(client, maxBytes, defaultTtl, pollInterval, 0);
+    }
+
+    /**
+     * Creates cache which retains expired entries to serve them when cluster
+     * is unavailable.
+     *
+     * @param client
+     *            Elasticsearch client to poll indices statistics
+     * @param maxBytes
+     *            maximum estimated size of cached responses
+     * @param defaultTtl
+     *            default time to live of entry in milliseconds
+     * @param pollInterval
+     *            interval in milliseconds to check indices changes, if it's
+     *            not positive entries are dropped only when they expire
+     * @param staleTtl
+     *            time in milliseconds to retain entry after it expired or
+     *            was invalidated, if it's not positive entries aren't
+     *            retained
+     */
+    public ResultCache(Client client, long maxBytes, long defaultTtl, long pollInterval,
+            long staleTtl) {
+        this.client = client;
+        this.defaultTtl = defaultTtl;
+        this.staleTtl = Math.max(0, staleTtl);
+        this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .expireAfterWrite(defaultTtl + this.staleTtl, TimeUnit.MILLISECONDS)
+                .recordStats().build();
+        if (pollInterval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "olastic-result-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::checkIndices, pollInterval, pollInterval,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Sets time to live of entries of entity set. It can't be longer than
+     * default time to live.
+     *
+     * @param index
+     *            entity set index
+     * @param type
+     *            entity set type
+     * @param ttl
+     *            time to live in milliseconds
+     */
+    public void setTtl(String index, String type, long ttl) {
+        ttls.put(index + '/' + type, ttl);
+    }
+
+    /**
+     * Gets cached response.
+     *
+     * @param key
+     *            canonical request key
+     * @return cached response, or null if there is no actual response
+     */
+    public SearchResponse get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() > entry.expiresAt) {
+            if (staleTtl == 0) {
+                cache.invalidate(key);
+            }
+            return null;
+        }
+        return entry.response;
+    }
+
+    /**
+     * Gets cached response, even if it's expired or invalidated, but is still
+     * within stale period.
+     *
+     * @param key
+     *            canonical request key
+     * @return cached response, or null if there is no retained response
+     */
+    public SearchResponse getStale(String key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null && System.currentTimeMillis() <= entry.expiresAt + staleTtl
+                ? entry.response : null;
+    }
+
+    /**
+     * Gets last known refresh versions of concrete indices requested indices
+     * resolve to. Versions have to be taken before request is sent, so
+     * response isn't cached if indices are refreshed while it's executed.
+     *
+     * @param indices
+     *            requested indices, aliases or index patterns
+     * @return refresh versions by concrete index names, -1 if version is
+     *         unknown yet
+     */
+    public Map<String, Long> getVersions(String[] indices) {
+        Map<String, Long> versions = new HashMap<>();
+        for (String concreteIndex : resolve(indices)) {
+            versions.put(concreteIndex, refreshVersions.getOrDefault(concreteIndex, -1L));
+        }
+        return versions;
+    }
+
+    /**
+     * Puts response to cache.
+     *
+     * @param key
+     *            canonical request key
+     * @param indices
+     *            requested indices
+     * @param types
+     *            requested types
+     * @param response
+     *            response to cache
+     */
+    public void put(String key, String[] indices, String[] types, SearchResponse response) {
+        put(key, indices, types, response, null);
+    }
+
+    /**
+     * Puts response to cache, if requested indices haven't been refreshed
+     * since versions were taken.
+     *
+     * @param key
+     *            canonical request key
+     * @param indices
+     *            requested indices
+     * @param types
+     *            requested types
+     * @param response
+     *            response to cache
+     * @param versions
+     *            versions taken by {@link #getVersions(String[])} before
+     *            request was sent, or null to cache response unconditionally
+     */
+    public void put(String key, String[] indices, String[] types, SearchResponse response,
+            Map<String, Long> versions) {
+        long ttl = getTtl(indices, types);
+        if (ttl <= 0 || versions != null && !versions.equals(getVersions(indices))) {
+            return;
+        }
+        Set<String> entryIndices = new HashSet<>(Arrays.asList(indices));
+        for (String concreteIndex : resolve(indices)) {
+            refreshVersions.putIfAbsent(concreteIndex, -1L);
+            entryIndices.add(concreteIndex);
+        }
+        cache.put(key, new Entry(response, entryIndices, System.currentTimeMillis() + ttl,
+                estimateSize(key, response)));
+    }
+
+    /**
+     * Drops all cached entries of index. If stale period is set, entries are
+     * expired instead, so they are retained for stale period.
+     *
+     * @param index
+     *            index name
+     */
+    public void invalidateIndex(String index) {
+        if (staleTtl == 0) {
+            cache.asMap().values().removeIf(entry -> entry.indices.contains(index));
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() - 1;
+        cache.asMap().replaceAll((key, entry) -> entry.indices.contains(index)
+                && entry.expiresAt > expiresAt ? entry.expire(expiresAt) : entry);
+    }
+
+    /**
+     * Drops all cached entries, including retained stale ones.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return cache statistics
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return amount of cached entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Stops background check of indices changes.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves aliases and index patterns of cached entries again and drops
+     * entries of those resolved to other concrete indices. Then compares
+     * refresh counts of concrete indices with cached entries with counts from
+     * indices statistics and drops entries of indices that have been
+     * refreshed.
+     */
+    protected void checkIndices() {
+        try {
+            Set<String> names = new HashSet<>(concreteIndices.keySet());
+            if (!names.isEmpty()) {
+                MetaData metaData = getMetaData(names);
+                for (String name : names) {
+                    Set<String> resolved = resolve(metaData, name);
+                    if (!resolved.equals(concreteIndices.put(name, resolved))) {
+                        invalidateIndex(name);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Result cache aliases check failed.", e);
+        }
+        try {
+            Set<String> indices = new HashSet<>(refreshVersions.keySet());
+            if (indices.isEmpty()) {
+                return;
+            }
+            IndicesStatsResponse stats = client.admin().indices()
+                    .prepareStats(indices.toArray(new String[indices.size()])).clear()
+                    .setRefresh(true).get();
+            Map<String, IndexStats> indicesStats = new HashMap<>(stats.getIndices());
+            for (String index : indices) {
+                IndexStats indexStats = indicesStats.get(index);
+                long version = indexStats != null
+                        ? indexStats.getTotal().getRefresh().getTotal() : -1;
+                Long previous = refreshVersions.put(index, version);
+                if (previous == null || previous != version) {
+                    invalidateIndex(index);
+                }
+                if (indexStats == null) {
+                    refreshVersions.remove(index);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Result cache indices check failed.", e);
+        }
+    }
+
+    /**
+     * Resolves requested indices to concrete indices. Resolved names are
+     * remembered until background check resolves them again. Name which
+     * can't be resolved is treated as concrete index.
+     *
+     * @param indices
+     *            requested indices, aliases or index patterns
+     * @return concrete index names
+     */
+    private Set<String> resolve(String[] indices) {
+        Set<String> resolved = new HashSet<>();
+        for (String index : indices) {
+            Set<String> concrete = concreteIndices.get(index);
+            if (concrete == null) {
+                try {
+                    concrete = resolve(getMetaData(Collections.singleton(index)), index);
+                    concreteIndices.put(index, concrete);
+                } catch (RuntimeException e) {
+                    log.debug("Unable to resolve concrete indices of " + index, e);
+                    concrete = Collections.singleton(index);
+                }
+            }
+            resolved.addAll(concrete);
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolves index name, alias or index pattern to concrete indices.
+     *
+     * @param metaData
+     *            cluster metadata
+     * @param name
+     *            index name, alias or index pattern
+     * @return concrete index names, or name itself if nothing matches it
+     */
+    private static Set<String> resolve(MetaData metaData, String name) {
+        Set<String> resolved = new HashSet<>();
+        if (Regex.isSimpleMatchPattern(name)) {
+            for (String index : metaData.getConcreteAllIndices()) {
+                if (Regex.simpleMatch(name, index)) {
+                    resolved.add(index);
+                }
+            }
+        } else {
+            AliasOrIndex aliasOrIndex = metaData.getAliasAndIndexLookup().get(name);
+            if (aliasOrIndex != null) {
+                for (IndexMetaData indexMetaData : aliasOrIndex.getIndices()) {
+                    resolved.add(indexMetaData.getIndex().getName());
+                }
+            }
+        }
+        return resolved.isEmpty() ? Collections.singleton(name) : resolved;
+    }
+
+    private MetaData getMetaData(Set<String> names) {
+        return client.admin().cluster().prepareState().clear().setMetaData(true)
+                .setIndices(names.toArray(new String[names.size()]))
+                .setIndicesOptions(IndicesOptions.lenientExpandOpen()).get().getState()
+                .metaData();
+    }
+
+    private long getTtl(String[] indices, String[] types) {
+        long ttl = defaultTtl;
+        List<String> requestTypes = Arrays.asList(types);
+        for (String index : indices) {
+            for (String type : requestTypes) {
+                Long entitySetTtl = ttls.get(index + '/' + type);
+                if (entitySetTtl != null) {
+                    ttl = Math.min(ttl, entitySetTtl);
+                }
+            }
+        }
+        return ttl;
+    }
+
+    /**
+     * Estimates size of response by its serialized size.
+     *
+     * @param key
+     *            entry key
+     * @param response
+     *            response to estimate
+     * @return estimated size in bytes
+     */
+    private static int estimateSize(String key, SearchResponse response) {
+        long size = ENTRY_OVERHEAD + 2L * key.length();
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            response.writeTo(out);
+            size += out.size();
+        } catch (IOException | RuntimeException e) {
+            log.debug("Unable to estimate size of response.", e);
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Cached response with indices it was retrieved from.
+     */
+    @AllArgsConstructor
+    private static class Entry {
+        private final SearchResponse response;
+        private final Set<String> indices;
+        private final long expiresAt;
+        private final int weight;
+
+        Entry expire(long expiresAt) {
+            return new Entry(response, indices, expiresAt, weight);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.hevelian.olastic.core.elastic;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Iterator over all hits of search request retrieved with scroll. Only one
+ * batch of hits is held in memory, next batch is requested when previous one
+ * is consumed. Batches are requested through {@link ESClient}, so they are
+ * subject to its concurrency limit, circuit breaker and deadline. Scroll
+ * context is cleared when all hits are consumed or iterator is closed.
+ *
+ * @author rdidyk
+ */
+@Log4j2
+public class ScrollHits implements Iterator<SearchHit>, AutoCloseable {
+
+    private final ESClient client;
+    private final String target;
+    private final TimeValue keepAlive;
+    private final TimeValue deadline;
+    private final long totalHits;
+    private String scrollId;
+    private SearchHit[] hits = new SearchHit[0];
+    private int position;
+    private boolean finished;
+
+    /**
+     * Creates iterator and requests the first batch.
+     *
+     * @param client
+     *            client to execute requests
+     * @param request
+     *            search request, its size is used as batch size
+     * @param target
+     *            index and types of entity set request targets
+     * @param keepAlive
+     *            time to keep scroll context alive between batches
+     * @param deadline
+     *            time to wait for each batch, or null to wait without limit
+     */
+    ScrollHits(ESClient client, SearchRequestBuilder request, String target,
+            TimeValue keepAlive, TimeValue deadline) {
+        this.client = client;
+        this.target = target;
+        this.keepAlive = keepAlive;
+        this.deadline = deadline;
+        SearchResponse response = client.executeScroll(request.setScroll(keepAlive), target,
+                deadline);
+        totalHits = response.getHits().getTotalHits();
+        accept(response);
+    }
+
+    /**
+     * @return total amount of hits matched by request
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position >= hits.length && !finished) {
+            fetch();
+        }
+        return position < hits.length;
+    }
+
+    @Override
+    public SearchHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return hits[position++];
+    }
+
+    /**
+     * Clears scroll context, if it's still open.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        hits = new SearchHit[0];
+        if (scrollId != null) {
+            String id = scrollId;
+            scrollId = null;
+            try {
+                client.getClient().prepareClearScroll().addScrollId(id)
+                        .execute(ActionListener.wrap(response -> {
+                        }, exception -> log.warn("Unable to clear scroll context.",
+                                exception)));
+            } catch (RuntimeException e) {
+                log.warn("Unable to clear scroll context.", e);
+            }
+        }
+    }
+
+    private void fetch() {
+        if (finished) {
+            return;
+        }
+        accept(client.executeScroll(
+                client.getClient().prepareSearchScroll(scrollId).setScroll(keepAlive), target,
+                deadline));
+    }
+
+    private void accept(SearchResponse response) {
+        scrollId = response.getScrollId();
+        hits = response.getHits().getHits();
+        position = 0;
+        if (hits.length == 0) {
+            close();
+        }
+    }
+
+}
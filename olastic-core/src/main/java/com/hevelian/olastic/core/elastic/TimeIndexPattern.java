@@ -0,0 +1,325 @@
+package com.hevelian.olastic.core.elastic;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+
+/**
+ * Naming scheme of time-based indices behind alias or index pattern, e.g.
+ * daily indices of logs. Every concrete index contains documents which time
+ * field falls into single period, and its name is the start of the period in
+ * UTC formatted by pattern. Period is the smallest unit of pattern: hour,
+ * day, month or year. Knowing the scheme and concrete indices of alias,
+ * search restricted by time field is sent only to indices of matching periods
+ * instead of all indices of alias.
+ *
+ * @author rdidyk
+ */
+public class TimeIndexPattern {
+
+    /** Maximum amount of concrete indices, search of wider range uses alias. */
+    public static final int MAX_INDICES = 1000;
+
+    private final String field;
+    private final String pattern;
+    private final DateTimeFormatter formatter;
+    private final DateTimeFormatter parser;
+    private final ChronoUnit unit;
+    private final NavigableMap<LocalDateTime, String> indices;
+
+    /**
+     * Creates naming scheme.
+     *
+     * @param field
+     *            name of time field
+     * @param pattern
+     *            {@link DateTimeFormatter} pattern of concrete index names,
+     *            e.g. 'logs-'yyyy.MM.dd
+     * @throws IllegalArgumentException
+     *             if pattern is invalid, week based or has no date fields
+     */
+    public TimeIndexPattern(String field, String pattern) {
+        this.field = field;
+        this.pattern = pattern;
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC);
+        this.unit = getUnit(pattern);
+        this.parser = createParser(pattern, unit);
+        this.indices = null;
+    }
+
+    private TimeIndexPattern(TimeIndexPattern scheme,
+            NavigableMap<LocalDateTime, String> indices) {
+        this.field = scheme.field;
+        this.pattern = scheme.pattern;
+        this.formatter = scheme.formatter;
+        this.unit = scheme.unit;
+        this.parser = scheme.parser;
+        this.indices = indices;
+    }
+
+    /**
+     * Binds naming scheme to concrete indices of alias or index pattern, so
+     * searches are sent only to the existing indices of matching periods.
+     * Scheme can't be bound if any of the indices doesn't follow it.
+     *
+     * @param concreteIndices
+     *            concrete indices of alias or index pattern, or null if
+     *            they're unknown, or search through alias can't be replaced
+     *            with search of its indices, e.g. alias has filter
+     * @return bound scheme, or unbound one which never restricts indices
+     */
+    public TimeIndexPattern withIndices(Collection<String> concreteIndices) {
+        if (concreteIndices == null) {
+            return new TimeIndexPattern(this, null);
+        }
+        NavigableMap<LocalDateTime, String> periods = new TreeMap<>();
+        for (String index : concreteIndices) {
+            LocalDateTime start = parseStart(index);
+            if (start == null) {
+                return new TimeIndexPattern(this, null);
+            }
+            periods.put(start, index);
+        }
+        return new TimeIndexPattern(this, periods);
+    }
+
+    /**
+     * @return name of time field
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return pattern of concrete index names
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return period of single concrete index
+     */
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Checks whether index name follows the naming scheme.
+     *
+     * @param index
+     *            index name
+     * @return true if index is concrete index of the scheme, false otherwise
+     */
+    public boolean matches(String index) {
+        try {
+            formatter.parse(index);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns concrete indices query has to be sent to: bound indices which
+     * periods intersect range of time field. Lower and upper bounds of time
+     * field are taken from range and term queries in must and filter clauses
+     * of bool query, range without one of them is open on that side.
+     *
+     * @param query
+     *            built query
+     * @return names of concrete indices, or null if scheme isn't bound, query
+     *         isn't restricted by time field, or range matches no index or
+     *         too many of them
+     */
+    public String[] getIndices(QueryBuilder query) {
+        if (indices == null) {
+            return null;
+        }
+        Bounds bounds = new Bounds();
+        collectBounds(query, bounds);
+        if (bounds.lower == null && bounds.upper == null) {
+            return null;
+        }
+        NavigableMap<LocalDateTime, String> matching = indices;
+        if (bounds.lower != null) {
+            matching = matching.tailMap(
+                    truncate(LocalDateTime.ofInstant(bounds.lower, ZoneOffset.UTC)), true);
+        }
+        if (bounds.upper != null) {
+            matching = matching.headMap(LocalDateTime.ofInstant(bounds.upper, ZoneOffset.UTC),
+                    bounds.includeUpper);
+        }
+        if (matching.isEmpty() || matching.size() > MAX_INDICES) {
+            return null;
+        }
+        return matching.values().toArray(new String[matching.size()]);
+    }
+
+    /**
+     * Narrows bounds by clauses every matching document has to satisfy.
+     * Values which can't be parsed, e.g. date math expressions, don't narrow
+     * bounds.
+     */
+    private void collectBounds(QueryBuilder query, Bounds bounds) {
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder boolQuery = (BoolQueryBuilder) query;
+            boolQuery.must().forEach(clause -> collectBounds(clause, bounds));
+            boolQuery.filter().forEach(clause -> collectBounds(clause, bounds));
+        } else if (query instanceof RangeQueryBuilder) {
+            RangeQueryBuilder rangeQuery = (RangeQueryBuilder) query;
+            if (field.equals(rangeQuery.fieldName()) && rangeQuery.format() == null
+                    && rangeQuery.timeZone() == null) {
+                bounds.narrowLower(parse(rangeQuery.from()));
+                bounds.narrowUpper(parse(rangeQuery.to()), rangeQuery.includeUpper());
+            }
+        } else if (query instanceof TermQueryBuilder) {
+            TermQueryBuilder termQuery = (TermQueryBuilder) query;
+            if (field.equals(termQuery.fieldName())) {
+                Instant value = parse(termQuery.value());
+                bounds.narrowLower(value);
+                bounds.narrowUpper(value, true);
+            }
+        }
+    }
+
+    /**
+     * Parses value of time field: epoch milliseconds, date-time with offset,
+     * or date-time and date in UTC.
+     *
+     * @param value
+     *            value of query
+     * @return parsed time, or null if value can't be parsed
+     */
+    private static Instant parse(Object value) {
+        if (value instanceof Number) {
+            return Instant.ofEpochMilli(((Number) value).longValue());
+        } else if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        try {
+            return OffsetDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException e) {
+            // not a date-time with offset
+        }
+        try {
+            return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            // not a local date-time
+        }
+        try {
+            return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses start of period of concrete index.
+     *
+     * @param index
+     *            concrete index name
+     * @return start of period, or null if index doesn't follow the scheme
+     */
+    private LocalDateTime parseStart(String index) {
+        try {
+            LocalDateTime start = LocalDateTime.from(parser.parse(index));
+            return formatter.format(start).equals(index) ? start : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates parser of index names which defaults date-time fields smaller
+     * than period to its start.
+     */
+    private static DateTimeFormatter createParser(String pattern, ChronoUnit unit) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().appendPattern(pattern);
+        if (unit == ChronoUnit.YEARS) {
+            builder.parseDefaulting(ChronoField.MONTH_OF_YEAR, 1);
+        }
+        if (unit == ChronoUnit.YEARS || unit == ChronoUnit.MONTHS) {
+            builder.parseDefaulting(ChronoField.DAY_OF_MONTH, 1);
+        }
+        if (unit != ChronoUnit.HOURS) {
+            builder.parseDefaulting(ChronoField.HOUR_OF_DAY, 0);
+        }
+        return builder.parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0).toFormatter();
+    }
+
+    private LocalDateTime truncate(LocalDateTime time) {
+        switch (unit) {
+        case YEARS:
+            return time.toLocalDate().withDayOfYear(1).atStartOfDay();
+        case MONTHS:
+            return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        default:
+            return time.truncatedTo(unit);
+        }
+    }
+
+    /**
+     * Gets the smallest unit of date fields in pattern, quoted literals are
+     * ignored.
+     */
+    private static ChronoUnit getUnit(String pattern) {
+        String letters = pattern.replaceAll("'[^']*'", "");
+        if (letters.matches(".*[wWY].*")) {
+            throw new IllegalArgumentException("Week based pattern isn't supported: " + pattern);
+        } else if (letters.matches(".*[Hk].*")) {
+            return ChronoUnit.HOURS;
+        } else if (letters.matches(".*[dD].*")) {
+            return ChronoUnit.DAYS;
+        } else if (letters.matches(".*[ML].*")) {
+            return ChronoUnit.MONTHS;
+        } else if (letters.matches(".*[yu].*")) {
+            return ChronoUnit.YEARS;
+        }
+        throw new IllegalArgumentException("Pattern has no date fields: " + pattern);
+    }
+
+    /**
+     * Bounds of time field.
+     */
+    private static class Bounds {
+        private Instant lower;
+        private Instant upper;
+        private boolean includeUpper;
+
+        void narrowLower(Instant value) {
+            if (value != null && (lower == null || value.isAfter(lower))) {
+                lower = value;
+            }
+        }
+
+        void narrowUpper(Instant value, boolean include) {
+            if (value == null) {
+                return;
+            }
+            if (upper == null || value.isBefore(upper)) {
+                upper = value;
+                includeUpper = include;
+            } else if (value.equals(upper)) {
+                includeUpper &= include;
+            }
+        }
+    }
+
+}
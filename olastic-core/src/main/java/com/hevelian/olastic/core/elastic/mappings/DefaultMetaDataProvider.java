@@ -1,79 +1,213 @@
 package com.hevelian.olastic.core.elastic.mappings;
 
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse;
 import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsAction;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequestBuilder;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.AliasOrIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * Basic implementation of the mapping metadata provider that retrieves mappings
  * from the Elasticsearch using the user defined client instance.
+ * <p>
+ * Mappings of all index types are retrieved by a single request and parsed to
+ * {@link IndexMapping} once. Field mappings retrieved by separate requests are
+ * cached by index/type/field key. Amount of cached entries is bounded, least
+ * recently used entries are evicted. Background task periodically checks
+ * mappings version of cached indices and reloads mappings of changed indices
+ * and notifies registered {@link MappingsChangeListener listeners} about
+ * changes. Version of the index is taken right before the entry is loaded, so
+ * changes made during the load are detected by the next check. Entries of
+ * alias or index pattern track the concrete index their mappings were taken
+ * from. While mapping is reloading old value is returned, so only first
+ * request for the key waits for Elasticsearch response. Mapping sources are
+ * hashed only when metadata version of the index changes.
+ * </p>
  * 
  * @author yuflyud
  */
 @Log4j2
-public class DefaultMetaDataProvider implements MappingMetaDataProvider {
-    private HashMap<String, Object> cache = new HashMap<>();
+public class DefaultMetaDataProvider implements MappingMetaDataProvider, AutoCloseable {
+    /** Default interval in milliseconds to check mappings changes. */
+    public static final long DEFAULT_REFRESH_INTERVAL = 30000;
+    /** Default maximum amount of cached entries. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    private static final String TYPES_KEY = "_types";
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CacheEntry>> loading = new ConcurrentHashMap<>();
+    private final Map<String, Long> indexVersions = new ConcurrentHashMap<>();
+    private final Map<String, MappingsVersion> mappingsVersions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
     private final Client client;
+    private final int maxEntries;
+    private final ScheduledExecutorService scheduler;
+    private final List<MappingsChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean allIndicesWatched;
+    private volatile String[] watchedIndices = new String[0];
 
+    /**
+     * Creates provider with default refresh interval.
+     * 
+     * @param client
+     *            Elasticsearch client
+     */
     public DefaultMetaDataProvider(Client client) {
+        this(client, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Creates provider with custom refresh interval.
+     * 
+     * @param client
+     *            Elasticsearch client
+     * @param refreshInterval
+     *            interval in milliseconds to check mappings changes, if it's
+     *            not positive mappings are never refreshed
+     */
+    public DefaultMetaDataProvider(Client client, long refreshInterval) {
+        this(client, refreshInterval, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates provider with custom refresh interval and cache size.
+     * 
+     * @param client
+     *            Elasticsearch client
+     * @param refreshInterval
+     *            interval in milliseconds to check mappings changes, if it's
+     *            not positive mappings are never refreshed
+     * @param maxEntries
+     *            maximum amount of cached entries, least recently used
+     *            entries are evicted, if it's not positive cache is unbounded
+     */
+    public DefaultMetaDataProvider(Client client, long refreshInterval, int maxEntries) {
         this.client = client;
+        this.maxEntries = maxEntries;
+        if (refreshInterval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "olastic-mappings-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::checkVersions, refreshInterval,
+                    refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public ImmutableOpenMap<String, MappingMetaData> getAllMappings(String index) {
-        Object mapping = cache.get(makeKey(index));
-        if (mapping == null) {
-            mapping = new GetMappingsRequestBuilder(getClient(), GetMappingsAction.INSTANCE, index)
-                    .get().mappings().get(index);
-            cache.put(makeKey(index), mapping);
+        return getLoadedMappings(index).mappings;
+    }
+
+    @Override
+    public IndexMapping getIndexMapping(String index) {
+        return getLoadedMappings(index).indexMapping;
+    }
+
+    /**
+     * Gets names of index types. If mappings of the index are not cached, only
+     * type names are cached, so mappings are neither parsed nor kept in
+     * memory.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Set<String> getTypes(String index) {
+        CacheEntry entry = cache.get(makeKey(index));
+        if (entry != null) {
+            entry.touch();
+            return toTypes(((LoadedMappings) entry.value).mappings);
         }
-        return (ImmutableOpenMap<String, MappingMetaData>) mapping;
+        return (Set<String>) getCached(index, makeKey(index, TYPES_KEY),
+                () -> toTypes(loadMappings(index)));
     }
 
+    /**
+     * Gets concrete indices of alias or index pattern from current cluster
+     * metadata. They aren't cached, so this method is called only when
+     * schema of alias is built.
+     */
     @Override
-    public MappingMetaData getMappingForType(String index, String type) {
-        Object mapping = cache.get(makeKey(index, type));
-        if (mapping == null) {
-            mapping = getClient().admin().indices().prepareGetMappings(index).addTypes(type)
-                    .execute().actionGet();
-            cache.put(makeKey(index, type), mapping);
+    public Set<String> getConcreteIndices(String index) {
+        MetaData metaData = getMetaData(index);
+        Set<String> concreteIndices = new TreeSet<>();
+        if (Regex.isSimpleMatchPattern(index)) {
+            metaData.indices().keysIt().forEachRemaining(name -> {
+                if (Regex.simpleMatch(index, name)) {
+                    concreteIndices.add(name);
+                }
+            });
+            return concreteIndices;
+        }
+        AliasOrIndex alias = metaData.getAliasAndIndexLookup().get(index);
+        if (alias == null || !alias.isAlias()) {
+            return null;
+        }
+        for (IndexMetaData indexMetaData : alias.getIndices()) {
+            AliasMetaData aliasMetaData = indexMetaData.getAliases().get(index);
+            if (aliasMetaData == null || aliasMetaData.filteringRequired()
+                    || aliasMetaData.searchRouting() != null) {
+                return null;
+            }
+            concreteIndices.add(indexMetaData.getIndex().getName());
         }
+        return concreteIndices;
+    }
 
-        return ((GetMappingsResponse) (mapping)).getMappings().isEmpty() ? null
-                : ((GetMappingsResponse) (mapping)).getMappings().get(index).get(type);
+    @Override
+    public MappingMetaData getMappingForType(String index, String type) {
+        ImmutableOpenMap<String, MappingMetaData> mappings = getAllMappings(index);
+        return mappings == null ? null : mappings.get(type);
     }
 
     @Override
     public ImmutableOpenMap<String, FieldMappingMetaData> getMappingsForField(String index,
             String field) {
-        Object mappingss = cache.get(makeKey(index, field));
-        if (mappingss == null) {
-            mappingss = getClient().admin().indices().prepareGetMappings(index).execute()
-                    .actionGet();
-            cache.put(makeKey(index, field), mappingss);
-        }
-
         ImmutableOpenMap.Builder<String, FieldMappingMetaData> mappingsMapBuilder = new ImmutableOpenMap.Builder<>();
         // TODO this workaround was implemented because of this ES 5.x issue
         // https://github.com/elastic/elasticsearch/issues/22209
         // revert this when the issue is fixed
         try {
-            Object[] mappings = ((GetMappingsResponse) mappingss).getMappings().get(index).values()
-                    .toArray();
+            Object[] mappings = getAllMappings(index).values().toArray();
             for (Object mapping : mappings) {
                 MappingMetaData mappingMetaData = (MappingMetaData) mapping;
                 String type = mappingMetaData.type();
@@ -94,13 +228,9 @@ public class DefaultMetaDataProvider implements MappingMetaDataProvider {
 
     @Override
     public FieldMappingMetaData getMappingForField(String index, String type, String field) {
-        Object mapping = cache.get(makeKey(index, type, field));
-        if (mapping == null) {
-            mapping = getClient().admin().indices().prepareGetFieldMappings(index).setTypes(type)
-                    .setFields(field).execute().actionGet();
-            cache.put(makeKey(index, type, field), mapping);
-        }
-
+        Object mapping = getCached(index, makeKey(index, type, field),
+                () -> getClient().admin().indices().prepareGetFieldMappings(index).setTypes(type)
+                        .setFields(field).execute().actionGet());
         return ((GetFieldMappingsResponse) mapping).mappings().get(index).get(type).get(field);
     }
 
@@ -108,7 +238,429 @@ public class DefaultMetaDataProvider implements MappingMetaDataProvider {
         return client;
     }
 
+    /**
+     * @return number of requests served from cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests which had to wait for Elasticsearch response
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of cache entries reloaded in background
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * Adds listener of mappings changes. Once any listener is added,
+     * background task checks versions of all cluster indices, not only cached
+     * ones, to detect created and deleted indices.
+     * 
+     * @param listener
+     *            mappings change listener
+     */
+    public void addChangeListener(MappingsChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets indices which versions are checked once any listener is added, so
+     * metadata of other cluster indices isn't retrieved. Indices which are
+     * added to watched alias or match watched pattern are reported as
+     * created, and the ones which are removed from it as deleted.
+     * 
+     * @param indices
+     *            names, aliases or patterns of watched indices, or empty
+     *            collection to watch all cluster indices
+     */
+    public void setWatchedIndices(Collection<String> indices) {
+        watchedIndices = indices.toArray(new String[indices.size()]);
+    }
+
+    /**
+     * Stops background refresh of mappings.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets mappings of all index types. Raw mappings and parsed index mapping
+     * are cached together, so they are retrieved by a single request. Mappings
+     * of alias or index pattern are the ones of its last concrete index by
+     * name, e.g. the latest of time-based indices.
+     * 
+     * @param index
+     *            index name
+     * @return loaded mappings
+     */
+    private LoadedMappings getLoadedMappings(String index) {
+        return (LoadedMappings) getCached(index, makeKey(index), () -> {
+            ImmutableOpenMap<String, MappingMetaData> mappings = loadMappings(index);
+            try {
+                return new LoadedMappings(mappings, IndexMapping.parse(index, mappings));
+            } catch (IOException e) {
+                throw new ODataRuntimeException(
+                        "Unable to parse the mapping response from Elasticsearch.", e);
+            }
+        });
+    }
+
+    /**
+     * Retrieves mappings of all index types. Mappings of alias or index
+     * pattern are the ones of its last concrete index by name.
+     * 
+     * @param index
+     *            index name
+     * @return type/mapping map
+     */
+    private ImmutableOpenMap<String, MappingMetaData> loadMappings(String index) {
+        ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> indicesMappings =
+                getClient().admin().indices().prepareGetMappings(index).get().getMappings();
+        ImmutableOpenMap<String, MappingMetaData> mappings = indicesMappings.get(index);
+        if (mappings == null && !indicesMappings.isEmpty()) {
+            // Alias or index pattern, mappings of the last concrete index are used
+            String last = null;
+            for (ObjectCursor<String> concreteIndex : indicesMappings.keys()) {
+                if (last == null || concreteIndex.value.compareTo(last) > 0) {
+                    last = concreteIndex.value;
+                }
+            }
+            mappings = indicesMappings.get(last);
+        }
+        return mappings;
+    }
+
+    /**
+     * Gets value from cache, or loads and caches it if there is no value for
+     * the key yet. Concurrent requests for the same missing key wait for a
+     * single load, which runs outside of the cache map, so loads of other keys
+     * aren't blocked.
+     * 
+     * @param index
+     *            index name value belongs to
+     * @param key
+     *            cache key
+     * @param loader
+     *            loader to retrieve value from Elasticsearch
+     * @return cached value
+     */
+    private Object getCached(String index, String key, Supplier<Object> loader) {
+        CacheEntry entry = cache.get(key);
+        if (entry != null) {
+            hits.increment();
+            entry.touch();
+        } else {
+            misses.increment();
+            entry = load(index, key, loader);
+        }
+        return entry.value;
+    }
+
+    private CacheEntry load(String index, String key, Supplier<Object> loader) {
+        CompletableFuture<CacheEntry> future = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            CacheEntry entry = cache.get(key);
+            if (entry == null) {
+                MetaData metaData = getMetaData(index);
+                String concreteIndex = getConcreteIndex(metaData, index);
+                long version = getMappingsVersion(metaData, concreteIndex);
+                entry = new CacheEntry(index, loader, loader.get(), concreteIndex, version,
+                        System.nanoTime());
+                cache.put(key, entry);
+                evict(entry);
+            }
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Evicts least recently used entries while cache size exceeds maximum.
+     * 
+     * @param added
+     *            just added entry, which is never evicted
+     */
+    private void evict(CacheEntry added) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        while (cache.size() > maxEntries) {
+            Map.Entry<String, CacheEntry> eldest = null;
+            for (Map.Entry<String, CacheEntry> candidate : cache.entrySet()) {
+                if (candidate.getValue() != added && (eldest == null
+                        || candidate.getValue().lastAccess < eldest.getValue().lastAccess)) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            cache.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Compares mappings versions of cached indices with the versions from
+     * cluster state and reloads entries of indices that have been changed.
+     * Entries of deleted indices are removed. If there are registered
+     * listeners, versions of all watched indices are checked, so listeners are
+     * notified about created and deleted indices as well.
+     */
+    protected void checkVersions() {
+        try {
+            boolean watchAll = !listeners.isEmpty();
+            Set<String> names = new HashSet<>();
+            Set<String> indices = new HashSet<>();
+            for (CacheEntry entry : cache.values()) {
+                names.add(entry.index);
+                if (entry.concreteIndex != null) {
+                    indices.add(entry.concreteIndex);
+                }
+            }
+            if (watchAll) {
+                indices.addAll(indexVersions.keySet());
+            } else if (names.isEmpty()) {
+                return;
+            }
+            String[] watched = watchedIndices;
+            if (watchAll && watched.length > 0) {
+                Collections.addAll(names, watched);
+            }
+            String[] requested = watchAll && watched.length == 0 ? new String[0]
+                    : names.toArray(new String[names.size()]);
+            MetaData metaData = getMetaData(requested);
+            if (watchAll) {
+                metaData.indices().keysIt().forEachRemaining(indices::add);
+            }
+            Set<String> refreshed = refresh(metaData);
+            Set<String> created = new HashSet<>();
+            Set<String> changed = new HashSet<>();
+            Set<String> deleted = new HashSet<>();
+            for (String index : indices) {
+                IndexMetaData indexMetaData = metaData.index(index);
+                if (indexMetaData == null) {
+                    mappingsVersions.remove(index);
+                    if (indexVersions.remove(index) != null) {
+                        deleted.add(index);
+                    }
+                    continue;
+                }
+                long version = getMappingsVersion(metaData, index);
+                Long previous = indexVersions.put(index, version);
+                if (previous == null) {
+                    if (allIndicesWatched) {
+                        created.add(index);
+                    }
+                } else if (previous != version) {
+                    changed.add(index);
+                }
+            }
+            // Entries loaded after the previous check may be older than it
+            refreshed.removeAll(created);
+            changed.addAll(refreshed);
+            // First full check only remembers versions of all indices.
+            allIndicesWatched = watchAll;
+            if (!created.isEmpty() || !changed.isEmpty() || !deleted.isEmpty()) {
+                notifyListeners(created, changed, deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Mappings version check failed.", e);
+        }
+    }
+
+    private void notifyListeners(Set<String> created, Set<String> changed, Set<String> deleted) {
+        for (MappingsChangeListener listener : listeners) {
+            try {
+                listener.mappingsChanged(created, changed, deleted);
+            } catch (Exception e) {
+                log.warn("Mappings change listener failed.", e);
+            }
+        }
+    }
+
+    /**
+     * Reloads cached entries which versions differ from the versions in
+     * metadata, or which alias now has another last concrete index. Entries
+     * of deleted indices are removed. Old values are available until new ones
+     * are loaded, if load fails entry keeps its old value and version, so it's
+     * reloaded by the next check.
+     * 
+     * @param metaData
+     *            current cluster metadata
+     * @return names of concrete indices which entries were reloaded
+     */
+    private Set<String> refresh(MetaData metaData) {
+        Set<String> refreshed = new HashSet<>();
+        for (Iterator<CacheEntry> it = cache.values().iterator(); it.hasNext();) {
+            CacheEntry entry = it.next();
+            String concreteIndex = getConcreteIndex(metaData, entry.index);
+            if (concreteIndex == null) {
+                it.remove();
+                continue;
+            }
+            long version = getMappingsVersion(metaData, concreteIndex);
+            if (!concreteIndex.equals(entry.concreteIndex) || version != entry.version) {
+                try {
+                    Object value = entry.loader.get();
+                    entry.value = value;
+                    entry.concreteIndex = concreteIndex;
+                    entry.version = version;
+                    refreshes.increment();
+                    refreshed.add(concreteIndex);
+                } catch (Exception e) {
+                    log.warn("Unable to refresh mappings of index " + entry.index, e);
+                }
+            }
+        }
+        return refreshed;
+    }
+
+    private MetaData getMetaData(String... indices) {
+        return getClient().admin().cluster().prepareState().clear().setMetaData(true)
+                .setIndices(indices).get().getState().metaData();
+    }
+
+    /**
+     * Resolves index name to the concrete index mappings are taken from: the
+     * index itself, or the last concrete index by name of alias or index
+     * pattern.
+     * 
+     * @param metaData
+     *            cluster metadata
+     * @param index
+     *            index, alias or index pattern name
+     * @return concrete index name, or null if there is no such index
+     */
+    private static String getConcreteIndex(MetaData metaData, String index) {
+        if (metaData.index(index) != null) {
+            return index;
+        }
+        List<String> concreteIndices = new ArrayList<>();
+        AliasOrIndex alias = metaData.getAliasAndIndexLookup().get(index);
+        if (alias != null) {
+            alias.getIndices().forEach(meta -> concreteIndices.add(meta.getIndex().getName()));
+        } else if (Regex.isSimpleMatchPattern(index)) {
+            metaData.indices().keysIt().forEachRemaining(name -> {
+                if (Regex.simpleMatch(index, name)) {
+                    concreteIndices.add(name);
+                }
+            });
+        }
+        return concreteIndices.stream().max(String::compareTo).orElse(null);
+    }
+
+    /**
+     * Gets version of index mappings: hash of mapping sources of all index
+     * types, and of filters and search routing of its aliases, which decide
+     * whether searches through alias can be sent to concrete indices.
+     * Metadata version is bumped by settings changes as well, which don't
+     * require mappings and schemas to be reloaded, but mappings can't change
+     * while it's the same, so sources are hashed again only when metadata
+     * version of the index changes.
+     * 
+     * @param metaData
+     *            cluster metadata
+     * @param index
+     *            concrete index name
+     * @return mappings version, or -1 if there is no such index
+     */
+    private long getMappingsVersion(MetaData metaData, String index) {
+        IndexMetaData indexMetaData = index == null ? null : metaData.index(index);
+        if (indexMetaData == null) {
+            return -1;
+        }
+        MappingsVersion cached = mappingsVersions.get(index);
+        if (cached != null && cached.metaDataVersion == indexMetaData.getVersion()
+                && Objects.equals(cached.uuid, indexMetaData.getIndexUUID())) {
+            return cached.version;
+        }
+        long version = 0;
+        for (ObjectObjectCursor<String, MappingMetaData> mapping : indexMetaData.getMappings()) {
+            version += 31L * mapping.key.hashCode() + mapping.value.source().hashCode();
+        }
+        if (indexMetaData.getAliases() != null) {
+            for (ObjectObjectCursor<String, AliasMetaData> alias : indexMetaData.getAliases()) {
+                version += 17L * alias.key.hashCode() + Objects.hashCode(alias.value.filter())
+                        + Objects.hashCode(alias.value.searchRouting());
+            }
+        }
+        mappingsVersions.put(index, new MappingsVersion(indexMetaData.getIndexUUID(),
+                indexMetaData.getVersion(), version));
+        return version;
+    }
+
+    private static Set<String> toTypes(ImmutableOpenMap<String, MappingMetaData> mappings) {
+        Set<String> types = new LinkedHashSet<>();
+        if (mappings != null) {
+            mappings.keysIt().forEachRemaining(types::add);
+        }
+        return types;
+    }
+
     private String makeKey(String... args) {
         return String.join("/", args);
     }
+
+    /**
+     * Raw and parsed mappings of index.
+     */
+    @AllArgsConstructor
+    private static class LoadedMappings {
+        private final ImmutableOpenMap<String, MappingMetaData> mappings;
+        private final IndexMapping indexMapping;
+    }
+
+    /**
+     * Mappings version of index taken at its metadata version.
+     */
+    @AllArgsConstructor
+    private static class MappingsVersion {
+        private final String uuid;
+        private final long metaDataVersion;
+        private final long version;
+    }
+
+    /**
+     * Cached value with the loader to refresh it, and the concrete index and
+     * its version the value was loaded at.
+     */
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private final String index;
+        private final Supplier<Object> loader;
+        private volatile Object value;
+        private volatile String concreteIndex;
+        private volatile long version;
+        private volatile long lastAccess;
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
 }
\ No newline at end of file
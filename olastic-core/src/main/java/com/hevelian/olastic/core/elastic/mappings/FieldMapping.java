@@ -0,0 +1,96 @@
+package com.hevelian.olastic.core.elastic.mappings;
+
+import static com.hevelian.olastic.core.elastic.ElasticConstants.FIELD_DATATYPE_PROPERTY;
+import static com.hevelian.olastic.core.elastic.ElasticConstants.PROPERTIES_PROPERTY;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.ObjectMapper;
+import org.elasticsearch.index.mapper.TextFieldMapper;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Parsed mapping of a single Elasticsearch field.
+ * 
+ * @author rdidyk
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+@Getter
+public class FieldMapping {
+
+    /** Name of the property with multi-fields of the field. */
+    public static final String FIELDS_PROPERTY = "fields";
+
+    String name;
+    String datatype;
+    /** Name of the keyword sub-field of text field, or null if there is no such. */
+    String keywordField;
+    /** Mappings of object or nested field properties. */
+    Map<String, FieldMapping> properties;
+
+    /**
+     * @return true if field has nested datatype
+     */
+    public boolean isNested() {
+        return ObjectMapper.NESTED_CONTENT_TYPE.equals(datatype);
+    }
+
+    /**
+     * Parses properties mappings.
+     * 
+     * @param properties
+     *            map with properties mappings, could be null
+     * @return properties by names, in the same order as they are in mappings
+     */
+    static Map<String, FieldMapping> parseProperties(Object properties) {
+        if (!(properties instanceof Map)) {
+            return Collections.emptyMap();
+        }
+        Map<String, FieldMapping> fields = new LinkedHashMap<>();
+        for (Entry<?, ?> entry : ((Map<?, ?>) properties).entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                String name = (String) entry.getKey();
+                fields.put(name, parse(name, (Map<?, ?>) entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Parses field mapping.
+     * 
+     * @param name
+     *            field name
+     * @param mapping
+     *            field mapping
+     * @return parsed field mapping
+     */
+    static FieldMapping parse(String name, Map<?, ?> mapping) {
+        String datatype = (String) mapping.get(FIELD_DATATYPE_PROPERTY);
+        return new FieldMapping(name, datatype,
+                TextFieldMapper.CONTENT_TYPE.equals(datatype)
+                        ? findKeywordField(mapping.get(FIELDS_PROPERTY)) : null,
+                parseProperties(mapping.get(PROPERTIES_PROPERTY)));
+    }
+
+    private static String findKeywordField(Object fields) {
+        if (fields instanceof Map) {
+            for (Entry<?, ?> entry : ((Map<?, ?>) fields).entrySet()) {
+                if (entry.getValue() instanceof Map && KeywordFieldMapper.CONTENT_TYPE
+                        .equals(((Map<?, ?>) entry.getValue()).get(FIELD_DATATYPE_PROPERTY))) {
+                    return (String) entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+package com.hevelian.olastic.core.elastic.mappings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Parsed mappings of all types within a single Elasticsearch index. Mappings
+ * are parsed once from the response of one get mappings request, and contain
+ * fields with their datatypes, nested structure, keyword sub-fields and
+ * parent/child relations between types.
+ * 
+ * @author rdidyk
+ */
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+@Getter
+public class IndexMapping {
+
+    String index;
+    /** Type mappings by type names. */
+    Map<String, TypeMapping> types;
+    @Getter(AccessLevel.NONE)
+    Map<String, List<String>> children;
+
+    /**
+     * Creates index mapping from parsed type mappings.
+     * 
+     * @param index
+     *            index name
+     * @param types
+     *            type mappings
+     */
+    public IndexMapping(String index, List<TypeMapping> types) {
+        this.index = index;
+        Map<String, TypeMapping> typesMap = new LinkedHashMap<>();
+        Map<String, List<String>> childrenMap = new HashMap<>();
+        for (TypeMapping type : types) {
+            typesMap.put(type.getName(), type);
+            if (type.getParent() != null) {
+                childrenMap.computeIfAbsent(type.getParent(), key -> new ArrayList<>())
+                        .add(type.getName());
+            }
+        }
+        childrenMap.replaceAll((parent, childTypes) -> Collections.unmodifiableList(childTypes));
+        this.types = Collections.unmodifiableMap(typesMap);
+        this.children = childrenMap;
+    }
+
+    /**
+     * Parses mappings of all index types.
+     * 
+     * @param index
+     *            index name
+     * @param mappings
+     *            type/mapping map
+     * @return parsed index mapping
+     * @throws IOException
+     *             if mappings can't be parsed
+     */
+    public static IndexMapping parse(String index, ImmutableOpenMap<String, MappingMetaData> mappings)
+            throws IOException {
+        List<TypeMapping> types = new ArrayList<>();
+        if (mappings != null) {
+            for (ObjectObjectCursor<String, MappingMetaData> cursor : mappings) {
+                types.add(TypeMapping.parse(cursor.key,
+                        cursor.value == null ? null : cursor.value.sourceAsMap()));
+            }
+        }
+        return new IndexMapping(index, types);
+    }
+
+    /**
+     * Get's type mapping by name.
+     * 
+     * @param type
+     *            type name
+     * @return type mapping or null if there is no such type in index
+     */
+    public TypeMapping getType(String type) {
+        return types.get(type);
+    }
+
+    /**
+     * Get's names of types which have the type as a parent.
+     * 
+     * @param type
+     *            parent type name
+     * @return child type names
+     */
+    public List<String> getChildTypes(String type) {
+        return children.getOrDefault(type, Collections.emptyList());
+    }
+}
@@ -1,5 +1,10 @@
 package com.hevelian.olastic.core.elastic.mappings;
 
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
@@ -22,6 +27,54 @@ public interface MappingMetaDataProvider {
      */
     ImmutableOpenMap<String, MappingMetaData> getAllMappings(String index);
 
+    /**
+     * Return parsed mappings of all the types inside a single index. Default
+     * implementation parses the result of {@link #getAllMappings(String)} on
+     * each call, so implementations should override it to parse mappings once.
+     * 
+     * @param index
+     *            name of the index.
+     * @return parsed index mapping.
+     */
+    default IndexMapping getIndexMapping(String index) {
+        try {
+            return IndexMapping.parse(index, getAllMappings(index));
+        } catch (IOException e) {
+            throw new ODataRuntimeException(
+                    "Unable to parse the mapping response from Elasticsearch.", e);
+        }
+    }
+
+    /**
+     * Return names of all the types inside a single index. Default
+     * implementation takes them from {@link #getAllMappings(String)}, so
+     * implementations should override it if type names can be retrieved
+     * without mappings.
+     * 
+     * @param index
+     *            name of the index.
+     * @return type names.
+     */
+    default Set<String> getTypes(String index) {
+        Set<String> types = new LinkedHashSet<>();
+        getAllMappings(index).keysIt().forEachRemaining(types::add);
+        return types;
+    }
+
+    /**
+     * Return concrete indices of alias or index pattern, which searches
+     * through it can be sent to instead. Default implementation doesn't know
+     * them, so searches are always sent to alias.
+     * 
+     * @param index
+     *            name of the alias or index pattern.
+     * @return concrete index names, or null if they're unknown, or if alias
+     *         has filter or search routing.
+     */
+    default Set<String> getConcreteIndices(String index) {
+        return null;
+    }
+
     /**
      * Get mapping for a single type. The {@link #getAllMappings(String)} should
      * be used if the mappings for all the types are required.
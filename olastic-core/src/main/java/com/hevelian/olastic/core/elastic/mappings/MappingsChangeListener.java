@@ -0,0 +1,28 @@
+package com.hevelian.olastic.core.elastic.mappings;
+
+import java.util.Set;
+
+/**
+ * Listener of indices mappings changes, notified by
+ * {@link DefaultMetaDataProvider} when it detects changes of cluster metadata.
+ *
+ * @author rdidyk
+ */
+@FunctionalInterface
+public interface MappingsChangeListener {
+
+    /**
+     * Called when indices were created or deleted, or mappings of existing
+     * indices were changed. Mappings of changed indices are already reloaded
+     * when listener is called.
+     *
+     * @param created
+     *            names of created indices
+     * @param changed
+     *            names of indices which mappings were changed
+     * @param deleted
+     *            names of deleted indices
+     */
+    void mappingsChanged(Set<String> created, Set<String> changed, Set<String> deleted);
+
+}
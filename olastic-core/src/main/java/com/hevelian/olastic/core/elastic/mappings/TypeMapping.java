@@ -0,0 +1,61 @@
+package com.hevelian.olastic.core.elastic.mappings;
+
+import static com.hevelian.olastic.core.elastic.ElasticConstants.FIELD_DATATYPE_PROPERTY;
+import static com.hevelian.olastic.core.elastic.ElasticConstants.PARENT_PROPERTY;
+import static com.hevelian.olastic.core.elastic.ElasticConstants.PROPERTIES_PROPERTY;
+
+import java.util.Collections;
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Parsed mapping of a single Elasticsearch type.
+ * 
+ * @author rdidyk
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+@Getter
+public class TypeMapping {
+
+    String name;
+    /** Name of the parent type, or null if type doesn't have parent. */
+    String parent;
+    /** Mappings of type fields, in the same order as they are in mappings. */
+    Map<String, FieldMapping> fields;
+
+    /**
+     * Get's field mapping by name.
+     * 
+     * @param field
+     *            field name
+     * @return field mapping or null if there is no such field
+     */
+    public FieldMapping getField(String field) {
+        return fields.get(field);
+    }
+
+    /**
+     * Parses type mapping.
+     * 
+     * @param name
+     *            type name
+     * @param source
+     *            type mapping source, could be null
+     * @return parsed type mapping
+     */
+    static TypeMapping parse(String name, Map<String, Object> source) {
+        if (source == null) {
+            return new TypeMapping(name, null, Collections.emptyMap());
+        }
+        Object parent = source.get(PARENT_PROPERTY);
+        return new TypeMapping(name,
+                parent instanceof Map ? (String) ((Map<?, ?>) parent).get(FIELD_DATATYPE_PROPERTY)
+                        : null,
+                FieldMapping.parseProperties(source.get(PROPERTIES_PROPERTY)));
+    }
+}
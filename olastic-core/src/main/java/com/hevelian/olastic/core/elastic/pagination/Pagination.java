@@ -2,6 +2,8 @@ package com.hevelian.olastic.core.elastic.pagination;
 
 import java.util.List;
 
+import org.elasticsearch.search.SearchHit;
+
 /**
  * Encapsulates pagination data.
  */
@@ -13,6 +15,9 @@ public class Pagination {
     private int top;
     private int skip;
     private List<Sort> orderBy;
+    private boolean serverDriven;
+    private long remaining = -1;
+    private Object[] searchAfter;
     /**
      * Initializes pagination with all the data
      * @param top top count
@@ -48,4 +53,58 @@ public class Pagination {
     public void setOrderBy( List<Sort> orderBy) {
         this.orderBy = orderBy;
     }
+
+    /**
+     * @return whether hits are sorted by unique tiebreaker, so next page can
+     *         be requested with skip token
+     */
+    public boolean isServerDriven() {
+        return serverDriven;
+    }
+
+    public void setServerDriven(boolean serverDriven) {
+        this.serverDriven = serverDriven;
+    }
+
+    /**
+     * @return amount of entities left to return starting from current page,
+     *         or -1 if it's unlimited
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(long remaining) {
+        this.remaining = remaining;
+    }
+
+    /**
+     * @return sort values of the last hit of previous page, or null if it's
+     *         the first page
+     */
+    public Object[] getSearchAfter() {
+        return searchAfter;
+    }
+
+    public void setSearchAfter(Object[] searchAfter) {
+        this.searchAfter = searchAfter;
+    }
+
+    /**
+     * Creates skip token to retrieve page following the given hits.
+     *
+     * @param hits
+     *            hits of current page
+     * @return skip token, or null if there is no next page
+     */
+    public SkipToken nextSkipToken(SearchHit[] hits) {
+        if (!serverDriven || top <= 0 || hits.length < top) {
+            return null;
+        }
+        long left = remaining < 0 ? -1 : remaining - hits.length;
+        if (left == 0) {
+            return null;
+        }
+        return new SkipToken(left, hits[hits.length - 1].getSortValues());
+    }
 }
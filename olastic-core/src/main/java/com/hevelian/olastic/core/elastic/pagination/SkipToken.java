@@ -0,0 +1,173 @@
+package com.hevelian.olastic.core.elastic.pagination;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+/**
+ * Opaque token of server-driven paging. Contains sort values of the last
+ * returned hit, so next page is retrieved with {@code search_after} instead
+ * of skipping all previous hits, and amount of entities which are still left
+ * to return if client limited results with {@code $top}. Only scalar sort
+ * values are supported: strings, numbers and booleans.
+ *
+ * @author rdidyk
+ */
+public class SkipToken {
+
+    private static final byte VERSION = 1;
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+
+    private final long remaining;
+    private final Object[] sortValues;
+
+    /**
+     * Creates token.
+     *
+     * @param remaining
+     *            amount of entities left to return, or -1 if it's unlimited
+     * @param sortValues
+     *            sort values of the last returned hit
+     */
+    public SkipToken(long remaining, Object[] sortValues) {
+        this.remaining = remaining;
+        this.sortValues = sortValues;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public Object[] getSortValues() {
+        return sortValues;
+    }
+
+    /**
+     * Encodes token to URL safe string.
+     *
+     * @return encoded token
+     * @throws IllegalStateException
+     *             if sort value isn't scalar
+     */
+    public String encode() {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeByte(VERSION);
+            out.writeLong(remaining);
+            out.writeVInt(sortValues.length);
+            for (Object value : sortValues) {
+                writeValue(out, value);
+            }
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(BytesReference.toBytes(out.bytes()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode skip token.", e);
+        }
+    }
+
+    private static void writeValue(StreamOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeVInt(bytes.length);
+            out.writeBytes(bytes);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            throw new IllegalStateException(
+                    String.format("Unsupported sort value type %s.", value.getClass()));
+        }
+    }
+
+    /**
+     * Decodes token from string created by {@link #encode()}. Amount of sort
+     * values is checked before anything is allocated, and lengths of strings
+     * are checked against size of token, so malformed token can't make
+     * decoding allocate more than the token itself.
+     *
+     * @param token
+     *            encoded token
+     * @param sortValuesCount
+     *            expected amount of sort values, i.e. amount of sorts of
+     *            request
+     * @return decoded token
+     * @throws IllegalArgumentException
+     *             if token is malformed or doesn't match amount of sorts
+     */
+    public static SkipToken decode(String token, int sortValuesCount) {
+        try (StreamInput in = new BytesArray(Base64.getUrlDecoder().decode(token))
+                .streamInput()) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported skip token version.");
+            }
+            long remaining = in.readLong();
+            if (in.readVInt() != sortValuesCount) {
+                throw new IllegalArgumentException("Skip token doesn't match request ordering.");
+            }
+            Object[] sortValues = new Object[sortValuesCount];
+            for (int i = 0; i < sortValues.length; i++) {
+                sortValues[i] = readValue(in);
+            }
+            return new SkipToken(remaining, sortValues);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Invalid skip token '%s'.", token),
+                    e);
+        }
+    }
+
+    private static Object readValue(StreamInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case STRING:
+            int length = in.readVInt();
+            if (length < 0 || length > in.available()) {
+                throw new IllegalArgumentException("Skip token is truncated.");
+            }
+            byte[] bytes = new byte[length];
+            in.readBytes(bytes, 0, length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        case LONG:
+            return in.readLong();
+        case INTEGER:
+            return in.readInt();
+        case DOUBLE:
+            return in.readDouble();
+        case FLOAT:
+            return in.readFloat();
+        case BOOLEAN:
+            return in.readBoolean();
+        default:
+            throw new IllegalArgumentException(
+                    String.format("Unsupported sort value type %d.", type));
+        }
+    }
+
+}
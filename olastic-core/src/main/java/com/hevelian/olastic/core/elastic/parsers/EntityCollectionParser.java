@@ -13,6 +13,7 @@ import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.search.SearchHit;
 
+import java.net.URI;
 import java.util.Map;
 
 /**
@@ -24,6 +25,7 @@ public class EntityCollectionParser
         extends SingleResponseParser<EdmEntityType, AbstractEntityCollection> {
 
     private boolean count;
+    private URI next;
 
     /**
      * Constructor.
@@ -32,7 +34,20 @@ public class EntityCollectionParser
      *            count option value
      */
     public EntityCollectionParser(boolean count) {
+        this(count, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param count
+     *            count option value
+     * @param next
+     *            link to the next page, or null if it's the last page
+     */
+    public EntityCollectionParser(boolean count, URI next) {
         this.count = count;
+        this.next = next;
     }
 
     @Override
@@ -41,27 +56,42 @@ public class EntityCollectionParser
         ElasticEdmEntityType entityType = entitySet.getEntityType();
         EntityCollection entities = new EntityCollection();
         for (SearchHit hit : response.getHits()) {
-            Map<String, Object> source = hit.getSource();
-
-            Entity entity = new Entity();
-            entity.setId(ProcessorUtils.createId(entityType.getName(), hit.getId()));
-            entity.addProperty(
-                    createProperty(ElasticConstants.ID_FIELD_NAME, hit.getId(), entityType));
-
-            for (Map.Entry<String, Object> entry : source.entrySet()) {
-                ElasticEdmProperty edmProperty = entityType.findPropertyByEField(entry.getKey());
-                entity.addProperty(
-                        createProperty(edmProperty.getName(), entry.getValue(), entityType));
-            }
-            entities.getEntities().add(entity);
+            entities.getEntities().add(parseEntity(hit, entityType));
         }
         if (isCount()) {
             entities.setCount((int) response.getHits().getTotalHits());
         }
+        entities.setNext(next);
         return new InstanceData<>(entityType, entities);
     }
 
+    /**
+     * Parses search hit to entity.
+     * 
+     * @param hit
+     *            search hit
+     * @param entityType
+     *            entity type of hit
+     * @return parsed entity
+     */
+    public Entity parseEntity(SearchHit hit, ElasticEdmEntityType entityType) {
+        Entity entity = new Entity();
+        entity.setId(ProcessorUtils.createId(entityType.getName(), hit.getId()));
+        entity.addProperty(
+                createProperty(ElasticConstants.ID_FIELD_NAME, hit.getId(), entityType));
+        for (Map.Entry<String, Object> entry : hit.getSource().entrySet()) {
+            ElasticEdmProperty edmProperty = entityType.findPropertyByEField(entry.getKey());
+            entity.addProperty(
+                    createProperty(edmProperty.getName(), entry.getValue(), entityType));
+        }
+        return entity;
+    }
+
     public boolean isCount() {
         return count;
     }
+
+    public URI getNext() {
+        return next;
+    }
 }
\ No newline at end of file
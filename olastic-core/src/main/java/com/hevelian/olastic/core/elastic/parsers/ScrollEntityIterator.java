@@ -0,0 +1,85 @@
+package com.hevelian.olastic.core.elastic.parsers;
+
+import java.net.URI;
+import java.util.NoSuchElementException;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityIterator;
+
+import com.hevelian.olastic.core.edm.ElasticEdmEntityType;
+import com.hevelian.olastic.core.elastic.ScrollHits;
+
+/**
+ * Entity iterator which parses scrolled hits one by one, so collection of any
+ * size could be serialized without holding it in memory.
+ *
+ * @author rdidyk
+ */
+public class ScrollEntityIterator extends EntityIterator implements AutoCloseable {
+
+    private final ScrollHits hits;
+    private final ElasticEdmEntityType entityType;
+    private final EntityCollectionParser parser = new EntityCollectionParser(false);
+    private long skip;
+    private long remaining;
+
+    /**
+     * Creates iterator.
+     *
+     * @param hits
+     *            scrolled hits
+     * @param entityType
+     *            entity type of hits
+     * @param skip
+     *            amount of hits to skip
+     * @param limit
+     *            maximum amount of entities to return, or -1 if it's
+     *            unlimited
+     */
+    public ScrollEntityIterator(ScrollHits hits, ElasticEdmEntityType entityType, long skip,
+            long limit) {
+        this.hits = hits;
+        this.entityType = entityType;
+        this.skip = skip;
+        this.remaining = limit;
+    }
+
+    @Override
+    public boolean hasNext() {
+        for (; skip > 0 && hits.hasNext(); skip--) {
+            hits.next();
+        }
+        boolean hasNext = remaining != 0 && hits.hasNext();
+        if (!hasNext) {
+            hits.close();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Entity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (remaining > 0) {
+            remaining--;
+        }
+        return parser.parseEntity(hits.next(), entityType);
+    }
+
+    @Override
+    public Integer getCount() {
+        return (int) hits.getTotalHits();
+    }
+
+    @Override
+    public URI getNext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        hits.close();
+    }
+
+}
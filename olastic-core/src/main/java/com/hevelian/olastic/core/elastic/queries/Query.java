@@ -3,6 +3,7 @@ package com.hevelian.olastic.core.elastic.queries;
 import com.hevelian.olastic.core.elastic.pagination.Pagination;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 
 /**
@@ -10,7 +11,6 @@ import org.elasticsearch.index.query.QueryBuilder;
  * 
  * @author rdidyk
  */
-@AllArgsConstructor
 @Getter
 @Setter
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -23,5 +23,44 @@ public class Query {
     @NonNull
     QueryBuilder queryBuilder;
     Pagination pagination;
+    /** Search timeout, if it's null default timeout of client is used. */
+    TimeValue timeout;
+    /** Identifier of user session, used as preference of session strategy. */
+    String session;
+    /**
+     * Comma separated routing values, so only shards of these values are
+     * searched. If it's null all shards are searched.
+     */
+    String routing;
+    /**
+     * Concrete indices to search instead of index, missing ones are ignored.
+     * If it's null index is searched.
+     */
+    String[] indices;
+    /**
+     * Set by client if Elasticsearch failed and retained stale response of
+     * identical query was returned instead.
+     */
+    boolean stale;
+
+    /**
+     * Constructor to initialize parameters.
+     * 
+     * @param index
+     *            index name
+     * @param types
+     *            types name
+     * @param queryBuilder
+     *            main query builder
+     * @param pagination
+     *            pagination
+     */
+    public Query(@NonNull String index, @NonNull String[] types,
+            @NonNull QueryBuilder queryBuilder, Pagination pagination) {
+        this.index = index;
+        this.types = types;
+        this.queryBuilder = queryBuilder;
+        this.pagination = pagination;
+    }
 
 }
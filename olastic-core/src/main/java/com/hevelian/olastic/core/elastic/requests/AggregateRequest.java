@@ -1,5 +1,7 @@
 package com.hevelian.olastic.core.elastic.requests;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.elasticsearch.action.search.SearchResponse;
 
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
@@ -86,6 +88,11 @@ public class AggregateRequest extends BaseRequest {
         return ESClient.getInstance().executeRequest(getQuery());
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> executeAsync() {
+        return ESClient.getInstance().executeRequestAsync(getQuery());
+    }
+
     @Override
     public AggregateQuery getQuery() {
         return (AggregateQuery) super.getQuery();
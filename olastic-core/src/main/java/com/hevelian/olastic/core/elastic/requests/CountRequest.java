@@ -0,0 +1,56 @@
+package com.hevelian.olastic.core.elastic.requests;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.elasticsearch.action.search.SearchResponse;
+
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.ESClient;
+import com.hevelian.olastic.core.elastic.pagination.Pagination;
+import com.hevelian.olastic.core.elastic.queries.Query;
+
+/**
+ * Request to count documents matched by query. Response contains no hits,
+ * only total hits.
+ * 
+ * @author rdidyk
+ */
+public class CountRequest extends BaseRequest {
+
+    /**
+     * Constructor to initialize query and entity.
+     * 
+     * @param query
+     *            query to count documents
+     * @param entitySet
+     *            the edm entity set
+     */
+    public CountRequest(Query query, ElasticEdmEntitySet entitySet) {
+        this(query, entitySet, null);
+    }
+
+    /**
+     * Constructor to initialize query and entity.
+     * 
+     * @param query
+     *            query to count documents
+     * @param entitySet
+     *            the edm entity set
+     * @param pagination
+     *            pagination information
+     */
+    public CountRequest(Query query, ElasticEdmEntitySet entitySet, Pagination pagination) {
+        super(query, entitySet, pagination);
+    }
+
+    @Override
+    public SearchResponse execute() {
+        return ESClient.getInstance().count(getQuery());
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> executeAsync() {
+        return ESClient.getInstance().countAsync(getQuery());
+    }
+
+}
@@ -6,6 +6,8 @@ import org.elasticsearch.action.search.SearchResponse;
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
 import com.hevelian.olastic.core.elastic.queries.Query;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface to provide behavior for all single requests implementations.
  * 
@@ -41,4 +43,20 @@ public interface ESRequest {
      */
     SearchResponse execute();
 
+    /**
+     * Executes request asynchronously. Default implementation executes request
+     * synchronously and returns already completed future.
+     * 
+     * @return future of found data
+     */
+    default CompletableFuture<SearchResponse> executeAsync() {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(execute());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import com.hevelian.olastic.core.elastic.pagination.Pagination;
 import com.hevelian.olastic.core.elastic.queries.SearchQuery;
 import org.elasticsearch.action.search.SearchResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Search request with search query and pagination.
  * 
@@ -32,6 +34,11 @@ public class SearchRequest extends BaseRequest {
         return ESClient.getInstance().executeRequest(getQuery());
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> executeAsync() {
+        return ESClient.getInstance().executeRequestAsync(getQuery());
+    }
+
     @Override
     public SearchQuery getQuery() {
         return (SearchQuery) super.getQuery();
@@ -1,6 +1,5 @@
 package com.hevelian.olastic.core.elastic.requests.creators;
 
-import static com.hevelian.olastic.core.elastic.utils.ElasticUtils.addKeywordIfNeeded;
 import static com.hevelian.olastic.core.utils.ApplyOptionUtils.getAggregations;
 import static com.hevelian.olastic.core.utils.ApplyOptionUtils.getGroupByItems;
 import static com.hevelian.olastic.core.utils.ProcessorUtils.throwNotImplemented;
@@ -29,7 +28,6 @@ import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilde
 
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
 import com.hevelian.olastic.core.edm.ElasticEdmEntityType;
-import com.hevelian.olastic.core.edm.ElasticEdmProperty;
 import com.hevelian.olastic.core.elastic.builders.ESQueryBuilder;
 import com.hevelian.olastic.core.elastic.pagination.Pagination;
 import com.hevelian.olastic.core.elastic.pagination.Sort.Direction;
@@ -81,6 +79,8 @@ public class BucketsAggregationsRequestCreator extends AbstractAggregationsReque
         AggregateQuery aggregateQuery = new AggregateQuery(baseQuery.getIndex(),
                 baseQuery.getTypes(), baseQuery.getQueryBuilder(), bucketsQueries,
                 Collections.emptyList());
+        aggregateQuery.setRouting(baseQuery.getRouting());
+        aggregateQuery.setIndices(baseQuery.getIndices());
         return new AggregateRequest(aggregateQuery, entitySet, pagination, getCountAlias());
     }
 
@@ -201,8 +201,7 @@ public class BucketsAggregationsRequestCreator extends AbstractAggregationsReque
      * @return field for query
      */
     private static String getQueryField(String propertyName, ElasticEdmEntityType entityType) {
-        ElasticEdmProperty property = entityType.getEProperties().get(propertyName);
-        return addKeywordIfNeeded(property.getEField(), property.getAnnotations());
+        return entityType.getEProperties().get(propertyName).getEQueryField();
     }
 
 }
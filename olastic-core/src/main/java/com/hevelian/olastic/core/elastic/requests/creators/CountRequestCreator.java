@@ -0,0 +1,54 @@
+package com.hevelian.olastic.core.elastic.requests.creators;
+
+import java.util.List;
+
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+
+import com.hevelian.olastic.core.elastic.builders.ESQueryBuilder;
+import com.hevelian.olastic.core.elastic.requests.BaseRequest;
+import com.hevelian.olastic.core.elastic.requests.CountRequest;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+
+/**
+ * Class responsible for creating {@link CountRequest} instance.
+ * 
+ * @author rdidyk
+ */
+public class CountRequestCreator extends SingleRequestCreator {
+
+    /**
+     * Constructor to initialize default ES query builder.
+     */
+    public CountRequestCreator() {
+        super();
+    }
+
+    /**
+     * Constructor to initialize ES query builder.
+     * 
+     * @param queryBuilder
+     *            ES query builder
+     */
+    public CountRequestCreator(ESQueryBuilder<?> queryBuilder) {
+        super(queryBuilder);
+    }
+
+    /**
+     * Creates count request. Trailing $count segment isn't part of query, so
+     * it's dropped before query is built.
+     */
+    @Override
+    public ESRequest create(UriInfo uriInfo) throws ODataApplicationException {
+        List<UriResource> resourceParts = uriInfo.getUriResourceParts();
+        int size = resourceParts.size();
+        if (size > 1 && resourceParts.get(size - 1).getKind() == UriResourceKind.count) {
+            resourceParts = resourceParts.subList(0, size - 1);
+        }
+        BaseRequest baseRequestInfo = getBaseRequestInfo(uriInfo, resourceParts);
+        return new CountRequest(baseRequestInfo.getQuery(), baseRequestInfo.getEntitySet());
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.hevelian.olastic.core.elastic.requests.creators;
+
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
+import org.apache.olingo.server.api.uri.queryoption.TopOption;
+
+import com.hevelian.olastic.core.elastic.builders.ESQueryBuilder;
+import com.hevelian.olastic.core.elastic.pagination.Pagination;
+import com.hevelian.olastic.core.elastic.pagination.SkipToken;
+import com.hevelian.olastic.core.elastic.requests.CountRequest;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+
+/**
+ * Class responsible for creating search request for collection of entities
+ * with server-driven paging. Paging is applied if client requested maximum
+ * page size, if there is no {@code $top} option or if request continues
+ * previous page with {@code $skiptoken}. If client requested no entities
+ * ({@code $top=0}), only documents count is requested.
+ *
+ * @author rdidyk
+ */
+public class EntityCollectionRequestCreator extends SearchRequestCreator {
+
+    /** Maximum page size, default maximum result window of index. */
+    public static final int MAX_PAGE_SIZE = 10000;
+
+    private final Integer maxPageSize;
+
+    /**
+     * Constructor to initialize default ES query builder and maximum page
+     * size.
+     *
+     * @param maxPageSize
+     *            maximum page size preferred by client, or null to use
+     *            default one
+     */
+    public EntityCollectionRequestCreator(Integer maxPageSize) {
+        this(new ESQueryBuilder<>(), maxPageSize);
+    }
+
+    /**
+     * Constructor to initialize ES query builder and maximum page size.
+     *
+     * @param queryBuilder
+     *            ES query builder
+     * @param maxPageSize
+     *            maximum page size preferred by client, or null to use
+     *            default one
+     */
+    public EntityCollectionRequestCreator(ESQueryBuilder<?> queryBuilder, Integer maxPageSize) {
+        super(queryBuilder);
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public ESRequest create(UriInfo uriInfo) throws ODataApplicationException {
+        ESRequest request = super.create(uriInfo);
+        Pagination pagination = request.getPagination();
+        TopOption topOption = uriInfo.getTopOption();
+        SkipTokenOption skipTokenOption = uriInfo.getSkipTokenOption();
+        long remaining = topOption != null ? topOption.getValue() : -1;
+        if (skipTokenOption == null && remaining == 0) {
+            return new CountRequest(request.getQuery(), request.getEntitySet(), pagination);
+        } else if (skipTokenOption != null) {
+            SkipToken skipToken = parseSkipToken(skipTokenOption.getValue(), pagination);
+            remaining = skipToken.getRemaining();
+            pagination.setSearchAfter(skipToken.getSortValues());
+            pagination.setSkip(0);
+        } else if (maxPageSize == null && topOption != null) {
+            return request;
+        }
+        int pageSize = getPageSize();
+        pagination.setServerDriven(true);
+        pagination.setRemaining(remaining);
+        pagination.setTop((int) (remaining < 0 ? pageSize : Math.min(remaining, pageSize)));
+        return request;
+    }
+
+    /**
+     * @return size of page applied to server-driven paging
+     */
+    public int getPageSize() {
+        return maxPageSize != null && maxPageSize > 0 ? Math.min(maxPageSize, MAX_PAGE_SIZE)
+                : Pagination.TOP_DEFAULT;
+    }
+
+    /**
+     * Decodes skip token which matches sorting of request.
+     *
+     * @param value
+     *            skip token option value
+     * @param pagination
+     *            request pagination
+     * @return decoded skip token
+     * @throws ODataApplicationException
+     *             if token is invalid
+     */
+    private static SkipToken parseSkipToken(String value, Pagination pagination)
+            throws ODataApplicationException {
+        int sortsCount = pagination.getOrderBy().isEmpty() ? 2
+                : pagination.getOrderBy().size() + 1;
+        try {
+            return SkipToken.decode(value, sortsCount);
+        } catch (IllegalArgumentException e) {
+            throw new ODataApplicationException(e.getMessage(),
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+        }
+    }
+
+}
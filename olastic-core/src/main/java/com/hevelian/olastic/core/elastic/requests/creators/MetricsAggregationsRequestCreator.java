@@ -53,6 +53,8 @@ public class MetricsAggregationsRequestCreator extends AbstractAggregationsReque
         AggregateQuery aggregateQuery = new AggregateQuery(baseQuery.getIndex(),
                 baseQuery.getTypes(), baseQuery.getQueryBuilder(), metricsQueries,
                 Collections.emptyList());
+        aggregateQuery.setRouting(baseQuery.getRouting());
+        aggregateQuery.setIndices(baseQuery.getIndices());
         return new AggregateRequest(aggregateQuery, entitySet, getCountAlias());
     }
 
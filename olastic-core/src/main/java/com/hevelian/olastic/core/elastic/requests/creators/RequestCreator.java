@@ -6,11 +6,13 @@ import com.hevelian.olastic.core.api.uri.queryoption.expression.member.impl.Expr
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
 import com.hevelian.olastic.core.edm.ElasticEdmProperty;
 import com.hevelian.olastic.core.elastic.ElasticConstants;
+import com.hevelian.olastic.core.elastic.TimeIndexPattern;
 import com.hevelian.olastic.core.elastic.builders.ESQueryBuilder;
 import com.hevelian.olastic.core.elastic.pagination.Pagination;
 import com.hevelian.olastic.core.elastic.pagination.Sort;
 import com.hevelian.olastic.core.elastic.queries.Query;
 import com.hevelian.olastic.core.elastic.requests.BaseRequest;
+import com.hevelian.olastic.core.elastic.utils.RoutingUtils;
 import com.hevelian.olastic.core.utils.ApplyOptionUtils;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -32,6 +34,7 @@ import org.apache.olingo.server.api.uri.queryoption.search.SearchBinaryOperatorK
 import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
 import org.apache.olingo.server.api.uri.queryoption.search.SearchUnary;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 
 import java.util.ArrayList;
@@ -39,7 +42,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static com.hevelian.olastic.core.elastic.utils.ElasticUtils.addKeywordIfNeeded;
 import static com.hevelian.olastic.core.utils.ProcessorUtils.throwNotImplemented;
 import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
 
@@ -66,8 +68,11 @@ public abstract class RequestCreator {
      * Gets base request info that is need for all requests. It goes through all
      * URI resource parts and build query for each segment, the last entity set
      * from resource segment is metadata entity of type to search. It returns
-     * {@link Query} with index, type, and query builder for search, and last
-     * entity set from resource parts.
+     * {@link Query} with index, type, query builder and routing for search,
+     * and last entity set from resource parts. Routing is known if response
+     * entity set has routing field, and its values are restricted by key
+     * predicates or $filter. If index of entity set is time-based, only
+     * concrete indices of time range from $filter are searched.
      * 
      * @param uriInfo
      *            URI info
@@ -75,7 +80,23 @@ public abstract class RequestCreator {
      * @throws ODataApplicationException OData app exception
      */
     public BaseRequest getBaseRequestInfo(UriInfo uriInfo) throws ODataApplicationException {
-        List<UriResource> resourceParts = uriInfo.getUriResourceParts();
+        return getBaseRequestInfo(uriInfo, uriInfo.getUriResourceParts());
+    }
+
+    /**
+     * Gets base request info from given URI resource parts, e.g. parts without
+     * trailing segment which isn't an entity set or navigation.
+     * 
+     * @param uriInfo
+     *            URI info
+     * @param resourceParts
+     *            URI resource parts to build query of
+     * @return base request
+     * @throws ODataApplicationException OData app exception
+     * @see #getBaseRequestInfo(UriInfo)
+     */
+    protected BaseRequest getBaseRequestInfo(UriInfo uriInfo, List<UriResource> resourceParts)
+            throws ODataApplicationException {
         ElasticEdmEntitySet responseEntitySet = (ElasticEdmEntitySet) getFirstResourceEntitySet(
                 uriInfo);
         Iterator<UriResource> iterator = resourceParts.iterator();
@@ -98,10 +119,16 @@ public abstract class RequestCreator {
             }
         }
         queryBuilder.addFilter(getFilterQuery(uriInfo)).addFilter(getSearchQuery(uriInfo));
-        return new BaseRequest(
-                new Query(responseEntitySet.getEIndex(),
-                        new String[] { responseEntitySet.getEType() }, queryBuilder.build(), null),
-                responseEntitySet, null);
+        QueryBuilder builtQuery = queryBuilder.build();
+        Query query = new Query(responseEntitySet.getEIndex(),
+                new String[] { responseEntitySet.getEType() }, builtQuery, null);
+        query.setRouting(
+                RoutingUtils.getRouting(builtQuery, responseEntitySet.getERoutingField()));
+        TimeIndexPattern timeIndexPattern = responseEntitySet.getETimeIndexPattern();
+        if (timeIndexPattern != null) {
+            query.setIndices(timeIndexPattern.getIndices(builtQuery));
+        }
+        return new BaseRequest(query, responseEntitySet, null);
         // TODO pass pagination info here, and reuse in child (in request
         // creators)
     }
@@ -270,9 +297,7 @@ public abstract class RequestCreator {
                                 .getProperty();
                         String property = edmProperty.getName();
                         if (edmProperty instanceof ElasticEdmProperty) {
-                            ElasticEdmProperty entityTypeProperty = (ElasticEdmProperty) edmProperty;
-                            property = addKeywordIfNeeded(entityTypeProperty.getEField(),
-                                    entityTypeProperty.getAnnotations());
+                            property = ((ElasticEdmProperty) edmProperty).getEQueryField();
                         }
                         orderBy.add(new Sort(property, orderByItem.isDescending()
                                 ? Sort.Direction.DESC : Sort.Direction.ASC));
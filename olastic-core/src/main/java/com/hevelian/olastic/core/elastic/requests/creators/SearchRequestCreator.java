@@ -58,6 +58,8 @@ public class SearchRequestCreator extends SingleRequestCreator {
         Pagination pagination = getPagination(uriInfo);
         SearchQuery searchQuery = new SearchQuery(baseQuery.getIndex(), baseQuery.getTypes(),
                 baseQuery.getQueryBuilder(), fields, pagination);
+        searchQuery.setRouting(baseQuery.getRouting());
+        searchQuery.setIndices(baseQuery.getIndices());
         return new SearchRequest(searchQuery, entitySet, pagination);
     }
 
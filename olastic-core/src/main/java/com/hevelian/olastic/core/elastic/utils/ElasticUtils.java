@@ -3,6 +3,7 @@ package com.hevelian.olastic.core.elastic.utils;
 import com.hevelian.olastic.core.api.edm.annotations.AnnotationProvider;
 import com.hevelian.olastic.core.elastic.ElasticConstants;
 import org.apache.olingo.commons.api.edm.EdmAnnotation;
+import org.apache.olingo.commons.api.edm.provider.CsdlAnnotation;
 
 import java.util.List;
 import java.util.Optional;
@@ -36,6 +37,49 @@ public final class ElasticUtils {
         return isAnalyzed ? addKeyword(name) : name;
     }
 
+    /**
+     * Returns name of the field that should be used in term queries, sorting
+     * and aggregations. Only analyzed (text) field is substituted by its
+     * keyword sub-field: the one known from mapping, or default one.
+     *
+     * @param name
+     *            field name
+     * @param keywordField
+     *            name of keyword sub-field from mapping, or null
+     * @param annotations
+     *            CSDL property annotations
+     * @return property's query field name
+     */
+    public static String getQueryField(String name, String keywordField,
+            List<CsdlAnnotation> annotations) {
+        if (!isAnalyzed(annotations)) {
+            return name;
+        }
+        return keywordField != null ? name + ElasticConstants.SUFFIX_DELIMITER + keywordField
+                : addKeyword(name);
+    }
+
+    /**
+     * Checks whether CSDL annotations mark the property as analyzed.
+     *
+     * @param annotations
+     *            CSDL property annotations
+     * @return true if property is analyzed, false otherwise
+     */
+    private static boolean isAnalyzed(List<CsdlAnnotation> annotations) {
+        for (CsdlAnnotation annotation : annotations) {
+            String term = annotation.getTerm();
+            if (term != null
+                    && AnnotationProvider.ANALYZED_TERM_NAME
+                            .equals(term.substring(term.lastIndexOf('.') + 1))
+                    && annotation.getExpression() != null
+                    && annotation.getExpression().isConstant()) {
+                return Boolean.parseBoolean(annotation.getExpression().asConstant().getValue());
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns keyword field name. Keyword field is non analyzed field.
      *
@@ -0,0 +1,125 @@
+package com.hevelian.olastic.core.elastic.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.HasParentQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+
+import com.hevelian.olastic.core.elastic.ElasticConstants;
+
+/**
+ * Routing utils. Extracts routing values from built Elasticsearch query, so
+ * searches with known values of routing field are sent only to shards of
+ * these values.
+ *
+ * @author rdidyk
+ */
+public final class RoutingUtils {
+
+    private static final String ROUTING_DELIMITER = ",";
+
+    private RoutingUtils() {
+    }
+
+    /**
+     * Returns routing of query. Only clauses every matching document has to
+     * satisfy are taken into account: must and filter clauses of bool query,
+     * term and terms queries of routing field or its sub-fields, ids query if
+     * documents are routed by id, and has_parent query with parent ids if
+     * documents are routed by parent. Values of several clauses are
+     * intersected.
+     *
+     * @param query
+     *            built query
+     * @param routingField
+     *            routing field name, or null if routing of documents is
+     *            unknown
+     * @return comma separated routing values, or null if query isn't
+     *         restricted to any of them
+     */
+    public static String getRouting(QueryBuilder query, String routingField) {
+        if (routingField == null) {
+            return null;
+        }
+        Set<String> values = collectValues(query, routingField);
+        if (values == null || values.isEmpty()
+                || values.stream().anyMatch(value -> value.contains(ROUTING_DELIMITER))) {
+            return null;
+        }
+        return String.join(ROUTING_DELIMITER, values);
+    }
+
+    /**
+     * Collects values of routing field matching documents could have.
+     *
+     * @param query
+     *            query
+     * @param field
+     *            routing field name
+     * @return routing values, or null if query doesn't restrict them
+     */
+    private static Set<String> collectValues(QueryBuilder query, String field) {
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder boolQuery = (BoolQueryBuilder) query;
+            List<QueryBuilder> clauses = new ArrayList<>(boolQuery.must());
+            clauses.addAll(boolQuery.filter());
+            Set<String> values = null;
+            for (QueryBuilder clause : clauses) {
+                Set<String> clauseValues = collectValues(clause, field);
+                if (values == null) {
+                    values = clauseValues;
+                } else if (clauseValues != null) {
+                    values.retainAll(clauseValues);
+                }
+            }
+            return values;
+        } else if (query instanceof TermQueryBuilder) {
+            TermQueryBuilder termQuery = (TermQueryBuilder) query;
+            return isRoutingField(termQuery.fieldName(), field)
+                    ? toSet(Collections.singletonList(termQuery.value())) : null;
+        } else if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder termsQuery = (TermsQueryBuilder) query;
+            return isRoutingField(termsQuery.fieldName(), field) ? toSet(termsQuery.values())
+                    : null;
+        } else if (query instanceof IdsQueryBuilder) {
+            return ElasticConstants.ID_FIELD_NAME.equals(field)
+                    ? toSet(((IdsQueryBuilder) query).ids()) : null;
+        } else if (query instanceof HasParentQueryBuilder) {
+            QueryBuilder parentQuery = ((HasParentQueryBuilder) query).query();
+            return ElasticConstants.PARENT_PROPERTY.equals(field)
+                    && parentQuery instanceof IdsQueryBuilder
+                            ? toSet(((IdsQueryBuilder) parentQuery).ids()) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether query field is routing field or its sub-field, e.g.
+     * keyword sub-field of analyzed field.
+     */
+    private static boolean isRoutingField(String name, String field) {
+        return name.equals(field)
+                || name.startsWith(field + ElasticConstants.SUFFIX_DELIMITER);
+    }
+
+    private static Set<String> toSet(Collection<?> values) {
+        Set<String> result = new LinkedHashSet<>();
+        for (Object value : values) {
+            if (value == null) {
+                return null;
+            }
+            result.add(value.toString());
+        }
+        return result;
+    }
+
+}
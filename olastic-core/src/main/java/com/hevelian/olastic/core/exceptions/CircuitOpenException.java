@@ -0,0 +1,25 @@
+package com.hevelian.olastic.core.exceptions;
+
+/**
+ * Exception thrown if search request isn't executed because circuit of
+ * cluster or index is open.
+ *
+ * @author rdidyk
+ */
+public class CircuitOpenException extends SearchRejectedException {
+
+    private static final long serialVersionUID = -2741880523647951238L;
+
+    /**
+     * Constructor that accepts error message and time after which request
+     * could be retried.
+     *
+     * @param message
+     *            error message
+     * @param retryAfter
+     *            time in seconds after which request could be retried
+     */
+    public CircuitOpenException(String message, long retryAfter) {
+        super(message, retryAfter);
+    }
+}
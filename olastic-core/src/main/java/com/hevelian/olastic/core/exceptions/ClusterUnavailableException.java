@@ -0,0 +1,21 @@
+package com.hevelian.olastic.core.exceptions;
+
+/**
+ * Exception thrown if Elasticsearch cluster couldn't be reached.
+ *
+ * @author rdidyk
+ */
+public class ClusterUnavailableException extends SearchException {
+
+    private static final long serialVersionUID = 4187420913583712460L;
+
+    /**
+     * Constructor that accepts error message.
+     *
+     * @param message
+     *            error message
+     */
+    public ClusterUnavailableException(String message) {
+        super(message);
+    }
+}
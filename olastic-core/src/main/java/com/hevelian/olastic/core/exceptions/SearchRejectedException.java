@@ -0,0 +1,35 @@
+package com.hevelian.olastic.core.exceptions;
+
+/**
+ * Exception thrown if search request is rejected because of overload, either
+ * by client-side concurrency limit or by Elasticsearch.
+ *
+ * @author rdidyk
+ */
+public class SearchRejectedException extends SearchException {
+
+    private static final long serialVersionUID = 6318496385728155470L;
+
+    private final long retryAfter;
+
+    /**
+     * Constructor that accepts error message and time after which request
+     * could be retried.
+     *
+     * @param message
+     *            error message
+     * @param retryAfter
+     *            time in seconds after which request could be retried
+     */
+    public SearchRejectedException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return time in seconds after which request could be retried
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,21 @@
+package com.hevelian.olastic.core.exceptions;
+
+/**
+ * Exception thrown if Elasticsearch didn't respond before request deadline.
+ * 
+ * @author rdidyk
+ */
+public class SearchTimeoutException extends SearchException {
+
+    private static final long serialVersionUID = -3547916285092536473L;
+
+    /**
+     * Constructor that accepts error message.
+     * 
+     * @param message
+     *            error message
+     */
+    public SearchTimeoutException(String message) {
+        super(message);
+    }
+}
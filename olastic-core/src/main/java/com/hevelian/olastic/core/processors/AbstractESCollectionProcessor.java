@@ -1,7 +1,13 @@
 package com.hevelian.olastic.core.processors;
 
+import java.net.URI;
+import java.util.Iterator;
+
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityIterator;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
@@ -13,9 +19,11 @@ import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
 import com.hevelian.olastic.core.processors.data.InstanceData;
+import com.hevelian.olastic.core.serializer.StreamedSerializerResult;
 
 /**
- * Abstract class with common logic for all collection processors.
+ * Abstract class with common logic for all collection processors. Entities
+ * are serialized directly to response output stream.
  * 
  * @author rdidyk
  */
@@ -26,14 +34,70 @@ public abstract class AbstractESCollectionProcessor
     protected SerializerResult serialize(ODataSerializer serializer,
             InstanceData<EdmEntityType, AbstractEntityCollection> data,
             ElasticEdmEntitySet entitySet, UriInfo uriInfo) throws SerializerException {
+        AbstractEntityCollection entities = data.getValue();
+        ODataContent content = serializer
+                .entityCollectionStreamed(serviceMetadata, data.getType(),
+                        new CollectionIterator(entities),
+                        createSerializerOptions(entitySet, uriInfo))
+                .getODataContent();
+        return new StreamedSerializerResult(content::write);
+    }
+
+    /**
+     * Creates options to serialize collection of entities.
+     *
+     * @param entitySet
+     *            the edm entity set
+     * @param uriInfo
+     *            URI info
+     * @return serializer options
+     * @throws SerializerException
+     *             if any error occurred
+     */
+    protected EntityCollectionSerializerOptions createSerializerOptions(
+            ElasticEdmEntitySet entitySet, UriInfo uriInfo) throws SerializerException {
         String id = request.getRawBaseUri() + "/" + entitySet.getEntityType();
         ExpandOption expand = uriInfo.getExpandOption();
         SelectOption select = uriInfo.getSelectOption();
         CountOption count = uriInfo.getCountOption();
-        return serializer.entityCollection(serviceMetadata, data.getType(), data.getValue(),
-                EntityCollectionSerializerOptions.with()
-                        .contextURL(createContextUrl(entitySet, false, expand, select, null)).id(id)
-                        .count(count).select(select).expand(expand).build());
+        return EntityCollectionSerializerOptions.with()
+                .contextURL(createContextUrl(entitySet, false, expand, select, null)).id(id)
+                .count(count).select(select).expand(expand).build();
+    }
+
+    /**
+     * Iterator over parsed collection of entities, to write them to response
+     * one by one.
+     */
+    private static class CollectionIterator extends EntityIterator {
+
+        private final AbstractEntityCollection entities;
+        private final Iterator<Entity> iterator;
+
+        CollectionIterator(AbstractEntityCollection entities) {
+            this.entities = entities;
+            this.iterator = entities.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Entity next() {
+            return iterator.next();
+        }
+
+        @Override
+        public Integer getCount() {
+            return entities.getCount();
+        }
+
+        @Override
+        public URI getNext() {
+            return entities.getNext();
+        }
     }
 
 }
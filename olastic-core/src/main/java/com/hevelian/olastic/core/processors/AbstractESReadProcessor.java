@@ -1,11 +1,15 @@
 package com.hevelian.olastic.core.processors;
 
+import com.hevelian.olastic.core.AsyncODataRequest;
 import com.hevelian.olastic.core.ElasticOData;
 import com.hevelian.olastic.core.ElasticServiceMetadata;
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
 import com.hevelian.olastic.core.elastic.requests.ESRequest;
 import com.hevelian.olastic.core.elastic.requests.SearchRequest;
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+import com.hevelian.olastic.core.exceptions.SearchTimeoutException;
 import com.hevelian.olastic.core.processors.data.InstanceData;
+import lombok.extern.log4j.Log4j2;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
 import org.apache.olingo.commons.api.format.ContentType;
@@ -15,17 +19,31 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.prefer.PreferencesApplied;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.serializer.SerializerStreamResult;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.ODataExceptionHelper;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Abstract class with template method to provide behavior for all read
- * processors.
+ * processors. Search timeout could be set with {@code wait} preference, if
+ * search timed out, response contains partial results and warning header. If
+ * search is rejected because of overload, response has 503 status and
+ * {@code Retry-After} header. Stale response served while cluster is
+ * unavailable is marked with warning header too.
  *
  * @param <T>
  *            instance data type class
@@ -33,11 +51,24 @@ import org.elasticsearch.action.search.SearchResponse;
  *            instance data value class
  * @author rdidyk
  */
+@Log4j2
 public abstract class AbstractESReadProcessor<T, V> implements ESReadProcessor {
 
+    /** Warning header added to response if search timed out or response is stale. */
+    public static final String WARNING_HEADER = "Warning";
+    /** Warning about partial results of timed out search. */
+    public static final String PARTIAL_RESULTS_WARNING =
+            "199 - \"Search timed out, results are partial\"";
+    /** Warning about stale response served while cluster is unavailable. */
+    public static final String STALE_RESPONSE_WARNING = "110 - \"Response is Stale\"";
+
     protected ElasticOData odata;
     protected ElasticServiceMetadata serviceMetadata;
     protected ODataRequest request;
+    /** Search timeout in seconds preferred by client. */
+    protected Integer wait;
+    private volatile boolean timedOut;
+    private volatile boolean stale;
 
     @Override
     public void init(ElasticOData odata, ElasticServiceMetadata serviceMetadata) {
@@ -46,22 +77,232 @@ public abstract class AbstractESReadProcessor<T, V> implements ESReadProcessor {
     }
 
     /**
-     * Method is a template to provide behavior for all read processors.
+     * Method is a template to provide behavior for all read processors. If
+     * request is {@link AsyncODataRequest}, response is deferred until data
+     * is retrieved from Elasticsearch, so caller's thread isn't blocked.
      */
     @Override
     public void read(ODataRequest request, ODataResponse response, UriInfo uriInfo,
             ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
         this.request = request;
+        List<String> preferHeaders = request.getHeaders(HttpHeader.PREFER);
+        if (preferHeaders != null) {
+            wait = odata.createPreferences(preferHeaders).getWait();
+        }
+        CompletableFuture<SerializerResult> result = readAsync(uriInfo, responseFormat);
+        if (request instanceof AsyncODataRequest) {
+            ((AsyncODataRequest) request).defer(result.handle((serializerResult, error) -> {
+                ODataResponse deferred = new ODataResponse();
+                if (error == null) {
+                    fillResponse(deferred, serializerResult, responseFormat);
+                } else {
+                    fillErrorResponse(deferred, error, responseFormat);
+                }
+                return deferred;
+            }));
+        } else {
+            try {
+                fillResponse(response, join(result), responseFormat);
+            } catch (SearchRejectedException e) {
+                fillErrorResponse(response, e, responseFormat);
+            }
+        }
+    }
+
+    /**
+     * Executes request to Elasticsearch asynchronously, then parses and
+     * serializes its response.
+     *
+     * @param uriInfo
+     *            URI info for request
+     * @param responseFormat
+     *            response format
+     * @return future of serialized result
+     * @throws ODataApplicationException
+     *             if request can't be created
+     * @throws SerializerException
+     *             if format isn't supported
+     */
+    protected CompletableFuture<SerializerResult> readAsync(UriInfo uriInfo,
+            ContentType responseFormat) throws ODataApplicationException, SerializerException {
         ESRequest searchRequest = createRequest(uriInfo);
         ElasticEdmEntitySet entitySet = searchRequest.getEntitySet();
-        SearchResponse searchResponse = searchRequest.execute();
-        InstanceData<T, V> data = parseResponse(searchResponse, entitySet);
-
         ODataSerializer serializer = odata.createSerializer(responseFormat);
-        SerializerResult serializerResult = serialize(serializer, data, entitySet, uriInfo);
-        response.setContent(serializerResult.getContent());
+        return execute(searchRequest).thenApply(searchResponse -> {
+            try {
+                return serializeResponse(searchResponse, entitySet, uriInfo, serializer,
+                        responseFormat);
+            } catch (ODataApplicationException | SerializerException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Executes request to Elasticsearch asynchronously. Timeout preferred by
+     * client and session of {@link AsyncODataRequest} are applied to request,
+     * and request is cancelled if {@link AsyncODataRequest} is cancelled.
+     *
+     * @param esRequest
+     *            request to execute
+     * @return future of response
+     */
+    protected CompletableFuture<SearchResponse> execute(ESRequest esRequest) {
+        if (wait != null && esRequest.getQuery() != null) {
+            esRequest.getQuery().setTimeout(TimeValue.timeValueSeconds(wait));
+        }
+        if (request instanceof AsyncODataRequest && esRequest.getQuery() != null) {
+            esRequest.getQuery().setSession(((AsyncODataRequest) request).getSession());
+        }
+        CompletableFuture<SearchResponse> response = esRequest.executeAsync();
+        if (request instanceof AsyncODataRequest) {
+            ((AsyncODataRequest) request).onCancel(() -> response.cancel(false));
+        }
+        return response.thenApply(searchResponse -> {
+            timedOut = searchResponse.isTimedOut();
+            stale = esRequest.getQuery() != null && esRequest.getQuery().isStale();
+            return searchResponse;
+        });
+    }
+
+    /**
+     * Parses and serializes response from Elasticsearch.
+     *
+     * @param response
+     *            response from Elasticsearch
+     * @param entitySet
+     *            the edm entity set
+     * @param uriInfo
+     *            URI info
+     * @param serializer
+     *            responsible serializer
+     * @param responseFormat
+     *            response format
+     * @return serialized result
+     * @throws ODataApplicationException
+     *             if any error occurred during parsing response
+     * @throws SerializerException
+     *             if any error occurred during serialization
+     */
+    protected SerializerResult serializeResponse(SearchResponse response,
+            ElasticEdmEntitySet entitySet, UriInfo uriInfo, ODataSerializer serializer,
+            ContentType responseFormat) throws ODataApplicationException, SerializerException {
+        InstanceData<T, V> data = parseResponse(response, entitySet);
+        return serialize(serializer, data, entitySet, uriInfo);
+    }
+
+    /**
+     * Fills successful response with serialized result. If result could be
+     * streamed, it's written directly to response output stream.
+     *
+     * @param response
+     *            response to fill
+     * @param result
+     *            serialized result
+     * @param responseFormat
+     *            response format
+     */
+    protected void fillResponse(ODataResponse response, SerializerResult result,
+            ContentType responseFormat) {
+        if (result instanceof SerializerStreamResult) {
+            response.setODataContent(((SerializerStreamResult) result).getODataContent());
+        } else {
+            response.setContent(result.getContent());
+        }
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
         response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+        if (wait != null) {
+            response.addHeader(HttpHeader.PREFERENCE_APPLIED,
+                    PreferencesApplied.with().waitPreference(wait).build().toValueString());
+        }
+        if (timedOut) {
+            response.addHeader(WARNING_HEADER, PARTIAL_RESULTS_WARNING);
+        }
+        if (stale) {
+            response.addHeader(WARNING_HEADER, STALE_RESPONSE_WARNING);
+        }
+    }
+
+    /**
+     * Fills response with error document the same way as OData handler does
+     * for synchronously thrown exceptions. Rejected search gets
+     * {@code Retry-After} header, which OData handler can't set.
+     *
+     * @param response
+     *            response to fill
+     * @param error
+     *            occurred error
+     * @param responseFormat
+     *            response format
+     */
+    protected void fillErrorResponse(ODataResponse response, Throwable error,
+            ContentType responseFormat) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        ODataServerError serverError;
+        if (cause instanceof SearchTimeoutException) {
+            serverError = ODataExceptionHelper
+                    .createServerErrorObject(createTimeoutException(cause));
+        } else if (cause instanceof SearchRejectedException) {
+            serverError = ODataExceptionHelper.createServerErrorObject(
+                    new ODataApplicationException(cause.getMessage(),
+                            HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode(), Locale.ROOT,
+                            cause));
+            response.setHeader(HttpHeader.RETRY_AFTER,
+                    String.valueOf(((SearchRejectedException) cause).getRetryAfter()));
+        } else if (cause instanceof ODataApplicationException) {
+            serverError = ODataExceptionHelper
+                    .createServerErrorObject((ODataApplicationException) cause);
+        } else if (cause instanceof ODataLibraryException) {
+            serverError = ODataExceptionHelper
+                    .createServerErrorObject((ODataLibraryException) cause, Locale.ROOT);
+        } else {
+            serverError = ODataExceptionHelper.createServerErrorObject(
+                    cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        }
+        response.setStatusCode(serverError.getStatusCode());
+        try {
+            response.setContent(odata.createSerializer(responseFormat).error(serverError)
+                    .getContent());
+            response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+        } catch (SerializerException e) {
+            log.error("Unable to serialize error.", e);
+        }
+    }
+
+    /**
+     * Waits for result and rethrows its original exception, if any.
+     *
+     * @param result
+     *            future of serialized result
+     * @return serialized result
+     * @throws ODataApplicationException
+     *             if application error occurred
+     * @throws ODataLibraryException
+     *             if library error occurred
+     */
+    private static SerializerResult join(CompletableFuture<SerializerResult> result)
+            throws ODataApplicationException, ODataLibraryException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SearchTimeoutException) {
+                throw createTimeoutException(cause);
+            } else if (cause instanceof ODataApplicationException) {
+                throw (ODataApplicationException) cause;
+            } else if (cause instanceof ODataLibraryException) {
+                throw (ODataLibraryException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ODataApplicationException createTimeoutException(Throwable cause) {
+        return new ODataApplicationException(cause.getMessage(),
+                HttpStatusCode.GATEWAY_TIMEOUT.getStatusCode(), Locale.ROOT, cause);
     }
 
     /**
@@ -0,0 +1,77 @@
+package com.hevelian.olastic.core.processors.impl;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.serializer.SerializerResultImpl;
+import org.elasticsearch.action.search.SearchResponse;
+
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+import com.hevelian.olastic.core.elastic.requests.creators.CountRequestCreator;
+import com.hevelian.olastic.core.processors.AbstractESReadProcessor;
+import com.hevelian.olastic.core.processors.data.InstanceData;
+
+/**
+ * Custom Elastic processor for handling count of entities collection, e.g.
+ * {@code /author/$count?$filter=age gt 30}. Documents are only counted, no
+ * hits are retrieved, and count is returned as plain text.
+ * 
+ * @author rdidyk
+ */
+public class CountProcessorImpl extends AbstractESReadProcessor<EdmEntityType, Long> {
+
+    /**
+     * Count is written as plain text by fixed format serializer, so OData
+     * serializer for response format isn't created.
+     */
+    @Override
+    protected CompletableFuture<SerializerResult> readAsync(UriInfo uriInfo,
+            ContentType responseFormat) throws ODataApplicationException {
+        ESRequest countRequest = createRequest(uriInfo);
+        ElasticEdmEntitySet entitySet = countRequest.getEntitySet();
+        return execute(countRequest).thenApply(searchResponse -> {
+            try {
+                return serialize(null, parseResponse(searchResponse, entitySet), entitySet,
+                        uriInfo);
+            } catch (SerializerException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    protected ESRequest createRequest(UriInfo uriInfo) throws ODataApplicationException {
+        return new CountRequestCreator().create(uriInfo);
+    }
+
+    @Override
+    protected InstanceData<EdmEntityType, Long> parseResponse(SearchResponse response,
+            ElasticEdmEntitySet entitySet) {
+        return new InstanceData<>(entitySet.getEntityType(), response.getHits().getTotalHits());
+    }
+
+    /**
+     * Writes count the same way as fixed format serializer does, which
+     * accepts only integer count, so counts over {@link Integer#MAX_VALUE}
+     * aren't truncated.
+     */
+
+    @Override
+    protected SerializerResult serialize(ODataSerializer serializer,
+            InstanceData<EdmEntityType, Long> data, ElasticEdmEntitySet entitySet,
+            UriInfo uriInfo) throws SerializerException {
+        return SerializerResultImpl.with().content(new ByteArrayInputStream(
+                String.valueOf(data.getValue()).getBytes(StandardCharsets.UTF_8))).build();
+    }
+
+}
@@ -9,6 +9,7 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
@@ -29,11 +30,13 @@ import static com.hevelian.olastic.core.utils.ProcessorUtils.throwNotImplemented
  * 1. one 'groupby' for multiple fields;
  * 2. metrics aggregations;
  * 3. one 'groupby' for multiple fields with metrics aggregations;
- * 4. simple entity collections.
+ * 4. simple entity collections;
+ * 5. count of entity collections.
  *
  * @author rdidyk
  */
-public class EntityCollectionProcessorHandler implements EntityCollectionProcessor, ESProcessor {
+public class EntityCollectionProcessorHandler
+        implements EntityCollectionProcessor, CountEntityCollectionProcessor, ESProcessor {
 
     protected ElasticOData odata;
     protected ElasticServiceMetadata serviceMetadata;
@@ -52,6 +55,14 @@ public class EntityCollectionProcessorHandler implements EntityCollectionProcess
         collectionProcessor.read(request, response, uriInfo, responseFormat);
     }
 
+    @Override
+    public void countEntityCollection(ODataRequest request, ODataResponse response,
+            UriInfo uriInfo) throws ODataApplicationException, ODataLibraryException {
+        ESReadProcessor countProcessor = new CountProcessorImpl();
+        countProcessor.init(odata, serviceMetadata);
+        countProcessor.read(request, response, uriInfo, ContentType.TEXT_PLAIN);
+    }
+
     /**
      * Gets specific collection reader based on items from apply option in URL.
      *
@@ -1,27 +1,97 @@
 package com.hevelian.olastic.core.processors.impl;
 
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.commons.core.Decoder;
 import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.prefer.Preferences;
+import org.apache.olingo.server.api.prefer.PreferencesApplied;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.serializer.SerializerResult;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHits;
 
 import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.ESClient;
+import com.hevelian.olastic.core.elastic.ScrollHits;
+import com.hevelian.olastic.core.elastic.pagination.Pagination;
+import com.hevelian.olastic.core.elastic.pagination.SkipToken;
 import com.hevelian.olastic.core.elastic.parsers.EntityCollectionParser;
+import com.hevelian.olastic.core.elastic.parsers.ScrollEntityIterator;
+import com.hevelian.olastic.core.elastic.queries.SearchQuery;
 import com.hevelian.olastic.core.elastic.requests.ESRequest;
+import com.hevelian.olastic.core.elastic.requests.creators.EntityCollectionRequestCreator;
 import com.hevelian.olastic.core.elastic.requests.creators.SearchRequestCreator;
+import com.hevelian.olastic.core.exceptions.SearchException;
 import com.hevelian.olastic.core.processors.AbstractESCollectionProcessor;
 import com.hevelian.olastic.core.processors.data.InstanceData;
+import com.hevelian.olastic.core.serializer.json.SearchHitsJsonSerializer;
 
 /**
- * Custom Elastic processor for handling a collection of entities.
- * 
+ * Custom Elastic processor for handling a collection of entities. Supports
+ * server-driven paging: if there are more entities than page size, response
+ * contains next link with skip token, page size could be set with
+ * {@code odata.maxpagesize} preference. With {@code odata.streaming}
+ * preference whole collection is exported in one response: hits are scrolled
+ * and written to response batch by batch, so memory usage doesn't depend on
+ * collection size. Pages requested in JSON format are written from hits
+ * directly, see {@link SearchHitsJsonSerializer}.
+ *
  * @author rdidyk
  */
 public class EntityCollectionProcessorImpl extends AbstractESCollectionProcessor {
 
+    /** Preference to stream whole collection. */
+    public static final String STREAMING_PREFERENCE = "odata.streaming";
+    /** Amount of hits retrieved by one scroll request during streaming. */
+    public static final int SCROLL_BATCH_SIZE = 1000;
+
+    /** Query options replaced by skip token in next link. */
+    private static final Set<String> PAGING_OPTIONS = new TreeSet<>(
+            String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        PAGING_OPTIONS.addAll(Arrays.asList(SystemQueryOptionKind.SKIP.toString(),
+                SystemQueryOptionKind.TOP.toString(), SystemQueryOptionKind.SKIPTOKEN.toString()));
+    }
+
     private boolean isCount;
+    private Integer maxPageSize;
+    private Pagination pagination;
+
+    @Override
+    public void read(ODataRequest request, ODataResponse response, UriInfo uriInfo,
+            ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        List<String> preferHeaders = request.getHeaders(HttpHeader.PREFER);
+        Preferences preferences = preferHeaders != null ? odata.createPreferences(preferHeaders)
+                : null;
+        if (preferences != null && preferences.getPreference(STREAMING_PREFERENCE) != null) {
+            this.request = request;
+            stream(response, uriInfo, responseFormat);
+        } else {
+            maxPageSize = preferences != null ? preferences.getMaxPageSize() : null;
+            super.read(request, response, uriInfo, responseFormat);
+        }
+    }
 
     @Override
     protected ESRequest createRequest(UriInfo uriInfo) throws ODataApplicationException {
@@ -29,13 +99,175 @@ public class EntityCollectionProcessorImpl extends AbstractESCollectionProcessor
         if (countOption != null) {
             isCount = countOption.getValue();
         }
-        return new SearchRequestCreator().create(uriInfo);
+        EntityCollectionRequestCreator creator = new EntityCollectionRequestCreator(maxPageSize);
+        ESRequest esRequest = creator.create(uriInfo);
+        pagination = esRequest.getPagination();
+        if (maxPageSize != null) {
+            maxPageSize = creator.getPageSize();
+        }
+        return esRequest;
     }
 
     @Override
     protected InstanceData<EdmEntityType, AbstractEntityCollection> parseResponse(
             SearchResponse response, ElasticEdmEntitySet entitySet) {
-        return new EntityCollectionParser(isCount).parse(response, entitySet);
+        return new EntityCollectionParser(isCount, createNextLink(response)).parse(response,
+                entitySet);
+    }
+
+    /**
+     * Writes hits directly to JSON if response format and entity type allow
+     * it, otherwise entities are parsed and serialized in a common way.
+     */
+    @Override
+    protected SerializerResult serializeResponse(SearchResponse response,
+            ElasticEdmEntitySet entitySet, UriInfo uriInfo, ODataSerializer serializer,
+            ContentType responseFormat) throws ODataApplicationException, SerializerException {
+        if (SearchHitsJsonSerializer.isSupported(responseFormat)) {
+            SearchHits hits = response.getHits();
+            SerializerResult result = new SearchHitsJsonSerializer(responseFormat)
+                    .entityCollection(serviceMetadata, entitySet.getEntityType(),
+                            hits.getHits(), (int) hits.getTotalHits(),
+                            createNextLink(response),
+                            createSerializerOptions(entitySet, uriInfo));
+            if (result != null) {
+                return result;
+            }
+        }
+        return super.serializeResponse(response, entitySet, uriInfo, serializer,
+                responseFormat);
+    }
+
+    @Override
+    protected void fillResponse(ODataResponse response, SerializerResult result,
+            ContentType responseFormat) {
+        super.fillResponse(response, result, responseFormat);
+        if (maxPageSize != null) {
+            response.addHeader(HttpHeader.PREFERENCE_APPLIED,
+                    PreferencesApplied.with().maxPageSize(maxPageSize).build().toValueString());
+        }
+    }
+
+    /**
+     * Streams all entities matched by request. Skip and top options are
+     * applied while iterating over scrolled hits. The first batch is retrieved
+     * before response is filled, so failed search gets error response instead
+     * of truncated collection.
+     *
+     * @param response
+     *            response to fill
+     * @param uriInfo
+     *            URI info
+     * @param responseFormat
+     *            response format
+     * @throws ODataApplicationException
+     *             if request can't be created
+     * @throws SerializerException
+     *             if format isn't supported
+     */
+    private void stream(ODataResponse response, UriInfo uriInfo, ContentType responseFormat)
+            throws ODataApplicationException, SerializerException {
+        ESRequest esRequest = new SearchRequestCreator().create(uriInfo);
+        ElasticEdmEntitySet entitySet = esRequest.getEntitySet();
+        Pagination scrollPagination = esRequest.getPagination();
+        long skip = scrollPagination.getSkip();
+        long limit = uriInfo.getTopOption() != null ? scrollPagination.getTop() : -1;
+        scrollPagination.setSkip(0);
+        scrollPagination.setTop((int) Math.max(1,
+                limit < 0 ? SCROLL_BATCH_SIZE : Math.min(skip + limit, SCROLL_BATCH_SIZE)));
+        ScrollHits hits;
+        try {
+            hits = ESClient.getInstance().scroll((SearchQuery) esRequest.getQuery());
+        } catch (SearchException e) {
+            fillErrorResponse(response, e, responseFormat);
+            return;
+        }
+        ScrollEntityIterator entities = new ScrollEntityIterator(hits,
+                entitySet.getEntityType(), skip, limit);
+        ODataContent content;
+        try {
+            content = odata.createSerializer(responseFormat)
+                    .entityCollectionStreamed(serviceMetadata, entitySet.getEntityType(),
+                            entities, createSerializerOptions(entitySet, uriInfo))
+                    .getODataContent();
+        } catch (SerializerException | RuntimeException e) {
+            entities.close();
+            throw e;
+        }
+        response.setODataContent(new ClosingContent(content, entities));
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+        response.setHeader(HttpHeader.PREFERENCE_APPLIED, STREAMING_PREFERENCE);
+    }
+
+    /**
+     * Creates link to the next page, if there are more entities than returned
+     * in response.
+     *
+     * @param response
+     *            response from Elasticsearch
+     * @return next link, or null if it's the last page
+     */
+    private URI createNextLink(SearchResponse response) {
+        SkipToken skipToken = pagination.nextSkipToken(response.getHits().getHits());
+        return skipToken != null ? createNextLink(skipToken) : null;
+    }
+
+    /**
+     * Creates link to the next page: the same request with skip token instead
+     * of paging options.
+     *
+     * @param skipToken
+     *            skip token of next page
+     * @return next link
+     */
+    private URI createNextLink(SkipToken skipToken) {
+        StringBuilder link = new StringBuilder(request.getRawBaseUri())
+                .append(request.getRawODataPath()).append('?');
+        String query = request.getRawQueryPath();
+        if (query != null && !query.isEmpty()) {
+            for (String option : query.split("&")) {
+                String name = Decoder.decode(option.split("=", 2)[0]);
+                if (!option.isEmpty() && !PAGING_OPTIONS.contains(name)) {
+                    link.append(option).append('&');
+                }
+            }
+        }
+        link.append(SystemQueryOptionKind.SKIPTOKEN).append('=').append(skipToken.encode());
+        return URI.create(link.toString());
+    }
+
+    /**
+     * Content which releases scroll when it's written, even if writing
+     * failed.
+     */
+    private static class ClosingContent implements ODataContent {
+
+        private final ODataContent content;
+        private final ScrollEntityIterator entities;
+
+        ClosingContent(ODataContent content, ScrollEntityIterator entities) {
+            this.content = content;
+            this.entities = entities;
+        }
+
+        @Override
+        public void write(WritableByteChannel channel) {
+            try {
+                content.write(channel);
+            } finally {
+                entities.close();
+            }
+        }
+
+        @Override
+        public void write(OutputStream stream) {
+            try {
+                content.write(stream);
+            } finally {
+                entities.close();
+            }
+        }
     }
 
 }
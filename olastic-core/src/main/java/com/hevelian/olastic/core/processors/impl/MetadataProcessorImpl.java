@@ -0,0 +1,126 @@
+package com.hevelian.olastic.core.processors.impl;
+
+import static com.hevelian.olastic.core.utils.MetaDataUtils.castToType;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.MetadataProcessor;
+import org.apache.olingo.server.api.processor.ServiceDocumentProcessor;
+import org.apache.olingo.server.api.uri.UriInfo;
+
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.MetadataDocumentCache;
+import com.hevelian.olastic.core.MetadataDocumentCache.Document;
+
+/**
+ * Processor for metadata and service documents. Documents are taken already
+ * rendered from {@link MetadataDocumentCache}, gzipped if client accepts it
+ * and validated with ETag of the chosen representation from 'If-None-Match'
+ * header.
+ *
+ * @author rdidyk
+ */
+public class MetadataProcessorImpl implements MetadataProcessor, ServiceDocumentProcessor {
+
+    private static final String GZIP_ENCODING = "gzip";
+    private static final String VARY = HttpHeader.ACCEPT + ", " + HttpHeader.ACCEPT_ENCODING;
+
+    private OData odata;
+    private MetadataDocumentCache documents;
+
+    @Override
+    public void init(OData odata, ServiceMetadata serviceMetadata) {
+        this.odata = odata;
+        this.documents = castToType(serviceMetadata, ElasticServiceMetadata.class)
+                .getDocuments();
+    }
+
+    @Override
+    public void readMetadata(ODataRequest request, ODataResponse response, UriInfo uriInfo,
+            ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        read(request, response, responseFormat, documents.getMetadataDocument(responseFormat));
+    }
+
+    @Override
+    public void readServiceDocument(ODataRequest request, ODataResponse response,
+            UriInfo uriInfo, ContentType responseFormat)
+            throws ODataApplicationException, ODataLibraryException {
+        read(request, response, responseFormat,
+                documents.getServiceDocument(responseFormat, request.getRawBaseUri()));
+    }
+
+    private void read(ODataRequest request, ODataResponse response, ContentType format,
+            Document document) throws ODataLibraryException {
+        boolean gzip = acceptsGzip(request);
+        String eTag = gzip ? document.getGzippedETag() : document.getETag();
+        if (!isNotModified(request, response, eTag)) {
+            write(response, format, document, gzip);
+        }
+    }
+
+    /**
+     * Sets ETag and Vary headers and checks read preconditions of the request.
+     * If document wasn't modified, 'Not Modified' status is set to response.
+     *
+     * @param request
+     *            OData request
+     * @param response
+     *            OData response
+     * @param eTag
+     *            ETag of document representation
+     * @return true if client already has actual document, false otherwise
+     * @throws ODataLibraryException
+     *             if 'If-Match' precondition failed
+     */
+    private boolean isNotModified(ODataRequest request, ODataResponse response, String eTag)
+            throws ODataLibraryException {
+        response.setHeader(HttpHeader.ETAG, eTag);
+        response.setHeader(HttpHeader.VARY, VARY);
+        boolean notModified = odata.createETagHelper().checkReadPreconditions(eTag,
+                request.getHeaders(HttpHeader.IF_MATCH),
+                request.getHeaders(HttpHeader.IF_NONE_MATCH));
+        if (notModified) {
+            response.setStatusCode(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+        }
+        return notModified;
+    }
+
+    private static void write(ODataResponse response, ContentType format, Document document,
+            boolean gzip) {
+        byte[] content = document.getContent();
+        if (gzip) {
+            content = document.getGzippedContent();
+            response.setHeader(HttpHeader.CONTENT_ENCODING, GZIP_ENCODING);
+        }
+        response.setHeader(HttpHeader.CONTENT_TYPE, format.toContentTypeString());
+        response.setContent(new ByteArrayInputStream(content));
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    }
+
+    private static boolean acceptsGzip(ODataRequest request) {
+        List<String> encodings = request.getHeaders(HttpHeader.ACCEPT_ENCODING);
+        if (encodings != null) {
+            for (String header : encodings) {
+                for (String encoding : header.split(",")) {
+                    String[] parts = encoding.trim().split(";");
+                    if (GZIP_ENCODING.equalsIgnoreCase(parts[0].trim())
+                            && !(parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.hevelian.olastic.core.serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.serializer.SerializerStreamResult;
+import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
+
+/**
+ * Serializer result which content is written directly to the response output
+ * stream when response is sent, so serialized payload isn't held in memory.
+ * Content is written to buffer only if it's requested as input stream.
+ *
+ * @author rdidyk
+ */
+public class StreamedSerializerResult implements SerializerResult, SerializerStreamResult {
+
+    private final ContentWriter writer;
+
+    /**
+     * Constructor.
+     *
+     * @param writer
+     *            writer of content
+     */
+    public StreamedSerializerResult(ContentWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public ODataContent getODataContent() {
+        return new ODataContent() {
+            @Override
+            public void write(WritableByteChannel channel) {
+                write(Channels.newOutputStream(channel));
+            }
+
+            @Override
+            public void write(OutputStream stream) {
+                writeTo(stream);
+            }
+        };
+    }
+
+    /**
+     * Writes content to buffer and returns it as input stream. Has to be used
+     * only if content can't be written to output stream directly.
+     */
+    @Override
+    public InputStream getContent() {
+        CircleStreamBuffer buffer = new CircleStreamBuffer();
+        try (OutputStream outputStream = buffer.getOutputStream()) {
+            writeTo(outputStream);
+        } catch (IOException e) {
+            throw new ODataRuntimeException(e);
+        }
+        return buffer.getInputStream();
+    }
+
+    private void writeTo(OutputStream stream) {
+        try {
+            writer.write(stream);
+        } catch (IOException | SerializerException e) {
+            throw new ODataRuntimeException("Failed streaming serialization.", e);
+        }
+    }
+
+    /**
+     * Writer of serialized content.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        /**
+         * Writes content to output stream. Stream isn't closed by writer.
+         *
+         * @param stream
+         *            output stream
+         * @throws IOException
+         *             if content can't be written
+         * @throws SerializerException
+         *             if any error occurred during serialization
+         */
+        void write(OutputStream stream) throws IOException, SerializerException;
+    }
+
+}
@@ -10,8 +10,10 @@ import java.util.Set;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.EntityIterator;
 import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 import org.apache.olingo.commons.api.edm.EdmProperty;
@@ -20,6 +22,7 @@ import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.core.edm.EdmPropertyImpl;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.PrimitiveSerializerOptions;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
@@ -48,6 +51,7 @@ public class ElasticODataJsonSerializer extends ODataJsonSerializer {
     private static final String JSON_NULL = "@odata.null";
     private final boolean isODataMetadataNone;
     private final boolean isODataMetadataFull;
+    private final boolean isIEEE754Compatible;
 
     /**
      * Constructor to initialize content type.
@@ -59,6 +63,7 @@ public class ElasticODataJsonSerializer extends ODataJsonSerializer {
         super(contentType);
         isODataMetadataNone = ContentTypeHelper.isODataMetadataNone(contentType);
         isODataMetadataFull = ContentTypeHelper.isODataMetadataFull(contentType);
+        isIEEE754Compatible = ContentTypeHelper.isODataIEEE754Compatible(contentType);
     }
 
     @Override
@@ -84,6 +89,37 @@ public class ElasticODataJsonSerializer extends ODataJsonSerializer {
         }
     }
 
+    // Method was overridden because next link isn't written to streamed
+    // collection in Olingo 4.3
+    @Override
+    public void entityCollectionIntoStream(ServiceMetadata metadata, EdmEntityType entityType,
+            EntityIterator entitySet, EntityCollectionSerializerOptions options,
+            OutputStream outputStream) throws SerializerException {
+        try {
+            JsonGenerator json = new JsonFactory().createGenerator(outputStream);
+            json.writeStartObject();
+            writeContextURL(checkContextURL(options == null ? null : options.getContextURL()),
+                    json);
+            writeMetadataETag(metadata, json);
+            if (options != null && options.getCount() != null && options.getCount().getValue()) {
+                writeInlineCount(entitySet.getCount(), json);
+            }
+            json.writeFieldName(Constants.VALUE);
+            writeEntitySet(metadata, entityType, entitySet,
+                    options == null ? null : options.getExpand(), null,
+                    options == null ? null : options.getSelect(),
+                    options != null && options.getWriteOnlyReferences(), null, json);
+            if (entitySet.getNext() != null) {
+                json.writeStringField(Constants.JSON_NEXT_LINK,
+                        entitySet.getNext().toASCIIString());
+            }
+            json.close();
+        } catch (IOException e) {
+            throw new SerializerException(IO_EXCEPTION_TEXT, e,
+                    SerializerException.MessageKeys.IO_EXCEPTION);
+        }
+    }
+
     // Method was overridden because of issue
     // https://issues.apache.org/jira/browse/OLINGO-1071
     @Override
@@ -157,6 +193,14 @@ public class ElasticODataJsonSerializer extends ODataJsonSerializer {
         }
     }
 
+    protected void writeInlineCount(Integer count, JsonGenerator json) throws IOException {
+        if (isIEEE754Compatible) {
+            json.writeStringField(Constants.JSON_COUNT, String.valueOf(count));
+        } else {
+            json.writeNumberField(Constants.JSON_COUNT, count);
+        }
+    }
+
     protected void writeOperations(final List<Operation> operations, final JsonGenerator json)
             throws IOException {
         if (isODataMetadataFull) {
@@ -0,0 +1,337 @@
+package com.hevelian.olastic.core.serializer.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
+import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentParser.Token;
+import org.elasticsearch.search.SearchHit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hevelian.olastic.core.edm.ElasticEdmEntityType;
+import com.hevelian.olastic.core.edm.ElasticEdmProperty;
+import com.hevelian.olastic.core.edm.PropertyCreator;
+import com.hevelian.olastic.core.elastic.ElasticConstants;
+import com.hevelian.olastic.core.serializer.StreamedSerializerResult;
+
+/**
+ * Serializes search hits of entity collection directly to OData JSON. Source
+ * of each hit is read with streaming parser and written with JSON generator,
+ * without creating source maps and OData entities. Page is written once to a
+ * buffer before result is returned, so unsupported hit is detected before
+ * anything is sent, and the buffer is copied to the response as is. Output
+ * is the same as {@link ElasticODataJsonSerializer} produces. Only entity
+ * types with primitive, non collection properties are supported, if entity
+ * type, hit or value isn't supported, serializer returns null and collection
+ * has to be serialized in a common way.
+ *
+ * @author rdidyk
+ */
+public class SearchHitsJsonSerializer {
+
+    private static final Set<EdmPrimitiveTypeKind> SUPPORTED_TYPES = EnumSet.of(
+            EdmPrimitiveTypeKind.String, EdmPrimitiveTypeKind.Boolean, EdmPrimitiveTypeKind.Byte,
+            EdmPrimitiveTypeKind.SByte, EdmPrimitiveTypeKind.Int16, EdmPrimitiveTypeKind.Int32,
+            EdmPrimitiveTypeKind.Int64, EdmPrimitiveTypeKind.Single, EdmPrimitiveTypeKind.Double,
+            EdmPrimitiveTypeKind.Decimal, EdmPrimitiveTypeKind.Date,
+            EdmPrimitiveTypeKind.DateTimeOffset);
+    private static final Set<EdmPrimitiveTypeKind> NUMBER_TYPES = EnumSet.of(
+            EdmPrimitiveTypeKind.Byte, EdmPrimitiveTypeKind.SByte, EdmPrimitiveTypeKind.Int16,
+            EdmPrimitiveTypeKind.Int32, EdmPrimitiveTypeKind.Int64, EdmPrimitiveTypeKind.Single,
+            EdmPrimitiveTypeKind.Double, EdmPrimitiveTypeKind.Decimal);
+    private static final Cache<ElasticEdmEntityType, Optional<EntityTypePlan>> PLANS = CacheBuilder
+            .newBuilder().weakKeys().build();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final boolean isODataMetadataNone;
+
+    /**
+     * Constructor to initialize content type.
+     *
+     * @param contentType
+     *            content type, has to be supported
+     */
+    public SearchHitsJsonSerializer(ContentType contentType) {
+        isODataMetadataNone = ContentTypeHelper.isODataMetadataNone(contentType);
+    }
+
+    /**
+     * Checks whether content type is supported: JSON with minimal or no
+     * metadata, where numbers are written as numbers.
+     *
+     * @param contentType
+     *            response content type
+     * @return true if content type is supported
+     */
+    public static boolean isSupported(ContentType contentType) {
+        return contentType.isCompatible(ContentType.APPLICATION_JSON)
+                && !ContentTypeHelper.isODataMetadataFull(contentType)
+                && !ContentTypeHelper.isODataIEEE754Compatible(contentType);
+    }
+
+    /**
+     * Serializes search hits as entity collection. Hits are written to buffer
+     * before result is returned, and the buffer is written when result
+     * content is written to response.
+     *
+     * @param metadata
+     *            service metadata
+     * @param entityType
+     *            entity type of hits
+     * @param hits
+     *            search hits
+     * @param count
+     *            total count of entities
+     * @param next
+     *            link to the next page, or null if it's the last page
+     * @param options
+     *            serializer options, expand isn't supported
+     * @return serialized result, or null if hits can't be serialized directly
+     * @throws SerializerException
+     *             if any error occurred
+     */
+    public SerializerResult entityCollection(ServiceMetadata metadata,
+            ElasticEdmEntityType entityType, SearchHit[] hits, Integer count, URI next,
+            EntityCollectionSerializerOptions options) throws SerializerException {
+        EntityTypePlan plan = getPlan(entityType);
+        if (plan == null || options.getExpand() != null) {
+            return null;
+        }
+        SelectOption select = options.getSelect();
+        Set<String> selected = ExpandSelectHelper.isAll(select) ? null
+                : ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonGenerator json = jsonFactory.createGenerator(buffer)) {
+            json.writeStartObject();
+            if (!isODataMetadataNone) {
+                if (options.getContextURL() == null) {
+                    throw new SerializerException("ContextURL null!",
+                            SerializerException.MessageKeys.NO_CONTEXT_URL);
+                }
+                json.writeStringField(Constants.JSON_CONTEXT,
+                        ContextURLBuilder.create(options.getContextURL()).toASCIIString());
+                if (metadata != null && metadata.getServiceMetadataETagSupport() != null
+                        && metadata.getServiceMetadataETagSupport().getMetadataETag() != null) {
+                    json.writeStringField(Constants.JSON_METADATA_ETAG,
+                            metadata.getServiceMetadataETagSupport().getMetadataETag());
+                }
+            }
+            if (options.getCount() != null && options.getCount().getValue() && count != null) {
+                json.writeNumberField(Constants.JSON_COUNT, count);
+            }
+            json.writeArrayFieldStart(Constants.VALUE);
+            for (SearchHit hit : hits) {
+                if (!writeEntity(plan, hit, selected, json)) {
+                    return null;
+                }
+            }
+            json.writeEndArray();
+            if (next != null) {
+                json.writeStringField(Constants.JSON_NEXT_LINK, next.toASCIIString());
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new SerializerException("An I/O exception occurred.", e,
+                    SerializerException.MessageKeys.IO_EXCEPTION);
+        }
+        return new StreamedSerializerResult(buffer::writeTo);
+    }
+
+    /**
+     * Writes hit as entity.
+     *
+     * @return false if hit can't be written directly
+     */
+    private static boolean writeEntity(EntityTypePlan plan, SearchHit hit, Set<String> selected,
+            JsonGenerator json) throws IOException {
+        BytesReference source = hit.getSourceRef();
+        if (source == null) {
+            return false;
+        }
+        json.writeStartObject();
+        if (isSelected(plan.id, selected) && !writeValue(plan.id, hit.getId(), json)) {
+            return false;
+        }
+        try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+                source)) {
+            if (parser.nextToken() != Token.START_OBJECT) {
+                return false;
+            }
+            for (Token token = parser.nextToken(); token == Token.FIELD_NAME; token = parser
+                    .nextToken()) {
+                PropertyPlan property = plan.properties.get(parser.currentName());
+                token = parser.nextToken();
+                Object value;
+                if (token == Token.VALUE_STRING) {
+                    value = parser.text();
+                } else if (token == Token.VALUE_NUMBER) {
+                    value = parser.numberValue();
+                } else if (token == Token.VALUE_BOOLEAN) {
+                    value = parser.booleanValue();
+                } else if (token == Token.VALUE_NULL) {
+                    value = null;
+                } else {
+                    return false;
+                }
+                if (property == null) {
+                    return false;
+                }
+                if (isSelected(property, selected) && !writeValue(property, value, json)) {
+                    return false;
+                }
+            }
+        }
+        json.writeEndObject();
+        return true;
+    }
+
+    /**
+     * Writes property value the same way as OData JSON serializer does.
+     *
+     * @return false if value can't be written directly
+     */
+    private static boolean writeValue(PropertyPlan property, Object value, JsonGenerator json)
+            throws IOException {
+        String text;
+        try {
+            text = property.type.valueToString(
+                    PropertyCreator.convertPrimitiveValue(property.type, value), property.nullable,
+                    property.maxLength, property.precision, property.scale, property.unicode);
+        } catch (EdmPrimitiveTypeException | IllegalArgumentException e) {
+            return false;
+        }
+        if (text == null && Boolean.FALSE.equals(property.nullable)) {
+            return false;
+        }
+        json.writeFieldName(property.name);
+        if (text == null) {
+            json.writeNull();
+        } else if (property.kind == EdmPrimitiveTypeKind.Boolean) {
+            json.writeBoolean(Boolean.parseBoolean(text));
+        } else if (NUMBER_TYPES.contains(property.kind)) {
+            json.writeNumber(text);
+        } else {
+            json.writeString(text);
+        }
+        return true;
+    }
+
+    private static boolean isSelected(PropertyPlan property, Set<String> selected) {
+        return selected == null || selected.contains(property.name);
+    }
+
+    /**
+     * Gets precomputed plan of entity type.
+     *
+     * @param entityType
+     *            entity type
+     * @return plan, or null if entity type isn't supported
+     */
+    private static EntityTypePlan getPlan(ElasticEdmEntityType entityType) {
+        try {
+            return PLANS.get(entityType, () -> Optional.ofNullable(createPlan(entityType)))
+                    .orElse(null);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static EntityTypePlan createPlan(ElasticEdmEntityType entityType) {
+        Map<String, PropertyPlan> properties = new HashMap<>();
+        for (String name : entityType.getPropertyNames()) {
+            EdmProperty property = entityType.getStructuralProperty(name);
+            if (!(property instanceof ElasticEdmProperty) || !property.isPrimitive()
+                    || property.isCollection()) {
+                return null;
+            }
+            PropertyPlan plan = PropertyPlan.of(property);
+            if (plan == null) {
+                return null;
+            }
+            properties.put(((ElasticEdmProperty) property).getEField(), plan);
+        }
+        EdmProperty idProperty = entityType.getStructuralProperty(ElasticConstants.ID_FIELD_NAME);
+        PropertyPlan id = idProperty != null ? PropertyPlan.of(idProperty)
+                : new PropertyPlan(ElasticConstants.ID_FIELD_NAME, EdmPrimitiveTypeKind.String,
+                        null, null, null, null, null);
+        return id != null ? new EntityTypePlan(id, properties) : null;
+    }
+
+    /**
+     * Precomputed properties of entity type by Elasticsearch field names.
+     */
+    private static class EntityTypePlan {
+        private final PropertyPlan id;
+        private final Map<String, PropertyPlan> properties;
+
+        EntityTypePlan(PropertyPlan id, Map<String, PropertyPlan> properties) {
+            this.id = id;
+            this.properties = properties;
+        }
+    }
+
+    /**
+     * Precomputed name, type and facets of property.
+     */
+    private static class PropertyPlan {
+        private final String name;
+        private final EdmPrimitiveTypeKind kind;
+        private final EdmPrimitiveType type;
+        private final Boolean nullable;
+        private final Integer maxLength;
+        private final Integer precision;
+        private final Integer scale;
+        private final Boolean unicode;
+
+        PropertyPlan(String name, EdmPrimitiveTypeKind kind, Boolean nullable,
+                Integer maxLength, Integer precision, Integer scale, Boolean unicode) {
+            this.name = name;
+            this.kind = kind;
+            this.type = EdmPrimitiveTypeFactory.getInstance(kind);
+            this.nullable = nullable;
+            this.maxLength = maxLength;
+            this.precision = precision;
+            this.scale = scale;
+            this.unicode = unicode;
+        }
+
+        static PropertyPlan of(EdmProperty property) {
+            EdmPrimitiveTypeKind kind = EdmPrimitiveTypeKind
+                    .valueOfFQN(property.getType().getFullQualifiedName());
+            return SUPPORTED_TYPES.contains(kind)
+                    ? new PropertyPlan(property.getName(), kind, property.isNullable(),
+                            property.getMaxLength(), property.getPrecision(), property.getScale(),
+                            property.isUnicode())
+                    : null;
+        }
+    }
+
+}
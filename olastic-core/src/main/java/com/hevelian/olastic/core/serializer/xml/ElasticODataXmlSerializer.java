@@ -2,21 +2,29 @@ package com.hevelian.olastic.core.serializer.xml;
 
 import static com.hevelian.olastic.core.serializer.utils.SerializeUtils.getPropertyType;
 
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.EntityIterator;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmStructuredType;
 import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.core.edm.EdmPropertyImpl;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
 import org.apache.olingo.server.core.serializer.xml.ODataXmlSerializer;
 
@@ -28,6 +36,66 @@ import org.apache.olingo.server.core.serializer.xml.ODataXmlSerializer;
  */
 public class ElasticODataXmlSerializer extends ODataXmlSerializer {
 
+    private static final String ATOM = "a";
+    private static final String METADATA_ETAG = "metadata-etag";
+
+    // Method was overridden because next link isn't written to streamed
+    // collection in Olingo 4.3
+    @Override
+    public void entityCollectionIntoStream(ServiceMetadata metadata, EdmEntityType entityType,
+            EntityIterator entitySet, EntityCollectionSerializerOptions options,
+            OutputStream outputStream) throws SerializerException {
+        ContextURL contextURL = options == null ? null : options.getContextURL();
+        if (contextURL == null) {
+            throw new SerializerException("ContextURL null!",
+                    SerializerException.MessageKeys.NO_CONTEXT_URL);
+        }
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                    .createXMLStreamWriter(outputStream, Constants.UTF8);
+            writer.writeStartDocument(Constants.UTF8, "1.0");
+            writer.writeStartElement(ATOM, Constants.ATOM_ELEM_FEED, Constants.NS_ATOM);
+            writer.writeNamespace(ATOM, Constants.NS_ATOM);
+            writer.writeNamespace(Constants.PREFIX_METADATA, Constants.NS_METADATA);
+            writer.writeNamespace(Constants.PREFIX_DATASERVICES, Constants.NS_DATASERVICES);
+            writer.writeAttribute(Constants.PREFIX_METADATA, Constants.NS_METADATA,
+                    Constants.CONTEXT, ContextURLBuilder.create(contextURL).toASCIIString());
+            if (metadata != null && metadata.getServiceMetadataETagSupport() != null
+                    && metadata.getServiceMetadataETagSupport().getMetadataETag() != null) {
+                writer.writeAttribute(Constants.PREFIX_METADATA, Constants.NS_METADATA,
+                        METADATA_ETAG,
+                        metadata.getServiceMetadataETagSupport().getMetadataETag());
+            }
+            if (options.getId() != null) {
+                writer.writeStartElement(ATOM, Constants.ATOM_ELEM_ID, Constants.NS_ATOM);
+                writer.writeCharacters(options.getId());
+                writer.writeEndElement();
+            }
+            if (options.getCount() != null && options.getCount().getValue()
+                    && entitySet.getCount() != null) {
+                writer.writeStartElement(Constants.PREFIX_METADATA, Constants.ATOM_ELEM_COUNT,
+                        Constants.NS_METADATA);
+                writer.writeCharacters(String.valueOf(entitySet.getCount()));
+                writer.writeEndElement();
+            }
+            if (entitySet.getNext() != null) {
+                writer.writeStartElement(ATOM, Constants.ATOM_ELEM_LINK, Constants.NS_ATOM);
+                writer.writeAttribute(Constants.ATTR_REL, Constants.NEXT_LINK_REL);
+                writer.writeAttribute(Constants.ATTR_HREF, entitySet.getNext().toASCIIString());
+                writer.writeEndElement();
+            }
+            writeEntitySet(metadata, entityType, entitySet, options.getExpand(), null,
+                    options.getSelect(), options.xml10InvalidCharReplacement(), writer,
+                    options.getWriteOnlyReferences(), null);
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new SerializerException("An I/O exception occurred.", e,
+                    SerializerException.MessageKeys.IO_EXCEPTION);
+        }
+    }
+
     @Override
     protected void writeProperties(ServiceMetadata metadata, EdmStructuredType type,
             List<Property> properties, SelectOption select, String xml10InvalidCharReplacement,
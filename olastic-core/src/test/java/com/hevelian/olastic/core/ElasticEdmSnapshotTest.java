@@ -0,0 +1,64 @@
+package com.hevelian.olastic.core;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.edm.ElasticEdmComplexType;
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.edm.ElasticEdmEntityType;
+import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link ElasticEdmSnapshot} class.
+ *
+ * @author rdidyk
+ */
+public class ElasticEdmSnapshotTest {
+
+    @Test
+    public void create_Provider_EntitySetsAndTypesLoaded() throws ODataException {
+        TestProvider provider = spy(new TestProvider(mock(MappingMetaDataProvider.class)));
+        ElasticEdmSnapshot snapshot = ElasticEdmSnapshot.create(provider, new ArrayList<>());
+        clearInvocations(provider);
+
+        EdmEntitySet entitySet = snapshot.getEdm().getEntityContainer().getEntitySet("book");
+        assertTrue(entitySet instanceof ElasticEdmEntitySet);
+        assertTrue(entitySet.getEntityType() instanceof ElasticEdmEntityType);
+        assertTrue(snapshot.getEdm()
+                .getComplexType(TestProvider.BOOK_INFO_FQN) instanceof ElasticEdmComplexType);
+        assertTrue(snapshot.getEdm()
+                .getEntityType(TestProvider.AUTHOR_FQN) instanceof ElasticEdmEntityType);
+        // Already loaded types are taken from EDM cache
+        verify(provider, never()).getEntityType(TestProvider.BOOK_FQN);
+        verify(provider, never()).getEntityType(TestProvider.AUTHOR_FQN);
+        verify(provider, never()).getComplexType(TestProvider.BOOK_INFO_FQN);
+    }
+
+    @Test
+    public void create_Provider_MetadataDocumentRendered() throws ODataException {
+        TestProvider provider = spy(new TestProvider(mock(MappingMetaDataProvider.class)));
+        ElasticEdmSnapshot snapshot = ElasticEdmSnapshot.create(provider, new ArrayList<>());
+        clearInvocations(provider);
+
+        MetadataDocumentCache documents = snapshot.getServiceMetadata().getDocuments();
+        assertNotNull(documents.getMetadataETag());
+        assertSame(documents.getMetadataDocument(ContentType.APPLICATION_XML),
+                documents.getMetadataDocument(ContentType.APPLICATION_XML));
+        verify(provider, never()).getSchemas();
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.hevelian.olastic.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainer;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEdmProvider;
+import com.hevelian.olastic.core.edm.ElasticEdmProvider;
+
+/**
+ * Tests for {@link SnapshotWarmer} class.
+ *
+ * @author rdidyk
+ */
+public class SnapshotWarmerTest {
+
+    @Test
+    public void warmUp_TwoEntitySets_EachQueryExecutedForEachEntitySet() throws Exception {
+        ElasticEdmSnapshot snapshot = mockSnapshot("author", "book");
+        List<ODataRequest> requests = new ArrayList<>();
+        ODataHandler handler = mock(ODataHandler.class);
+        when(handler.process(any(ODataRequest.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            ODataResponse response = new ODataResponse();
+            response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+            return response;
+        });
+        List<ElasticEdmSnapshot> created = new ArrayList<>();
+
+        SnapshotWarmer warmer = new SnapshotWarmer(Arrays.asList("$top=0", "$count=true"), 2,
+                s -> {
+                    created.add(s);
+                    return handler;
+                });
+        assertEquals(Arrays.asList("$top=0", "$count=true"),
+                new ArrayList<>(warmer.warmUp(snapshot).keySet()));
+
+        assertEquals(8, requests.size());
+        assertEquals(8, created.size());
+        ODataRequest request = requests.get(1);
+        assertEquals(HttpMethod.GET, request.getMethod());
+        assertEquals("/book", request.getRawODataPath());
+        assertEquals("$top=0", request.getRawQueryPath());
+    }
+
+    @Test
+    public void warmUp_RequestFailed_WarmUpContinued() throws Exception {
+        ElasticEdmSnapshot snapshot = mockSnapshot("author");
+
+        SnapshotWarmer warmer = new SnapshotWarmer(s -> {
+            throw new IllegalStateException("test");
+        });
+        assertEquals(SnapshotWarmer.DEFAULT_QUERIES,
+                new ArrayList<>(warmer.warmUp(snapshot).keySet()));
+    }
+
+    @Test
+    public void warmUp_EntitySetsConfigured_OnlyConfiguredEntitySetsQueriedInParallel()
+            throws Exception {
+        ElasticEdmSnapshot snapshot = mockSnapshot("author", "book", "character");
+        List<String> paths = Collections.synchronizedList(new ArrayList<>());
+        ODataHandler handler = mock(ODataHandler.class);
+        when(handler.process(any(ODataRequest.class))).thenAnswer(invocation -> {
+            paths.add(invocation.<ODataRequest> getArgument(0).getRawODataPath());
+            ODataResponse response = new ODataResponse();
+            response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+            return response;
+        });
+
+        new SnapshotWarmer(Arrays.asList("$top=0"), 3, Arrays.asList("book", "character"), 2,
+                s -> handler).warmUp(snapshot);
+
+        assertEquals(6, paths.size());
+        assertEquals(new HashSet<>(Arrays.asList("/book", "/character")), new HashSet<>(paths));
+    }
+
+    private static ElasticEdmSnapshot mockSnapshot(String... entitySets) throws Exception {
+        ElasticEdmSnapshot snapshot = mock(ElasticEdmSnapshot.class);
+        ElasticEdmProvider edm = mock(ElasticEdmProvider.class);
+        ElasticCsdlEdmProvider csdlProvider = mock(ElasticCsdlEdmProvider.class);
+        CsdlEntityContainer container = new CsdlEntityContainer();
+        List<CsdlEntitySet> sets = new ArrayList<>();
+        for (String entitySet : entitySets) {
+            sets.add(new CsdlEntitySet().setName(entitySet));
+        }
+        container.setEntitySets(sets);
+        when(snapshot.getEdm()).thenReturn(edm);
+        when(edm.getCsdlProvider()).thenReturn(csdlProvider);
+        when(csdlProvider.getEntityContainer()).thenReturn(container);
+        return snapshot;
+    }
+
+}
@@ -3,13 +3,19 @@ package com.hevelian.olastic.core.api.edm.provider;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -34,7 +40,6 @@ import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.api.edm.provider.CsdlPropertyRef;
 import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
 import org.apache.olingo.commons.api.ex.ODataException;
-import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.collect.ImmutableOpenMap.Builder;
@@ -51,6 +56,7 @@ import com.hevelian.olastic.core.common.NestedTypeMapper;
 import com.hevelian.olastic.core.elastic.ElasticConstants;
 import com.hevelian.olastic.core.elastic.mappings.DefaultElasticToCsdlMapper;
 import com.hevelian.olastic.core.elastic.mappings.ElasticToCsdlMapper;
+import com.hevelian.olastic.core.elastic.mappings.IndexMapping;
 import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
 import com.hevelian.olastic.core.utils.MetaDataUtils;
 
@@ -178,7 +184,7 @@ public class MultyElasticIndexCsdlEdmProviderTest {
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices, nestedTypeMapper);
         List<CsdlProperty> csdlProperties = edmProvider.getProperties(AUTHORS_INDEX, AUTHOR_TYPE,
-                getStubProperties());
+                getIndexMapping(AUTHOR_TYPE, getStubProperties()).getType(AUTHOR_TYPE));
         assertEquals(2, csdlProperties.size());
         for (CsdlProperty property : csdlProperties) {
             assertTrue(property instanceof ElasticCsdlProperty);
@@ -189,45 +195,31 @@ public class MultyElasticIndexCsdlEdmProviderTest {
         }
     }
 
-    @Test(expected = ODataException.class)
-    public void getProperties_MetaDataThrowsIOException_ODataExceptionRetrieved()
-            throws IOException, ODataException {
-        MappingMetaData mappingMetaData = mock(MappingMetaData.class);
-        when(mappingMetaData.sourceAsMap()).thenThrow(new IOException("test cause"));
-        MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
-                metaDataProvider, indices);
-        edmProvider.getProperties(AUTHORS_INDEX, AUTHOR_TYPE, mappingMetaData);
-    }
-
     @Test
-    public void getNavigationProperties_EntityTypeNameAndEmptyMappings_EmptyListRetrieved() {
-        Builder<String, FieldMappingMetaData> builder = ImmutableOpenMap.builder();
-        ImmutableOpenMap<String, FieldMappingMetaData> map = builder.build();
-        when(metaDataProvider.getMappingsForField(AUTHORS_INDEX, ElasticConstants.PARENT_PROPERTY))
-                .thenReturn(map);
+    public void getNavigationProperties_EntityTypeNameAndEmptyMappings_EmptyListRetrieved()
+            throws IOException {
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX)).thenReturn(getIndexMapping());
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
         assertTrue(edmProvider.getNavigationProperties(AUTHORS_INDEX, AUTHOR_TYPE).isEmpty());
     }
 
     @Test
-    public void getNavigationProperties_EntityTypeNameAndMappingsEmptyValueMap_EmptyListRetrieved() {
-        Builder<String, FieldMappingMetaData> builder = ImmutableOpenMap.builder();
-        FieldMappingMetaData mappingMetaData = mock(FieldMappingMetaData.class);
+    public void getNavigationProperties_EntityTypeNameAndMappingsEmptyValueMap_EmptyListRetrieved()
+            throws IOException {
+        MappingMetaData mappingMetaData = mock(MappingMetaData.class);
         when(mappingMetaData.sourceAsMap()).thenReturn(new HashMap<String, Object>());
-        builder.put(BOOK_TYPE, mappingMetaData);
-        ImmutableOpenMap<String, FieldMappingMetaData> map = builder.build();
-        when(metaDataProvider.getMappingsForField(AUTHORS_INDEX, ElasticConstants.PARENT_PROPERTY))
-                .thenReturn(map);
+        IndexMapping indexMapping = getIndexMapping(BOOK_TYPE, mappingMetaData);
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX)).thenReturn(indexMapping);
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
         assertTrue(edmProvider.getNavigationProperties(AUTHORS_INDEX, AUTHOR_TYPE).isEmpty());
     }
 
     @Test
-    public void getNavigationProperties_EntityTypeNameAndMappings_OneChildPropertyRetrieved() {
-        doReturn(getParentChildMappings()).when(metaDataProvider).getMappingsForField(AUTHORS_INDEX,
-                ElasticConstants.PARENT_PROPERTY);
+    public void getNavigationProperties_EntityTypeNameAndMappings_OneChildPropertyRetrieved()
+            throws IOException {
+        doReturn(getParentChildMappings()).when(metaDataProvider).getIndexMapping(AUTHORS_INDEX);
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
         List<ElasticCsdlNavigationProperty> navigationProperties = edmProvider
@@ -240,9 +232,9 @@ public class MultyElasticIndexCsdlEdmProviderTest {
     }
 
     @Test
-    public void getNavigationProperties_EntityTypeNameAndMappings_OneParentPropertyRetrieved() {
-        doReturn(getParentChildMappings()).when(metaDataProvider).getMappingsForField(AUTHORS_INDEX,
-                ElasticConstants.PARENT_PROPERTY);
+    public void getNavigationProperties_EntityTypeNameAndMappings_OneParentPropertyRetrieved()
+            throws IOException {
+        doReturn(getParentChildMappings()).when(metaDataProvider).getIndexMapping(AUTHORS_INDEX);
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
         List<ElasticCsdlNavigationProperty> navigationProperties = edmProvider
@@ -272,7 +264,12 @@ public class MultyElasticIndexCsdlEdmProviderTest {
         ElasticCsdlEntityType type2 = mock(ElasticCsdlEntityType.class);
         when(type2.getEType()).thenReturn(AUTHOR_TYPE);
         doReturn(Arrays.asList(type1, type2)).when(edmProvider).getEntityTypes(AUTHORS_INDEX);
+        IndexMapping indexMapping = new IndexMapping(AUTHORS_INDEX, Collections.emptyList());
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX)).thenReturn(indexMapping);
         assertEquals(type2, edmProvider.getEntityType(AUTHOR_FQN));
+        assertEquals(type1, edmProvider.getEntityType(BOOK_FQN));
+        // schema is created only once for all lookups
+        verify(edmProvider, times(1)).createSchema(AUTHORS_FQN_STRING);
     }
 
     @Test
@@ -281,6 +278,8 @@ public class MultyElasticIndexCsdlEdmProviderTest {
         MultyElasticIndexCsdlEdmProvider edmProvider = spy(
                 new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
         doReturn(Collections.emptyList()).when(edmProvider).getEntityTypes(AUTHORS_INDEX);
+        IndexMapping indexMapping = new IndexMapping(AUTHORS_INDEX, Collections.emptyList());
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX)).thenReturn(indexMapping);
         assertNull(edmProvider.getEntityType(AUTHOR_FQN));
     }
 
@@ -289,10 +288,9 @@ public class MultyElasticIndexCsdlEdmProviderTest {
             throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
-        doReturn(getStubProperties()).when(metaDataProvider).getMappingForType(AUTHORS_INDEX,
-                AUTHOR_TYPE);
-        doReturn(getParentChildMappings()).when(metaDataProvider).getMappingsForField(AUTHORS_INDEX,
-                ElasticConstants.PARENT_PROPERTY);
+        doReturn(getIndexMapping(AUTHOR_TYPE, getStubProperties(), BOOK_TYPE,
+                getParentMetaData(AUTHOR_TYPE))).when(metaDataProvider)
+                        .getIndexMapping(AUTHORS_INDEX);
         ElasticCsdlEntityType entityType = edmProvider.createEntityType(AUTHORS_INDEX, AUTHOR_TYPE);
         assertTrue(entityType instanceof ElasticCsdlEntityType);
         assertEquals(AUTHORS_INDEX, ((ElasticCsdlEntityType) entityType).getEIndex());
@@ -321,10 +319,10 @@ public class MultyElasticIndexCsdlEdmProviderTest {
             throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = spy(
                 new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
-        MappingMetaData metaData = mock(MappingMetaData.class);
-        when(metaDataProvider.getMappingForType(AUTHORS_INDEX, AUTHOR_TYPE)).thenReturn(metaData);
+        IndexMapping indexMapping = getIndexMapping(AUTHOR_TYPE, mock(MappingMetaData.class));
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX)).thenReturn(indexMapping);
         doReturn(new ArrayList<>()).when(edmProvider).getProperties(AUTHORS_INDEX, AUTHOR_TYPE,
-                metaData);
+                indexMapping.getType(AUTHOR_TYPE));
         doReturn(new ArrayList<>()).when(edmProvider).getNavigationProperties(AUTHORS_INDEX,
                 AUTHOR_TYPE);
         ElasticCsdlEntityType entityType = edmProvider.createEntityType(AUTHORS_INDEX, AUTHOR_TYPE);
@@ -346,16 +344,15 @@ public class MultyElasticIndexCsdlEdmProviderTest {
             throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
-        doReturn(null).when(metaDataProvider).getMappingForType(AUTHORS_INDEX, AUTHOR_TYPE);
+        doReturn(getIndexMapping()).when(metaDataProvider).getIndexMapping(AUTHORS_INDEX);
         edmProvider.createEntityType(AUTHORS_INDEX, AUTHOR_TYPE);
     }
 
     @Test
-    public void createEntitySet_IndexAndType_EntitySetRetrieved() {
+    public void createEntitySet_IndexAndType_EntitySetRetrieved() throws IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
-        doReturn(getParentChildMappings()).when(metaDataProvider).getMappingsForField(AUTHORS_INDEX,
-                ElasticConstants.PARENT_PROPERTY);
+        doReturn(getParentChildMappings()).when(metaDataProvider).getIndexMapping(AUTHORS_INDEX);
         ElasticCsdlEntitySet entitySet = edmProvider.createEntitySet(AUTHORS_INDEX, AUTHOR_TYPE);
         assertEquals(AUTHORS_INDEX, entitySet.getEIndex());
         assertEquals(AUTHOR_TYPE, entitySet.getEType());
@@ -372,10 +369,10 @@ public class MultyElasticIndexCsdlEdmProviderTest {
     public void getEntitySet_ContainerNameAndSetName_EntitySetRetrieved() throws ODataException {
         MultyElasticIndexCsdlEdmProvider edmProvider = spy(
                 new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
-        CsdlEntityContainer container = mock(CsdlEntityContainer.class);
+        CsdlEntityContainer container = new CsdlEntityContainer();
+        container.getEntitySets().add(new ElasticCsdlEntitySet().setName(AUTHOR_TYPE));
+        container.getEntitySets().add(new ElasticCsdlEntitySet().setName(BOOK_TYPE));
         doReturn(container).when(edmProvider).getEntityContainer();
-        when(container.getEntitySet(BOOK_TYPE))
-                .thenAnswer(answer -> new ElasticCsdlEntitySet().setName(answer.getArgument(0)));
         ElasticCsdlEntitySet entitySet = edmProvider.getEntitySet(edmProvider.getContainerName(),
                 BOOK_TYPE);
         assertEquals(BOOK_TYPE, entitySet.getName());
@@ -428,11 +425,11 @@ public class MultyElasticIndexCsdlEdmProviderTest {
     }
 
     @Test
-    public void getEnityTypes_IndexWithEmptyMappings_EmptyListRetrieved() throws ODataException {
+    public void getEnityTypes_IndexWithEmptyMappings_EmptyListRetrieved()
+            throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
-        Builder<String, MappingMetaData> metadataBuilder = ImmutableOpenMap.builder();
-        when(metaDataProvider.getAllMappings(WRITERS_INDEX)).thenReturn(metadataBuilder.build());
+        when(metaDataProvider.getIndexMapping(WRITERS_INDEX)).thenReturn(getIndexMapping());
         assertTrue(edmProvider.getEntityTypes(WRITERS_INDEX).isEmpty());
     }
 
@@ -441,9 +438,8 @@ public class MultyElasticIndexCsdlEdmProviderTest {
             throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = spy(
                 new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
-        Builder<String, MappingMetaData> mappingsBuilder = ImmutableOpenMap.builder();
-        mappingsBuilder.put(BOOK_TYPE, null);
-        when(metaDataProvider.getAllMappings(AUTHORS_INDEX)).thenReturn(mappingsBuilder.build());
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX))
+                .thenReturn(getIndexMapping(BOOK_TYPE, null));
         doAnswer(answer -> new ElasticCsdlEntityType().setEIndex(answer.getArgument(0))
                 .setName(answer.getArgument(1))).when(edmProvider).createEntityType(AUTHORS_INDEX,
                         BOOK_TYPE);
@@ -457,13 +453,11 @@ public class MultyElasticIndexCsdlEdmProviderTest {
 
     @Test
     public void getEntityContainerForSchema_Namespace_EntityContainerWithEntitySetsRetrieved()
-            throws ODataException {
+            throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = spy(
                 new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
-        Builder<String, MappingMetaData> mappingsBuilder = ImmutableOpenMap.builder();
-        mappingsBuilder.put(AUTHOR_TYPE, null);
-        mappingsBuilder.put(BOOK_TYPE, null);
-        when(metaDataProvider.getAllMappings(AUTHORS_INDEX)).thenReturn(mappingsBuilder.build());
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX))
+                .thenReturn(getIndexMapping(AUTHOR_TYPE, null, BOOK_TYPE, null));
         doReturn(new ArrayList<>()).when(edmProvider).getNavigationProperties(AUTHORS_INDEX,
                 AUTHOR_TYPE);
         doReturn(new ArrayList<>()).when(edmProvider).getNavigationProperties(AUTHORS_INDEX,
@@ -472,15 +466,17 @@ public class MultyElasticIndexCsdlEdmProviderTest {
                 .getEntityContainerForSchema(AUTHORS_INDEX);
         assertEquals(edmProvider.getContainerName().getName(), entityContainer.getName());
         assertEquals(2, entityContainer.getEntitySets().size());
+        for (CsdlEntitySet entitySet : entityContainer.getEntitySets()) {
+            assertTrue(entitySet.getNavigationPropertyBindings().isEmpty());
+        }
     }
 
     @Test
     public void getEntityContainerForSchema_NamespaceAndEmptyMetadata_EntityContainerWithEmptyEntitySetsRetrieved()
-            throws ODataException {
+            throws ODataException, IOException {
         MultyElasticIndexCsdlEdmProvider edmProvider = new MultyElasticIndexCsdlEdmProvider(
                 metaDataProvider, indices);
-        Builder<String, MappingMetaData> mappingsBuilder = ImmutableOpenMap.builder();
-        when(metaDataProvider.getAllMappings(AUTHORS_INDEX)).thenReturn(mappingsBuilder.build());
+        when(metaDataProvider.getIndexMapping(AUTHORS_INDEX)).thenReturn(getIndexMapping());
         CsdlEntityContainer entityContainer = edmProvider
                 .getEntityContainerForSchema(AUTHORS_INDEX);
         assertEquals(edmProvider.getContainerName().getName(), entityContainer.getName());
@@ -515,21 +511,110 @@ public class MultyElasticIndexCsdlEdmProviderTest {
     public void getComplexType_DifferenetNames_ExpectedValuesRetrieved() throws ODataException {
         MultyElasticIndexCsdlEdmProvider edmProvider = spy(
                 new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
-        List<CsdlSchema> schemas = new ArrayList<>();
-        CsdlSchema schema = mock(CsdlSchema.class);
-        String namespace = "OData";
-        when(schema.getNamespace()).thenReturn(namespace);
-        ElasticCsdlComplexType expectedComplexType = mock(ElasticCsdlComplexType.class);
+        CsdlSchema schema = new CsdlSchema();
+        schema.setNamespace(AUTHORS_FQN_STRING);
         String complexTypeName = "dimension";
-        when(schema.getComplexType(complexTypeName)).thenReturn(expectedComplexType);
-        schemas.add(schema);
-        doReturn(schemas).when(edmProvider).getSchemas();
+        ElasticCsdlComplexType expectedComplexType = new ElasticCsdlComplexType();
+        expectedComplexType.setName(complexTypeName);
+        schema.getComplexTypes().add(expectedComplexType);
+        doReturn(schema).when(edmProvider).createSchema(AUTHORS_FQN_STRING);
         ElasticCsdlComplexType actualComplexType = edmProvider
-                .getComplexType(new FullQualifiedName(namespace, complexTypeName));
+                .getComplexType(new FullQualifiedName(AUTHORS_FQN_STRING, complexTypeName));
         assertEquals(expectedComplexType, actualComplexType);
         assertNull(edmProvider.getComplexType(new FullQualifiedName("Test", "complex")));
     }
 
+    @Test
+    public void loadSchemas_Parallelism_AllSchemasBuiltOnce() throws ODataException {
+        MultyElasticIndexCsdlEdmProvider edmProvider = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        doAnswer(invocation -> new CsdlSchema().setNamespace(invocation.getArgument(0)))
+                .when(edmProvider).createSchema(anyString());
+        edmProvider.loadSchemas(2);
+        assertEquals(2, edmProvider.getSchemas().size());
+        verify(edmProvider, times(1)).createSchema(AUTHORS_FQN_STRING);
+        verify(edmProvider, times(1)).createSchema(WRITERS_FQN_STRING);
+    }
+
+    @Test(expected = ODataException.class)
+    public void loadSchemas_SchemaCreationFailed_ODataExceptionRetrieved() throws ODataException {
+        MultyElasticIndexCsdlEdmProvider edmProvider = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        doThrow(new ODataException("test")).when(edmProvider).createSchema(anyString());
+        edmProvider.loadSchemas(2);
+    }
+
+    @Test
+    public void reuseSchemas_OneIndexChanged_OnlyChangedSchemaBuilt() throws ODataException {
+        MultyElasticIndexCsdlEdmProvider previous = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        doAnswer(invocation -> new CsdlSchema().setNamespace(invocation.getArgument(0)))
+                .when(previous).createSchema(anyString());
+        previous.loadSchemas(1);
+        MultyElasticIndexCsdlEdmProvider edmProvider = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        doAnswer(invocation -> new CsdlSchema().setNamespace(invocation.getArgument(0)))
+                .when(edmProvider).createSchema(anyString());
+        edmProvider.reuseSchemas(previous, Collections.singleton(WRITERS_INDEX));
+        edmProvider.loadSchemas(1);
+        assertSame(previous.getSchemaIndex(AUTHORS_FQN_STRING),
+                edmProvider.getSchemaIndex(AUTHORS_FQN_STRING));
+        assertNotSame(previous.getSchemaIndex(WRITERS_FQN_STRING),
+                edmProvider.getSchemaIndex(WRITERS_FQN_STRING));
+        verify(edmProvider, never()).createSchema(AUTHORS_FQN_STRING);
+        verify(edmProvider, times(1)).createSchema(WRITERS_FQN_STRING);
+    }
+
+    @Test
+    public void getSchemaIndex_LazyModeAndCacheExceeded_LeastRecentlyUsedSchemaEvicted()
+            throws ODataException {
+        MultyElasticIndexCsdlEdmProvider edmProvider = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        edmProvider.setSchemaCacheSize(1);
+        assertTrue(edmProvider.isLazy());
+        doAnswer(invocation -> new CsdlSchema().setNamespace(invocation.getArgument(0)))
+                .when(edmProvider).createSchema(anyString());
+        edmProvider.getSchemaIndex(AUTHORS_FQN_STRING);
+        edmProvider.getSchemaIndex(AUTHORS_FQN_STRING);
+        verify(edmProvider, times(1)).createSchema(AUTHORS_FQN_STRING);
+        edmProvider.getSchemaIndex(WRITERS_FQN_STRING);
+        edmProvider.getSchemaIndex(AUTHORS_FQN_STRING);
+        verify(edmProvider, times(2)).createSchema(AUTHORS_FQN_STRING);
+    }
+
+    @Test
+    public void getSchemaIndex_LazyModeAndCacheExceeded_EvictionListenersNotified()
+            throws ODataException {
+        MultyElasticIndexCsdlEdmProvider edmProvider = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        edmProvider.setSchemaCacheSize(1);
+        List<String> evicted = new ArrayList<>();
+        edmProvider.addSchemaEvictionListener(evicted::add);
+        doAnswer(invocation -> new CsdlSchema().setNamespace(invocation.getArgument(0)))
+                .when(edmProvider).createSchema(anyString());
+        edmProvider.getSchemaIndex(AUTHORS_FQN_STRING);
+        assertTrue(evicted.isEmpty());
+        edmProvider.getSchemaIndex(WRITERS_FQN_STRING);
+        assertEquals(Arrays.asList(AUTHORS_FQN_STRING), evicted);
+    }
+
+    @Test
+    public void getEntityContainer_LazyMode_SchemasAndMappingsNotLoaded() throws ODataException {
+        MultyElasticIndexCsdlEdmProvider edmProvider = spy(
+                new MultyElasticIndexCsdlEdmProvider(metaDataProvider, indices));
+        edmProvider.setSchemaCacheSize(1);
+        when(metaDataProvider.getTypes(AUTHORS_INDEX))
+                .thenReturn(Collections.singleton(AUTHOR_TYPE));
+        when(metaDataProvider.getTypes(WRITERS_INDEX))
+                .thenReturn(Collections.singleton(BOOK_TYPE));
+        assertEquals(2, edmProvider.getEntityContainer().getEntitySets().size());
+        assertEquals(BOOK_TYPE, edmProvider
+                .getEntitySet(edmProvider.getContainerName(), BOOK_TYPE).getName());
+        verify(edmProvider, never()).createSchema(anyString());
+        verify(metaDataProvider, never()).getIndexMapping(anyString());
+        verify(metaDataProvider, never()).getAllMappings(anyString());
+    }
+
     private static MappingMetaData getStubProperties() throws IOException {
         Map<String, Object> dimension = new HashMap<>();
         dimension.put("type", "nested");
@@ -549,16 +634,27 @@ public class MultyElasticIndexCsdlEdmProviderTest {
         return mappingMetaData;
     }
 
-    private static ImmutableOpenMap<String, FieldMappingMetaData> getParentChildMappings() {
-        Builder<String, FieldMappingMetaData> mappingsBuilder = ImmutableOpenMap.builder();
-        FieldMappingMetaData mappingMetaData = mock(FieldMappingMetaData.class);
+    private static IndexMapping getParentChildMappings() throws IOException {
+        return getIndexMapping(BOOK_TYPE, getParentMetaData(AUTHOR_TYPE));
+    }
+
+    private static MappingMetaData getParentMetaData(String parentType) throws IOException {
+        MappingMetaData mappingMetaData = mock(MappingMetaData.class);
         HashMap<Object, Object> parentProperties = new HashMap<>();
-        parentProperties.put("type", AUTHOR_TYPE);
-        mappingsBuilder.put(BOOK_TYPE, mappingMetaData);
+        parentProperties.put("type", parentType);
         HashMap<String, Object> parent = new HashMap<String, Object>();
         parent.put(ElasticConstants.PARENT_PROPERTY, parentProperties);
         when(mappingMetaData.sourceAsMap()).thenReturn(parent);
-        return mappingsBuilder.build();
+        return mappingMetaData;
+    }
+
+    private static IndexMapping getIndexMapping(Object... typesAndMappings) throws IOException {
+        Builder<String, MappingMetaData> mappingsBuilder = ImmutableOpenMap.builder();
+        for (int i = 0; i < typesAndMappings.length; i += 2) {
+            mappingsBuilder.put((String) typesAndMappings[i],
+                    (MappingMetaData) typesAndMappings[i + 1]);
+        }
+        return IndexMapping.parse(AUTHORS_INDEX, mappingsBuilder.build());
     }
 
 }
@@ -0,0 +1,80 @@
+package com.hevelian.olastic.core.edm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEntityType;
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlNavigationProperty;
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlProperty;
+
+/**
+ * Tests for {@link ElasticEdmEntityType} class.
+ *
+ * @author rdidyk
+ */
+public class ElasticEdmEntityTypeTest {
+
+    private static final FullQualifiedName BOOK_FQN = new FullQualifiedName("Test.books",
+            "book");
+
+    @Test
+    public void findPropertyByEField_DifferentFields_PropertiesRetrieved() {
+        ElasticEdmEntityType entityType = createEntityType();
+        assertEquals("name", entityType.findPropertyByEField("name").getName());
+        assertEquals("_id", entityType.findPropertyByEField("_id").getName());
+        assertEquals("authorName", entityType.findPropertyByEField("author_name").getName());
+        assertNull(entityType.findPropertyByEField("unknown"));
+    }
+
+    @Test
+    public void getProperties_CalledTwice_SameOrderedMapRetrieved() {
+        ElasticEdmEntityType entityType = createEntityType();
+        assertSame(entityType.getProperties(), entityType.getProperties());
+        assertEquals(Arrays.asList("_id", "name", "authorName"),
+                Arrays.asList(entityType.getProperties().keySet().toArray()));
+        assertSame(entityType.getEProperties().get("name"),
+                entityType.getProperties().get("name"));
+    }
+
+    @Test
+    public void getNavigationProperties_CalledTwice_SameMapRetrieved() {
+        ElasticEdmEntityType entityType = createEntityType();
+        assertSame(entityType.getNavigationProperties(), entityType.getNavigationProperties());
+        assertEquals(1, entityType.getNavigationProperties().size());
+        assertSame(entityType.getENavigationProperties().get("author"),
+                entityType.getNavigationProperties().get("author"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getProperties_Modify_ExceptionThrown() {
+        createEntityType().getProperties().clear();
+    }
+
+    private static ElasticEdmEntityType createEntityType() {
+        ElasticCsdlEntityType csdlEntityType = new ElasticCsdlEntityType();
+        csdlEntityType.setName(BOOK_FQN.getName());
+        csdlEntityType.setProperties(Arrays.asList(property("_id"), property("name"),
+                property("authorName").setEField("author_name")));
+        ElasticCsdlNavigationProperty author = new ElasticCsdlNavigationProperty();
+        author.setName("author");
+        csdlEntityType.setNavigationProperties(Arrays.asList(author));
+        return new ElasticEdmEntityType(mock(Edm.class), BOOK_FQN, csdlEntityType);
+    }
+
+    private static ElasticCsdlProperty property(String name) {
+        ElasticCsdlProperty property = new ElasticCsdlProperty();
+        property.setName(name);
+        property.setType(EdmPrimitiveTypeKind.String.getFullQualifiedName());
+        return property;
+    }
+
+}
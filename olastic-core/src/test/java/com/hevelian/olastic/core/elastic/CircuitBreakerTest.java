@@ -0,0 +1,118 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.elastic.CircuitBreaker.Outcome;
+import com.hevelian.olastic.core.elastic.CircuitBreaker.State;
+import com.hevelian.olastic.core.exceptions.CircuitOpenException;
+
+/**
+ * Tests for {@link CircuitBreaker} class.
+ *
+ * @author rdidyk
+ */
+public class CircuitBreakerTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicLong time = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker(4, 2, 0.5, TimeValue.timeValueSeconds(1),
+                TimeValue.timeValueSeconds(10), time::get);
+    }
+
+    @Test
+    public void acquire_FailureRateReached_IndexCircuitOpened() {
+        breaker.acquire("books").complete(Outcome.SUCCESS, LATENCY);
+        breaker.acquire("books").complete(Outcome.FAILURE, LATENCY);
+        assertEquals(State.OPEN, breaker.getState("books"));
+        assertEquals(State.CLOSED, breaker.getState(CircuitBreaker.CLUSTER));
+        assertRejected("books", 10);
+        breaker.acquire("authors").complete(Outcome.SUCCESS, LATENCY);
+    }
+
+    @Test
+    public void acquire_FailuresBelowMinimumCalls_CircuitClosed() {
+        breaker.acquire("books").complete(Outcome.FAILURE, LATENCY);
+        assertEquals(State.CLOSED, breaker.getState("books"));
+    }
+
+    @Test
+    public void acquire_SlowRequests_IndexCircuitOpened() {
+        long slow = TimeUnit.SECONDS.toNanos(2);
+        breaker.acquire("books").complete(Outcome.SUCCESS, slow);
+        breaker.acquire("books").complete(Outcome.SUCCESS, slow);
+        assertEquals(State.OPEN, breaker.getState("books"));
+        assertEquals(State.CLOSED, breaker.getState(CircuitBreaker.CLUSTER));
+    }
+
+    @Test
+    public void acquire_ClusterUnreachable_ClusterCircuitOpened() {
+        breaker.acquire("books").complete(Outcome.UNREACHABLE, LATENCY);
+        breaker.acquire("authors").complete(Outcome.UNREACHABLE, LATENCY);
+        assertEquals(State.OPEN, breaker.getState(CircuitBreaker.CLUSTER));
+        assertEquals(State.CLOSED, breaker.getState("books"));
+        assertRejected("authors", 10);
+    }
+
+    @Test
+    public void acquire_OpenDurationPassed_SingleProbeAllowed() {
+        openBooks();
+        time.addAndGet(OPEN_NANOS - TimeUnit.SECONDS.toNanos(3) + 1);
+        assertRejected("books", 3);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        CircuitBreaker.Call probe = breaker.acquire("books");
+        assertEquals(State.HALF_OPEN, breaker.getState("books"));
+        assertRejected("books", 1);
+
+        probe.complete(Outcome.SUCCESS, LATENCY);
+        assertEquals(State.CLOSED, breaker.getState("books"));
+        breaker.acquire("books");
+    }
+
+    @Test
+    public void acquire_ProbeFailed_CircuitOpenedAgain() {
+        openBooks();
+        time.addAndGet(OPEN_NANOS);
+        breaker.acquire("books").complete(Outcome.FAILURE, LATENCY);
+        assertEquals(State.OPEN, breaker.getState("books"));
+        assertRejected("books", 10);
+    }
+
+    @Test
+    public void acquire_ProbeIgnored_NextProbeAllowed() {
+        openBooks();
+        time.addAndGet(OPEN_NANOS);
+        breaker.acquire("books").complete(Outcome.IGNORED, LATENCY);
+        assertEquals(State.HALF_OPEN, breaker.getState("books"));
+        breaker.acquire("books");
+    }
+
+    private void openBooks() {
+        breaker.acquire("books").complete(Outcome.FAILURE, LATENCY);
+        breaker.acquire("books").complete(Outcome.FAILURE, LATENCY);
+        assertEquals(State.OPEN, breaker.getState("books"));
+    }
+
+    private void assertRejected(String index, long retryAfter) {
+        try {
+            breaker.acquire(index);
+            fail("Request isn't rejected.");
+        } catch (CircuitOpenException e) {
+            assertEquals(retryAfter, e.getRetryAfter());
+        }
+    }
+
+}
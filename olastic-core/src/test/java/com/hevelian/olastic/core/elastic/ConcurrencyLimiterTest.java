@@ -0,0 +1,176 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.elastic.ConcurrencyLimiter.Permit;
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+
+/**
+ * Tests for {@link ConcurrencyLimiter} class.
+ *
+ * @author rdidyk
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final String KEY = "books/book";
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private List<Runnable> expirations;
+    private ConcurrencyLimiter limiter;
+
+    @Before
+    public void setUp() {
+        expirations = new ArrayList<>();
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            expirations.add(invocation.getArgument(0));
+            return mock(ScheduledFuture.class);
+        });
+        limiter = new ConcurrencyLimiter(2, 4, 1, TimeValue.timeValueMillis(1500), scheduler);
+    }
+
+    @Test
+    public void acquire_UnderLimit_PermitGranted() {
+        assertTrue(limiter.acquire(KEY).isDone());
+        assertTrue(limiter.acquire(KEY).isDone());
+        assertFalse(limiter.acquire(KEY).isDone());
+    }
+
+    @Test
+    public void acquire_OtherEntitySetAtLimit_PermitGranted() {
+        limiter.acquire(KEY);
+        limiter.acquire(KEY);
+        assertTrue(limiter.acquire("authors/author").isDone());
+    }
+
+    @Test
+    public void acquire_PermitReleased_WaitingRequestAdmitted() {
+        Permit permit = limiter.acquire(KEY).join();
+        limiter.acquire(KEY);
+        CompletableFuture<Permit> waiting = limiter.acquire(KEY);
+        permit.release(LATENCY, false);
+        assertTrue(waiting.isDone());
+    }
+
+    @Test
+    public void acquire_QueueFull_Rejected() {
+        limiter.acquire(KEY);
+        limiter.acquire(KEY);
+        limiter.acquire(KEY);
+        assertRejected(limiter.acquire(KEY));
+    }
+
+    @Test
+    public void acquire_WaitExpired_RejectedWithRetryAfter() {
+        limiter.acquire(KEY);
+        limiter.acquire(KEY);
+        CompletableFuture<Permit> waiting = limiter.acquire(KEY);
+        expirations.get(0).run();
+        SearchRejectedException rejection = assertRejected(waiting);
+        assertEquals(2, rejection.getRetryAfter());
+    }
+
+    @Test
+    public void acquire_WaitingRequestCancelled_RemovedFromQueue() {
+        Permit permit = limiter.acquire(KEY).join();
+        limiter.acquire(KEY);
+        limiter.acquire(KEY).cancel(false);
+        CompletableFuture<Permit> waiting = limiter.acquire(KEY);
+        assertFalse(waiting.isCompletedExceptionally());
+        permit.release(LATENCY, false);
+        assertTrue(waiting.isDone());
+    }
+
+    @Test
+    public void release_Overloaded_LimitDecreased() {
+        limiter.acquire(KEY).join().release(LATENCY, true);
+        assertEquals(1, limiter.getLimit(KEY));
+    }
+
+    @Test
+    public void release_BurstOfRequestsOverloaded_LimitDecreasedOnce() {
+        try (ConcurrencyLimiter burstLimiter = new ConcurrencyLimiter(4, 4, 1,
+                TimeValue.timeValueMillis(1500))) {
+            List<Permit> permits = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                permits.add(burstLimiter.acquire(KEY).join());
+            }
+            permits.forEach(permit -> permit.release(LATENCY, true));
+            assertEquals(3, burstLimiter.getLimit(KEY));
+        }
+    }
+
+    @Test
+    public void release_LatencyGrown_LimitDecreased() {
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(KEY).join().release(LATENCY, false);
+        }
+        int limit = limiter.getLimit(KEY);
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(KEY).join().release(LATENCY * 3, false);
+        }
+        assertTrue(limiter.getLimit(KEY) < limit);
+    }
+
+    @Test
+    public void release_StableLatencyUnderLoad_LimitIncreased() {
+        for (int i = 0; i < 10; i++) {
+            Permit first = limiter.acquire(KEY).join();
+            Permit second = limiter.acquire(KEY).join();
+            first.release(LATENCY, false);
+            second.release(LATENCY, false);
+        }
+        assertEquals(4, limiter.getLimit(KEY));
+    }
+
+    @Test
+    public void release_MixedCheapAndExpensiveRequestsUnderLoad_LimitIncreased() {
+        for (int i = 0; i < 10; i++) {
+            Permit count = limiter.acquire(KEY).join();
+            Permit search = limiter.acquire(KEY).join();
+            count.release(LATENCY, false);
+            search.release(LATENCY * 10, false);
+        }
+        assertEquals(4, limiter.getLimit(KEY));
+    }
+
+    @Test
+    public void release_ReleasedTwice_ReleasedOnce() {
+        Permit permit = limiter.acquire(KEY).join();
+        limiter.acquire(KEY);
+        permit.release(LATENCY, false);
+        permit.release(LATENCY, false);
+        assertTrue(limiter.acquire(KEY).isDone());
+        assertFalse(limiter.acquire(KEY).isDone());
+    }
+
+    private static SearchRejectedException assertRejected(CompletableFuture<Permit> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof SearchRejectedException);
+            return (SearchRejectedException) e.getCause();
+        }
+        throw new AssertionError("Request isn't rejected.");
+    }
+
+}
@@ -0,0 +1,569 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksResponse;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.hevelian.olastic.core.elastic.pagination.Pagination;
+import com.hevelian.olastic.core.elastic.queries.AggregateQuery;
+import com.hevelian.olastic.core.elastic.queries.SearchQuery;
+import com.hevelian.olastic.core.exceptions.CircuitOpenException;
+import com.hevelian.olastic.core.exceptions.ClusterUnavailableException;
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+import com.hevelian.olastic.core.exceptions.SearchTimeoutException;
+
+/**
+ * Tests for {@link ESClient} class.
+ *
+ * @author rdidyk
+ */
+public class ESClientTest {
+
+    private ESClient esClient;
+    private List<ActionListener<SearchResponse>> listeners;
+
+    @Before
+    public void setUp() {
+        esClient = new ESClient(mock(Client.class), Runnable::run);
+        listeners = new ArrayList<>();
+    }
+
+    @Test
+    public void executeRequestAsync_ConcurrentIdenticalRequests_SingleRequestExecuted() {
+        CompletableFuture<SearchResponse> first = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        CompletableFuture<SearchResponse> second = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        assertEquals(1, listeners.size());
+        assertEquals(2, esClient.getRequestCount());
+        assertEquals(1, esClient.getCollapsedCount());
+
+        SearchResponse response = mock(SearchResponse.class);
+        listeners.get(0).onResponse(response);
+        assertSame(response, first.join());
+        assertSame(response, second.join());
+
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        assertEquals(2, listeners.size());
+        assertEquals(1, esClient.getCollapsedCount());
+    }
+
+    @Test
+    public void executeRequestAsync_DifferentRequests_AllRequestsExecuted() {
+        CompletableFuture<SearchResponse> first = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        CompletableFuture<SearchResponse> second = esClient
+                .executeRequestAsync(mockRequest("books", 20));
+        assertNotSame(first, second);
+        assertEquals(2, listeners.size());
+        assertEquals(0, esClient.getCollapsedCount());
+    }
+
+    @Test
+    public void executeRequestAsync_SingleFlightDisabled_AllRequestsExecuted() {
+        esClient.setSingleFlight(false);
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        assertEquals(2, listeners.size());
+        assertEquals(0, esClient.getCollapsedCount());
+    }
+
+    @Test
+    public void executeRequestAsync_RequestFailed_SharedFailureAndFlightReleased() {
+        CompletableFuture<SearchResponse> first = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        CompletableFuture<SearchResponse> second = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        listeners.get(0).onFailure(new IllegalStateException("test"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        assertEquals(2, listeners.size());
+    }
+
+    @Test
+    public void executeRequestAsync_ResponseCached_CachedResponseReturned() {
+        esClient.setResultCache(new ResultCache(mock(Client.class), 1024 * 1024, 60000, 0));
+        CompletableFuture<SearchResponse> first = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        SearchResponse response = mock(SearchResponse.class);
+        listeners.get(0).onResponse(response);
+        assertSame(response, first.join());
+
+        CompletableFuture<SearchResponse> second = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        assertSame(response, second.join());
+        assertEquals(1, listeners.size());
+    }
+
+    @Test
+    public void executeRequestAsync_OneOfSharedRequestsCancelled_RequestNotCancelled() {
+        TestClient client = new TestClient(null);
+        CompletableFuture<SearchResponse> first = client
+                .executeRequestAsync(mockRequest("books", 10));
+        CompletableFuture<SearchResponse> second = client
+                .executeRequestAsync(mockRequest("books", 10));
+        first.cancel(false);
+        assertTrue(client.cancelled.isEmpty());
+
+        SearchResponse response = mock(SearchResponse.class);
+        listeners.get(0).onResponse(response);
+        assertSame(response, second.join());
+    }
+
+    @Test
+    public void executeRequestAsync_AllSharedRequestsCancelled_SearchTaskCancelled() {
+        TestClient client = new TestClient(null);
+        SearchRequestBuilder request = mockRequest("books", 10);
+        CompletableFuture<SearchResponse> first = client.executeRequestAsync(request);
+        CompletableFuture<SearchResponse> second = client
+                .executeRequestAsync(mockRequest("books", 10));
+        first.cancel(false);
+        second.cancel(false);
+        assertEquals(1, client.cancelled.size());
+        assertSame(request.request(), client.cancelled.get(0));
+        assertFalse(request.request().getParentTask().isSet());
+
+        CompletableFuture<SearchResponse> third = client
+                .executeRequestAsync(mockRequest("books", 10));
+        assertEquals(2, listeners.size());
+        assertFalse(third.isDone());
+    }
+
+    @Test
+    public void executeRequestAsync_DeadlineExpired_TimeoutAndSearchTaskCancelled() {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        List<Runnable> expirations = new ArrayList<>();
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            expirations.add(invocation.getArgument(0));
+            assertEquals(TimeValue.timeValueSeconds(5).millis()
+                    + ESClient.DEADLINE_GRACE.millis(), (long) invocation.getArgument(1));
+            return mock(ScheduledFuture.class);
+        });
+        TestClient client = new TestClient(scheduler);
+        SearchRequestBuilder request = mockRequest("books", 10);
+        request.request().source().timeout(TimeValue.timeValueSeconds(5));
+        CompletableFuture<SearchResponse> future = client.executeRequestAsync(request);
+        assertEquals(1, expirations.size());
+
+        expirations.get(0).run();
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof SearchTimeoutException);
+        }
+        assertSame(request.request(), client.cancelled.get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cancel_SearchTasksListed_OnlyTaggedSearchTaskCancelled() {
+        Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        ListTasksRequestBuilder list = new ListTasksRequestBuilder(client,
+                ListTasksAction.INSTANCE);
+        CancelTasksRequestBuilder cancel = new CancelTasksRequestBuilder(client,
+                CancelTasksAction.INSTANCE);
+        when(client.admin().cluster().prepareListTasks()).thenReturn(list);
+        when(client.admin().cluster().prepareCancelTasks()).thenReturn(cancel);
+        List<ActionListener<ListTasksResponse>> listListeners = new ArrayList<>();
+        doAnswer(invocation -> {
+            listListeners.add(invocation.getArgument(2));
+            return null;
+        }).when(client).execute(eq(ListTasksAction.INSTANCE), any(), any(ActionListener.class));
+        SearchRequest request = mockRequest("books", 10).request();
+        String identical = getDescription(request);
+        assertArrayEquals(new String[] { "books" }, ESClient.tag(request));
+        String description = getDescription(request);
+
+        new ESClient(client, Runnable::run).cancel(request);
+        TaskId search = new TaskId("node", 1);
+        List<TaskInfo> tasks = Arrays.asList(
+                new TaskInfo(search, "transport", SearchAction.NAME, description, null, 0, 0,
+                        true, TaskId.EMPTY_TASK_ID),
+                new TaskInfo(new TaskId("node", 2), "transport", SearchAction.NAME,
+                        identical, null, 0, 0, true, TaskId.EMPTY_TASK_ID),
+                new TaskInfo(new TaskId("node", 3), "transport", SearchAction.NAME + "[phase]",
+                        description, null, 0, 0, true, search));
+        listListeners.get(0).onResponse(
+                new ListTasksResponse(tasks, new ArrayList<>(), new ArrayList<>()));
+
+        ArgumentCaptor<CancelTasksRequest> cancelled = ArgumentCaptor
+                .forClass(CancelTasksRequest.class);
+        verify(client).execute(eq(CancelTasksAction.INSTANCE), cancelled.capture(), any());
+        assertEquals(search, cancelled.getValue().getTaskId());
+    }
+
+    @Test
+    public void cancel_RequestNotTagged_SearchTasksNotListed() {
+        Client client = mock(Client.class);
+        SearchRequest request = new SearchRequest();
+        assertNull(ESClient.tag(request));
+
+        new ESClient(client, Runnable::run).cancel(request);
+        verifyZeroInteractions(client);
+    }
+
+    @Test
+    public void executeRequestAsync_ResponseReceived_RequestUntagged() {
+        SearchRequestBuilder request = mockRequest("books", 10);
+        esClient.executeRequestAsync(request);
+        String[] indices = request.request().indices();
+        assertEquals(2, indices.length);
+        assertTrue(indices[1].startsWith(ESClient.TASK_TAG_PREFIX));
+
+        listeners.get(0).onResponse(mock(SearchResponse.class));
+        assertArrayEquals(new String[] { "books" }, request.request().indices());
+    }
+
+    @Test
+    public void executeRequestAsync_ResponseTimedOut_ResponseNotCached() {
+        ResultCache cache = mock(ResultCache.class);
+        esClient.setResultCache(cache);
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        SearchResponse response = mock(SearchResponse.class);
+        when(response.isTimedOut()).thenReturn(true);
+        listeners.get(0).onResponse(response);
+        verify(cache, never()).put(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void executeRequestAsync_ConcurrencyLimitReached_RequestSentAfterRelease() {
+        esClient.setConcurrencyLimiter(new ConcurrencyLimiter(1, 1, 10,
+                TimeValue.timeValueSeconds(1), mock(ScheduledExecutorService.class)));
+        CompletableFuture<SearchResponse> first = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        CompletableFuture<SearchResponse> second = esClient
+                .executeRequestAsync(mockRequest("books", 20));
+        assertEquals(1, listeners.size());
+        esClient.executeRequestAsync(mockRequest("authors", 10));
+        assertEquals(2, listeners.size());
+
+        listeners.get(0).onResponse(mock(SearchResponse.class));
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(3, listeners.size());
+    }
+
+    @Test
+    public void executeRequestAsync_QueriesOfSameAliasWithDifferentIndices_LimitShared() {
+        Client client = mockSearchClient();
+        ESClient esClient = new ESClient(client, Runnable::run);
+        esClient.setConcurrencyLimiter(new ConcurrencyLimiter(1, 1, 10,
+                TimeValue.timeValueSeconds(1), mock(ScheduledExecutorService.class)));
+        SearchQuery first = createQuery("Dickens");
+        first.setIndices(new String[] { "authors-2017.03.01" });
+        SearchQuery second = createQuery("Tolkien");
+        second.setIndices(new String[] { "authors-2017.03.02" });
+        esClient.executeRequestAsync(first);
+        CompletableFuture<SearchResponse> waiting = esClient.executeRequestAsync(second);
+        verify(client, times(1)).execute(any(), any(), any());
+        assertFalse(waiting.isDone());
+    }
+
+    @Test
+    public void executeRequestAsync_WaitingRequestCancelled_RequestNotSent() {
+        esClient.setConcurrencyLimiter(new ConcurrencyLimiter(1, 1, 10,
+                TimeValue.timeValueSeconds(1), mock(ScheduledExecutorService.class)));
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        esClient.executeRequestAsync(mockRequest("books", 20)).cancel(false);
+        listeners.get(0).onResponse(mock(SearchResponse.class));
+        assertEquals(1, listeners.size());
+    }
+
+    @Test
+    public void executeRequestAsync_RejectedByElasticsearch_SearchRejectedException() {
+        CompletableFuture<SearchResponse> future = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        listeners.get(0).onFailure(new EsRejectedExecutionException("queue is full"));
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof SearchRejectedException);
+            return;
+        }
+        throw new AssertionError("Request isn't rejected.");
+    }
+
+    @Test
+    public void executeRequestAsync_CircuitOpen_FailedWithoutRequest() {
+        esClient.setCircuitBreaker(new CircuitBreaker(1, 1, 1, null,
+                TimeValue.timeValueSeconds(10)));
+        CompletableFuture<SearchResponse> first = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        listeners.get(0).onFailure(new NoNodeAvailableException("test"));
+        assertCause(ClusterUnavailableException.class, first);
+
+        CompletableFuture<SearchResponse> second = esClient
+                .executeRequestAsync(mockRequest("books", 10));
+        assertEquals(1, listeners.size());
+        assertCause(CircuitOpenException.class, second);
+    }
+
+    @Test
+    public void executeRequestAsync_RejectedByLimiter_CircuitNotOpened() {
+        esClient.setConcurrencyLimiter(new ConcurrencyLimiter(1, 1, 0,
+                TimeValue.timeValueSeconds(1), mock(ScheduledExecutorService.class)));
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 1, null,
+                TimeValue.timeValueSeconds(10));
+        esClient.setCircuitBreaker(breaker);
+        esClient.executeRequestAsync(mockRequest("books", 10));
+        assertCause(SearchRejectedException.class,
+                esClient.executeRequestAsync(mockRequest("books", 20)));
+        listeners.get(0).onResponse(mock(SearchResponse.class));
+
+        esClient.executeRequestAsync(mockRequest("books", 30));
+        assertEquals(2, listeners.size());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("books/"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeRequestAsync_CircuitOpen_StaleResponseReturned() {
+        Client client = mockSearchClient();
+        doAnswer(invocation -> {
+            listeners.add(invocation.getArgument(2));
+            return null;
+        }).when(client).execute(any(), any(), any(ActionListener.class));
+        ESClient esClient = new ESClient(client, Runnable::run);
+        ResultCache cache = new ResultCache(mock(Client.class), 1024 * 1024, 60000, 0, 60000);
+        esClient.setResultCache(cache);
+        esClient.setCircuitBreaker(new CircuitBreaker(1, 1, 1, null,
+                TimeValue.timeValueSeconds(10)));
+        SearchQuery query = createQuery("Dickens");
+        esClient.executeRequestAsync(query);
+        SearchResponse response = mock(SearchResponse.class);
+        listeners.get(0).onResponse(response);
+        assertFalse(query.isStale());
+        cache.invalidateIndex("authors");
+        esClient.executeRequestAsync(createQuery("Dickens"));
+        listeners.get(1).onFailure(new NoNodeAvailableException("test"));
+
+        SearchQuery staleQuery = createQuery("Dickens");
+        assertSame(response, esClient.executeRequestAsync(staleQuery).join());
+        assertEquals(2, listeners.size());
+        assertTrue(staleQuery.isStale());
+    }
+
+    @Test
+    public void prepareRequest_QueryTimeout_TimeoutOverridesDefault() {
+        Client client = mock(Client.class);
+        when(client.prepareSearch(any()))
+                .thenAnswer(invocation -> new SearchRequestBuilder(client, SearchAction.INSTANCE));
+        ESClient esClient = new ESClient(client, Runnable::run);
+        esClient.setDefaultTimeout(TimeValue.timeValueSeconds(30));
+        SearchQuery query = new SearchQuery("authors", new String[] { "author" },
+                QueryBuilders.matchAllQuery(), null, null);
+        assertEquals(TimeValue.timeValueSeconds(30),
+                esClient.prepareRequest(query).request().source().timeout());
+
+        query.setTimeout(TimeValue.timeValueSeconds(2));
+        assertEquals(TimeValue.timeValueSeconds(2),
+                esClient.prepareRequest(query).request().source().timeout());
+    }
+
+    @Test
+    public void prepareRequest_AggregateQuery_RequestCacheEnabled() {
+        ESClient esClient = new ESClient(mockSearchClient(), Runnable::run);
+        AggregateQuery query = new AggregateQuery("authors", new String[] { "author" },
+                QueryBuilders.matchAllQuery(), AggregationBuilders.terms("names"));
+        SearchRequest request = esClient.prepareRequest(query).request();
+        assertTrue(request.requestCache());
+        assertNull(request.preference());
+        assertTrue(esClient.prepareCountRequest(query).request().requestCache());
+    }
+
+    @Test
+    public void prepareRequest_QueryPreference_IdenticalQueriesHaveSamePreference() {
+        ESClient esClient = new ESClient(mockSearchClient(), Runnable::run);
+        esClient.setPreferenceStrategy(PreferenceStrategy.QUERY);
+        String first = esClient.prepareRequest(createQuery("Dickens")).request().preference();
+        assertEquals(first, esClient.prepareRequest(createQuery("Dickens")).request().preference());
+        assertNotEquals(first,
+                esClient.prepareRequest(createQuery("Tolkien")).request().preference());
+    }
+
+    @Test
+    public void prepareRequest_SessionPreference_SessionQueriesHaveSamePreference() {
+        ESClient esClient = new ESClient(mockSearchClient(), Runnable::run);
+        esClient.setPreferenceStrategy(PreferenceStrategy.SESSION);
+        SearchQuery first = createQuery("Dickens");
+        first.setSession("user");
+        SearchQuery second = createQuery("Tolkien");
+        second.setSession("user");
+        assertEquals(esClient.prepareRequest(first).request().preference(),
+                esClient.prepareRequest(second).request().preference());
+
+        second.setSession(null);
+        assertEquals(esClient.prepareRequest(createQuery("Tolkien")).request().preference(),
+                esClient.prepareRequest(second).request().preference());
+    }
+
+    @Test
+    public void prepareRequest_QueryWithRouting_RoutingApplied() {
+        ESClient esClient = new ESClient(mockSearchClient(), Runnable::run);
+        SearchQuery query = createQuery("Dickens");
+        assertNull(esClient.prepareRequest(query).request().routing());
+        query.setRouting("1,2");
+        assertEquals("1,2", esClient.prepareRequest(query).request().routing());
+    }
+
+    @Test
+    public void prepareRequest_QueryWithConcreteIndices_MissingIndicesIgnored() {
+        ESClient esClient = new ESClient(mockSearchClient(), Runnable::run);
+        SearchQuery query = createQuery("Dickens");
+        assertArrayEquals(new String[] { "authors" },
+                esClient.prepareRequest(query).request().indices());
+        query.setIndices(new String[] { "authors-2017.03.01", "authors-2017.03.02" });
+        SearchRequest request = esClient.prepareRequest(query).request();
+        assertArrayEquals(query.getIndices(), request.indices());
+        assertEquals(IndicesOptions.lenientExpandOpen(), request.indicesOptions());
+    }
+
+    private static SearchQuery createQuery(String name) {
+        return new SearchQuery("authors", new String[] { "author" },
+                QueryBuilders.termQuery("name", name), null, null);
+    }
+
+    private static Client mockSearchClient() {
+        Client client = mock(Client.class);
+        when(client.prepareSearch(any()))
+                .thenAnswer(invocation -> new SearchRequestBuilder(client, SearchAction.INSTANCE)
+                        .setIndices(Arrays.stream(invocation.getArguments())
+                                .toArray(String[]::new)));
+        return client;
+    }
+
+    @Test
+    public void prepareRequest_ServerDrivenPagination_TiebreakerAndSearchAfterApplied() {
+        Client client = mock(Client.class);
+        SearchRequestBuilder builder = new SearchRequestBuilder(client, SearchAction.INSTANCE);
+        when(client.prepareSearch(any())).thenReturn(builder);
+        Pagination pagination = new Pagination(10, 0, new ArrayList<>());
+        pagination.setServerDriven(true);
+        pagination.setSearchAfter(new Object[] { 1.5f, "author#13" });
+        SearchQuery query = new SearchQuery("authors", new String[] { "author" },
+                QueryBuilders.matchAllQuery(), null, pagination);
+
+        SearchSourceBuilder source = new ESClient(client, Runnable::run).prepareRequest(query)
+                .request().source();
+        assertEquals(2, source.sorts().size());
+        assertTrue(source.sorts().get(1).toString().contains(ElasticConstants.UID_FIELD_NAME));
+        assertArrayEquals(pagination.getSearchAfter(), source.searchAfter());
+        assertEquals(10, source.size());
+    }
+
+    @Test
+    public void prepareCountRequest_QueryWithPagination_NoHitsAndSortsRequested() {
+        Client client = mock(Client.class);
+        SearchRequestBuilder builder = new SearchRequestBuilder(client, SearchAction.INSTANCE);
+        when(client.prepareSearch(any())).thenReturn(builder);
+        Pagination pagination = new Pagination(10, 5, new ArrayList<>());
+        pagination.setServerDriven(true);
+        SearchQuery query = new SearchQuery("authors", new String[] { "author" },
+                QueryBuilders.matchAllQuery(), null, pagination);
+
+        SearchRequest request = new ESClient(client, Runnable::run).prepareCountRequest(query)
+                .request();
+        assertArrayEquals(new String[] { "author" }, request.types());
+        assertEquals(0, request.source().size());
+        assertNull(request.source().sorts());
+        assertEquals(QueryBuilders.matchAllQuery(), request.source().query());
+    }
+
+    private static void assertCause(Class<? extends Exception> expected,
+            CompletableFuture<SearchResponse> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            assertTrue(expected.isInstance(e.getCause()));
+            return;
+        }
+        throw new AssertionError("Request didn't fail.");
+    }
+
+    /**
+     * Client which records cancelled search requests.
+     */
+    private static class TestClient extends ESClient {
+
+        private final List<SearchRequest> cancelled = new ArrayList<>();
+
+        TestClient(ScheduledExecutorService scheduler) {
+            super(mock(Client.class), Runnable::run, scheduler);
+        }
+
+        @Override
+        protected void cancel(SearchRequest request) {
+            cancelled.add(request);
+        }
+    }
+
+    private static String getDescription(SearchRequest request) {
+        return request.createTask(0, "transport", SearchAction.NAME, TaskId.EMPTY_TASK_ID)
+                .getDescription();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchRequestBuilder mockRequest(String index, int size) {
+        SearchRequestBuilder builder = mock(SearchRequestBuilder.class);
+        when(builder.request()).thenReturn(new SearchRequest(index).source(
+                new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()).size(size)));
+        doAnswer(invocation -> {
+            listeners.add(invocation.getArgument(0));
+            return null;
+        }).when(builder).execute(any(ActionListener.class));
+        return builder;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.transport.ConnectTransportException;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyAwareClient} class.
+ *
+ * @author rdidyk
+ */
+public class LatencyAwareClientTest {
+
+    private final AtomicLong time = new AtomicLong();
+    private final Map<DiscoveryNode, Client> clients = new HashMap<>();
+    private final Map<DiscoveryNode, List<ActionListener<SearchResponse>>> listeners =
+            new HashMap<>();
+    private List<DiscoveryNode> nodes;
+    private LatencyAwareClient client;
+    private DiscoveryNode first;
+    private DiscoveryNode second;
+
+    @Before
+    public void setUp() {
+        first = createNode(9300);
+        second = createNode(9301);
+        nodes = new ArrayList<>(Arrays.asList(first, second));
+        Client discoveryClient = mock(Client.class);
+        when(discoveryClient.settings()).thenReturn(Settings.EMPTY);
+        client = new LatencyAwareClient(discoveryClient, () -> nodes, this::createClient,
+                time::get);
+    }
+
+    @Test
+    public void execute_NodeWithLowerLatency_RequestsSentToFasterNode() {
+        sample(50, 5);
+        for (int i = 0; i < 9; i++) {
+            execute();
+        }
+        assertEquals(0, listeners.get(first).size());
+        assertEquals(9, listeners.get(second).size());
+    }
+
+    @Test
+    public void execute_FasterNodeBusy_RequestSentToIdleNode() {
+        sample(10, 15);
+        execute();
+        execute();
+        execute();
+        assertEquals(2, listeners.get(first).size());
+        assertEquals(1, listeners.get(second).size());
+    }
+
+    @Test
+    public void execute_NodeNotReachable_NodePenalized() {
+        sample(10, 20);
+        execute();
+        listeners.get(first).get(0).onFailure(new ConnectTransportException(first, "test"));
+        execute();
+        execute();
+        assertEquals(1, listeners.get(first).size());
+        assertEquals(2, listeners.get(second).size());
+    }
+
+    @Test
+    public void execute_NodeWasSlowLongAgo_NodeUsedAgain() {
+        sample(100, 5);
+        time.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        execute();
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+        listeners.get(second).get(0).onResponse(mock(SearchResponse.class));
+        execute();
+        assertEquals(1, listeners.get(first).size());
+    }
+
+    @Test
+    public void execute_NodeDisconnected_NodeClientClosed() {
+        execute();
+        nodes.remove(second);
+        client.refreshNodes();
+        int firstRequests = listeners.get(first).size();
+        int secondRequests = listeners.get(second).size();
+        execute();
+        verify(clients.get(second)).close();
+        verify(clients.get(first), never()).close();
+        assertEquals(firstRequests + 1, listeners.get(first).size());
+        assertEquals(secondRequests, listeners.get(second).size());
+    }
+
+    @Test
+    public void execute_NodeDiscovered_ClientCreatedOnlyOnRefresh() {
+        DiscoveryNode third = createNode(9302);
+        nodes.add(third);
+        execute();
+        execute();
+        execute();
+        assertFalse(clients.containsKey(third));
+        client.refreshNodes();
+        assertTrue(clients.containsKey(third));
+    }
+
+    @Test
+    public void refreshNodes_MoreNodesThanMaximum_ClientsCreatedOnlyForMaximum() {
+        for (int i = 0; i < LatencyAwareClient.MAX_NODES; i++) {
+            nodes.add(createNode(9400 + i));
+        }
+        client.refreshNodes();
+        assertEquals(LatencyAwareClient.MAX_NODES, clients.size());
+        assertTrue(clients.containsKey(first));
+        assertTrue(clients.containsKey(second));
+        assertEquals(LatencyAwareClient.MAX_NODES, client.getExpectedLatencies().size());
+    }
+
+    @Test
+    public void execute_ResponseReceived_ResponsePassedToCaller() {
+        List<SearchResponse> responses = new ArrayList<>();
+        nodes.remove(second);
+        client.refreshNodes();
+        client.execute(SearchAction.INSTANCE, new SearchRequest(),
+                ActionListener.wrap(responses::add, e -> {
+                }));
+        SearchResponse response = mock(SearchResponse.class);
+        listeners.get(first).get(0).onResponse(response);
+        assertSame(response, responses.get(0));
+    }
+
+    /**
+     * Executes requests until both nodes have requests, then completes them
+     * after given time, so latencies of nodes are known and they have no
+     * in-flight requests.
+     */
+    private void sample(long firstMillis, long secondMillis) {
+        do {
+            execute();
+        } while (listeners.get(first).isEmpty() || listeners.get(second).isEmpty());
+        DiscoveryNode faster = firstMillis <= secondMillis ? first : second;
+        DiscoveryNode slower = faster == first ? second : first;
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(Math.min(firstMillis, secondMillis)));
+        complete(faster);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(Math.abs(firstMillis - secondMillis)));
+        complete(slower);
+    }
+
+    private void complete(DiscoveryNode node) {
+        listeners.get(node).forEach(listener -> listener.onResponse(mock(SearchResponse.class)));
+        listeners.get(node).clear();
+    }
+
+    private void execute() {
+        client.execute(SearchAction.INSTANCE, new SearchRequest(), ActionListener.wrap(r -> {
+        }, e -> {
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Client createClient(DiscoveryNode node) {
+        Client nodeClient = mock(Client.class);
+        listeners.put(node, new ArrayList<>());
+        doAnswer(invocation -> {
+            listeners.get(node).add(invocation.getArgument(2));
+            return null;
+        }).when(nodeClient).execute(any(SearchAction.class), any(SearchRequest.class),
+                any(ActionListener.class));
+        clients.put(node, nodeClient);
+        return nodeClient;
+    }
+
+    private static DiscoveryNode createNode(int port) {
+        return new DiscoveryNode("node" + port,
+                new InetSocketTransportAddress(InetAddress.getLoopbackAddress(), port),
+                Version.CURRENT);
+    }
+
+}
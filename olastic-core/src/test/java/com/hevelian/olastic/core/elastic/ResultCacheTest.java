@@ -0,0 +1,193 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.admin.indices.stats.IndexStats;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ResultCache} class.
+ *
+ * @author rdidyk
+ */
+public class ResultCacheTest {
+
+    private static final String[] BOOKS = { "books" };
+    private static final String[] AUTHORS = { "authors" };
+    private static final String[] TYPES = { "book" };
+    private static final String[] LIBRARY = { "library" };
+
+    private Client client;
+    private Map<String, IndexStats> indicesStats;
+    private ResultCache cache;
+
+    @Before
+    public void setUp() {
+        client = mock(Client.class, RETURNS_DEEP_STUBS);
+        indicesStats = new HashMap<>();
+        IndicesStatsResponse statsResponse = mock(IndicesStatsResponse.class);
+        when(statsResponse.getIndices()).thenReturn(indicesStats);
+        when(client.admin().indices().prepareStats(any()).clear().setRefresh(true).get())
+                .thenReturn(statsResponse);
+        mockMetaData("books-2017", "books", "authors");
+        cache = new ResultCache(client, 1024 * 1024, 60000, 0);
+    }
+
+    @Test
+    public void get_ResponseCached_ResponseRetrieved() {
+        SearchResponse response = mock(SearchResponse.class);
+        cache.put("key", BOOKS, TYPES, response);
+        assertSame(response, cache.get("key"));
+        assertNull(cache.get("other"));
+    }
+
+    @Test
+    public void put_EntitySetTtlNotPositive_ResponseNotCached() {
+        cache.setTtl("books", "book", 0);
+        cache.put("key", BOOKS, TYPES, mock(SearchResponse.class));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void put_ResponseExceedsMaxSize_ResponseNotCached() {
+        cache = new ResultCache(client, 1, 60000, 0);
+        cache.put("key", BOOKS, TYPES, mock(SearchResponse.class));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void invalidateIndex_TwoIndices_OnlyIndexEntriesDropped() {
+        cache.put("books", BOOKS, TYPES, mock(SearchResponse.class));
+        cache.put("authors", AUTHORS, TYPES, mock(SearchResponse.class));
+        cache.invalidateIndex("books");
+        assertNull(cache.get("books"));
+        assertNotNull(cache.get("authors"));
+    }
+
+    @Test
+    public void checkIndices_IndexRefreshed_IndexEntriesDropped() {
+        IndexStats booksStats = mockStats(1);
+        indicesStats.put("books", booksStats);
+        indicesStats.put("authors", mockStats(1));
+        cache.put("books", BOOKS, TYPES, mock(SearchResponse.class));
+        cache.put("authors", AUTHORS, TYPES, mock(SearchResponse.class));
+        cache.checkIndices();
+        // refresh count was unknown when entries were cached
+        assertNull(cache.get("books"));
+
+        cache.put("books", BOOKS, TYPES, mock(SearchResponse.class));
+        cache.put("authors", AUTHORS, TYPES, mock(SearchResponse.class));
+        cache.checkIndices();
+        assertNotNull(cache.get("books"));
+
+        when(booksStats.getTotal().getRefresh().getTotal()).thenReturn(2L);
+        cache.checkIndices();
+        assertNull(cache.get("books"));
+        assertNotNull(cache.get("authors"));
+    }
+
+    @Test
+    public void checkIndices_AliasConcreteIndexRefreshed_AliasEntriesDropped() {
+        IndexStats booksStats = mockStats(1);
+        indicesStats.put("books-2017", booksStats);
+        cache.put("library", LIBRARY, TYPES, mock(SearchResponse.class));
+        cache.checkIndices();
+        cache.put("library", LIBRARY, TYPES, mock(SearchResponse.class));
+        cache.checkIndices();
+        assertNotNull(cache.get("library"));
+
+        when(booksStats.getTotal().getRefresh().getTotal()).thenReturn(2L);
+        cache.checkIndices();
+        assertNull(cache.get("library"));
+    }
+
+    @Test
+    public void checkIndices_AliasMovedToOtherIndex_AliasEntriesDropped() {
+        cache.put("library", LIBRARY, TYPES, mock(SearchResponse.class));
+        cache.put("authors", AUTHORS, TYPES, mock(SearchResponse.class));
+        mockMetaData("books-2018", "books", "authors");
+        cache.checkIndices();
+        assertNull(cache.get("library"));
+        assertNotNull(cache.get("authors"));
+    }
+
+    @Test
+    public void put_IndexRefreshedWhileRequestExecuted_ResponseNotCached() {
+        IndexStats booksStats = mockStats(1);
+        indicesStats.put("books", booksStats);
+        cache.put("books", BOOKS, TYPES, mock(SearchResponse.class));
+        cache.checkIndices();
+        Map<String, Long> versions = cache.getVersions(BOOKS);
+
+        when(booksStats.getTotal().getRefresh().getTotal()).thenReturn(2L);
+        cache.checkIndices();
+        cache.put("books", BOOKS, TYPES, mock(SearchResponse.class), versions);
+        assertNull(cache.get("books"));
+
+        cache.put("books", BOOKS, TYPES, mock(SearchResponse.class), cache.getVersions(BOOKS));
+        assertNotNull(cache.get("books"));
+    }
+
+    /**
+     * Mocks cluster metadata with indices and alias of the first index.
+     */
+    private void mockMetaData(String aliasIndex, String... indices) {
+        MetaData.Builder metaData = MetaData.builder();
+        metaData.put(createIndex(aliasIndex).putAlias(AliasMetaData.builder("library")));
+        for (String index : indices) {
+            metaData.put(createIndex(index));
+        }
+        when(client.admin().cluster().prepareState().clear().setMetaData(true).setIndices(any())
+                .setIndicesOptions(any()).get().getState().metaData())
+                        .thenReturn(metaData.build());
+    }
+
+    private static IndexMetaData.Builder createIndex(String name) {
+        return IndexMetaData.builder(name)
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED,
+                        Version.CURRENT))
+                .numberOfShards(1).numberOfReplicas(0);
+    }
+
+    private static IndexStats mockStats(long refreshes) {
+        IndexStats stats = mock(IndexStats.class, RETURNS_DEEP_STUBS);
+        when(stats.getTotal().getRefresh().getTotal()).thenReturn(refreshes);
+        return stats;
+    }
+
+    @Test
+    public void getStale_IndexInvalidated_StaleResponseRetained() {
+        ResultCache staleCache = new ResultCache(client, 1024 * 1024, 60000, 0, 60000);
+        SearchResponse response = mock(SearchResponse.class);
+        staleCache.put("key", BOOKS, TYPES, response);
+        staleCache.invalidateIndex("books");
+        assertNull(staleCache.get("key"));
+        assertSame(response, staleCache.getStale("key"));
+    }
+
+    @Test
+    public void getStale_StalePeriodNotSet_ResponseNotRetained() {
+        cache.put("key", BOOKS, TYPES, mock(SearchResponse.class));
+        cache.invalidateIndex("books");
+        assertNull(cache.getStale("key"));
+    }
+
+}
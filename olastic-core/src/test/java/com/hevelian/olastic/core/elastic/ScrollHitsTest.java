@@ -0,0 +1,117 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.exceptions.ClusterUnavailableException;
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+
+/**
+ * Tests for {@link ScrollHits} class.
+ *
+ * @author rdidyk
+ */
+public class ScrollHitsTest {
+
+    private static final TimeValue KEEP_ALIVE = TimeValue.timeValueSeconds(10);
+
+    private static final String TARGET = "books/book";
+
+    private Client client;
+    private ESClient esClient;
+    private SearchRequestBuilder request;
+
+    @Before
+    public void setUp() {
+        client = mock(Client.class, RETURNS_DEEP_STUBS);
+        esClient = new ESClient(client, Runnable::run);
+        request = mock(SearchRequestBuilder.class, RETURNS_DEEP_STUBS);
+        when(request.setScroll(KEEP_ALIVE)).thenReturn(request);
+    }
+
+    @Test
+    public void next_SeveralBatches_AllHitsIteratedAndScrollCleared() {
+        SearchHit first = mock(InternalSearchHit.class);
+        SearchHit second = mock(InternalSearchHit.class);
+        SearchHit third = mock(InternalSearchHit.class);
+        SearchResponse firstBatch = mockResponse("s1", 3, first, second);
+        when(request.execute().actionGet()).thenReturn(firstBatch);
+        SearchResponse secondBatch = mockResponse("s2", 3, third);
+        when(client.prepareSearchScroll("s1").setScroll(KEEP_ALIVE).execute().actionGet())
+                .thenReturn(secondBatch);
+        SearchResponse lastBatch = mockResponse("s3", 3);
+        when(client.prepareSearchScroll("s2").setScroll(KEEP_ALIVE).execute().actionGet())
+                .thenReturn(lastBatch);
+
+        ScrollHits hits = new ScrollHits(esClient, request, TARGET, KEEP_ALIVE, null);
+        assertEquals(3, hits.getTotalHits());
+        assertSame(first, hits.next());
+        assertSame(second, hits.next());
+        assertSame(third, hits.next());
+        assertFalse(hits.hasNext());
+        verify(client.prepareClearScroll()).addScrollId("s3");
+        assertEquals(3, esClient.getRequestCount());
+    }
+
+    @Test
+    public void close_NotConsumed_ScrollCleared() {
+        SearchResponse firstBatch = mockResponse("s1", 2, mock(InternalSearchHit.class));
+        when(request.execute().actionGet()).thenReturn(firstBatch);
+
+        ScrollHits hits = new ScrollHits(esClient, request, TARGET, KEEP_ALIVE, null);
+        assertTrue(hits.hasNext());
+        hits.close();
+        assertFalse(hits.hasNext());
+        verify(client.prepareClearScroll()).addScrollId("s1");
+    }
+
+    @Test(expected = ClusterUnavailableException.class)
+    public void create_FirstBatchFailed_ExceptionThrown() {
+        when(request.execute().actionGet()).thenThrow(new NoNodeAvailableException("test"));
+        new ScrollHits(esClient, request, TARGET, KEEP_ALIVE, null);
+    }
+
+    @Test
+    public void create_EntitySetAtConcurrencyLimit_FirstBatchRejected() {
+        esClient.setConcurrencyLimiter(new ConcurrencyLimiter(1, 1, 0,
+                TimeValue.timeValueSeconds(1), mock(ScheduledExecutorService.class)));
+        esClient.getConcurrencyLimiter().acquire(TARGET);
+        try {
+            new ScrollHits(esClient, request, TARGET, KEEP_ALIVE, null);
+        } catch (SearchRejectedException e) {
+            verify(request, never()).execute();
+            return;
+        }
+        throw new AssertionError("Scroll isn't rejected.");
+    }
+
+    private static SearchResponse mockResponse(String scrollId, long total, SearchHit... hits) {
+        InternalSearchHit[] internalHits = new InternalSearchHit[hits.length];
+        System.arraycopy(hits, 0, internalHits, 0, hits.length);
+        SearchResponse response = mock(SearchResponse.class);
+        when(response.getScrollId()).thenReturn(scrollId);
+        when(response.getHits()).thenReturn(new InternalSearchHits(internalHits, total, 0));
+        return response;
+    }
+
+}
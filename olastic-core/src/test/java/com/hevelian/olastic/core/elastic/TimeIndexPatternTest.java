@@ -0,0 +1,144 @@
+package com.hevelian.olastic.core.elastic;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TimeIndexPattern} class.
+ *
+ * @author rdidyk
+ */
+public class TimeIndexPatternTest {
+
+    private static final String FIELD = "timestamp";
+    private static final String DAILY = "'logs-'yyyy.MM.dd";
+
+    private final TimeIndexPattern pattern = new TimeIndexPattern(FIELD, DAILY)
+            .withIndices(Arrays.asList("logs-2017.02.26", "logs-2017.02.27", "logs-2017.02.28",
+                    "logs-2017.03.01", "logs-2017.03.02"));
+
+    @Test
+    public void new_Patterns_UnitRetrieved() {
+        assertEquals(ChronoUnit.DAYS, pattern.getUnit());
+        assertEquals(ChronoUnit.HOURS,
+                new TimeIndexPattern(FIELD, "'logs-'yyyy.MM.dd.HH").getUnit());
+        assertEquals(ChronoUnit.MONTHS, new TimeIndexPattern(FIELD, "'day-'yyyy.MM").getUnit());
+        assertEquals(ChronoUnit.YEARS, new TimeIndexPattern(FIELD, "'d'yyyy").getUnit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_PatternWithoutDate_Exception() {
+        new TimeIndexPattern(FIELD, "'logs'");
+    }
+
+    @Test
+    public void matches_IndexNames_ConcreteIndicesMatched() {
+        assertTrue(pattern.matches("logs-2017.03.01"));
+        assertFalse(pattern.matches("logs"));
+        assertFalse(pattern.matches("logs-2017.03.01-old"));
+    }
+
+    @Test
+    public void getIndices_ClosedRange_IndicesOfRangeRetrieved() {
+        assertArrayEquals(new String[] { "logs-2017.02.27", "logs-2017.02.28", "logs-2017.03.01" },
+                pattern.getIndices(boolQuery().filter(rangeQuery(FIELD)
+                        .gte("2017-02-27T23:00:00Z").lte("2017-03-01T00:00:00Z"))));
+    }
+
+    @Test
+    public void getIndices_ExclusiveUpperBoundAtIndexStart_IndexExcluded() {
+        assertArrayEquals(new String[] { "logs-2017.02.28" },
+                pattern.getIndices(boolQuery().must(rangeQuery(FIELD).gt("2017-02-28"))
+                        .must(rangeQuery(FIELD).lt("2017-03-01T00:00:00"))));
+    }
+
+    @Test
+    public void getIndices_SeveralClauses_BoundsNarrowed() {
+        assertArrayEquals(new String[] { "logs-2017.03.01" },
+                pattern.getIndices(boolQuery()
+                        .must(boolQuery().filter(rangeQuery(FIELD).gte("2017-01-01")))
+                        .filter(rangeQuery(FIELD).gt("2017-03-01T05:00:00+02:00")
+                                .lt("2017-03-01T12:00:00Z"))
+                        .filter(rangeQuery(FIELD).lt("2017-06-01"))));
+    }
+
+    @Test
+    public void getIndices_TermQuery_SingleIndexRetrieved() {
+        assertArrayEquals(new String[] { "logs-2017.03.01" },
+                pattern.getIndices(termQuery(FIELD, "2017-03-01T10:00:00Z")));
+    }
+
+    @Test
+    public void getIndices_NoUpperBound_IndicesAfterLowerBoundRetrieved() {
+        assertArrayEquals(new String[] { "logs-2017.03.01", "logs-2017.03.02" },
+                pattern.getIndices(rangeQuery(FIELD).gte("2017-03-01T10:00:00Z")));
+    }
+
+    @Test
+    public void getIndices_NoLowerBound_IndicesBeforeUpperBoundRetrieved() {
+        assertArrayEquals(new String[] { "logs-2017.02.26", "logs-2017.02.27", "logs-2017.02.28" },
+                pattern.getIndices(rangeQuery(FIELD).lt("2017-03-01")));
+    }
+
+    @Test
+    public void getIndices_RangeWithoutIndices_NoIndices() {
+        assertNull(pattern.getIndices(rangeQuery(FIELD).gte("2017-04-01")));
+    }
+
+    @Test
+    public void getIndices_NotBoundPatterns_NoIndices() {
+        String query = "2017-03-01T10:00:00Z";
+        assertNull(new TimeIndexPattern(FIELD, DAILY).getIndices(termQuery(FIELD, query)));
+        assertNull(new TimeIndexPattern(FIELD, DAILY).withIndices(null)
+                .getIndices(termQuery(FIELD, query)));
+        assertNull(new TimeIndexPattern(FIELD, DAILY)
+                .withIndices(Arrays.asList("logs-2017.03.01", "logs-archive"))
+                .getIndices(termQuery(FIELD, query)));
+    }
+
+    @Test
+    public void getIndices_HourlyAndYearlyIndices_IndicesOfRangeRetrieved() {
+        assertArrayEquals(new String[] { "logs-2017.03.01.10" },
+                new TimeIndexPattern(FIELD, "'logs-'yyyy.MM.dd.HH")
+                        .withIndices(Arrays.asList("logs-2017.03.01.09", "logs-2017.03.01.10"))
+                        .getIndices(rangeQuery(FIELD).gte("2017-03-01T10:30:00Z")));
+        assertArrayEquals(new String[] { "logs-2016" },
+                new TimeIndexPattern(FIELD, "'logs-'yyyy")
+                        .withIndices(Arrays.asList("logs-2016", "logs-2017"))
+                        .getIndices(rangeQuery(FIELD).lt("2017-01-01")));
+    }
+
+    @Test
+    public void getIndices_NotRestrictedByTime_NoIndices() {
+        assertNull(pattern.getIndices(rangeQuery(FIELD).gte("now-1h")));
+        assertNull(pattern.getIndices(boolQuery().should(rangeQuery(FIELD).gte("2017-03-01"))));
+        assertNull(pattern.getIndices(rangeQuery("created").gte("2017-03-01")));
+    }
+
+    @Test
+    public void getIndices_TooWideRange_NoIndices() {
+        List<String> indices = new ArrayList<>();
+        for (LocalDate day = LocalDate.of(2010, 1, 1); indices
+                .size() <= TimeIndexPattern.MAX_INDICES; day = day.plusDays(1)) {
+            indices.add(String.format("logs-%d.%02d.%02d", day.getYear(), day.getMonthValue(),
+                    day.getDayOfMonth()));
+        }
+        assertNull(new TimeIndexPattern(FIELD, DAILY).withIndices(indices)
+                .getIndices(rangeQuery(FIELD).gte("2010-01-01")));
+    }
+
+}
@@ -0,0 +1,341 @@
+package com.hevelian.olastic.core.elastic.mappings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequestBuilder;
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.AliasOrIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.index.Index;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DefaultMetaDataProvider} class.
+ */
+public class DefaultMetaDataProviderTest {
+
+    private static final String INDEX = "authors";
+    private static final String TYPE = "author";
+    private static final String BOOKS_INDEX = "books";
+    private static final String LOGS_INDEX = "logs-2017.03.01";
+
+    private Client client;
+    private GetMappingsRequestBuilder mappingsRequest;
+    private MetaData metaData;
+    private IndexMetaData indexMetaData;
+    private MappingMetaData mapping;
+
+    @Before
+    public void setUp() {
+        client = mock(Client.class, RETURNS_DEEP_STUBS);
+        mappingsRequest = mock(GetMappingsRequestBuilder.class);
+        when(client.admin().indices().prepareGetMappings(INDEX)).thenReturn(mappingsRequest);
+        mapping = mock(MappingMetaData.class);
+        GetMappingsResponse response = mock(GetMappingsResponse.class);
+        when(response.getMappings()).thenReturn(ImmutableOpenMap
+                .<String, ImmutableOpenMap<String, MappingMetaData>> builder()
+                .fPut(INDEX, ImmutableOpenMap.<String, MappingMetaData> builder()
+                        .fPut(TYPE, mapping).build())
+                .build());
+        when(mappingsRequest.get()).thenReturn(response);
+
+        metaData = mock(MetaData.class);
+        indexMetaData = mock(IndexMetaData.class);
+        mockMappings(indexMetaData, 0);
+        when(client.admin().cluster().prepareState().clear().setMetaData(true)
+                .setIndices(any()).get().getState().metaData()).thenReturn(metaData);
+        when(metaData.index(INDEX)).thenReturn(indexMetaData);
+    }
+
+    @Test
+    public void getMappingForType_CalledTwice_LoadedOnce() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        assertSame(mapping, provider.getMappingForType(INDEX, TYPE));
+        assertSame(mapping, provider.getMappingForType(INDEX, TYPE));
+
+        verify(mappingsRequest, times(1)).get();
+        assertEquals(1, provider.getMissCount());
+        assertEquals(1, provider.getHitCount());
+        assertEquals(0, provider.getRefreshCount());
+    }
+
+    @Test
+    public void getIndexMapping_AllMappingsAndTypeMapping_LoadedBySingleRequest() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        assertSame(mapping, provider.getAllMappings(INDEX).get(TYPE));
+        assertSame(mapping, provider.getMappingForType(INDEX, TYPE));
+        assertEquals(INDEX, provider.getIndexMapping(INDEX).getIndex());
+        assertSame(provider.getIndexMapping(INDEX), provider.getIndexMapping(INDEX));
+
+        verify(mappingsRequest, times(1)).get();
+    }
+
+    @Test
+    public void getTypes_MappingsNotCached_OnlyTypeNamesCached() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        assertEquals(Collections.singleton(TYPE), provider.getTypes(INDEX));
+        assertEquals(Collections.singleton(TYPE), provider.getTypes(INDEX));
+        verify(mappingsRequest, times(1)).get();
+        assertEquals(1, provider.getMissCount());
+    }
+
+    @Test
+    public void getMappingForType_CacheExceeded_LeastRecentlyUsedEntryEvicted() {
+        GetMappingsResponse booksResponse = mock(GetMappingsResponse.class);
+        when(booksResponse.getMappings()).thenReturn(ImmutableOpenMap
+                .<String, ImmutableOpenMap<String, MappingMetaData>> builder()
+                .fPut(BOOKS_INDEX, ImmutableOpenMap.<String, MappingMetaData> of()).build());
+        when(client.admin().indices().prepareGetMappings(BOOKS_INDEX).get())
+                .thenReturn(booksResponse);
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0, 1);
+        provider.getMappingForType(INDEX, TYPE);
+        provider.getTypes(BOOKS_INDEX);
+        provider.getMappingForType(INDEX, TYPE);
+        verify(mappingsRequest, times(2)).get();
+        assertEquals(3, provider.getMissCount());
+    }
+
+    @Test
+    public void getAllMappings_Alias_LastConcreteIndexMappingsRetrieved() {
+        MappingMetaData previous = mock(MappingMetaData.class);
+        GetMappingsResponse response = mock(GetMappingsResponse.class);
+        when(response.getMappings()).thenReturn(ImmutableOpenMap
+                .<String, ImmutableOpenMap<String, MappingMetaData>> builder()
+                .fPut(LOGS_INDEX, ImmutableOpenMap.<String, MappingMetaData> builder()
+                        .fPut(TYPE, mapping).build())
+                .fPut("logs-2017.02.28", ImmutableOpenMap.<String, MappingMetaData> builder()
+                        .fPut(TYPE, previous).build())
+                .build());
+        when(client.admin().indices().prepareGetMappings("logs").get()).thenReturn(response);
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        assertSame(mapping, provider.getMappingForType("logs", TYPE));
+        assertEquals("logs", provider.getIndexMapping("logs").getIndex());
+    }
+
+    @Test
+    public void getConcreteIndices_Alias_IndicesRetrievedUnlessAliasFiltered() {
+        IndexMetaData logsMetaData = mockIndexMetaData(LOGS_INDEX);
+        AliasOrIndex alias = mock(AliasOrIndex.class);
+        when(alias.isAlias()).thenReturn(true);
+        when(alias.getIndices()).thenReturn(Collections.singletonList(logsMetaData));
+        when(metaData.getAliasAndIndexLookup())
+                .thenReturn(new TreeMap<>(Collections.singletonMap("logs", alias)));
+        when(logsMetaData.getAliases()).thenReturn(ImmutableOpenMap
+                .<String, AliasMetaData> builder()
+                .fPut("logs", AliasMetaData.builder("logs").build()).build());
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        assertEquals(Collections.singleton(LOGS_INDEX), provider.getConcreteIndices("logs"));
+        assertNull(provider.getConcreteIndices(INDEX));
+
+        when(logsMetaData.getAliases()).thenReturn(ImmutableOpenMap
+                .<String, AliasMetaData> builder()
+                .fPut("logs", AliasMetaData.builder("logs")
+                        .filter("{\"term\":{\"level\":\"error\"}}").build())
+                .build());
+        assertNull(provider.getConcreteIndices("logs"));
+    }
+
+    @Test
+    public void checkVersions_Alias_EntryKeptUntilLastConcreteIndexChanged() {
+        GetMappingsResponse response = mock(GetMappingsResponse.class);
+        when(response.getMappings()).thenReturn(ImmutableOpenMap
+                .<String, ImmutableOpenMap<String, MappingMetaData>> builder()
+                .fPut(LOGS_INDEX, ImmutableOpenMap.<String, MappingMetaData> builder()
+                        .fPut(TYPE, mapping).build())
+                .build());
+        GetMappingsRequestBuilder logsRequest = mock(GetMappingsRequestBuilder.class);
+        when(logsRequest.get()).thenReturn(response);
+        when(client.admin().indices().prepareGetMappings("logs")).thenReturn(logsRequest);
+        IndexMetaData logsMetaData = mockIndexMetaData(LOGS_INDEX);
+        AliasOrIndex alias = mock(AliasOrIndex.class);
+        when(alias.getIndices()).thenReturn(Collections.singletonList(logsMetaData));
+        when(metaData.getAliasAndIndexLookup())
+                .thenReturn(new TreeMap<>(Collections.singletonMap("logs", alias)));
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        provider.getMappingForType("logs", TYPE);
+        provider.checkVersions();
+        provider.getMappingForType("logs", TYPE);
+        assertEquals(1, provider.getMissCount());
+        assertEquals(0, provider.getRefreshCount());
+
+        IndexMetaData nextMetaData = mockIndexMetaData("logs-2017.03.02");
+        when(alias.getIndices()).thenReturn(Arrays.asList(logsMetaData, nextMetaData));
+        provider.checkVersions();
+        assertEquals(1, provider.getRefreshCount());
+        verify(logsRequest, times(2)).get();
+    }
+
+    @Test
+    public void checkVersions_VersionChanged_EntriesRefreshed() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        mockMappings(indexMetaData, 1);
+        provider.getMappingForType(INDEX, TYPE);
+        provider.checkVersions();
+        assertEquals(0, provider.getRefreshCount());
+
+        provider.checkVersions();
+        assertEquals(0, provider.getRefreshCount());
+
+        mockMappings(indexMetaData, 2);
+        provider.checkVersions();
+        assertEquals(1, provider.getRefreshCount());
+        verify(mappingsRequest, times(2)).get();
+    }
+
+    @Test
+    public void checkVersions_RefreshFailed_EntriesRefreshedByNextCheck() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        provider.getMappingForType(INDEX, TYPE);
+        GetMappingsResponse response = mappingsRequest.get();
+        when(mappingsRequest.get()).thenThrow(new ElasticsearchException("unavailable"))
+                .thenReturn(response);
+        mockMappings(indexMetaData, 1);
+        provider.checkVersions();
+        assertEquals(0, provider.getRefreshCount());
+
+        provider.checkVersions();
+        assertEquals(1, provider.getRefreshCount());
+    }
+
+    @Test
+    public void checkVersions_VersionChangedBeforeFirstCheck_EntriesRefreshed() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        mockMappings(indexMetaData, 1);
+        provider.getMappingForType(INDEX, TYPE);
+        mockMappings(indexMetaData, 2);
+        provider.checkVersions();
+        assertEquals(1, provider.getRefreshCount());
+
+        provider.checkVersions();
+        assertEquals(1, provider.getRefreshCount());
+    }
+
+    @Test
+    public void checkVersions_OnlyMetaDataVersionChanged_EntriesNotRefreshed() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        provider.getMappingForType(INDEX, TYPE);
+        when(indexMetaData.getVersion()).thenReturn(2L);
+        provider.checkVersions();
+        assertEquals(0, provider.getRefreshCount());
+    }
+
+    @Test
+    public void checkVersions_MetaDataVersionNotChanged_MappingsNotHashed() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        provider.getMappingForType(INDEX, TYPE);
+        provider.checkVersions();
+        provider.checkVersions();
+        verify(indexMetaData, times(1)).getMappings();
+    }
+
+    @Test
+    public void checkVersions_WatchedIndicesSet_OnlyWatchedIndicesRequested() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        provider.addChangeListener((created, changed, deleted) -> {
+        });
+        when(metaData.indices()).thenReturn(ImmutableOpenMap.<String, IndexMetaData> builder()
+                .fPut(INDEX, indexMetaData).build());
+        provider.setWatchedIndices(Collections.singleton(INDEX));
+        provider.checkVersions();
+        verify(client.admin().cluster().prepareState().clear().setMetaData(true))
+                .setIndices(INDEX);
+
+        provider.setWatchedIndices(Collections.emptySet());
+        provider.checkVersions();
+        verify(client.admin().cluster().prepareState().clear().setMetaData(true))
+                .setIndices();
+    }
+
+    @Test
+    public void checkVersions_IndexDeleted_EntriesRemoved() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        provider.getMappingForType(INDEX, TYPE);
+        when(metaData.index(INDEX)).thenReturn(null);
+        provider.checkVersions();
+
+        provider.getMappingForType(INDEX, TYPE);
+        assertEquals(2, provider.getMissCount());
+    }
+
+    @Test
+    public void checkVersions_ListenerAdded_CreatedChangedAndDeletedIndicesNotified() {
+        DefaultMetaDataProvider provider = new DefaultMetaDataProvider(client, 0);
+        List<List<Set<String>>> notifications = new ArrayList<>();
+        provider.addChangeListener((created, changed, deleted) -> notifications
+                .add(Arrays.asList(created, changed, deleted)));
+        IndexMetaData booksMetaData = mock(IndexMetaData.class);
+        IndexMetaData logsMetaData = mock(IndexMetaData.class);
+        mockMappings(indexMetaData, 1);
+        mockMappings(booksMetaData, 1);
+        mockMappings(logsMetaData, 1);
+        when(metaData.index(BOOKS_INDEX)).thenReturn(booksMetaData);
+        when(metaData.indices()).thenReturn(ImmutableOpenMap.<String, IndexMetaData> builder()
+                .fPut(INDEX, indexMetaData).fPut(BOOKS_INDEX, booksMetaData).build());
+        provider.checkVersions();
+        assertTrue(notifications.isEmpty());
+
+        mockMappings(indexMetaData, 2);
+        when(metaData.index(BOOKS_INDEX)).thenReturn(null);
+        when(metaData.index(LOGS_INDEX)).thenReturn(logsMetaData);
+        when(metaData.indices()).thenReturn(ImmutableOpenMap.<String, IndexMetaData> builder()
+                .fPut(INDEX, indexMetaData).fPut(LOGS_INDEX, logsMetaData).build());
+        provider.checkVersions();
+        assertEquals(1, notifications.size());
+        assertEquals(Collections.singleton(LOGS_INDEX), notifications.get(0).get(0));
+        assertEquals(Collections.singleton(INDEX), notifications.get(0).get(1));
+        assertEquals(Collections.singleton(BOOKS_INDEX), notifications.get(0).get(2));
+
+        provider.checkVersions();
+        assertEquals(1, notifications.size());
+    }
+
+    private IndexMetaData mockIndexMetaData(String name) {
+        IndexMetaData indexMetaData = mock(IndexMetaData.class);
+        mockMappings(indexMetaData, 0);
+        when(indexMetaData.getIndex()).thenReturn(new Index(name, name));
+        when(metaData.index(name)).thenReturn(indexMetaData);
+        return indexMetaData;
+    }
+
+    /**
+     * Mocks mappings of index, different versions have different sources and
+     * metadata versions.
+     */
+    private static void mockMappings(IndexMetaData indexMetaData, int version) {
+        when(indexMetaData.getVersion()).thenReturn((long) version);
+        try {
+            when(indexMetaData.getMappings()).thenReturn(ImmutableOpenMap
+                    .<String, MappingMetaData> builder()
+                    .fPut(TYPE, new MappingMetaData(TYPE, Collections.singletonMap("_meta",
+                            Collections.singletonMap("version", version))))
+                    .build());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.hevelian.olastic.core.elastic.mappings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IndexMapping} class.
+ */
+public class IndexMappingTest {
+
+    private static final String INDEX = "authors";
+
+    @Test
+    public void parse_TypesWithFields_FieldsParsed() throws IOException {
+        Map<String, Object> pages = new LinkedHashMap<>();
+        pages.put("pageNumber", field("integer"));
+        Map<String, Object> info = field("nested");
+        info.put("properties", pages);
+        Map<String, Object> title = field("text");
+        title.put("fields", Collections.singletonMap("raw", field("keyword")));
+        Map<String, Object> isbn = field("keyword");
+        isbn.put("fields", Collections.singletonMap("raw", field("keyword")));
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("title", title);
+        properties.put("isbn", isbn);
+        properties.put("info", info);
+        properties.put("year", field("long"));
+
+        IndexMapping indexMapping = IndexMapping.parse(INDEX, mappings("book", properties));
+        assertEquals(INDEX, indexMapping.getIndex());
+        TypeMapping book = indexMapping.getType("book");
+        assertEquals(Arrays.asList("title", "isbn", "info", "year"),
+                Arrays.asList(book.getFields().keySet().toArray()));
+        assertEquals("text", book.getField("title").getDatatype());
+        assertEquals("raw", book.getField("title").getKeywordField());
+        assertNull(book.getField("isbn").getKeywordField());
+        assertNull(book.getField("year").getKeywordField());
+        assertFalse(book.getField("year").isNested());
+        FieldMapping infoField = book.getField("info");
+        assertTrue(infoField.isNested());
+        assertEquals("integer", infoField.getProperties().get("pageNumber").getDatatype());
+        assertNull(book.getParent());
+    }
+
+    @Test
+    public void parse_ParentAndChildTypes_RelationsParsed() throws IOException {
+        MappingMetaData author = mock(MappingMetaData.class);
+        when(author.sourceAsMap()).thenReturn(new HashMap<>());
+        MappingMetaData book = mock(MappingMetaData.class);
+        when(book.sourceAsMap())
+                .thenReturn(Collections.singletonMap("_parent", field("author")));
+        IndexMapping indexMapping = IndexMapping.parse(INDEX,
+                ImmutableOpenMap.<String, MappingMetaData> builder().fPut("author", author)
+                        .fPut("book", book).build());
+        assertEquals("author", indexMapping.getType("book").getParent());
+        assertNull(indexMapping.getType("author").getParent());
+        assertEquals(Collections.singletonList("book"), indexMapping.getChildTypes("author"));
+        assertTrue(indexMapping.getChildTypes("book").isEmpty());
+    }
+
+    @Test
+    public void parse_NullMappingMetaData_EmptyTypeRetrieved() throws IOException {
+        IndexMapping indexMapping = IndexMapping.parse(INDEX,
+                ImmutableOpenMap.<String, MappingMetaData> builder().fPut("book", null).build());
+        assertTrue(indexMapping.getType("book").getFields().isEmpty());
+        assertNull(indexMapping.getType("author"));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_MetaDataThrowsIOException_IOExceptionRetrieved() throws IOException {
+        MappingMetaData mappingMetaData = mock(MappingMetaData.class);
+        when(mappingMetaData.sourceAsMap()).thenThrow(new IOException("test cause"));
+        IndexMapping.parse(INDEX, ImmutableOpenMap.<String, MappingMetaData> builder()
+                .fPut("book", mappingMetaData).build());
+    }
+
+    private static Map<String, Object> field(String type) {
+        Map<String, Object> field = new HashMap<>();
+        field.put("type", type);
+        return field;
+    }
+
+    private static ImmutableOpenMap<String, MappingMetaData> mappings(String type,
+            Map<String, Object> properties) throws IOException {
+        MappingMetaData mappingMetaData = mock(MappingMetaData.class);
+        when(mappingMetaData.sourceAsMap())
+                .thenReturn(Collections.singletonMap("properties", properties));
+        return ImmutableOpenMap.<String, MappingMetaData> builder().fPut(type, mappingMetaData)
+                .build();
+    }
+
+}
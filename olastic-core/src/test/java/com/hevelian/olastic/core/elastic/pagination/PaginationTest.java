@@ -1,11 +1,16 @@
 package com.hevelian.olastic.core.elastic.pagination;
 
+import org.elasticsearch.search.SearchHit;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * JUnit test for {@link Pagination} class.
@@ -52,4 +57,40 @@ public class PaginationTest {
         assertEquals(newSkip, pagination.getSkip());
         assertEquals(newOrderBy, pagination.getOrderBy());
     }
+
+    @Test
+    public void nextSkipToken_FullPage_TokenWithLastHitSortValuesCreated() {
+        Pagination pagination = new Pagination(2, 0, new ArrayList<>());
+        pagination.setServerDriven(true);
+        pagination.setRemaining(5);
+        SkipToken token = pagination.nextSkipToken(mockHits(2));
+        assertEquals(3, token.getRemaining());
+        assertArrayEquals(new Object[] { "uid1" }, token.getSortValues());
+    }
+
+    @Test
+    public void nextSkipToken_UnlimitedRemaining_UnlimitedTokenCreated() {
+        Pagination pagination = new Pagination(2, 0, new ArrayList<>());
+        pagination.setServerDriven(true);
+        assertEquals(-1, pagination.nextSkipToken(mockHits(2)).getRemaining());
+    }
+
+    @Test
+    public void nextSkipToken_NoNextPage_NullReturned() {
+        Pagination pagination = new Pagination(2, 0, new ArrayList<>());
+        assertNull(pagination.nextSkipToken(mockHits(2)));
+        pagination.setServerDriven(true);
+        assertNull(pagination.nextSkipToken(mockHits(1)));
+        pagination.setRemaining(2);
+        assertNull(pagination.nextSkipToken(mockHits(2)));
+    }
+
+    private static SearchHit[] mockHits(int count) {
+        SearchHit[] hits = new SearchHit[count];
+        for (int i = 0; i < count; i++) {
+            hits[i] = mock(SearchHit.class);
+            when(hits[i].getSortValues()).thenReturn(new Object[] { "uid" + i });
+        }
+        return hits;
+    }
 }
@@ -0,0 +1,66 @@
+package com.hevelian.olastic.core.elastic.pagination;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SkipToken} class.
+ *
+ * @author rdidyk
+ */
+public class SkipTokenTest {
+
+    @Test
+    public void decode_EncodedToken_SameValuesRetrieved() {
+        Object[] sortValues = { "Dickens", 1837L, 4.5d, 2.5f, 7, true, "author#13" };
+        String encoded = new SkipToken(42, sortValues).encode();
+        assertEquals(encoded, encoded.replaceAll("[^A-Za-z0-9_-]", ""));
+
+        SkipToken decoded = SkipToken.decode(encoded, sortValues.length);
+        assertEquals(42, decoded.getRemaining());
+        assertArrayEquals(sortValues, decoded.getSortValues());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_MalformedToken_ExceptionThrown() {
+        SkipToken.decode("not a token", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_TruncatedToken_ExceptionThrown() {
+        String encoded = new SkipToken(-1, new Object[] { "author#13" }).encode();
+        SkipToken.decode(encoded.substring(0, encoded.length() / 2), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_OtherAmountOfSortValues_ExceptionThrown() {
+        String encoded = new SkipToken(-1, new Object[] { "author#13" }).encode();
+        SkipToken.decode(encoded, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_StringLongerThanToken_ExceptionThrown() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeByte((byte) 1);
+            out.writeLong(-1);
+            out.writeVInt(1);
+            out.writeByte((byte) 1);
+            out.writeVInt(Integer.MAX_VALUE);
+            SkipToken.decode(Base64.getUrlEncoder()
+                    .encodeToString(BytesReference.toBytes(out.bytes())), 1);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void encode_NotScalarSortValue_ExceptionThrown() {
+        new SkipToken(-1, new Object[] { new int[] { 1 } }).encode();
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.hevelian.olastic.core.elastic.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.elasticsearch.search.SearchHit;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.ElasticOData;
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.edm.ElasticEdmEntityType;
+import com.hevelian.olastic.core.elastic.ScrollHits;
+import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link ScrollEntityIterator} class.
+ *
+ * @author rdidyk
+ */
+public class ScrollEntityIteratorTest {
+
+    private ElasticOData odata;
+    private ElasticServiceMetadata metadata;
+    private ElasticEdmEntitySet entitySet;
+    private ScrollHits hits;
+
+    @Before
+    public void setUp() {
+        odata = ElasticOData.newInstance();
+        metadata = odata.createServiceMetadata(
+                new TestProvider(mock(MappingMetaDataProvider.class)),
+                new ArrayList<EdmxReference>());
+        entitySet = (ElasticEdmEntitySet) metadata.getEdm().getEntityContainer()
+                .getEntitySet(TestProvider.AUTHOR_TYPE);
+        hits = mockHits(5);
+    }
+
+    @Test
+    public void next_SkipAndLimit_OnlyRequestedEntitiesReturned() {
+        ScrollEntityIterator entities = new ScrollEntityIterator(hits, getEntityType(), 1, 2);
+        assertEquals("1", entities.next().getProperty("_id").getValue());
+        assertEquals("2", entities.next().getProperty("_id").getValue());
+        assertFalse(entities.hasNext());
+        assertEquals(Integer.valueOf(5), entities.getCount());
+        assertNull(entities.getNext());
+        verify(hits).close();
+    }
+
+    @Test
+    public void entityCollectionStreamed_AllHits_AllEntitiesWritten() throws Exception {
+        ScrollEntityIterator entities = new ScrollEntityIterator(hits, getEntityType(), 0, -1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        odata.createSerializer(ContentType.JSON)
+                .entityCollectionStreamed(metadata, getEntityType(), entities,
+                        EntityCollectionSerializerOptions.with()
+                                .contextURL(ContextURL.with().entitySet(entitySet).build())
+                                .build())
+                .getODataContent().write(out);
+        JSONObject json = new JSONObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(5, json.getJSONArray("value").length());
+    }
+
+    private ElasticEdmEntityType getEntityType() {
+        return entitySet.getEntityType();
+    }
+
+    private static ScrollHits mockHits(int count) {
+        List<SearchHit> hitsList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SearchHit hit = mock(SearchHit.class);
+            when(hit.getId()).thenReturn(Integer.toString(i));
+            when(hit.getSource()).thenReturn(Collections.emptyMap());
+            hitsList.add(hit);
+        }
+        Iterator<SearchHit> iterator = hitsList.iterator();
+        ScrollHits hits = mock(ScrollHits.class);
+        when(hits.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(hits.next()).thenAnswer(invocation -> iterator.next());
+        when(hits.getTotalHits()).thenReturn((long) count);
+        return hits;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.hevelian.olastic.core.elastic.requests.creators;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.ElasticOData;
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.elastic.requests.CountRequest;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+import com.hevelian.olastic.core.processors.BaseProcessorTest;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link CountRequestCreator} class.
+ *
+ * @author rdidyk
+ */
+public class CountRequestCreatorTest {
+
+    private ElasticOData odata;
+    private ElasticServiceMetadata metadata;
+
+    @Before
+    public void setUp() {
+        odata = ElasticOData.newInstance();
+        metadata = odata.createServiceMetadata(
+                new TestProvider(mock(MappingMetaDataProvider.class)),
+                new ArrayList<EdmxReference>());
+    }
+
+    @Test
+    public void create_CountSegmentWithFilter_FilterQueryCreated() throws Exception {
+        ESRequest request = new CountRequestCreator().create(BaseProcessorTest
+                .buildUriInfo(metadata, odata, "/author/$count", "$filter=name eq 'Dickens'"));
+        assertTrue(request instanceof CountRequest);
+        assertEquals(TestProvider.AUTHOR_TYPE, request.getEntitySet().getEType());
+        assertEquals(TestProvider.AUTHORS_INDEX, request.getQuery().getIndex());
+        assertArrayEquals(new String[] { TestProvider.AUTHOR_TYPE },
+                request.getQuery().getTypes());
+        assertTrue(request.getQuery().getQueryBuilder().toString().contains("\"Dickens\""));
+    }
+
+    @Test
+    public void create_CountSegmentOfNavigation_ParentQueryCreated() throws Exception {
+        ESRequest request = new CountRequestCreator().create(
+                BaseProcessorTest.buildUriInfo(metadata, odata, "/author('1')/book/$count", ""));
+        assertEquals(TestProvider.BOOK_TYPE, request.getEntitySet().getEType());
+        assertArrayEquals(new String[] { TestProvider.BOOK_TYPE }, request.getQuery().getTypes());
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.hevelian.olastic.core.elastic.requests.creators;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.ElasticOData;
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.elastic.ElasticConstants;
+import com.hevelian.olastic.core.elastic.TimeIndexPattern;
+import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.elastic.pagination.Pagination;
+import com.hevelian.olastic.core.elastic.pagination.SkipToken;
+import com.hevelian.olastic.core.elastic.requests.CountRequest;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+import com.hevelian.olastic.core.processors.BaseProcessorTest;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link EntityCollectionRequestCreator} class.
+ *
+ * @author rdidyk
+ */
+public class EntityCollectionRequestCreatorTest {
+
+    private static final String PATH = "/author";
+
+    private ElasticOData odata;
+    private ElasticServiceMetadata metadata;
+
+    @Before
+    public void setUp() {
+        odata = ElasticOData.newInstance();
+        metadata = odata.createServiceMetadata(
+                new TestProvider(mock(MappingMetaDataProvider.class)),
+                new ArrayList<EdmxReference>());
+    }
+
+    @Test
+    public void create_NoTopOption_DefaultPageApplied() throws Exception {
+        Pagination pagination = create(null, "");
+        assertTrue(pagination.isServerDriven());
+        assertEquals(Pagination.TOP_DEFAULT, pagination.getTop());
+        assertEquals(-1, pagination.getRemaining());
+        assertNull(pagination.getSearchAfter());
+    }
+
+    @Test
+    public void create_TopOptionWithoutMaxPageSize_ClientDrivenPaging() throws Exception {
+        Pagination pagination = create(null, "$top=100&$skip=20");
+        assertFalse(pagination.isServerDriven());
+        assertEquals(100, pagination.getTop());
+        assertEquals(20, pagination.getSkip());
+    }
+
+    @Test
+    public void create_TopOptionAndMaxPageSize_PageWithinTopApplied() throws Exception {
+        Pagination pagination = create(10, "$top=15");
+        assertTrue(pagination.isServerDriven());
+        assertEquals(10, pagination.getTop());
+        assertEquals(15, pagination.getRemaining());
+    }
+
+    @Test
+    public void create_MaxPageSizeTooBig_MaxPageSizeLimited() throws Exception {
+        Pagination pagination = create(Integer.MAX_VALUE, "");
+        assertEquals(EntityCollectionRequestCreator.MAX_PAGE_SIZE, pagination.getTop());
+    }
+
+    @Test
+    public void create_SkipTokenOption_SearchAfterApplied() throws Exception {
+        Object[] sortValues = { 1.5f, "author#13" };
+        String token = new SkipToken(5, sortValues).encode();
+        Pagination pagination = create(null, "$skip=3&$skiptoken=" + token);
+        assertTrue(pagination.isServerDriven());
+        assertArrayEquals(sortValues, pagination.getSearchAfter());
+        assertEquals(0, pagination.getSkip());
+        assertEquals(5, pagination.getTop());
+        assertEquals(5, pagination.getRemaining());
+    }
+
+    @Test
+    public void create_ZeroTopOption_CountRequestCreated() throws Exception {
+        ESRequest request = new EntityCollectionRequestCreator(10)
+                .create(BaseProcessorTest.buildUriInfo(metadata, odata, PATH, "$top=0"));
+        assertTrue(request instanceof CountRequest);
+        assertFalse(request.getPagination().isServerDriven());
+    }
+
+    @Test
+    public void create_SkipTokenNotMatchingOrdering_BadRequest() throws Exception {
+        String token = new SkipToken(-1, new Object[] { "author#13" }).encode();
+        assertBadRequest("$skiptoken=" + token);
+    }
+
+    @Test
+    public void create_MalformedSkipToken_BadRequest() throws Exception {
+        assertBadRequest("$skiptoken=abc");
+    }
+
+    @Test
+    public void create_EqualityFilterOnRoutingField_RoutingApplied() throws Exception {
+        assertEquals("Dickens", createRouting("name", PATH,
+                "$filter=name eq 'Dickens' and age gt 30"));
+        assertNull(createRouting("name", PATH,
+                "$filter=name eq 'Dickens' or name eq 'Tolkien'"));
+        assertNull(createRouting(null, PATH, "$filter=name eq 'Dickens'"));
+    }
+
+    @Test
+    public void create_KeyPredicateOfEntityRoutedById_RoutingApplied() throws Exception {
+        assertEquals("1", createRouting(ElasticConstants.ID_FIELD_NAME, "/author('1')", ""));
+    }
+
+    @Test
+    public void create_KeyPredicateOfParent_RoutingApplied() throws Exception {
+        assertEquals("1", createRouting(TestProvider.BOOK_TYPE, ElasticConstants.PARENT_PROPERTY,
+                "/author('1')/book", ""));
+    }
+
+    @Test
+    public void create_TimeRangeFilterOnTimeBasedIndex_ConcreteIndicesSearched()
+            throws Exception {
+        TestProvider provider = new TestProvider(mock(MappingMetaDataProvider.class));
+        provider.setTimeIndexPattern(TestProvider.AUTHORS_INDEX,
+                new TimeIndexPattern("birthDate", "'authors-'yyyy").withIndices(Arrays
+                        .asList("authors-1989", "authors-1990", "authors-1991", "authors-1992")));
+        ElasticServiceMetadata timeMetadata = odata.createServiceMetadata(provider,
+                new ArrayList<EdmxReference>());
+        ESRequest request = new EntityCollectionRequestCreator(null).create(
+                BaseProcessorTest.buildUriInfo(timeMetadata, odata, PATH,
+                        "$filter=birthDate ge 1990-05-01T00:00:00Z"
+                                + " and birthDate lt 1992-01-01T00:00:00Z"));
+        assertArrayEquals(new String[] { "authors-1990", "authors-1991" },
+                request.getQuery().getIndices());
+        assertEquals(TestProvider.AUTHORS_INDEX, request.getQuery().getIndex());
+    }
+
+    private String createRouting(String field, String path, String query) throws Exception {
+        return createRouting(TestProvider.AUTHOR_TYPE, field, path, query);
+    }
+
+    private String createRouting(String type, String field, String path, String query)
+            throws Exception {
+        TestProvider provider = new TestProvider(mock(MappingMetaDataProvider.class));
+        provider.setRoutingField(TestProvider.AUTHORS_INDEX, type, field);
+        ElasticServiceMetadata routedMetadata = odata.createServiceMetadata(provider,
+                new ArrayList<EdmxReference>());
+        return new EntityCollectionRequestCreator(null)
+                .create(BaseProcessorTest.buildUriInfo(routedMetadata, odata, path, query))
+                .getQuery().getRouting();
+    }
+
+    private void assertBadRequest(String query) throws Exception {
+        try {
+            create(null, query);
+        } catch (ODataApplicationException e) {
+            assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Exception expected.");
+    }
+
+    private Pagination create(Integer maxPageSize, String query) throws Exception {
+        return new EntityCollectionRequestCreator(maxPageSize)
+                .create(BaseProcessorTest.buildUriInfo(metadata, odata, PATH, query))
+                .getPagination();
+    }
+
+}
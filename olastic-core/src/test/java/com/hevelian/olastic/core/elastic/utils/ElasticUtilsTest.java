@@ -0,0 +1,44 @@
+package com.hevelian.olastic.core.elastic.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.provider.CsdlAnnotation;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.api.edm.annotations.AnnotationProvider;
+
+/**
+ * Tests for {@link ElasticUtils} class.
+ *
+ * @author rdidyk
+ */
+public class ElasticUtilsTest {
+
+    private static final List<CsdlAnnotation> ANALYZED = Arrays.asList(
+            new AnnotationProvider().getAnnotation(AnnotationProvider.ANALYZED_TERM_NAME));
+
+    @Test
+    public void getQueryField_KeywordFieldFromMapping_KeywordFieldRetrieved() {
+        assertEquals("title.raw", ElasticUtils.getQueryField("title", "raw", ANALYZED));
+    }
+
+    @Test
+    public void getQueryField_NotAnalyzedWithKeywordField_FieldRetrieved() {
+        assertEquals("isbn", ElasticUtils.getQueryField("isbn", "raw", Collections.emptyList()));
+    }
+
+    @Test
+    public void getQueryField_AnalyzedWithoutKeywordField_DefaultKeywordRetrieved() {
+        assertEquals("title.keyword", ElasticUtils.getQueryField("title", null, ANALYZED));
+    }
+
+    @Test
+    public void getQueryField_NotAnalyzed_FieldRetrieved() {
+        assertEquals("year", ElasticUtils.getQueryField("year", null, Collections.emptyList()));
+    }
+
+}
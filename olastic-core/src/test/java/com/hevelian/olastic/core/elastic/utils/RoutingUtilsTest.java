@@ -0,0 +1,79 @@
+package com.hevelian.olastic.core.elastic.utils;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.hasParentQuery;
+import static org.elasticsearch.index.query.QueryBuilders.idsQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.elastic.ElasticConstants;
+
+/**
+ * Tests for {@link RoutingUtils} class.
+ *
+ * @author rdidyk
+ */
+public class RoutingUtilsTest {
+
+    private static final String TENANT = "tenant";
+
+    @Test
+    public void getRouting_NoRoutingField_NoRouting() {
+        assertNull(RoutingUtils.getRouting(termQuery(TENANT, "a"), null));
+    }
+
+    @Test
+    public void getRouting_TermOfRoutingFieldOrSubField_ValueRetrieved() {
+        assertEquals("a", RoutingUtils.getRouting(termQuery(TENANT, "a"), TENANT));
+        assertEquals("a", RoutingUtils.getRouting(termQuery("tenant.keyword", "a"), TENANT));
+        assertNull(RoutingUtils.getRouting(termQuery("tenantName", "a"), TENANT));
+    }
+
+    @Test
+    public void getRouting_ConjunctiveClauses_ValuesIntersected() {
+        QueryBuilder query = boolQuery().must(termQuery("name", "Dickens"))
+                .filter(boolQuery().filter(termsQuery(TENANT, "a", "b", "c")))
+                .filter(termsQuery(TENANT, "b", "c", "d"));
+        assertEquals("b,c", RoutingUtils.getRouting(query, TENANT));
+    }
+
+    @Test
+    public void getRouting_DisjunctiveOrNegatedClauses_NoRouting() {
+        assertNull(RoutingUtils.getRouting(
+                boolQuery().should(termQuery(TENANT, "a")).should(termQuery("name", "b")),
+                TENANT));
+        assertNull(RoutingUtils.getRouting(boolQuery().mustNot(termQuery(TENANT, "a")), TENANT));
+    }
+
+    @Test
+    public void getRouting_DisjointValues_NoRouting() {
+        assertNull(RoutingUtils.getRouting(
+                boolQuery().must(termQuery(TENANT, "a")).must(termQuery(TENANT, "b")), TENANT));
+    }
+
+    @Test
+    public void getRouting_ValueWithDelimiter_NoRouting() {
+        assertNull(RoutingUtils.getRouting(termQuery(TENANT, "a,b"), TENANT));
+    }
+
+    @Test
+    public void getRouting_IdsRoutedById_IdsRetrieved() {
+        QueryBuilder query = boolQuery().must(idsQuery("author").addIds("1", "2"));
+        assertEquals("1,2", RoutingUtils.getRouting(query, ElasticConstants.ID_FIELD_NAME));
+        assertNull(RoutingUtils.getRouting(query, TENANT));
+    }
+
+    @Test
+    public void getRouting_ParentIdsRoutedByParent_ParentIdsRetrieved() {
+        QueryBuilder query = boolQuery()
+                .must(hasParentQuery("author", idsQuery("author").addIds("1"), false));
+        assertEquals("1", RoutingUtils.getRouting(query, ElasticConstants.PARENT_PROPERTY));
+        assertNull(RoutingUtils.getRouting(query, ElasticConstants.ID_FIELD_NAME));
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.hevelian.olastic.core.processors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.AsyncODataRequest;
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.queries.Query;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+import com.hevelian.olastic.core.exceptions.SearchException;
+import com.hevelian.olastic.core.exceptions.SearchRejectedException;
+import com.hevelian.olastic.core.exceptions.SearchTimeoutException;
+import com.hevelian.olastic.core.processors.data.InstanceData;
+import com.hevelian.olastic.core.serializer.StreamedSerializerResult;
+
+/**
+ * Tests for {@link AbstractESReadProcessor} class.
+ *
+ * @author rdidyk
+ */
+public class AbstractESReadProcessorTest extends BaseProcessorTest {
+
+    private static final String CONTENT = "content";
+
+    private ESRequest esRequest;
+    private CompletableFuture<SearchResponse> searchResponse;
+    private TestReadProcessor processor;
+
+    @Before
+    public void setUp() {
+        esRequest = mock(ESRequest.class);
+        searchResponse = new CompletableFuture<>();
+        when(esRequest.executeAsync()).thenReturn(searchResponse);
+        processor = new TestReadProcessor();
+        processor.init(defaultOData, defaultMetadata);
+    }
+
+    @Test
+    public void read_SyncRequest_ResponseFilled() throws Exception {
+        searchResponse.complete(mock(SearchResponse.class));
+        ODataResponse response = new ODataResponse();
+        processor.read(new ODataRequest(), response, null, ContentType.JSON);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals(CONTENT, IOUtils.toString(response.getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void read_StreamedResult_ContentWrittenToResponseStream() throws Exception {
+        processor.streamed = true;
+        searchResponse.complete(mock(SearchResponse.class));
+        ODataResponse response = new ODataResponse();
+        processor.read(new ODataRequest(), response, null, ContentType.JSON);
+        assertNull(response.getContent());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getODataContent().write(out);
+        assertEquals(CONTENT, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = SearchException.class)
+    public void read_SyncRequestFailed_OriginalExceptionThrown() throws Exception {
+        searchResponse.completeExceptionally(new SearchException("test"));
+        processor.read(new ODataRequest(), new ODataResponse(), null, ContentType.JSON);
+    }
+
+    @Test
+    public void read_AsyncRequest_ResponseDeferred() throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        ODataResponse response = new ODataResponse();
+        processor.read(request, response, null, ContentType.JSON);
+        assertNull(response.getContent());
+        assertFalse(request.getDeferredResponse().isDone());
+
+        searchResponse.complete(mock(SearchResponse.class));
+        assertTrue(request.getDeferredResponse().isDone());
+        ODataResponse deferred = request.getDeferredResponse().get();
+        assertEquals(HttpStatusCode.OK.getStatusCode(), deferred.getStatusCode());
+        assertEquals(CONTENT, IOUtils.toString(deferred.getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void read_AsyncRequestFailed_ErrorResponseDeferred() throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        processor.read(request, new ODataResponse(), null, ContentType.JSON);
+        searchResponse.completeExceptionally(new SearchException("test"));
+        ODataResponse deferred = request.getDeferredResponse().get();
+        assertEquals(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(),
+                deferred.getStatusCode());
+        assertTrue(IOUtils.toString(deferred.getContent(), StandardCharsets.UTF_8)
+                .contains("test"));
+    }
+
+    @Test
+    public void read_AsyncRequestParsingFailed_ApplicationErrorStatusDeferred() throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        processor.parsingError = new ODataApplicationException("bad",
+                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+        processor.read(request, new ODataResponse(), null, ContentType.JSON);
+        searchResponse.complete(mock(SearchResponse.class));
+        assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(),
+                request.getDeferredResponse().get().getStatusCode());
+    }
+
+    @Test
+    public void read_WaitPreference_TimeoutAppliedToQuery() throws Exception {
+        Query query = new Query("authors", new String[] { "author" },
+                QueryBuilders.matchAllQuery(), null);
+        when(esRequest.getQuery()).thenReturn(query);
+        searchResponse.complete(mock(SearchResponse.class));
+        ODataRequest request = new ODataRequest();
+        request.addHeader(HttpHeader.PREFER, "wait=3");
+        ODataResponse response = new ODataResponse();
+        processor.read(request, response, null, ContentType.JSON);
+        assertEquals(TimeValue.timeValueSeconds(3), query.getTimeout());
+        assertEquals("wait=3", response.getHeader(HttpHeader.PREFERENCE_APPLIED));
+        assertNull(response.getHeader(AbstractESReadProcessor.WARNING_HEADER));
+    }
+
+    @Test
+    public void read_AsyncRequestWithSession_SessionAppliedToQuery() throws Exception {
+        Query query = new Query("index", new String[] { "type" }, QueryBuilders.matchAllQuery(),
+                null);
+        when(esRequest.getQuery()).thenReturn(query);
+        AsyncODataRequest request = new AsyncODataRequest();
+        request.setSession("user");
+        processor.read(request, new ODataResponse(), null, ContentType.JSON);
+        assertEquals("user", query.getSession());
+    }
+
+    @Test
+    public void read_SearchTimedOut_PartialResultsWarningAdded() throws Exception {
+        SearchResponse timedOut = mock(SearchResponse.class);
+        when(timedOut.isTimedOut()).thenReturn(true);
+        searchResponse.complete(timedOut);
+        ODataResponse response = new ODataResponse();
+        processor.read(new ODataRequest(), response, null, ContentType.JSON);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals(AbstractESReadProcessor.PARTIAL_RESULTS_WARNING,
+                response.getHeader(AbstractESReadProcessor.WARNING_HEADER));
+    }
+
+    @Test
+    public void read_StaleResponse_StaleWarningAdded() throws Exception {
+        Query query = mock(Query.class);
+        when(query.isStale()).thenReturn(true);
+        when(esRequest.getQuery()).thenReturn(query);
+        searchResponse.complete(mock(SearchResponse.class));
+        ODataResponse response = new ODataResponse();
+        processor.read(new ODataRequest(), response, null, ContentType.JSON);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals(AbstractESReadProcessor.STALE_RESPONSE_WARNING,
+                response.getHeader(AbstractESReadProcessor.WARNING_HEADER));
+    }
+
+    @Test
+    public void read_AsyncRequestDeadlineExceeded_GatewayTimeoutDeferred() throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        processor.read(request, new ODataResponse(), null, ContentType.JSON);
+        searchResponse.completeExceptionally(new SearchTimeoutException("timeout"));
+        assertEquals(HttpStatusCode.GATEWAY_TIMEOUT.getStatusCode(),
+                request.getDeferredResponse().get().getStatusCode());
+    }
+
+    @Test
+    public void read_AsyncRequestRejected_ServiceUnavailableWithRetryAfterDeferred()
+            throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        processor.read(request, new ODataResponse(), null, ContentType.JSON);
+        searchResponse.completeExceptionally(new SearchRejectedException("rejected", 3));
+        ODataResponse response = request.getDeferredResponse().get();
+        assertEquals(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode(),
+                response.getStatusCode());
+        assertEquals("3", response.getHeader(HttpHeader.RETRY_AFTER));
+    }
+
+    @Test
+    public void read_SyncRequestRejected_ServiceUnavailableWithRetryAfter() throws Exception {
+        searchResponse.completeExceptionally(new SearchRejectedException("rejected", 1));
+        ODataResponse response = new ODataResponse();
+        processor.read(new ODataRequest(), response, null, ContentType.JSON);
+        assertEquals(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode(),
+                response.getStatusCode());
+        assertEquals("1", response.getHeader(HttpHeader.RETRY_AFTER));
+    }
+
+    @Test
+    public void read_AsyncRequestCancelled_SearchCancelled() throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        processor.read(request, new ODataResponse(), null, ContentType.JSON);
+        request.cancel();
+        assertTrue(searchResponse.isCancelled());
+        assertTrue(request.getDeferredResponse().isDone());
+    }
+
+    /**
+     * Processor which serializes constant content.
+     */
+    private class TestReadProcessor extends AbstractESReadProcessor<Object, Object> {
+
+        private ODataApplicationException parsingError;
+        private boolean streamed;
+
+        @Override
+        protected ESRequest createRequest(UriInfo uriInfo) {
+            return esRequest;
+        }
+
+        @Override
+        protected InstanceData<Object, Object> parseResponse(SearchResponse response,
+                ElasticEdmEntitySet entitySet) throws ODataApplicationException {
+            if (parsingError != null) {
+                throw parsingError;
+            }
+            return new InstanceData<>(null, null);
+        }
+
+        @Override
+        protected SerializerResult serialize(ODataSerializer serializer,
+                InstanceData<Object, Object> data, ElasticEdmEntitySet entitySet,
+                UriInfo uriInfo) {
+            if (streamed) {
+                return new StreamedSerializerResult(
+                        stream -> stream.write(CONTENT.getBytes(StandardCharsets.UTF_8)));
+            }
+            return () -> new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.core.uri.parser.Parser;
 import org.apache.olingo.server.core.uri.parser.UriParserException;
 import org.apache.olingo.server.core.uri.validator.UriValidationException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
@@ -93,6 +94,10 @@ public abstract class BaseProcessorTest {
         when(builder.execute()).thenReturn(action);
         when(builder.setQuery(any(QueryBuilder.class))).thenReturn(builder);
         when(action.actionGet()).thenReturn(response);
+        doAnswer(invocation -> {
+            ((ActionListener<SearchResponse>) invocation.getArgument(0)).onResponse(response);
+            return null;
+        }).when(builder).execute(any(ActionListener.class));
         when(client.prepareSearch(anyString())).thenReturn(builder);
         return client;
     }
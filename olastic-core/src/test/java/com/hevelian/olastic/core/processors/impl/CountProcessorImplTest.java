@@ -0,0 +1,82 @@
+package com.hevelian.olastic.core.processors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.elasticsearch.action.search.SearchResponse;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.AsyncODataRequest;
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.requests.ESRequest;
+import com.hevelian.olastic.core.processors.BaseProcessorTest;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link CountProcessorImpl} class.
+ *
+ * @author rdidyk
+ */
+public class CountProcessorImplTest extends BaseProcessorTest {
+
+    @Test
+    public void read_SyncRequest_CountWrittenAsPlainText() throws Exception {
+        ODataResponse response = new ODataResponse();
+        createProcessor(42).read(new ODataRequest(), response, null, ContentType.TEXT_PLAIN);
+        assertCount(response, "42");
+    }
+
+    @Test
+    public void read_AsyncRequest_CountResponseDeferred() throws Exception {
+        AsyncODataRequest request = new AsyncODataRequest();
+        createProcessor(7).read(request, new ODataResponse(), null, ContentType.TEXT_PLAIN);
+        assertCount(request.getDeferredResponse().get(), "7");
+    }
+
+    @Test
+    public void read_CountOverIntegerRange_CountNotTruncated() throws Exception {
+        ODataResponse response = new ODataResponse();
+        createProcessor(Integer.MAX_VALUE + 1L).read(new ODataRequest(), response, null,
+                ContentType.TEXT_PLAIN);
+        assertCount(response, "2147483648");
+    }
+
+    private static void assertCount(ODataResponse response, String count) throws Exception {
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals(ContentType.TEXT_PLAIN.toContentTypeString(),
+                response.getHeader(HttpHeader.CONTENT_TYPE));
+        assertEquals(count, IOUtils.toString(response.getContent(), StandardCharsets.UTF_8));
+    }
+
+    private CountProcessorImpl createProcessor(long totalHits) {
+        SearchResponse searchResponse = mock(SearchResponse.class, RETURNS_DEEP_STUBS);
+        when(searchResponse.getHits().getTotalHits()).thenReturn(totalHits);
+        ElasticEdmEntitySet entitySet = (ElasticEdmEntitySet) defaultMetadata.getEdm()
+                .getEntityContainer().getEntitySet(TestProvider.AUTHOR_TYPE);
+        ESRequest esRequest = mock(ESRequest.class);
+        when(esRequest.getEntitySet()).thenReturn(entitySet);
+        when(esRequest.executeAsync())
+                .thenReturn(CompletableFuture.completedFuture(searchResponse));
+        CountProcessorImpl processor = new CountProcessorImpl() {
+            @Override
+            protected ESRequest createRequest(UriInfo uriInfo) {
+                return esRequest;
+            }
+        };
+        processor.init(defaultOData, defaultMetadata);
+        return processor;
+    }
+
+}
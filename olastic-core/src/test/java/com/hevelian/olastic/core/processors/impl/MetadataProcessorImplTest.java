@@ -0,0 +1,151 @@
+package com.hevelian.olastic.core.processors.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.hevelian.olastic.core.processors.BaseProcessorTest;
+
+/**
+ * Tests for {@link MetadataProcessorImpl} class.
+ *
+ * @author rdidyk
+ */
+public class MetadataProcessorImplTest extends BaseProcessorTest {
+
+    private static final String SERVICE_ROOT = "http://localhost:8080/odata";
+
+    private MetadataProcessorImpl processor;
+
+    @Before
+    public void setUp() {
+        processor = new MetadataProcessorImpl();
+        processor.init(defaultOData, defaultMetadata);
+    }
+
+    @Test
+    public void readMetadata_NoETag_DocumentWithETagRetrieved() throws Exception {
+        ODataResponse response = new ODataResponse();
+        processor.readMetadata(new ODataRequest(), response, null, ContentType.APPLICATION_XML);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals(defaultMetadata.getDocuments().getMetadataETag(),
+                response.getHeader(HttpHeader.ETAG));
+        assertNull(response.getHeader(HttpHeader.CONTENT_ENCODING));
+        assertEquals("Accept, Accept-Encoding", response.getHeader(HttpHeader.VARY));
+        assertArrayEquals(
+                defaultMetadata.getDocuments().getMetadataDocument(ContentType.APPLICATION_XML)
+                        .getContent(),
+                ByteStreams.toByteArray(response.getContent()));
+    }
+
+    @Test
+    public void readMetadata_MatchingIfNoneMatch_NotModifiedRetrieved() throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setHeader(HttpHeader.IF_NONE_MATCH,
+                defaultMetadata.getDocuments().getMetadataETag());
+        ODataResponse response = new ODataResponse();
+        processor.readMetadata(request, response, null, ContentType.APPLICATION_XML);
+        assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+        assertNull(response.getContent());
+    }
+
+    @Test
+    public void readMetadata_AcceptGzipAndPlainETag_GzippedDocumentWithOtherETagRetrieved()
+            throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setHeader(HttpHeader.ACCEPT_ENCODING, "gzip");
+        request.setHeader(HttpHeader.IF_NONE_MATCH,
+                defaultMetadata.getDocuments().getMetadataETag());
+        ODataResponse response = new ODataResponse();
+        processor.readMetadata(request, response, null, ContentType.APPLICATION_XML);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals("gzip", response.getHeader(HttpHeader.CONTENT_ENCODING));
+        assertEquals(defaultMetadata.getDocuments().getMetadataDocument(
+                ContentType.APPLICATION_XML).getGzippedETag(), response.getHeader(HttpHeader.ETAG));
+        assertNotEquals(defaultMetadata.getDocuments().getMetadataETag(),
+                response.getHeader(HttpHeader.ETAG));
+    }
+
+    @Test
+    public void readMetadata_OtherIfNoneMatch_DocumentRetrieved() throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setHeader(HttpHeader.IF_NONE_MATCH, "\"other\"");
+        ODataResponse response = new ODataResponse();
+        processor.readMetadata(request, response, null, ContentType.APPLICATION_XML);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertNotNull(response.getContent());
+    }
+
+    @Test
+    public void readServiceDocument_AcceptGzip_GzippedDocumentRetrieved() throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setRawBaseUri(SERVICE_ROOT);
+        request.setHeader(HttpHeader.ACCEPT_ENCODING, "deflate, gzip;q=0.8");
+        ODataResponse response = new ODataResponse();
+        processor.readServiceDocument(request, response, null, ContentType.JSON);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertEquals("gzip", response.getHeader(HttpHeader.CONTENT_ENCODING));
+        assertArrayEquals(
+                defaultMetadata.getDocuments().getServiceDocument(ContentType.JSON, SERVICE_ROOT)
+                        .getContent(),
+                unzip(response));
+    }
+
+    @Test
+    public void readServiceDocument_GzipNotAccepted_PlainDocumentRetrieved() throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setRawBaseUri(SERVICE_ROOT);
+        request.setHeader(HttpHeader.ACCEPT_ENCODING, "gzip;q=0");
+        ODataResponse response = new ODataResponse();
+        processor.readServiceDocument(request, response, null, ContentType.JSON);
+        assertNull(response.getHeader(HttpHeader.CONTENT_ENCODING));
+        assertEquals(defaultMetadata.getDocuments()
+                .getServiceDocument(ContentType.JSON, SERVICE_ROOT).getETag(),
+                response.getHeader(HttpHeader.ETAG));
+    }
+
+    @Test
+    public void readServiceDocument_OtherServiceRoot_OtherETagRetrieved() throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setRawBaseUri(SERVICE_ROOT);
+        request.setHeader(HttpHeader.IF_NONE_MATCH, defaultMetadata.getDocuments()
+                .getServiceDocument(ContentType.JSON, "http://other/odata").getETag());
+        ODataResponse response = new ODataResponse();
+        processor.readServiceDocument(request, response, null, ContentType.JSON);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+        assertNotEquals(defaultMetadata.getDocuments().getMetadataETag(),
+                response.getHeader(HttpHeader.ETAG));
+    }
+
+    @Test
+    public void readServiceDocument_OtherFormat_OtherETagRetrieved() throws Exception {
+        ODataRequest request = new ODataRequest();
+        request.setRawBaseUri(SERVICE_ROOT);
+        request.setHeader(HttpHeader.IF_NONE_MATCH, defaultMetadata.getDocuments()
+                .getServiceDocument(ContentType.JSON, SERVICE_ROOT).getETag());
+        ODataResponse response = new ODataResponse();
+        processor.readServiceDocument(request, response, null, ContentType.APPLICATION_XML);
+        assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    }
+
+    private static byte[] unzip(ODataResponse response) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(response.getContent())) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.hevelian.olastic.core.serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StreamedSerializerResult} class.
+ *
+ * @author rdidyk
+ */
+public class StreamedSerializerResultTest {
+
+    private static final String CONTENT = "content";
+
+    private final StreamedSerializerResult result = new StreamedSerializerResult(
+            stream -> stream.write(CONTENT.getBytes(StandardCharsets.UTF_8)));
+
+    @Test
+    public void getODataContent_WrittenToStream_ContentWritten() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.getODataContent().write(out);
+        assertEquals(CONTENT, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void getContent_ContentRequestedAsStream_ContentBuffered() throws Exception {
+        assertEquals(CONTENT, IOUtils.toString(result.getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void getODataContent_WritingFailed_ExceptionWrapped() {
+        IOException error = new IOException("test");
+        try {
+            new StreamedSerializerResult(stream -> {
+                throw error;
+            }).getODataContent().write(new ByteArrayOutputStream());
+            fail("Writing has to fail.");
+        } catch (ODataRuntimeException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.hevelian.olastic.core.serializer.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.uri.queryoption.CountOption;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.ElasticOData;
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link ElasticODataJsonSerializer} class.
+ *
+ * @author rdidyk
+ */
+public class ElasticODataJsonSerializerTest {
+
+    private static final URI NEXT = URI.create("http://localhost/odata/author?$skiptoken=abc");
+
+    @Test
+    public void entityCollectionStreamed_NextLink_NextLinkWritten() throws Exception {
+        ElasticOData odata = ElasticOData.newInstance();
+        ElasticServiceMetadata metadata = odata.createServiceMetadata(
+                new TestProvider(mock(MappingMetaDataProvider.class)),
+                new ArrayList<EdmxReference>());
+        ElasticEdmEntitySet entitySet = (ElasticEdmEntitySet) metadata.getEdm()
+                .getEntityContainer().getEntitySet(TestProvider.AUTHOR_TYPE);
+        EntityCollection entities = new EntityCollection();
+        for (int i = 0; i < 2; i++) {
+            Entity entity = new Entity();
+            entity.setId(URI.create("author('" + i + "')"));
+            entity.addProperty(new Property(null, "_id", ValueType.PRIMITIVE, "" + i));
+            entity.addProperty(new Property(null, "name", ValueType.PRIMITIVE, "Dan"));
+            entities.getEntities().add(entity);
+        }
+        entities.setCount(2);
+        entities.setNext(NEXT);
+        CountOption count = mock(CountOption.class);
+        when(count.getValue()).thenReturn(true);
+        EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+                .contextURL(ContextURL.with().entitySet(entitySet).build())
+                .id("http://localhost/odata/author").count(count).build();
+
+        ODataSerializer serializer = odata.createSerializer(ContentType.JSON);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.entityCollectionStreamed(metadata, entitySet.getEntityType(),
+                iterator(entities), options).getODataContent().write(out);
+        String streamed = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(read(serializer.entityCollection(metadata, entitySet.getEntityType(),
+                entities, options).getContent()), streamed);
+    }
+
+    private static EntityIterator iterator(EntityCollection entities) {
+        Iterator<Entity> iterator = entities.iterator();
+        return new EntityIterator() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entity next() {
+                return iterator.next();
+            }
+
+            @Override
+            public Integer getCount() {
+                return entities.getCount();
+            }
+
+            @Override
+            public URI getNext() {
+                return entities.getNext();
+            }
+        };
+    }
+
+    private static String read(InputStream content) throws Exception {
+        return IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+
+}
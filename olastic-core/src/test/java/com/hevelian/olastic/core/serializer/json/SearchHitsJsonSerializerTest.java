@@ -0,0 +1,173 @@
+package com.hevelian.olastic.core.serializer.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.uri.queryoption.CountOption;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.hevelian.olastic.core.ElasticOData;
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEntityType;
+import com.hevelian.olastic.core.edm.ElasticEdmEntitySet;
+import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
+import com.hevelian.olastic.core.elastic.parsers.EntityCollectionParser;
+import com.hevelian.olastic.core.stub.TestProvider;
+
+/**
+ * Tests for {@link SearchHitsJsonSerializer} class.
+ *
+ * @author rdidyk
+ */
+public class SearchHitsJsonSerializerTest {
+
+    private static final URI NEXT = URI.create("http://localhost/odata/author?$skiptoken=abc");
+
+    private final ElasticOData odata = ElasticOData.newInstance();
+
+    @Test
+    public void isSupported_DifferentFormats_OnlyMinimalAndNoMetadataJsonSupported() {
+        assertTrue(SearchHitsJsonSerializer.isSupported(ContentType.JSON));
+        assertTrue(SearchHitsJsonSerializer.isSupported(ContentType.JSON_NO_METADATA));
+        assertFalse(SearchHitsJsonSerializer.isSupported(ContentType.JSON_FULL_METADATA));
+        assertFalse(SearchHitsJsonSerializer.isSupported(ContentType.APPLICATION_ATOM_XML));
+        assertFalse(SearchHitsJsonSerializer.isSupported(ContentType.create(ContentType.JSON,
+                ContentType.PARAMETER_IEEE754_COMPATIBLE, "true")));
+    }
+
+    @Test
+    public void entityCollection_MinimalMetadata_SameOutputAsODataSerializer() throws Exception {
+        ElasticServiceMetadata metadata = createMetadata(true);
+        SearchHit[] hits = new SearchHit[] {
+                hit("1", "{\"name\":\"Dan\",\"age\":45,\"birthDate\":\"1972-05-13T00:00:00Z\"}"),
+                hit("2", "{\"age\":null,\"name\":\"Jo \\\"J\\\" Smith\"}"), hit("3", "{}") };
+        assertSameOutput(metadata, ContentType.JSON, hits, 10, NEXT);
+    }
+
+    @Test
+    public void entityCollection_NoMetadataWithoutCount_SameOutputAsODataSerializer()
+            throws Exception {
+        ElasticServiceMetadata metadata = createMetadata(true);
+        SearchHit[] hits = new SearchHit[] { hit("1", "{\"name\":\"Dan\",\"age\":45}") };
+        assertSameOutput(metadata, ContentType.JSON_NO_METADATA, hits, null, null);
+    }
+
+    @Test
+    public void entityCollection_ComplexProperties_NotSerialized() throws Exception {
+        ElasticServiceMetadata metadata = createMetadata(false);
+        SearchHit[] hits = new SearchHit[] { hit("1", "{\"name\":\"Dan\"}") };
+        assertNull(new SearchHitsJsonSerializer(ContentType.JSON).entityCollection(metadata,
+                getEntitySet(metadata).getEntityType(), hits, null, null,
+                createOptions(metadata, null)));
+    }
+
+    @Test
+    public void entityCollection_UnknownOrObjectField_NotSerialized() throws Exception {
+        ElasticServiceMetadata metadata = createMetadata(true);
+        SearchHitsJsonSerializer serializer = new SearchHitsJsonSerializer(ContentType.JSON);
+        assertNull(serializer.entityCollection(metadata, getEntitySet(metadata).getEntityType(),
+                new SearchHit[] { hit("1", "{\"unknown\":1}") }, null, null,
+                createOptions(metadata, null)));
+        assertNull(serializer.entityCollection(metadata, getEntitySet(metadata).getEntityType(),
+                new SearchHit[] { hit("1", "{\"name\":{\"first\":\"Dan\"}}") }, null, null,
+                createOptions(metadata, null)));
+        assertNull(serializer.entityCollection(metadata, getEntitySet(metadata).getEntityType(),
+                new SearchHit[] { new InternalSearchHit(0, "1", new Text("author"), null) },
+                null, null, createOptions(metadata, null)));
+    }
+
+    private void assertSameOutput(ElasticServiceMetadata metadata, ContentType format,
+            SearchHit[] hits, Integer count, URI next) throws Exception {
+        ElasticEdmEntitySet entitySet = getEntitySet(metadata);
+        EntityCollectionSerializerOptions options = createOptions(metadata, count);
+        EntityCollection entities = new EntityCollection();
+        EntityCollectionParser parser = new EntityCollectionParser(count != null);
+        for (SearchHit hit : hits) {
+            entities.getEntities().add(parser.parseEntity(hit, entitySet.getEntityType()));
+        }
+        entities.setCount(count);
+        entities.setNext(next);
+        String expected = read(odata.createSerializer(format)
+                .entityCollection(metadata, entitySet.getEntityType(), entities, options)
+                .getContent());
+
+        InputStream content = new SearchHitsJsonSerializer(format)
+                .entityCollection(metadata, entitySet.getEntityType(), hits, count, next,
+                        options)
+                .getContent();
+        assertNotNull(content);
+        String actual = read(content);
+        assertTrue(expected + " != " + actual,
+                new JSONObject(expected).similar(new JSONObject(actual)));
+        assertEquals(expected.length(), actual.length());
+    }
+
+    private ElasticServiceMetadata createMetadata(boolean primitiveOnly) {
+        TestProvider provider = new TestProvider(mock(MappingMetaDataProvider.class)) {
+            @Override
+            public ElasticCsdlEntityType getEntityType(FullQualifiedName entityTypeName)
+                    throws ODataException {
+                ElasticCsdlEntityType entityType = super.getEntityType(entityTypeName);
+                if (primitiveOnly && entityType != null) {
+                    entityType.setProperties(entityType.getProperties().stream()
+                            .filter(property -> !property.isCollection())
+                            .collect(Collectors.toList()));
+                }
+                return entityType;
+            }
+        };
+        return odata.createServiceMetadata(provider, new ArrayList<EdmxReference>());
+    }
+
+    private EntityCollectionSerializerOptions createOptions(ElasticServiceMetadata metadata,
+            Integer count) {
+        CountOption countOption = null;
+        if (count != null) {
+            countOption = mock(CountOption.class);
+            when(countOption.getValue()).thenReturn(true);
+        }
+        return EntityCollectionSerializerOptions.with()
+                .contextURL(ContextURL.with().entitySet(getEntitySet(metadata)).build())
+                .count(countOption).build();
+    }
+
+    private static ElasticEdmEntitySet getEntitySet(ElasticServiceMetadata metadata) {
+        return (ElasticEdmEntitySet) metadata.getEdm().getEntityContainer()
+                .getEntitySet(TestProvider.AUTHOR_TYPE);
+    }
+
+    private static SearchHit hit(String id, String source) {
+        return new InternalSearchHit(0, id, new Text(TestProvider.AUTHOR_TYPE),
+                Collections.emptyMap()).sourceRef(new BytesArray(source));
+    }
+
+    private static String read(InputStream content) throws Exception {
+        return IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+
+}
@@ -251,6 +251,8 @@ public class TestProvider extends ElasticCsdlEdmProvider {
             String entitySetName) throws ODataException {
         ElasticCsdlEntitySet entitySet = new ElasticCsdlEntitySet();
         entitySet.setEIndex(AUTHORS_INDEX);
+        entitySet.setERoutingField(getRoutingField(AUTHORS_INDEX, entitySetName));
+        entitySet.setETimeIndexPattern(getTimeIndexPattern(AUTHORS_INDEX));
         if (entityContainer.equals(CONTAINER)) {
             if (entitySetName.equals(AUTHOR_TYPE)) {
                 entitySet.setEType(AUTHOR_TYPE).setName(AUTHOR_TYPE).setType(AUTHOR_FQN);
@@ -1,20 +1,27 @@
 package com.hevelian.olastic.config;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequest;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
 
 import com.hevelian.olastic.core.elastic.ESClient;
+import com.hevelian.olastic.core.elastic.LatencyAwareClient;
 
 /**
- * Elasticsearch client configuration class.
+ * Elasticsearch client configuration class. If multiple seed addresses are
+ * configured or sniffing is enabled, each request is sent to the node with the
+ * lowest expected latency, see {@link LatencyAwareClient}.
  * 
  * @author rdidyk
  */
@@ -37,13 +44,55 @@ public class ESConfigImpl implements ESConfig {
      *             if no IP address for the host could be found
      */
     public ESConfigImpl(String host, int port, String cluster) throws UnknownHostException {
-        Settings settings = Settings.builder().put("cluster.name", cluster).build();
-        this.client = initClient(settings,
-                new InetSocketTransportAddress(InetAddress.getByName(host), port));
+        this(new TransportConfig(cluster,
+                Collections.singletonList(InetSocketAddress.createUnresolved(host, port))));
+    }
+
+    /**
+     * Creates a new Elasticsearch client configuration with transport
+     * configuration.
+     * 
+     * @param config
+     *            transport configuration
+     * @throws UnknownHostException
+     *             if no IP address for any of seed hosts could be found
+     */
+    public ESConfigImpl(TransportConfig config) throws UnknownHostException {
+        this.client = initClient(config);
         initESClient();
         this.indices = loadIndices();
     }
 
+    /**
+     * Initialize's Elasticsearch {@link Client} with transport configuration.
+     * If requests have to be balanced, transport client only discovers nodes,
+     * and every node gets its own client without sniffing.
+     * 
+     * @param config
+     *            transport configuration
+     * @return client instance
+     * @throws UnknownHostException
+     *             if no IP address for any of seed hosts could be found
+     */
+    protected Client initClient(TransportConfig config) throws UnknownHostException {
+        Settings settings = config.toSettings();
+        List<InetSocketAddress> seeds = config.getSeeds();
+        TransportAddress[] addresses = new TransportAddress[seeds.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = new InetSocketTransportAddress(
+                    InetAddress.getByName(seeds.get(i).getHostString()), seeds.get(i).getPort());
+        }
+        if (!config.isBalanced()) {
+            return initClient(settings, addresses[0]);
+        }
+        TransportClient discoveryClient = new PreBuiltTransportClient(settings);
+        discoveryClient.addTransportAddresses(addresses);
+        Settings nodeSettings = Settings.builder().put(settings)
+                .put(TransportClient.CLIENT_TRANSPORT_SNIFF.getKey(), false).build();
+        return new LatencyAwareClient(discoveryClient,
+                node -> initClient(nodeSettings, node.getAddress()));
+    }
+
     /**
      * Initialize's Elasticsearch {@link Client}.
      * 
@@ -68,13 +117,14 @@ public class ESConfigImpl implements ESConfig {
     }
 
     /**
-     * Load's indices from Elasticsearch.
+     * Load's indices from Elasticsearch. Only index names are needed, so no
+     * statistics metrics are requested.
      * 
      * @return indices set
      */
     protected Set<String> loadIndices() {
-        return client.admin().indices().stats(new IndicesStatsRequest()).actionGet().getIndices()
-                .keySet();
+        return client.admin().indices().stats(new IndicesStatsRequest().clear()).actionGet()
+                .getIndices().keySet();
     }
 
     @Override
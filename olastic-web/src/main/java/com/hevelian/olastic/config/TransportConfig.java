@@ -0,0 +1,157 @@
+package com.hevelian.olastic.config;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Configuration of transport connection to Elasticsearch cluster: seed
+ * addresses, sniffing and timeouts. Default values are the same as defaults
+ * of transport client.
+ *
+ * @author rdidyk
+ */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TransportConfig {
+
+    /** Context parameter with comma separated seed addresses (host:port). */
+    public static final String HOSTS_PARAM = "elastic.hosts";
+    /** Context parameter with host name, used if there are no seed addresses. */
+    public static final String HOST_PARAM = "elastic.host";
+    /** Context parameter with port number, used if there are no seed addresses. */
+    public static final String PORT_PARAM = "elastic.port";
+    /** Context parameter with cluster name. */
+    public static final String CLUSTER_PARAM = "elastic.cluster";
+    /** Context parameter to discover all data nodes of cluster. */
+    public static final String SNIFF_PARAM = "elastic.sniff";
+    /** Context parameter with nodes ping timeout in milliseconds. */
+    public static final String PING_TIMEOUT_PARAM = "elastic.ping.timeout";
+    /** Context parameter with nodes sampling interval in milliseconds. */
+    public static final String SAMPLER_INTERVAL_PARAM = "elastic.sampler.interval";
+    /** Context parameter with connect timeout in milliseconds. */
+    public static final String CONNECT_TIMEOUT_PARAM = "elastic.connect.timeout";
+    /** Default transport port. */
+    public static final int DEFAULT_PORT = 9300;
+
+    @Setter(AccessLevel.NONE)
+    final String cluster;
+    @Setter(AccessLevel.NONE)
+    final List<InetSocketAddress> seeds;
+    boolean sniff;
+    TimeValue pingTimeout = TimeValue.timeValueSeconds(5);
+    TimeValue samplerInterval = TimeValue.timeValueSeconds(5);
+    TimeValue connectTimeout = TimeValue.timeValueSeconds(30);
+
+    /**
+     * Creates configuration with default settings.
+     *
+     * @param cluster
+     *            cluster name
+     * @param seeds
+     *            seed addresses, host names aren't resolved yet
+     */
+    public TransportConfig(String cluster, List<InetSocketAddress> seeds) {
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("At least one seed address is required.");
+        }
+        this.cluster = cluster;
+        this.seeds = Collections.unmodifiableList(new ArrayList<>(seeds));
+    }
+
+    /**
+     * Creates configuration from servlet context parameters.
+     *
+     * @param context
+     *            servlet context
+     * @return configuration
+     */
+    public static TransportConfig fromContext(ServletContext context) {
+        String hosts = context.getInitParameter(HOSTS_PARAM);
+        if (hosts == null || hosts.trim().isEmpty()) {
+            String port = context.getInitParameter(PORT_PARAM);
+            hosts = context.getInitParameter(HOST_PARAM) + ':'
+                    + (port != null ? port.trim() : DEFAULT_PORT);
+        }
+        TransportConfig config = new TransportConfig(context.getInitParameter(CLUSTER_PARAM),
+                parseSeeds(hosts));
+        config.setSniff(Boolean.parseBoolean(context.getInitParameter(SNIFF_PARAM)));
+        config.setPingTimeout(getTime(context, PING_TIMEOUT_PARAM, config.getPingTimeout()));
+        config.setSamplerInterval(
+                getTime(context, SAMPLER_INTERVAL_PARAM, config.getSamplerInterval()));
+        config.setConnectTimeout(
+                getTime(context, CONNECT_TIMEOUT_PARAM, config.getConnectTimeout()));
+        return config;
+    }
+
+    /**
+     * Parses comma separated seed addresses. If address has no port, default
+     * port is used.
+     *
+     * @param hosts
+     *            comma separated addresses in host:port format
+     * @return list of unresolved addresses
+     */
+    public static List<InetSocketAddress> parseSeeds(String hosts) {
+        List<InetSocketAddress> seeds = new ArrayList<>();
+        for (String host : hosts.split(",")) {
+            String address = host.trim();
+            if (address.isEmpty()) {
+                continue;
+            }
+            int separator = address.lastIndexOf(':');
+            if (separator > 0 && address.indexOf(']', separator) < 0) {
+                seeds.add(InetSocketAddress.createUnresolved(
+                        address.substring(0, separator).replaceAll("^\\[|\\]$", ""),
+                        Integer.parseInt(address.substring(separator + 1))));
+            } else {
+                seeds.add(InetSocketAddress.createUnresolved(address.replaceAll("^\\[|\\]$", ""),
+                        DEFAULT_PORT));
+            }
+        }
+        return seeds;
+    }
+
+    /**
+     * @return true if requests have to be balanced between multiple nodes
+     */
+    public boolean isBalanced() {
+        return sniff || seeds.size() > 1;
+    }
+
+    /**
+     * Creates settings of transport client.
+     *
+     * @return client settings
+     */
+    public Settings toSettings() {
+        return Settings.builder().put("cluster.name", cluster)
+                .put(TransportClient.CLIENT_TRANSPORT_SNIFF.getKey(), sniff)
+                .put(TransportClient.CLIENT_TRANSPORT_PING_TIMEOUT.getKey(),
+                        pingTimeout.getStringRep())
+                .put(TransportClient.CLIENT_TRANSPORT_NODES_SAMPLER_INTERVAL.getKey(),
+                        samplerInterval.getStringRep())
+                .put("transport.tcp.connect_timeout", connectTimeout.getStringRep()).build();
+    }
+
+    private static TimeValue getTime(ServletContext context, String name,
+            TimeValue defaultValue) {
+        String value = context.getInitParameter(name);
+        return value != null ? TimeValue.timeValueMillis(Long.parseLong(value.trim()))
+                : defaultValue;
+    }
+
+}
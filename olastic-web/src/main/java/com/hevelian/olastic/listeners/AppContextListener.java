@@ -8,6 +8,7 @@ import javax.servlet.ServletContextListener;
 
 import com.hevelian.olastic.config.ESConfig;
 import com.hevelian.olastic.config.ESConfigImpl;
+import com.hevelian.olastic.config.TransportConfig;
 
 import lombok.extern.log4j.Log4j2;
 
@@ -17,11 +18,8 @@ public class AppContextListener implements ServletContextListener {
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         ServletContext ctx = sce.getServletContext();
-        String host = ctx.getInitParameter("elastic.host");
-        String port = ctx.getInitParameter("elastic.port");
-        String cluster = ctx.getInitParameter("elastic.cluster");
         try {
-            ESConfig config = new ESConfigImpl(host, Integer.valueOf(port), cluster);
+            ESConfig config = new ESConfigImpl(TransportConfig.fromContext(ctx));
             ctx.setAttribute(ESConfig.getName(), config);
         } catch (UnknownHostException e) {
             log.debug(e);
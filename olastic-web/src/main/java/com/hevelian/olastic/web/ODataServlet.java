@@ -1,27 +1,57 @@
 package com.hevelian.olastic.web;
 
+import com.google.common.io.ByteStreams;
 import com.hevelian.olastic.config.ESConfig;
+import com.hevelian.olastic.core.AsyncODataRequest;
+import com.hevelian.olastic.core.ElasticEdmSnapshot;
 import com.hevelian.olastic.core.ElasticOData;
+import com.hevelian.olastic.core.ElasticServiceMetadata;
+import com.hevelian.olastic.core.SnapshotWarmer;
 import com.hevelian.olastic.core.api.edm.provider.ElasticCsdlEdmProvider;
 import com.hevelian.olastic.core.api.edm.provider.MultyElasticIndexCsdlEdmProvider;
+import com.hevelian.olastic.core.elastic.CircuitBreaker;
+import com.hevelian.olastic.core.elastic.ConcurrencyLimiter;
+import com.hevelian.olastic.core.elastic.ESClient;
+import com.hevelian.olastic.core.elastic.PreferenceStrategy;
+import com.hevelian.olastic.core.elastic.ResultCache;
+import com.hevelian.olastic.core.elastic.TimeIndexPattern;
 import com.hevelian.olastic.core.elastic.mappings.DefaultMetaDataProvider;
 import com.hevelian.olastic.core.elastic.mappings.MappingMetaDataProvider;
 import com.hevelian.olastic.core.processors.impl.EntityCollectionProcessorHandler;
 import com.hevelian.olastic.core.processors.impl.EntityProcessorHandler;
+import com.hevelian.olastic.core.processors.impl.MetadataProcessorImpl;
 import com.hevelian.olastic.core.processors.impl.PrimitiveProcessorImpl;
 import org.apache.olingo.commons.api.edm.provider.CsdlEdmProvider;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataHttpHandler;
+import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * OData servlet that currently connects to the local instance of the
@@ -33,32 +63,428 @@ import java.util.Set;
 public class ODataServlet extends HttpServlet {
 
     private static final long serialVersionUID = -7048611704658443045L;
+    /** Init parameter with maximum amount of cached schemas, enables lazy mode. */
+    public static final String SCHEMA_CACHE_SIZE_PARAM = "schema.cache.size";
+    /** Init parameter with parallelism level of schemas loading. */
+    public static final String SCHEMA_PARALLELISM_PARAM = "schema.parallelism";
+    /** Init parameter with maximum amount of cached mappings entries. */
+    public static final String MAPPINGS_CACHE_SIZE_PARAM = "mappings.cache.size";
+    /** Init parameter with maximum size of cached results in bytes, enables cache. */
+    public static final String RESULT_CACHE_SIZE_PARAM = "result.cache.size";
+    /** Init parameter with time to live of cached results in milliseconds. */
+    public static final String RESULT_CACHE_TTL_PARAM = "result.cache.ttl";
+    /** Init parameter with time in milliseconds to serve expired results if cluster fails. */
+    public static final String RESULT_CACHE_STALE_PARAM = "result.cache.stale";
+    /** Init parameter to enable warm-up of EDM snapshot on startup. */
+    public static final String WARMUP_ENABLED_PARAM = "warmup.enabled";
+    /** Init parameter with whitespace separated warm-up queries. */
+    public static final String WARMUP_QUERIES_PARAM = "warmup.queries";
+    /** Init parameter with amount of warm-up rounds. */
+    public static final String WARMUP_ROUNDS_PARAM = "warmup.rounds";
+    /** Init parameter with comma separated entity sets to warm up, all by default. */
+    public static final String WARMUP_ENTITY_SETS_PARAM = "warmup.entity.sets";
+    /** Init parameter with amount of entity sets warmed up in parallel. */
+    public static final String WARMUP_PARALLELISM_PARAM = "warmup.parallelism";
+    /** Init parameter to warm up in background instead of delaying startup. */
+    public static final String WARMUP_ASYNC_PARAM = "warmup.async";
+    /** Init parameter with default search timeout in milliseconds. */
+    public static final String REQUEST_TIMEOUT_PARAM = "request.timeout";
+    /** Init parameter with search preference strategy: none, query or session. */
+    public static final String SEARCH_PREFERENCE_PARAM = "search.preference";
+    /** Init parameter with comma separated routing fields of types (index/type=field). */
+    public static final String ROUTING_FIELDS_PARAM = "routing.fields";
+    /** Init parameter with comma separated time-based aliases (alias=field|pattern). */
+    public static final String TIME_INDICES_PARAM = "time.indices";
+    /** Init parameter with initial concurrency limit per entity set, enables limiter. */
+    public static final String CONCURRENCY_LIMIT_PARAM = "concurrency.limit";
+    /** Init parameter with maximum concurrency limit per entity set. */
+    public static final String CONCURRENCY_LIMIT_MAX_PARAM = "concurrency.limit.max";
+    /** Init parameter with maximum amount of waiting requests per entity set. */
+    public static final String CONCURRENCY_QUEUE_SIZE_PARAM = "concurrency.queue.size";
+    /** Init parameter with maximum time to wait for admission in milliseconds. */
+    public static final String CONCURRENCY_QUEUE_WAIT_PARAM = "concurrency.queue.wait";
 
+    /** Init parameter with failure rate which opens circuit, enables circuit breaker. */
+    public static final String CIRCUIT_FAILURE_RATE_PARAM = "circuit.failure.rate";
+    /** Init parameter with amount of the latest requests counted by circuit. */
+    public static final String CIRCUIT_WINDOW_PARAM = "circuit.window";
+    /** Init parameter with minimal amount of counted requests to open circuit. */
+    public static final String CIRCUIT_MINIMUM_CALLS_PARAM = "circuit.minimum.calls";
+    /** Init parameter with latency in milliseconds counted as failure. */
+    public static final String CIRCUIT_SLOW_CALL_PARAM = "circuit.slow.call";
+    /** Init parameter with time in milliseconds circuit stays open. */
+    public static final String CIRCUIT_OPEN_PARAM = "circuit.open";
+
+    private static final long DEFAULT_RESULT_CACHE_TTL = 60000;
+    private static final int DEFAULT_CIRCUIT_WINDOW = 20;
+    private static final int DEFAULT_CIRCUIT_MINIMUM_CALLS = 10;
+    private static final long DEFAULT_CIRCUIT_OPEN = 10000;
+    private static final int DEFAULT_CONCURRENCY_QUEUE_SIZE = 100;
+    private static final long DEFAULT_CONCURRENCY_QUEUE_WAIT = 1000;
+    /** Time in milliseconds asynchronous request outlives its search deadline. */
+    private static final long ASYNC_TIMEOUT_MARGIN = 1000;
+
+    private final AtomicReference<ElasticEdmSnapshot> snapshot = new AtomicReference<>();
     private Client client;
-    private Set<String> indices;
+    private volatile Set<String> indices;
+    private MappingMetaDataProvider metaDataProvider;
+    private int schemaCacheSize;
+    private int schemaParallelism;
+    private Map<String, String> routingFields;
+    private Map<String, TimeIndexPattern> timeIndexPatterns;
+    private ResultCache resultCache;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private long requestTimeout;
+    private long asyncTimeout;
 
     @Override
     public void init() throws ServletException {
         ESConfig config = (ESConfig) getServletContext().getAttribute(ESConfig.getName());
         client = config.getClient();
-        indices = config.getIndices();
+        timeIndexPatterns = parseTimeIndexPatterns(getInitParameter(TIME_INDICES_PARAM));
+        indices = toExposed(config.getIndices());
+        indices.addAll(timeIndexPatterns.keySet());
+        schemaCacheSize = getIntParameter(SCHEMA_CACHE_SIZE_PARAM, 0);
+        schemaParallelism = getIntParameter(SCHEMA_PARALLELISM_PARAM,
+                Runtime.getRuntime().availableProcessors());
+        routingFields = parseRoutingFields(getInitParameter(ROUTING_FIELDS_PARAM));
+        metaDataProvider = createMetaDataProvider();
+        resultCache = createResultCache();
+        if (resultCache != null) {
+            ESClient.getInstance().setResultCache(resultCache);
+        }
+        requestTimeout = getLongParameter(REQUEST_TIMEOUT_PARAM, 0);
+        if (requestTimeout > 0) {
+            ESClient.getInstance().setDefaultTimeout(TimeValue.timeValueMillis(requestTimeout));
+        }
+        String preference = getInitParameter(SEARCH_PREFERENCE_PARAM);
+        if (preference != null) {
+            ESClient.getInstance().setPreferenceStrategy(
+                    PreferenceStrategy.valueOf(preference.trim().toUpperCase(Locale.ROOT)));
+        }
+        concurrencyLimiter = createConcurrencyLimiter();
+        if (concurrencyLimiter != null) {
+            ESClient.getInstance().setConcurrencyLimiter(concurrencyLimiter);
+        }
+        if (requestTimeout > 0) {
+            asyncTimeout = requestTimeout + ASYNC_TIMEOUT_MARGIN;
+            if (concurrencyLimiter != null) {
+                asyncTimeout += getLongParameter(CONCURRENCY_QUEUE_WAIT_PARAM,
+                        DEFAULT_CONCURRENCY_QUEUE_WAIT);
+            }
+        }
+        CircuitBreaker circuitBreaker = createCircuitBreaker();
+        if (circuitBreaker != null) {
+            ESClient.getInstance().setCircuitBreaker(circuitBreaker);
+        }
+        if (metaDataProvider instanceof DefaultMetaDataProvider) {
+            DefaultMetaDataProvider provider = (DefaultMetaDataProvider) metaDataProvider;
+            provider.setWatchedIndices(indices);
+            provider.addChangeListener(this::refresh);
+        }
+        refresh();
+        if (Boolean.parseBoolean(getInitParameter(WARMUP_ENABLED_PARAM))) {
+            if (Boolean.parseBoolean(getInitParameter(WARMUP_ASYNC_PARAM))) {
+                Thread warmer = new Thread(this::warmUp, "olastic-warmup");
+                warmer.setDaemon(true);
+                warmer.start();
+            } else {
+                warmUp();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (resultCache != null) {
+            ESClient.getInstance().setResultCache(null);
+            resultCache.close();
+        }
+        if (concurrencyLimiter != null) {
+            ESClient.getInstance().setConcurrencyLimiter(null);
+            concurrencyLimiter.close();
+        }
+        ESClient.getInstance().setCircuitBreaker(null);
+        if (metaDataProvider instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) metaDataProvider).close();
+            } catch (Exception e) {
+                log("Unable to close mappings provider.", e);
+            }
+        }
     }
 
+    /**
+     * Processes request. GET requests are processed asynchronously if
+     * container supports it: servlet thread is released while data is
+     * retrieved from Elasticsearch, and response is written when it's ready.
+     * If client disconnects before response is ready, request is cancelled
+     * together with its search in Elasticsearch. If request timeout is
+     * configured, asynchronous request times out a bit later than its search
+     * deadline and admission wait, otherwise it's limited by container's
+     * default timeout. All other requests are processed by the OData library
+     * synchronously.
+     */
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        OData odata = ElasticOData.newInstance();
-        ServiceMetadata matadata = createServiceMetadata(req, odata, createEdmProvider());
-        ODataHttpHandler handler = odata.createHandler(matadata);
-        registerProcessors(handler);
-        handler.process(req, resp);
+        ODataHttpHandler handler = createHandler(snapshot.get());
+        if (!req.isAsyncSupported() || !HttpMethod.GET.name().equals(req.getMethod())) {
+            handler.process(req, resp);
+            return;
+        }
+        AsyncODataRequest request = createRequest(req);
+        ODataResponse response = handler.process(request);
+        CompletableFuture<ODataResponse> deferred = request.getDeferredResponse();
+        if (deferred == null) {
+            writeResponse(resp, response, response);
+            return;
+        }
+        AsyncContext context = req.startAsync();
+        if (asyncTimeout > 0) {
+            // Search fails by its deadline first, container's timeout is a backstop
+            context.setTimeout(asyncTimeout);
+        }
+        context.addListener(new CancellingListener(request));
+        deferred.whenComplete((result, error) -> {
+            if (request.isCancelled()) {
+                // Container completes request after timeout or error
+                return;
+            }
+            try {
+                if (error != null) {
+                    log("Unable to process request " + request.getRawRequestUri(), error);
+                    resp.sendError(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+                } else {
+                    writeResponse(resp, response, result);
+                }
+            } catch (IOException | RuntimeException e) {
+                log("Unable to write response of " + request.getRawRequestUri(), e);
+                if (!resp.isCommitted()) {
+                    resp.reset();
+                    resp.setStatus(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+                }
+            } finally {
+                context.complete();
+            }
+        });
+    }
+
+    /**
+     * Listener which cancels request if connection with client is broken
+     * before response is written.
+     */
+    private static class CancellingListener implements AsyncListener {
+
+        private final AsyncODataRequest request;
+
+        CancellingListener(AsyncODataRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Nothing to cancel
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            request.cancel();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            request.cancel();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listener isn't used for further async cycles
+        }
+    }
+
+    /**
+     * Creates OData request from HTTP request the same way as OData library
+     * does. Authenticated user, or requested session, identifies session of
+     * request.
+     *
+     * @param req
+     *            HTTP request
+     * @return OData request
+     * @throws IOException
+     *             if request body can't be retrieved
+     */
+    private static AsyncODataRequest createRequest(HttpServletRequest req) throws IOException {
+        AsyncODataRequest request = new AsyncODataRequest();
+        request.setBody(req.getInputStream());
+        request.setProtocol(req.getProtocol());
+        request.setMethod(HttpMethod.GET);
+        for (String name : Collections.list(req.getHeaderNames())) {
+            request.addHeader(name, Collections.list(req.getHeaders(name)));
+        }
+        String rawRequestUri = req.getRequestURL().toString();
+        String rawODataPath;
+        if (!req.getServletPath().isEmpty()) {
+            rawODataPath = rawRequestUri.substring(rawRequestUri.indexOf(req.getServletPath())
+                    + req.getServletPath().length());
+        } else if (!req.getContextPath().isEmpty()) {
+            rawODataPath = rawRequestUri.substring(rawRequestUri.indexOf(req.getContextPath())
+                    + req.getContextPath().length());
+        } else {
+            rawODataPath = req.getRequestURI();
+        }
+        String queryString = req.getQueryString();
+        request.setRawODataPath(rawODataPath);
+        request.setRawBaseUri(
+                rawRequestUri.substring(0, rawRequestUri.length() - rawODataPath.length()));
+        request.setRawQueryPath(queryString);
+        request.setRawRequestUri(rawRequestUri + (queryString == null ? "" : "?" + queryString));
+        request.setSession(req.getRemoteUser() != null ? req.getRemoteUser()
+                : req.getRequestedSessionId());
+        return request;
+    }
+
+    /**
+     * Writes OData response to HTTP response.
+     *
+     * @param resp
+     *            HTTP response
+     * @param response
+     *            response returned by handler, only its headers are written
+     * @param result
+     *            response with status, headers and content
+     * @throws IOException
+     *             if content can't be written
+     */
+    private static void writeResponse(HttpServletResponse resp, ODataResponse response,
+            ODataResponse result) throws IOException {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(response.getAllHeaders());
+        headers.putAll(result.getAllHeaders());
+        resp.setStatus(result.getStatusCode());
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                resp.addHeader(header.getKey(), value);
+            }
+        }
+        if (result.getContent() != null) {
+            try (InputStream content = result.getContent()) {
+                ByteStreams.copy(content, resp.getOutputStream());
+            }
+        } else if (result.getODataContent() != null) {
+            result.getODataContent().write(resp.getOutputStream());
+        }
+    }
+
+    /**
+     * Builds new EDM snapshot and replaces current one with it. Requests that
+     * are already in progress complete with the snapshot they started with.
+     * Mappings provider is shared between snapshots, so already cached
+     * mappings are reused. Snapshot is also refreshed automatically when
+     * {@link DefaultMetaDataProvider} detects mappings changes. Unless provider is lazy, schemas of all indices are
+     * built in parallel before snapshot is created.
+     *
+     * @throws ServletException
+     *             if snapshot can't be built
+     */
+    public synchronized void refresh() throws ServletException {
+        try {
+            ElasticCsdlEdmProvider provider = createEdmProvider();
+            if (!provider.isLazy()) {
+                provider.loadSchemas(schemaParallelism);
+            }
+            snapshot.set(createSnapshot(provider));
+        } catch (ODataException e) {
+            throw new ServletException("Unable to build EDM snapshot.", e);
+        }
+    }
+
+    /**
+     * Builds new EDM snapshot after indices were created or deleted, or their
+     * mappings were changed. Only schemas of affected indices are built again,
+     * schemas of all other indices are shared with current snapshot. Concrete
+     * time-based indices aren't exposed, their changes affect their alias.
+     *
+     * @param created
+     *            names of created indices
+     * @param changed
+     *            names of indices which mappings were changed
+     * @param deleted
+     *            names of deleted indices
+     */
+    protected synchronized void refresh(Set<String> created, Set<String> changed,
+            Set<String> deleted) {
+        Set<String> current = indices;
+        Set<String> exposed = new HashSet<>(current);
+        exposed.addAll(toExposed(created));
+        exposed.removeAll(deleted);
+        Set<String> affected = toExposed(created);
+        affected.addAll(toExposed(changed));
+        affected.addAll(toExposed(deleted));
+        try {
+            ElasticCsdlEdmProvider previous = snapshot.get().getEdm().getCsdlProvider();
+            indices = exposed;
+            ElasticCsdlEdmProvider provider = createEdmProvider();
+            provider.reuseSchemas(previous, affected);
+            if (!provider.isLazy()) {
+                provider.loadSchemas(schemaParallelism);
+            }
+            snapshot.set(createSnapshot(provider));
+        } catch (ODataException e) {
+            indices = current;
+            log("Unable to refresh EDM snapshot of indices " + affected, e);
+        }
+    }
+
+    /**
+     * Warms up current snapshot. Servlet is initialized on startup, so unless
+     * warm-up runs in background, it doesn't accept requests until warm-up is
+     * finished.
+     */
+    protected void warmUp() {
+        String queries = getInitParameter(WARMUP_QUERIES_PARAM);
+        String entitySets = getInitParameter(WARMUP_ENTITY_SETS_PARAM);
+        SnapshotWarmer warmer = new SnapshotWarmer(
+                queries != null ? Arrays.asList(queries.trim().split("\\s+"))
+                        : SnapshotWarmer.DEFAULT_QUERIES,
+                getIntParameter(WARMUP_ROUNDS_PARAM, 1),
+                entitySets != null ? Arrays.asList(entitySets.trim().split("\\s*,\\s*"))
+                        : null,
+                getIntParameter(WARMUP_PARALLELISM_PARAM, 1), this::createHandler);
+        try {
+            Map<String, Long> timings = warmer.warmUp(snapshot.get());
+            log("EDM snapshot warm-up timings in ms: " + timings);
+        } catch (ODataException e) {
+            log("Unable to warm up EDM snapshot.", e);
+        }
+    }
+
+    /**
+     * Create's {@link ElasticEdmSnapshot} snapshot shared between requests.
+     *
+     * @param provider
+     *            CSDL provider
+     * @return snapshot
+     * @throws ODataException
+     *             if any error occurred during loading of EDM
+     */
+    protected ElasticEdmSnapshot createSnapshot(ElasticCsdlEdmProvider provider)
+            throws ODataException {
+        ElasticOData odata = ElasticOData.newInstance();
+        ServiceMetadata metadata = createServiceMetadata(null, odata, provider);
+        if (!(metadata instanceof ElasticServiceMetadata)) {
+            throw new ODataException("Service metadata has to be created by ElasticOData.");
+        }
+        return ElasticEdmSnapshot.create(odata, (ElasticServiceMetadata) metadata);
     }
 
     /**
-     * Create's {@link ServiceMetadata} metadata.
+     * Create's {@link ServiceMetadata} metadata. Metadata is created once for
+     * each EDM snapshot and shared between requests, so there is no request
+     * to pass.
      *
      * @param req
-     *            http request
+     *            http request, always null since metadata is shared
      * @param odata
      *            OData instance
      * @param provider
@@ -76,7 +502,151 @@ public class ODataServlet extends HttpServlet {
      * @return provider instance
      */
     protected ElasticCsdlEdmProvider createEdmProvider() {
-        return new MultyElasticIndexCsdlEdmProvider(createMetaDataProvider(), indices);
+        ElasticCsdlEdmProvider provider = new MultyElasticIndexCsdlEdmProvider(metaDataProvider,
+                indices);
+        provider.setSchemaCacheSize(schemaCacheSize);
+        timeIndexPatterns.forEach(provider::setTimeIndexPattern);
+        routingFields.forEach((type, field) -> {
+            int separator = type.indexOf('/');
+            provider.setRoutingField(type.substring(0, separator),
+                    type.substring(separator + 1), field);
+        });
+        return provider;
+    }
+
+    /**
+     * Replaces names of concrete time-based indices with their aliases.
+     *
+     * @param names
+     *            index names
+     * @return exposed index names
+     */
+    protected Set<String> toExposed(Set<String> names) {
+        Set<String> exposed = new HashSet<>();
+        for (String name : names) {
+            exposed.add(timeIndexPatterns.entrySet().stream()
+                    .filter(entry -> entry.getValue().matches(name)).map(Map.Entry::getKey)
+                    .findFirst().orElse(name));
+        }
+        return exposed;
+    }
+
+    /**
+     * Parses naming schemes of time-based indices from init parameter.
+     *
+     * @param value
+     *            comma separated schemes in alias=field|pattern format, where
+     *            pattern is date-time pattern of concrete index names, or null
+     * @return naming schemes by alias
+     * @throws ServletException
+     *             if value has invalid format
+     */
+    protected static Map<String, TimeIndexPattern> parseTimeIndexPatterns(String value)
+            throws ServletException {
+        Map<String, TimeIndexPattern> patterns = new TreeMap<>();
+        if (value == null) {
+            return patterns;
+        }
+        for (String item : value.split(",")) {
+            String scheme = item.trim();
+            if (scheme.isEmpty()) {
+                continue;
+            }
+            int assignment = scheme.indexOf('=');
+            int separator = scheme.indexOf('|');
+            if (assignment <= 0 || separator <= assignment + 1) {
+                throw new ServletException("Invalid time-based index: " + scheme);
+            }
+            try {
+                patterns.put(scheme.substring(0, assignment).trim(),
+                        new TimeIndexPattern(scheme.substring(assignment + 1, separator).trim(),
+                                scheme.substring(separator + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Invalid time-based index: " + scheme, e);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Parses routing fields of types from init parameter.
+     *
+     * @param value
+     *            comma separated routing fields in index/type=field format, or
+     *            null
+     * @return routing fields by index/type
+     * @throws ServletException
+     *             if value has invalid format
+     */
+    protected static Map<String, String> parseRoutingFields(String value)
+            throws ServletException {
+        Map<String, String> fields = new TreeMap<>();
+        if (value == null) {
+            return fields;
+        }
+        for (String item : value.split(",")) {
+            String routing = item.trim();
+            if (routing.isEmpty()) {
+                continue;
+            }
+            int assignment = routing.indexOf('=');
+            int separator = routing.indexOf('/');
+            if (separator <= 0 || assignment <= separator + 1
+                    || assignment == routing.length() - 1) {
+                throw new ServletException("Invalid routing field: " + routing);
+            }
+            fields.put(routing.substring(0, assignment).trim(),
+                    routing.substring(assignment + 1).trim());
+        }
+        return fields;
+    }
+
+    /**
+     * Create's {@link ResultCache} cache if it's enabled by init parameter.
+     *
+     * @return cache instance, or null if cache is disabled
+     */
+    protected ResultCache createResultCache() {
+        long size = getLongParameter(RESULT_CACHE_SIZE_PARAM, 0);
+        return size > 0 ? new ResultCache(client, size,
+                getLongParameter(RESULT_CACHE_TTL_PARAM, DEFAULT_RESULT_CACHE_TTL),
+                ResultCache.DEFAULT_POLL_INTERVAL, getLongParameter(RESULT_CACHE_STALE_PARAM, 0))
+                : null;
+    }
+
+    /**
+     * Create's {@link ConcurrencyLimiter} limiter if it's enabled by init
+     * parameter. By default limit could grow up to 4 times of initial one.
+     *
+     * @return limiter instance, or null if limiter is disabled
+     */
+    protected ConcurrencyLimiter createConcurrencyLimiter() {
+        int limit = getIntParameter(CONCURRENCY_LIMIT_PARAM, 0);
+        return limit > 0 ? new ConcurrencyLimiter(limit,
+                getIntParameter(CONCURRENCY_LIMIT_MAX_PARAM, limit * 4),
+                getIntParameter(CONCURRENCY_QUEUE_SIZE_PARAM, DEFAULT_CONCURRENCY_QUEUE_SIZE),
+                TimeValue.timeValueMillis(getLongParameter(CONCURRENCY_QUEUE_WAIT_PARAM,
+                        DEFAULT_CONCURRENCY_QUEUE_WAIT))) : null;
+    }
+
+    /**
+     * Create's {@link CircuitBreaker} breaker if it's enabled by init
+     * parameter.
+     *
+     * @return breaker instance, or null if breaker is disabled
+     */
+    protected CircuitBreaker createCircuitBreaker() {
+        String failureRate = getInitParameter(CIRCUIT_FAILURE_RATE_PARAM);
+        if (failureRate == null) {
+            return null;
+        }
+        long slowCall = getLongParameter(CIRCUIT_SLOW_CALL_PARAM, 0);
+        return new CircuitBreaker(getIntParameter(CIRCUIT_WINDOW_PARAM, DEFAULT_CIRCUIT_WINDOW),
+                getIntParameter(CIRCUIT_MINIMUM_CALLS_PARAM, DEFAULT_CIRCUIT_MINIMUM_CALLS),
+                Double.parseDouble(failureRate.trim()),
+                slowCall > 0 ? TimeValue.timeValueMillis(slowCall) : null,
+                TimeValue.timeValueMillis(getLongParameter(CIRCUIT_OPEN_PARAM,
+                        DEFAULT_CIRCUIT_OPEN)));
     }
 
     /**
@@ -85,7 +655,22 @@ public class ODataServlet extends HttpServlet {
      * @return provider instance
      */
     protected MappingMetaDataProvider createMetaDataProvider() {
-        return new DefaultMetaDataProvider(client);
+        return new DefaultMetaDataProvider(client, DefaultMetaDataProvider.DEFAULT_REFRESH_INTERVAL,
+                getIntParameter(MAPPINGS_CACHE_SIZE_PARAM,
+                        DefaultMetaDataProvider.DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Creates handler for snapshot with registered processors.
+     *
+     * @param edmSnapshot
+     *            EDM snapshot
+     * @return handler instance
+     */
+    protected ODataHttpHandler createHandler(ElasticEdmSnapshot edmSnapshot) {
+        ODataHttpHandler handler = edmSnapshot.createHandler();
+        registerProcessors(handler);
+        return handler;
     }
 
     /**
@@ -96,11 +681,22 @@ public class ODataServlet extends HttpServlet {
      *            OData handler
      */
     protected void registerProcessors(ODataHttpHandler handler) {
+        handler.register(new MetadataProcessorImpl());
         handler.register(new PrimitiveProcessorImpl());
         handler.register(new EntityProcessorHandler());
         handler.register(new EntityCollectionProcessorHandler());
     }
 
+    private int getIntParameter(String name, int defaultValue) {
+        String value = getInitParameter(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    private long getLongParameter(String name, long defaultValue) {
+        String value = getInitParameter(name);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
     public Client getClient() {
         return client;
     }
@@ -108,4 +704,8 @@ public class ODataServlet extends HttpServlet {
     public Set<String> getIndices() {
         return indices;
     }
+
+    public ElasticEdmSnapshot getSnapshot() {
+        return snapshot.get();
+    }
 }